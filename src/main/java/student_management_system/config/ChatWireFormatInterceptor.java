@@ -0,0 +1,301 @@
+package student_management_system.config;
+
+import student_management_system.service.SenderProfileCache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Outbound (server to client) STOMP interceptor that adapts chat frames to the wire format each
+ * session asked for in the {@code wire-format} header of its CONNECT frame:
+ * <ul>
+ *   <li>{@code json} (default) - today's JSON; the sender details are added to every frame.</li>
+ *   <li>{@code compact} - JSON with a per-session sender dictionary: a session receives a
+ *       sender's details with the first frame from that sender, later frames only carry
+ *       "senderId" and "senderUsername".</li>
+ *   <li>{@code cbor} - compact, encoded as CBOR in binary WebSocket frames. Only honored on the
+ *       native (non-SockJS) endpoint, since SockJS transports are text only; SockJS sessions
+ *       asking for it get {@code compact}.</li>
+ * </ul>
+ * Chat messages are broadcast in compact form with a {@code sender-id} header. Adding the
+ * details is a byte splice of a cached JSON fragment into the serialized payload, so the
+ * broadcast is serialized once whatever mix of formats its subscribers use; the spliced JSON and
+ * the CBOR encodings are also built once per broadcast and shared by its subscribers. With
+ * publish order preserved per session (WebSocketConfig), the first frame a session sees from a
+ * sender is the one that carries the details. A session's dictionary remembers the version of
+ * each sender's details (SenderProfileCache), so a changed name or picture is sent again.
+ */
+@Component
+public class ChatWireFormatInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWireFormatInterceptor.class);
+
+    /** CONNECT header with which a client selects its wire format. */
+    public static final String WIRE_FORMAT_HEADER = "wire-format";
+    /** Header on compact chat broadcasts naming the sender whose details were left out. */
+    public static final String SENDER_ID_HEADER = "sender-id";
+    /** Session attribute set by the handshake of the native WebSocket endpoint. */
+    public static final String NATIVE_WEBSOCKET_ATTRIBUTE = "nativeWebSocket";
+    /**
+     * Content type of CBOR frames. Spring only sends binary WebSocket frames for
+     * application/octet-stream payloads, hence the subtype plus a format parameter.
+     */
+    public static final MimeType CBOR_FRAME_CONTENT_TYPE = new MimeType("application", "octet-stream", Map.of("format", "cbor"));
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    public enum WireFormat { JSON, COMPACT, CBOR }
+
+    @Autowired
+    private SenderProfileCache senderProfileCache;
+
+    @Value("${app.websocket.sender-dictionary.max-senders-per-session:2000}")
+    private int maxSendersPerSession;
+
+    // sessionId -> format and sender dictionary; sessions using plain JSON are not tracked
+    private final Map<String, SessionFormat> sessions = new ConcurrentHashMap<>();
+    // The broker hands every subscriber of a broadcast the same payload array, one after the
+    // other, so remembering the last broadcast's encodings lets it be encoded once, not per session
+    private volatile Broadcast lastBroadcast;
+
+    @EventListener
+    public void handleSessionConnect(SessionConnectEvent event) {
+        Map<String, Object> headers = event.getMessage().getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        WireFormat format = parse(NativeMessageHeaderAccessor.getFirstNativeHeader(WIRE_FORMAT_HEADER, headers));
+        if (format == WireFormat.CBOR) {
+            Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+            if (attributes == null || !Boolean.TRUE.equals(attributes.get(NATIVE_WEBSOCKET_ATTRIBUTE))) {
+                logger.debug("Session {} asked for CBOR over SockJS; using compact JSON", sessionId);
+                format = WireFormat.COMPACT;
+            }
+        }
+        if (sessionId != null && format != WireFormat.JSON) {
+            sessions.put(sessionId, new SessionFormat(format));
+        }
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        Map<String, Object> headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        SessionFormat session = sessions.get(SimpMessageHeaderAccessor.getSessionId(headers));
+
+        Broadcast broadcast = broadcastOf(payload);
+        Spliced spliced = null;
+        Long senderId = parseSenderId(NativeMessageHeaderAccessor.getFirstNativeHeader(SENDER_ID_HEADER, headers));
+        if (senderId != null) {
+            SenderProfileCache.Profile profile = senderProfileCache.getProfile(senderId);
+            if (profile != null && (session == null || session.needsProfile(senderId, profile.version(), maxSendersPerSession))) {
+                spliced = broadcast.splicedWith(profile.fragment());
+            }
+        }
+        byte[] converted = spliced != null ? spliced.json : payload;
+
+        MimeType contentType = null;
+        if (session != null && session.format == WireFormat.CBOR && isJson(headers)) {
+            try {
+                converted = spliced != null ? spliced.cbor() : broadcast.cbor();
+                contentType = CBOR_FRAME_CONTENT_TYPE;
+            } catch (IOException e) {
+                logger.warn("Could not encode frame as CBOR, sending JSON: {}", e.getMessage());
+            }
+        }
+
+        if (converted == payload) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (contentType != null) {
+            accessor.setContentType(contentType);
+        }
+        return MessageBuilder.createMessage(converted, accessor.getMessageHeaders());
+    }
+
+    private Broadcast broadcastOf(byte[] payload) {
+        Broadcast last = lastBroadcast;
+        if (last != null && last.payload == payload) {
+            return last;
+        }
+        Broadcast broadcast = new Broadcast(payload);
+        lastBroadcast = broadcast;
+        return broadcast;
+    }
+
+    /**
+     * Inserts a JSON fragment ("a":1,"b":2) as the first fields of a serialized JSON object.
+     * @return the payload unchanged if it is not a JSON object.
+     */
+    public static byte[] splice(byte[] payload, byte[] fragment) {
+        if (payload.length < 2 || payload[0] != '{' || fragment.length == 0) {
+            return payload;
+        }
+        boolean emptyObject = payload[1] == '}';
+        byte[] result = new byte[payload.length + fragment.length + (emptyObject ? 0 : 1)];
+        result[0] = '{';
+        System.arraycopy(fragment, 0, result, 1, fragment.length);
+        int offset = 1 + fragment.length;
+        if (!emptyObject) {
+            result[offset++] = ',';
+        }
+        System.arraycopy(payload, 1, result, offset, payload.length - 1);
+        return result;
+    }
+
+    /**
+     * Re-encodes a JSON document as CBOR by streaming tokens (no intermediate tree).
+     */
+    public static byte[] toCbor(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isJson(Map<String, Object> headers) {
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        MimeType mimeType = contentType instanceof MimeType mt ? mt
+                : contentType instanceof String s ? MimeTypeUtils.parseMimeType(s) : null;
+        return mimeType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+
+    private static Long parseSenderId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null; // Not set by this application
+        }
+    }
+
+    private static WireFormat parse(String value) {
+        if (value == null) {
+            return WireFormat.JSON;
+        }
+        try {
+            return WireFormat.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return WireFormat.JSON;
+        }
+    }
+
+    /**
+     * One broadcast payload and the encodings built from it so far. Concurrent senders may build
+     * the same encoding twice; either result is correct.
+     */
+    private static final class Broadcast {
+
+        private final byte[] payload;
+        private volatile byte[] cbor;
+        private volatile Spliced spliced;
+
+        private Broadcast(byte[] payload) {
+            this.payload = payload;
+        }
+
+        byte[] cbor() throws IOException {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                encoded = toCbor(payload);
+                cbor = encoded;
+            }
+            return encoded;
+        }
+
+        Spliced splicedWith(byte[] fragment) {
+            Spliced last = spliced;
+            if (last != null && last.fragment == fragment) {
+                return last;
+            }
+            Spliced created = new Spliced(fragment, splice(payload, fragment));
+            spliced = created;
+            return created;
+        }
+    }
+
+    /**
+     * A broadcast payload with one version of the sender's details spliced in.
+     */
+    private static final class Spliced {
+
+        private final byte[] fragment;
+        private final byte[] json;
+        private volatile byte[] cbor;
+
+        private Spliced(byte[] fragment, byte[] json) {
+            this.fragment = fragment;
+            this.json = json;
+        }
+
+        byte[] cbor() throws IOException {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                encoded = toCbor(json);
+                cbor = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    private static final class SessionFormat {
+
+        private final WireFormat format;
+        // Sender ID -> version of the details the session last received
+        private final Map<Long, Long> knownProfileVersions = new ConcurrentHashMap<>();
+
+        private SessionFormat(WireFormat format) {
+            this.format = format;
+        }
+
+        /**
+         * @return true if the session has not yet seen this version of the sender's details (it then
+         *         needs them spliced into the frame).
+         */
+        boolean needsProfile(Long senderId, long version, int maxSenders) {
+            if (knownProfileVersions.size() >= maxSenders) {
+                knownProfileVersions.clear(); // The client keeps its dictionary; details are just re-sent
+            }
+            Long known = knownProfileVersions.put(senderId, version);
+            return known == null || known != version;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package student_management_system.config;
+
+import student_management_system.repository.ClassGradeSummaryRepository;
+import student_management_system.service.ClassGradeSummaryService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills class_grade_summary on startup when it is empty (first start after the table was
+ * introduced). The rebuild runs in the background; until it has reached a class, its pages
+ * show no overall grade.
+ */
+@Component
+public class ClassGradeSummaryBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassGradeSummaryBackfill.class);
+
+    @Autowired private ClassGradeSummaryRepository classGradeSummaryRepository;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+
+    @Override
+    public void run(String... args) {
+        if (classGradeSummaryRepository.count() == 0 && classGradeSummaryService.startRebuild()) {
+            logger.info("Building class grade summaries from submissions and quiz attempts in the background.");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package student_management_system.config;
+
+import student_management_system.model.ConversationSummary;
+import student_management_system.repository.ConversationSummaryRepository;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.UserRepository;
+import student_management_system.service.ConversationSummaryService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates missing conversation summary rows on startup for friendships and class memberships
+ * that existed before summaries were introduced (or that drifted). Existing rows are detected
+ * from one id-only query, so a steady-state startup performs no per-conversation work.
+ */
+@Component
+public class ConversationSummaryBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummaryBackfill.class);
+
+    @Autowired private ConversationSummaryRepository conversationSummaryRepository;
+    @Autowired private ConversationSummaryService conversationSummaryService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private SchoolClassRepository schoolClassRepository;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        Set<String> existing = new HashSet<>();
+        for (Object[] row : conversationSummaryRepository.findAllOwnerRefPairs()) {
+            existing.add(row[0] + "|" + row[1]);
+        }
+
+        int created = 0;
+        for (Object[] pair : userRepository.findAllFriendIdPairs()) {
+            Long userId = (Long) pair[0];
+            Long friendId = (Long) pair[1];
+            String ref = ConversationSummary.privateRef(userId, friendId);
+            if (!existing.contains(userId + "|" + ref) || !existing.contains(friendId + "|" + ref)) {
+                conversationSummaryService.ensurePrivateConversation(
+                        userRepository.getReferenceById(userId), userRepository.getReferenceById(friendId));
+                existing.add(userId + "|" + ref);
+                existing.add(friendId + "|" + ref);
+                created++;
+            }
+        }
+
+        List<Object[]> members = schoolClassRepository.findAllEnrollmentIdPairs();
+        members.addAll(schoolClassRepository.findAllTeacherIdPairs());
+        for (Object[] pair : members) {
+            Long classId = (Long) pair[0];
+            Long memberId = (Long) pair[1];
+            String key = memberId + "|" + ConversationSummary.classRef(classId);
+            if (!existing.contains(key)) {
+                conversationSummaryService.ensureClassConversation(
+                        userRepository.getReferenceById(memberId), schoolClassRepository.getReferenceById(classId));
+                existing.add(key);
+                created++;
+            }
+        }
+
+        if (created > 0) {
+            logger.info("Backfilled {} missing conversation summaries.", created);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package student_management_system.config;
+
+import student_management_system.service.MessageSearchIndex;
+import student_management_system.service.MessageSearchService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the message search index on startup when it is empty (first start, or the index
+ * directory was removed), or always with {@code app.search.reindex-on-startup=true}.
+ * The rebuild runs in the background; the application serves requests meanwhile.
+ */
+@Component
+public class MessageSearchIndexBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndexBackfill.class);
+
+    @Value("${app.search.reindex-on-startup:false}")
+    private boolean reindexOnStartup;
+
+    @Autowired private MessageSearchIndex messageSearchIndex;
+    @Autowired private MessageSearchService messageSearchService;
+
+    @Override
+    public void run(String... args) {
+        if (reindexOnStartup || messageSearchIndex.isEmpty()) {
+            logger.info("Rebuilding the message search index from the database in the background.");
+            messageSearchService.startReindex();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package student_management_system.config;
+
+import student_management_system.repository.PrivateMessageRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Backfills PrivateMessage.conversationKey for rows created before the column was introduced.
+ * Runs once on startup; rows that already have a key are left untouched, so repeated runs are no-ops.
+ */
+@Component
+public class PrivateMessageConversationKeyBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrivateMessageConversationKeyBackfill.class);
+
+    @Autowired
+    private PrivateMessageRepository privateMessageRepository;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        int updated = privateMessageRepository.backfillConversationKeys();
+        if (updated > 0) {
+            logger.info("Backfilled conversation keys for {} private messages.", updated);
+        } else {
+            logger.debug("No private messages required a conversation key backfill.");
+        }
+    }
+}
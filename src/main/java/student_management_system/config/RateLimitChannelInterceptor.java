@@ -0,0 +1,74 @@
+package student_management_system.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Inbound (client to server) STOMP interceptor that throttles chat SEND frames with RateLimiter:
+ * {@code /app/chat.sendMessage/**} (class chat) and {@code /app/private.chat}. A throttled frame
+ * is dropped before it reaches the controller, and the sender is told on
+ * {@code /user/queue/errors}.
+ */
+@Component
+public class RateLimitChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitChannelInterceptor.class);
+
+    /** User destination on which clients receive rejections. */
+    public static final String ERRORS_QUEUE = "/queue/errors";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    // The messaging template is built from the channels this interceptor is registered on
+    @Autowired
+    private ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message; // Only SEND frames carry chat messages
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        RateLimiter.Rule rule = ruleFor(destination);
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (rule == null || user == null) {
+            return message;
+        }
+        if (rateLimiter.tryAcquire(rule, user.getName())) {
+            return message;
+        }
+        logger.debug("Throttled {} from {} to {}", rule, user.getName(), destination);
+        long retryAfterSeconds = rateLimiter.secondsUntilAvailable(rule, user.getName());
+        messagingTemplate.getObject().convertAndSendToUser(user.getName(), ERRORS_QUEUE, Map.of(
+                "error", "You are sending messages too quickly. Please wait a moment.",
+                "destination", destination,
+                "retryAfterSeconds", retryAfterSeconds));
+        return null;
+    }
+
+    private static RateLimiter.Rule ruleFor(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        if (destination.startsWith("/app/chat.sendMessage/")) {
+            return RateLimiter.Rule.CLASS_CHAT;
+        }
+        if (destination.equals("/app/private.chat")) {
+            return RateLimiter.Rule.PRIVATE_CHAT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,72 @@
+package student_management_system.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * MVC interceptor that throttles attachment uploads and friend requests with RateLimiter
+ * (registered for those paths in WebMvcConfig). Uploads are fetch requests and get a 429 with
+ * a JSON error; friend requests are form posts and are redirected back with an error message.
+ * Either way the user is also told on {@code /user/queue/errors}, like throttled chat messages.
+ */
+@Component
+public class RateLimitHandlerInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitHandlerInterceptor.class);
+
+    private static final String MESSAGE = "Too many requests. Please wait a moment and try again.";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        Principal user = request.getUserPrincipal();
+        if (!"POST".equals(request.getMethod()) || user == null) {
+            return true;
+        }
+        RateLimiter.Rule rule = request.getRequestURI().startsWith(request.getContextPath() + "/friends/")
+                ? RateLimiter.Rule.FRIEND_REQUEST
+                : RateLimiter.Rule.UPLOAD;
+        if (rateLimiter.tryAcquire(rule, user.getName())) {
+            return true;
+        }
+        long retryAfterSeconds = rateLimiter.secondsUntilAvailable(rule, user.getName());
+        logger.debug("Throttled {} from {} to {}", rule, user.getName(), request.getRequestURI());
+        messagingTemplate.convertAndSendToUser(user.getName(), RateLimitChannelInterceptor.ERRORS_QUEUE, Map.of(
+                "error", MESSAGE,
+                "destination", request.getRequestURI(),
+                "retryAfterSeconds", retryAfterSeconds));
+
+        if (rule == RateLimiter.Rule.FRIEND_REQUEST) {
+            FlashMap flashMap = RequestContextUtils.getOutputFlashMap(request);
+            flashMap.put("errorMessage", MESSAGE);
+            String target = request.getContextPath() + "/friends/search"; // Where the friend request form redirects
+            RequestContextUtils.saveOutputFlashMap(target, request, response);
+            response.sendRedirect(target);
+        } else {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"" + MESSAGE + "\"}");
+        }
+        return false;
+    }
+}
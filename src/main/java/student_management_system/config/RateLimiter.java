@@ -0,0 +1,165 @@
+package student_management_system.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user token buckets for the actions one client could use to flood the others, shared by
+ * RateLimitChannelInterceptor (STOMP) and RateLimitHandlerInterceptor (HTTP).
+ * <p>
+ * Every {@link Rule} has its own bucket per user of {@code app.rate-limit.<rule>.capacity} tokens
+ * (the allowed burst), refilled at {@code refill-per-minute}. A bucket is a single AtomicLong in
+ * GCRA form: it stores the time at which the bucket will be full again, and a request is a CAS
+ * that moves that time forward by one token's worth, so checks never lock. Full buckets are
+ * dropped periodically.
+ * <p>
+ * Metrics: {@code rate_limit.throttled}, tagged with the rule.
+ */
+@Component
+public class RateLimiter {
+
+    /**
+     * The limited actions.
+     */
+    public enum Rule {
+        CLASS_CHAT("class-chat"),
+        PRIVATE_CHAT("private-chat"),
+        UPLOAD("upload"),
+        FRIEND_REQUEST("friend-request");
+
+        private final String propertyName;
+
+        Rule(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        public String getPropertyName() {
+            return propertyName;
+        }
+    }
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.class-chat.capacity:20}")
+    private int classChatCapacity;
+
+    @Value("${app.rate-limit.class-chat.refill-per-minute:60}")
+    private int classChatRefillPerMinute;
+
+    @Value("${app.rate-limit.private-chat.capacity:20}")
+    private int privateChatCapacity;
+
+    @Value("${app.rate-limit.private-chat.refill-per-minute:60}")
+    private int privateChatRefillPerMinute;
+
+    @Value("${app.rate-limit.upload.capacity:5}")
+    private int uploadCapacity;
+
+    @Value("${app.rate-limit.upload.refill-per-minute:10}")
+    private int uploadRefillPerMinute;
+
+    @Value("${app.rate-limit.friend-request.capacity:10}")
+    private int friendRequestCapacity;
+
+    @Value("${app.rate-limit.friend-request.refill-per-minute:5}")
+    private int friendRequestRefillPerMinute;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Rule, Limit> limits = new EnumMap<>(Rule.class);
+    private final Map<Rule, Counter> throttledCounters = new EnumMap<>(Rule.class);
+    // "rule:username" -> time (nanos) at which the bucket is full again
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        limits.put(Rule.CLASS_CHAT, new Limit(classChatCapacity, classChatRefillPerMinute));
+        limits.put(Rule.PRIVATE_CHAT, new Limit(privateChatCapacity, privateChatRefillPerMinute));
+        limits.put(Rule.UPLOAD, new Limit(uploadCapacity, uploadRefillPerMinute));
+        limits.put(Rule.FRIEND_REQUEST, new Limit(friendRequestCapacity, friendRequestRefillPerMinute));
+        for (Rule rule : Rule.values()) {
+            throttledCounters.put(rule, Counter.builder("rate_limit.throttled")
+                    .description("Requests rejected by the rate limiter")
+                    .tag("rule", rule.getPropertyName())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Takes one token from the user's bucket for the rule.
+     *
+     * @return true if the action may proceed; false if it is throttled (and counted).
+     */
+    public boolean tryAcquire(Rule rule, String username) {
+        if (!enabled || username == null) {
+            return true;
+        }
+        Limit limit = limits.get(rule);
+        if (limit.capacity <= 0) {
+            return true; // Rule switched off
+        }
+        AtomicLong fullAt = buckets.computeIfAbsent(rule.name() + ":" + username, key -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = start + limit.nanosPerToken;
+            // Allowed while at most capacity tokens are "in use"
+            if (next - now > limit.burstNanos) {
+                throttledCounters.get(rule).increment();
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return seconds until the user's bucket for the rule has a token again (for Retry-After).
+     */
+    public long secondsUntilAvailable(Rule rule, String username) {
+        AtomicLong fullAt = buckets.get(rule.name() + ":" + username);
+        Limit limit = limits.get(rule);
+        if (fullAt == null || fullAt.get() == Long.MIN_VALUE) {
+            return 0;
+        }
+        long waitNanos = fullAt.get() + limit.nanosPerToken - System.nanoTime() - limit.burstNanos;
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+    }
+
+    /**
+     * Drops buckets that have refilled completely; a new one behaves the same.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval-ms:60000}")
+    public void dropFullBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(fullAt -> fullAt.get() == Long.MIN_VALUE || fullAt.get() - now < 0);
+    }
+
+    private static final class Limit {
+
+        private final int capacity;
+        private final long nanosPerToken;
+        private final long burstNanos;
+
+        Limit(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute);
+            this.burstNanos = nanosPerToken * Math.max(1, capacity);
+        }
+    }
+}
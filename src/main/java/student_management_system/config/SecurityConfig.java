@@ -37,6 +37,7 @@ public class SecurityConfig {
 
                         // Role-specific authorizations
                         .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // Health and metrics
 
                         // Teacher URLs
                         .requestMatchers("/teacher/**").hasRole("TEACHER")
@@ -57,6 +58,7 @@ public class SecurityConfig {
 
                         // WebSocket Endpoint (Typically handled differently, but permit access for SockJS)
                         .requestMatchers("/ws/**").permitAll() // Allow SockJS connection
+                        .requestMatchers("/ws-native").permitAll() // Plain WebSocket endpoint (binary frames)
 
                         // All other requests must be authenticated
                         .anyRequest().authenticated()
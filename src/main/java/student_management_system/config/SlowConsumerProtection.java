@@ -0,0 +1,238 @@
+package student_management_system.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one slow WebSocket client from holding up everyone else.
+ * <p>
+ * Every session is wrapped in a {@link SlowConsumerSessionDecorator} whose send only queues the
+ * frame; the socket writes happen on a small pool of writer threads, one flush at a time per
+ * session. Broker and outbound channel threads therefore never block on a client's socket, so a
+ * student on a bad connection cannot slow down a class broadcast for the others.
+ * <p>
+ * When a session's queue exceeds {@code app.websocket.transport.send-buffer-size-limit} bytes,
+ * {@code app.websocket.slow-consumer.policy} decides what happens:
+ * <ul>
+ *   <li>{@code disconnect} (default) - the session is closed, as Spring does by default. The
+ *       client reconnects and reloads the history.</li>
+ *   <li>{@code drop-oldest} - the oldest queued MESSAGE frames are dropped until the queue fits
+ *       (CONNECTED, RECEIPT, ERROR and heart-beat frames are always kept).</li>
+ *   <li>{@code coalesce} - queued text frames are written as one WebSocket message per write
+ *       (STOMP allows several frames per message), so a session that fell behind catches up
+ *       with far fewer writes; if the queue still overflows, the oldest frames are dropped.</li>
+ * </ul>
+ * A single write taking longer than {@code app.websocket.transport.send-time-limit-ms} always
+ * closes the session, whatever the policy.
+ * <p>
+ * Metrics: per session {@code websocket.session.queue.depth} (frames) and
+ * {@code websocket.session.queue.bytes}, tagged with the session ID; overall
+ * {@code websocket.session.queue.depth.max}, {@code websocket.slow_consumer.dropped},
+ * {@code websocket.slow_consumer.coalesced} and {@code websocket.slow_consumer.disconnected}.
+ */
+@Component
+public class SlowConsumerProtection implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerProtection.class);
+
+    public enum Policy { DISCONNECT, DROP_OLDEST, COALESCE }
+
+    @Value("${app.websocket.slow-consumer.policy:disconnect}")
+    private String policyName;
+
+    @Value("${app.websocket.slow-consumer.writer-threads:0}")
+    private int writerThreads;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Policy policy;
+    private ThreadPoolTaskExecutor writerExecutor;
+    // sessionId -> decorated session and its per-session gauges
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    private Counter droppedCounter;
+    private Counter coalescedCounter;
+    private Counter disconnectedCounter;
+
+    @PostConstruct
+    void start() {
+        policy = parse(policyName);
+        writerExecutor = new ThreadPoolTaskExecutor();
+        int threads = writerThreads > 0 ? writerThreads : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        writerExecutor.setCorePoolSize(threads);
+        writerExecutor.setMaxPoolSize(threads);
+        writerExecutor.setThreadNamePrefix("ws-writer-");
+        writerExecutor.setDaemon(true);
+        writerExecutor.initialize();
+
+        Gauge.builder("websocket.session.queue.depth.max", sessions, SlowConsumerProtection::maxQueueDepth)
+                .description("Frames queued for the most backed-up WebSocket session")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("websocket.slow_consumer.dropped")
+                .description("Frames dropped because a session's send queue was full")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("websocket.slow_consumer.coalesced")
+                .description("Frames written together with an earlier frame in one WebSocket message")
+                .register(meterRegistry);
+        disconnectedCounter = Counter.builder("websocket.slow_consumer.disconnected")
+                .description("Sessions closed for exceeding the send buffer or send time limit")
+                .register(meterRegistry);
+        logger.info("WebSocket slow-consumer policy {} (buffer limit {} bytes, send time limit {} ms, {} writer threads)",
+                policy, sendBufferSizeLimit, sendTimeLimitMs, threads);
+    }
+
+    @PreDestroy
+    void stop() {
+        writerExecutor.shutdown();
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(register(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                unregister(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return frames queued for the session, or 0 if it is not (or no longer) open.
+     */
+    public int getQueueDepth(String sessionId) {
+        TrackedSession tracked = sessions.get(sessionId);
+        return tracked == null ? 0 : tracked.session.getQueueDepth();
+    }
+
+    /**
+     * Closes sessions stuck in a single write for longer than the send time limit. Sends that
+     * are merely slow are caught when the next frame is queued; this catches the ones that
+     * stall with nothing more to send.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void closeStalledSessions() {
+        for (TrackedSession tracked : sessions.values()) {
+            if (tracked.session.getTimeSinceSendStarted() > sendTimeLimitMs) {
+                disconnect(tracked.session, "send stalled for more than " + sendTimeLimitMs + " ms");
+            }
+        }
+    }
+
+    // --- Called by SlowConsumerSessionDecorator ---
+
+    void schedule(Runnable flush) {
+        writerExecutor.execute(flush);
+    }
+
+    void recordDropped(int frames) {
+        droppedCounter.increment(frames);
+    }
+
+    void recordCoalesced(int frames) {
+        coalescedCounter.increment(frames);
+    }
+
+    /**
+     * Closes a session off the calling thread: closing sends a close frame, which waits for a
+     * write that may be stuck on the same socket.
+     */
+    void disconnect(SlowConsumerSessionDecorator session, String reason) {
+        if (!session.markClosing()) {
+            return; // Already being closed
+        }
+        disconnectedCounter.increment();
+        logger.warn("Closing slow WebSocket session {} ({}): {}", session.getId(), policy, reason);
+        writerExecutor.execute(() -> {
+            try {
+                session.getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Error closing slow session {}: {}", session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    // --- Helper Methods ---
+
+    private SlowConsumerSessionDecorator register(WebSocketSession session) {
+        SlowConsumerSessionDecorator decorated =
+                new SlowConsumerSessionDecorator(session, this, policy, sendBufferSizeLimit, sendTimeLimitMs);
+        List<Meter> meters = List.of(
+                Gauge.builder("websocket.session.queue.depth", decorated, SlowConsumerSessionDecorator::getQueueDepth)
+                        .description("Frames waiting to be written to the session")
+                        .tag("session", session.getId())
+                        .register(meterRegistry),
+                Gauge.builder("websocket.session.queue.bytes", decorated, SlowConsumerSessionDecorator::getQueuedBytes)
+                        .description("Payload bytes waiting to be written to the session")
+                        .tag("session", session.getId())
+                        .register(meterRegistry));
+        sessions.put(session.getId(), new TrackedSession(decorated, meters));
+        return decorated;
+    }
+
+    private void unregister(String sessionId) {
+        TrackedSession tracked = sessions.remove(sessionId);
+        if (tracked == null) {
+            return;
+        }
+        tracked.session.markClosing();
+        tracked.meters.forEach(meterRegistry::remove);
+    }
+
+    private static double maxQueueDepth(Map<String, TrackedSession> sessions) {
+        int max = 0;
+        for (TrackedSession tracked : sessions.values()) {
+            max = Math.max(max, tracked.session.getQueueDepth());
+        }
+        return max;
+    }
+
+    private static Policy parse(String value) {
+        try {
+            return Policy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown slow-consumer policy '{}'; using disconnect", value);
+            return Policy.DISCONNECT;
+        }
+    }
+
+    private record TrackedSession(SlowConsumerSessionDecorator session, List<Meter> meters) {
+    }
+}
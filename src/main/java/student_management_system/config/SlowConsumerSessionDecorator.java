@@ -0,0 +1,217 @@
+package student_management_system.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A session whose {@link #sendMessage} only queues the frame. Queued frames are written by
+ * SlowConsumerProtection's writer threads, at most one flush per session at a time, so frames
+ * still go out in the order they were sent. See SlowConsumerProtection for the policies.
+ */
+public class SlowConsumerSessionDecorator extends WebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerSessionDecorator.class);
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final SlowConsumerProtection protection;
+    private final SlowConsumerProtection.Policy policy;
+    private final int bufferSizeLimit;
+    private final int sendTimeLimitMs;
+
+    // Guarded by "queue"
+    private final Deque<WebSocketMessage<?>> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean flushScheduled;
+
+    private volatile int queueDepth;
+    private volatile long sendStartTime; // 0 while no write is in progress
+    private volatile boolean closing;
+
+    public SlowConsumerSessionDecorator(WebSocketSession session, SlowConsumerProtection protection,
+                                        SlowConsumerProtection.Policy policy, int bufferSizeLimit, int sendTimeLimitMs) {
+        super(session);
+        this.protection = protection;
+        this.policy = policy;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closing) {
+            return;
+        }
+        if (getTimeSinceSendStarted() > sendTimeLimitMs) {
+            protection.disconnect(this, "write in progress for more than " + sendTimeLimitMs + " ms");
+            return;
+        }
+        boolean overflow = false;
+        int dropped = 0;
+        boolean schedule;
+        synchronized (queue) {
+            queue.addLast(message);
+            queuedBytes += message.getPayloadLength();
+            if (queuedBytes > bufferSizeLimit) {
+                if (policy == SlowConsumerProtection.Policy.DISCONNECT) {
+                    overflow = true;
+                } else {
+                    dropped = dropOldestMessages();
+                }
+            }
+            queueDepth = queue.size();
+            schedule = !overflow && !flushScheduled;
+            if (schedule) {
+                flushScheduled = true;
+            }
+        }
+        if (dropped > 0) {
+            protection.recordDropped(dropped);
+            logger.debug("Dropped {} queued frames for slow session {}", dropped, getId());
+        }
+        if (overflow) {
+            protection.disconnect(this, "send buffer exceeded " + bufferSizeLimit + " bytes");
+        } else if (schedule) {
+            protection.schedule(this::flush);
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        markClosing();
+        super.close(status);
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueuedBytes() {
+        synchronized (queue) {
+            return queuedBytes;
+        }
+    }
+
+    /**
+     * @return how long the write in progress has been running, 0 if there is none.
+     */
+    public long getTimeSinceSendStarted() {
+        long start = sendStartTime;
+        return start == 0 ? 0 : System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Stops accepting frames and discards the queue.
+     * @return false if the session was already closing.
+     */
+    boolean markClosing() {
+        synchronized (queue) {
+            if (closing) {
+                return false;
+            }
+            closing = true;
+            queue.clear();
+            queuedBytes = 0;
+            queueDepth = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Writes queued frames until the queue is empty. Runs on a writer thread.
+     */
+    private void flush() {
+        try {
+            while (true) {
+                WebSocketMessage<?> next;
+                int coalesced = 0;
+                synchronized (queue) {
+                    if (closing || queue.isEmpty()) {
+                        flushScheduled = false;
+                        return;
+                    }
+                    next = queue.pollFirst();
+                    queuedBytes -= next.getPayloadLength();
+                    if (policy == SlowConsumerProtection.Policy.COALESCE && next instanceof TextMessage first
+                            && queue.peekFirst() instanceof TextMessage) {
+                        StringBuilder frames = new StringBuilder(first.getPayload());
+                        while (queue.peekFirst() instanceof TextMessage following) {
+                            queue.pollFirst();
+                            queuedBytes -= following.getPayloadLength();
+                            frames.append(following.getPayload());
+                            coalesced++;
+                        }
+                        next = new TextMessage(frames);
+                    }
+                    queueDepth = queue.size();
+                }
+                if (coalesced > 0) {
+                    protection.recordCoalesced(coalesced);
+                }
+                sendStartTime = System.currentTimeMillis();
+                try {
+                    getDelegate().sendMessage(next);
+                } finally {
+                    sendStartTime = 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Write to session {} failed, closing it: {}", getId(), e.getMessage());
+            synchronized (queue) {
+                flushScheduled = false;
+            }
+            protection.disconnect(this, "write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the oldest MESSAGE frames until the queue fits the limit. Other frames (CONNECTED,
+     * RECEIPT, ERROR, heart-beats) are small and the client needs them, so they stay.
+     * @return the number of frames dropped.
+     */
+    private int dropOldestMessages() {
+        int dropped = 0;
+        Iterator<WebSocketMessage<?>> oldestFirst = queue.iterator();
+        while (queuedBytes > bufferSizeLimit && oldestFirst.hasNext()) {
+            WebSocketMessage<?> candidate = oldestFirst.next();
+            if (isMessageFrame(candidate)) {
+                oldestFirst.remove();
+                queuedBytes -= candidate.getPayloadLength();
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith("MESSAGE\n");
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload();
+            if (payload.remaining() < MESSAGE_COMMAND.length) {
+                return false;
+            }
+            for (int i = 0; i < MESSAGE_COMMAND.length; i++) {
+                if (payload.get(payload.position() + i) != MESSAGE_COMMAND[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+package student_management_system.config;
+
+import student_management_system.repository.UserRepository;
+import student_management_system.service.UserSearchIndex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the user search index from the users table once the application is ready (after
+ * DataInitializer and the other startup runners), and reloads it every
+ * {@code app.user-search.reload-interval-ms} so that users changed on other nodes show up.
+ * Loads stream the table in ID batches of projected columns and run in the background.
+ */
+@Component
+public class UserSearchIndexLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndexLoader.class);
+
+    @Value("${app.user-search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.user-search.load-batch-size:1000}")
+    private int batchSize;
+
+    @Autowired private UserSearchIndex userSearchIndex;
+    @Autowired private UserRepository userRepository;
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            logger.info("User search index disabled; friend search queries the database.");
+            return;
+        }
+        Thread worker = new Thread(this::reload, "user-search-load");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.user-search.reload-interval-ms:3600000}",
+               fixedDelayString = "${app.user-search.reload-interval-ms:3600000}")
+    public void reload() {
+        if (!enabled || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            userSearchIndex.startLoad();
+            Set<Long> seen = new HashSet<>();
+            Pageable batch = Pageable.ofSize(batchSize);
+            long afterId = 0;
+            List<Object[]> rows;
+            while (!(rows = userRepository.findSearchColumnsAfterId(afterId, batch)).isEmpty()) {
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                }
+                Map<Long, List<String>> rolesById = new HashMap<>();
+                for (Object[] row : userRepository.findRoleNamesByIdIn(ids)) {
+                    rolesById.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+                }
+                List<UserSearchIndex.IndexedUser> users = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    users.add(new UserSearchIndex.IndexedUser(id, (String) row[1], (String) row[2], (String) row[3],
+                            (String) row[4], rolesById.getOrDefault(id, List.of())));
+                }
+                userSearchIndex.loadBatch(users, seen);
+                afterId = ids.get(ids.size() - 1);
+            }
+            userSearchIndex.finishLoad(seen);
+            logger.debug("User search index load took {} ms", System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            userSearchIndex.abortLoad();
+            logger.error("Loading the user search index failed: {}", e.getMessage(), e);
+        } finally {
+            loading.set(false);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package student_management_system.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * MVC configuration: rate limiting for the endpoints that create attachments or friend requests.
+ * Chunk uploads are not limited per request; starting the upload is.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private RateLimitHandlerInterceptor rateLimitHandlerInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitHandlerInterceptor)
+                .addPathPatterns("/chat/private/upload/*", "/chat/private/upload/*/init", "/friends/request/send/*");
+    }
+}
@@ -1,34 +1,203 @@
 package student_management_system.config;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configures WebSocket messaging with STOMP for real-time communication (chat).
  * Updated to include user destination configuration for private messaging.
+ * <p>
+ * The broker is selected with {@code app.websocket.broker.mode}:
+ * <ul>
+ *   <li>{@code simple} (default) - the in-memory broker; messages only reach clients connected
+ *       to this JVM.</li>
+ *   <li>{@code relay} - a STOMP broker relay to an external broker (e.g. ActiveMQ Artemis or
+ *       RabbitMQ with the STOMP plugin), so class topics and {@code /user/queue/**} destinations
+ *       reach clients on every application node.</li>
+ * </ul>
+ * Clients pick a payload format at CONNECT (see ChatWireFormatInterceptor). Binary CBOR frames
+ * need the native WebSocket endpoint {@code /ws-native}; {@code /ws} is the SockJS endpoint.
+ * <p>
+ * The inbound and outbound channel thread pools and the per-session send limits are set with
+ * {@code app.websocket.inbound.*}, {@code app.websocket.outbound.*} and
+ * {@code app.websocket.transport.*}; SlowConsumerProtection decides what happens to sessions
+ * that cannot keep up. RateLimitChannelInterceptor throttles chat messages per user.
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    /** Broker destination where user messages that could not be resolved locally are broadcast to the other nodes. */
+    public static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+    /** Broker destination where each node periodically shares its connected users. */
+    public static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${app.websocket.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${app.websocket.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${app.websocket.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${app.websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Channel thread pools: 0 = two threads per CPU core / unbounded queue (Spring's defaults)
+    @Value("${app.websocket.inbound.core-pool-size:0}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:0}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:0}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.core-pool-size:0}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:0}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:0}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    // Absent when only the messaging infrastructure is started (no JPA)
+    @Autowired
+    private ObjectProvider<ChatWireFormatInterceptor> chatWireFormatInterceptor;
+
+    @Autowired
+    private ObjectProvider<SlowConsumerProtection> slowConsumerProtection;
+
+    @Autowired
+    private ObjectProvider<RateLimitChannelInterceptor> rateLimitChannelInterceptor;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Endpoint for clients to connect
         registry.addEndpoint("/ws").withSockJS();
+        // Plain WebSocket (no SockJS fallback), required for binary frames
+        registry.addEndpoint("/ws-native").addInterceptors(new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                attributes.put(ChatWireFormatInterceptor.NATIVE_WEBSOCKET_ATTRIBUTE, Boolean.TRUE);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        });
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration.taskExecutor(), inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+        rateLimitChannelInterceptor.ifAvailable(registration::interceptors);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration.taskExecutor(), outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+        chatWireFormatInterceptor.ifAvailable(registration::interceptors);
+    }
+
+    /**
+     * Per-session limits. With SlowConsumerProtection present, sessions queue frames in its
+     * decorator and the limits are enforced there (Spring's own send buffer then stays empty).
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+        slowConsumerProtection.ifAvailable(registration::addDecoratorFactory);
+    }
+
+    private static void configureExecutor(TaskExecutorRegistration executor, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        int core = corePoolSize > 0 ? corePoolSize : Runtime.getRuntime().availableProcessors() * 2;
+        executor.corePoolSize(core)
+                .maxPoolSize(Math.max(core, maxPoolSize)) // Only used once a bounded queue is full
+                .queueCapacity(queueCapacity > 0 ? queueCapacity : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Accepts CBOR payloads from clients using {@code wire-format: cbor} (SEND frames with
+     * content-type application/cbor). Strict matching keeps it from claiming frames without a
+     * content type, so everything else is still JSON.
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cborConverter = new MappingJackson2MessageConverter(new MimeType("application", "cbor"));
+        cborConverter.setObjectMapper(new CBORMapper());
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        return true; // Keep the default converters (JSON, String, byte[])
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         // Prefix for messages bound for @MessageMapping methods (controllers)
         registry.setApplicationDestinationPrefixes("/app");
+        // Deliver to each session in publish order (chat order, and the sender dictionary relies on it)
+        registry.setPreservePublishOrder(true);
 
         // Prefix for general broadcast topics (like class chat)
         // AND prefix for user-specific queues (private chat)
         // The broker routes messages starting with /topic or /user
-        registry.enableSimpleBroker("/topic", "/queue"); // Enable queue for user destinations
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            configureBrokerRelay(registry);
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue"); // Enable queue for user destinations
+        }
 
         // --- NEW: Define prefix for user-specific destinations ---
         // Messages sent to destinations like "/user/{username}/queue/private"
@@ -38,9 +207,24 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // --- END NEW ---
     }
 
-    // Optional: Configure WebSocket message size limits, security, etc.
-    // @Override
-    // public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
-    //     registration.setMessageSizeLimit(128 * 1024); // example: 128KB
-    // }
+    /**
+     * Relays /topic and /queue destinations to the external STOMP broker. The user destination
+     * and user registry broadcasts let a node deliver {@code convertAndSendToUser} messages to
+     * sessions that are connected to a different node.
+     */
+    private void configureBrokerRelay(MessageBrokerRegistry registry) {
+        logger.info("Using STOMP broker relay at {}:{}", relayHost, relayPort);
+        var relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayClientLogin)
+                .setClientPasscode(relayClientPasscode)
+                .setSystemLogin(relaySystemLogin)
+                .setSystemPasscode(relaySystemPasscode)
+                .setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+                .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST);
+        if (!relayVirtualHost.isBlank()) {
+            relay.setVirtualHost(relayVirtualHost);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package student_management_system.controller;
 
 import student_management_system.model.User;
+import student_management_system.service.MessageSearchService;
 import student_management_system.service.UserService;
 import student_management_system.web.dto.UserRegistrationDto;
 
@@ -30,6 +31,9 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MessageSearchService messageSearchService;
+
     /**
      * Handles GET requests to /admin/teachers.
      * Fetches the list of all teachers and displays them.
@@ -184,4 +188,18 @@ public class AdminController {
         return "redirect:/admin/teachers"; // Redirect back to the list view
     }
 
+
+    /**
+     * Handles POST requests to /admin/search/reindex.
+     * Starts a background rebuild of the message search index from the database.
+     */
+    @PostMapping("/search/reindex")
+    public String reindexMessageSearch(RedirectAttributes redirectAttributes) {
+        if (messageSearchService.startReindex()) {
+            redirectAttributes.addFlashAttribute("successMessage", "Message search reindex started.");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage", "A message search reindex is already running.");
+        }
+        return "redirect:/admin/teachers";
+    }
 }
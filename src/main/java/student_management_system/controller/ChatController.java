@@ -6,23 +6,36 @@ import student_management_system.model.SchoolClass;
 import student_management_system.model.User;
 
 // --- Service Imports ---
+import student_management_system.service.AfterCommit;
+import student_management_system.service.AuthenticatedUser;
+import student_management_system.service.ChatMessageIdAllocator;
+import student_management_system.service.ChatMessageService;
+import student_management_system.service.ChatMessageWriteBehindBuffer;
 import student_management_system.service.ClassService;
+import student_management_system.service.ConversationSummaryService;
+import student_management_system.service.MessageSearchService;
+import student_management_system.service.PresenceService;
+import student_management_system.service.SenderProfileCache;
 import student_management_system.service.UserService;
 
 // --- Repository Import ---
 import student_management_system.repository.ChatMessageRepository;
+import student_management_system.repository.SchoolClassRepository;
 
 // --- DTO Import ---
 import student_management_system.web.dto.ChatMessageDto; // Use the enhanced DTO
 
+// --- Config Import ---
+import student_management_system.config.ChatWireFormatInterceptor;
+
 // --- Spring Framework Imports ---
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -30,12 +43,14 @@ import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 // --- Java Util Imports ---
 import java.security.Principal;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 // --- Logging Imports ---
 import org.slf4j.Logger;
@@ -53,41 +68,47 @@ public class ChatController {
     @Autowired private UserService userService;
     @Autowired private ClassService classService;
     @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private SchoolClassRepository schoolClassRepository;
+    @Autowired private ChatMessageService chatMessageService;
+    @Autowired private ConversationSummaryService conversationSummaryService;
+    @Autowired private ChatMessageWriteBehindBuffer chatMessageWriteBehindBuffer;
+    @Autowired private ChatMessageIdAllocator chatMessageIdAllocator;
+    @Autowired private PresenceService presenceService;
+    @Autowired private MessageSearchService messageSearchService;
+    @Autowired private SenderProfileCache senderProfileCache;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
 
     /**
      * Handles incoming chat messages sent to "/app/chat.sendMessage/{classId}".
-     * Saves the message and broadcasts an enhanced DTO with sender details.
+     * Saves the message and broadcasts it to "/topic/class/{classId}" after commit, in compact
+     * form (sender details are added per session by ChatWireFormatInterceptor).
+     * With write-behind enabled the insert is queued instead and happens after the broadcast.
      */
     @MessageMapping("/chat.sendMessage/{classId}")
-    @SendTo("/topic/class/{classId}")
     @Transactional // Wrap in transaction
-    public ChatMessageDto sendMessage(
+    public void sendMessage(
             @DestinationVariable Long classId,
             @Payload ChatMessageDto chatMessageDto, // Receives basic DTO from client
             Principal principal) {
 
         if (principal == null || chatMessageDto == null || chatMessageDto.getContent() == null || chatMessageDto.getContent().isBlank()) {
             logger.warn("Invalid message received (null principal, DTO, or empty content).");
-            return null; // Ignore invalid request
+            return; // Ignore invalid request
         }
 
         String username = principal.getName();
         logger.debug("Processing message from {} for class ID {}", username, classId);
 
         try {
-            // 1. Fetch sender User and target SchoolClass
+            // 1. Fetch sender User (needed for the broadcast sender details)
             User senderUser = userService.findUserByUsername(username)
                     .orElseThrow(() -> new RuntimeException("Sender user not found: " + username));
-            SchoolClass targetClass = classService.findClassById(classId)
-                    .orElseThrow(() -> new RuntimeException("Target class not found: " + classId));
-
-            // 2. Authorization Check
-            boolean isTeacher = targetClass.getTeacher().getId().equals(senderUser.getId());
-            boolean isEnrolled = !isTeacher && classService.findClassesByStudent(senderUser).contains(targetClass); // Check enrollment if not teacher
 
-            if (!isTeacher && !isEnrolled) {
+            // 2. Authorization Check (membership cache; also false if the class does not exist)
+            if (!classService.isClassMember(senderUser.getId(), classId)) {
                 throw new AccessDeniedException("User '" + username + "' is not authorized for class ID: " + classId);
             }
+            SchoolClass targetClass = schoolClassRepository.getReferenceById(classId); // No load needed, only the FK
 
             // 3. Create and save the ChatMessage entity
             ChatMessage messageToSave = new ChatMessage(
@@ -95,35 +116,52 @@ public class ChatController {
                 senderUser,
                 targetClass
             );
-            chatMessageRepository.save(messageToSave);
-            logger.debug("Saved chat message from {} to class {}", username, classId);
+            if (chatMessageWriteBehindBuffer.isEnabled()) {
+                // Write-behind: assign the ID now, broadcast immediately, insert in the next batch
+                messageToSave.setId(chatMessageIdAllocator.nextId());
+                chatMessageWriteBehindBuffer.submit(messageToSave);
+                logger.debug("Queued chat message ID {} from {} to class {}", messageToSave.getId(), username, classId);
+            } else {
+                chatMessageRepository.save(messageToSave);
+                conversationSummaryService.recordClassMessage(messageToSave); // Same transaction as the insert
+                logger.debug("Saved chat message from {} to class {}", username, classId);
+            }
+            messageSearchService.indexClassMessage(messageToSave); // After commit
 
-            // 4. Prepare the ENHANCED DTO to broadcast
+            // 4. Prepare the compact DTO to broadcast
             ChatMessageDto dtoToSend = new ChatMessageDto();
+            dtoToSend.setId(messageToSave.getId());
             dtoToSend.setContent(messageToSave.getContent());
             dtoToSend.setClassId(messageToSave.getSchoolClass().getId());
-            dtoToSend.populateSenderDetails(senderUser); // Populate all sender details
+            dtoToSend.setTimestamp(messageToSave.getTimestamp().format(DateTimeFormatter.ISO_DATE_TIME));
+            dtoToSend.populateSenderId(senderUser);
 
-            return dtoToSend; // Broadcast the enhanced DTO
+            // Full form for the in-memory latest page that getChatHistory serves
+            ChatMessageDto historyDto = new ChatMessageDto();
+            historyDto.setId(dtoToSend.getId());
+            historyDto.setContent(dtoToSend.getContent());
+            historyDto.setClassId(dtoToSend.getClassId());
+            historyDto.setTimestamp(dtoToSend.getTimestamp());
+            historyDto.populateSenderDetails(senderUser);
+            chatMessageService.cacheSentMessage(historyDto); // After commit
+
+            broadcastAfterCommit(classId, dtoToSend, senderUser);
 
         } catch (AccessDeniedException ade) {
             logger.warn("Authorization error sending chat message: {}", ade.getMessage());
-            return null; // Don't broadcast
         } catch (Exception e) {
             logger.error("Error processing/saving chat message from {}: {}", username, e.getMessage(), e);
-            return null; // Don't broadcast on error
         }
     }
 
 
     /**
      * Handles users joining the chat (sends a system-like message).
-     * Updated to populate sender details in the broadcasted DTO.
+     * Broadcast in compact form like regular messages.
      */
     @MessageMapping("/chat.addUser/{classId}")
-    @SendTo("/topic/class/{classId}")
     @Transactional(readOnly = true) // Read-only as we only fetch user data
-    public ChatMessageDto addUser(
+    public void addUser(
             @DestinationVariable Long classId,
             @Payload ChatMessageDto chatMessageDto, // Basic DTO from client (mostly ignored)
             SimpMessageHeaderAccessor headerAccessor,
@@ -131,94 +169,94 @@ public class ChatController {
 
         if (principal == null) {
             logger.warn("addUser called without authenticated principal for class ID {}", classId);
-            return null;
+            return;
         }
         String username = principal.getName();
         logger.debug("User {} joining chat for class ID {}", username, classId);
 
         try {
+            // Store username in session attributes (optional)
+            headerAccessor.getSessionAttributes().put("username", username);
+            headerAccessor.getSessionAttributes().put("classId", classId);
+
+            // Another tab of the same user already has the chat open: no lookup, no duplicate "joined"
+            if (presenceService.getClassSessionCount(classId, username) > 1) {
+                return;
+            }
             User senderUser = userService.findUserByUsername(username)
                     .orElseThrow(() -> new RuntimeException("Joining user not found: " + username));
 
             // Optional: Add authorization check here too
 
-            // Store username in session attributes (optional)
-            headerAccessor.getSessionAttributes().put("username", username);
-            headerAccessor.getSessionAttributes().put("classId", classId);
-
             // Prepare the DTO to broadcast
             ChatMessageDto dtoToSend = new ChatMessageDto();
             dtoToSend.setContent(senderUser.getFirstName() + " joined the chat!"); // Use first name
             dtoToSend.setClassId(classId);
-            dtoToSend.populateSenderDetails(senderUser); // Populate sender details
+            dtoToSend.populateSenderId(senderUser);
 
-            return dtoToSend;
+            broadcastAfterCommit(classId, dtoToSend, senderUser);
 
         } catch (Exception e) {
             logger.error("Error processing addUser for user {} in class {}: {}", username, classId, e.getMessage(), e);
-            return null;
         }
     }
 
+    /**
+     * Sends a compact DTO to the class topic once the transaction commits (immediately if
+     * there is none). The sender-id header tells ChatWireFormatInterceptor whose details to add.
+     */
+    private void broadcastAfterCommit(Long classId, ChatMessageDto dto, User sender) {
+        senderProfileCache.put(sender);
+        Map<String, Object> headers = Map.of(ChatWireFormatInterceptor.SENDER_ID_HEADER, sender.getId());
+        AfterCommit.run(() -> messagingTemplate.convertAndSend("/topic/class/" + classId, dto, headers));
+    }
+
 
     /**
      * REST endpoint to fetch chat history for a specific class.
-     * Updated to return the enhanced ChatMessageDto.
+     * Returns the latest page by default; pass "before" (a message ID) to page backwards.
+     * Messages are always returned oldest first. Not transactional: with warm caches, opening a
+     * chat that is already read runs no queries at all.
      */
     @GetMapping("/chat/history/{classId}")
-    @Transactional(readOnly = true)
-    public ResponseEntity<List<ChatMessageDto>> getChatHistory(@PathVariable Long classId) {
+    public ResponseEntity<List<ChatMessageDto>> getChatHistory(
+            @PathVariable Long classId,
+            @RequestParam(value = "before", required = false) Long beforeMessageId,
+            @RequestParam(value = "limit", defaultValue = "" + ChatMessageService.DEFAULT_HISTORY_LIMIT) int limit) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
              return ResponseEntity.status(401).build();
         }
         String username = authentication.getName();
-        logger.debug("Fetching chat history for class ID {} by user {}", classId, username);
+        logger.debug("Fetching chat history for class ID {} by user {} (before={}, limit={})", classId, username, beforeMessageId, limit);
 
-        User currentUser = userService.findUserByUsername(username).orElse(null);
-        if (currentUser == null) {
+        // The principal carries the user ID; only sessions from before it did need the lookup
+        Long currentUserId = authentication.getPrincipal() instanceof AuthenticatedUser authenticatedUser
+                ? authenticatedUser.getId()
+                : userService.findUserByUsername(username).map(User::getId).orElse(null);
+        if (currentUserId == null) {
              logger.warn("User {} not found in DB during history fetch.", username);
              return ResponseEntity.status(401).build();
         }
 
-        SchoolClass targetClass = classService.findClassById(classId).orElse(null);
-        if (targetClass == null) {
-            logger.warn("Class ID {} not found during history fetch.", classId);
-            return ResponseEntity.notFound().build();
-        }
-
-        // Authorization Check
-        boolean isTeacher = targetClass.getTeacher().getId().equals(currentUser.getId());
-        boolean isEnrolled = !isTeacher && classService.findClassesByStudent(currentUser).contains(targetClass);
-
-        if (!isTeacher && !isEnrolled) {
+        // Authorization Check (membership cache)
+        if (!classService.isClassMember(currentUserId, classId)) {
+            if (classService.findClassById(classId).isEmpty()) {
+                logger.warn("Class ID {} not found during history fetch.", classId);
+                return ResponseEntity.notFound().build();
+            }
             logger.warn("User {} forbidden from accessing history for class ID {}", username, classId);
             return ResponseEntity.status(403).build();
         }
 
-        // Fetch messages
-        List<ChatMessage> messages = chatMessageRepository.findBySchoolClassOrderByTimestampAsc(targetClass);
-        logger.debug("Found {} messages in history for class ID {}", messages.size(), classId);
-
-        // Convert entities to ENHANCED DTOs
-        List<ChatMessageDto> messageDtos = messages.stream()
-                .map(msg -> {
-                    ChatMessageDto dto = new ChatMessageDto();
-                    dto.setContent(msg.getContent());
-                    dto.setClassId(msg.getSchoolClass().getId());
-                    // Populate sender details from the User entity associated with the message
-                    if (msg.getSender() != null) {
-                        dto.populateSenderDetails(msg.getSender());
-                    } else {
-                        // Handle cases where sender might be null (e.g., old data, system messages)
-                        dto.setSenderFirstName("Unknown");
-                        dto.setSenderLastName("");
-                        dto.setSenderRole("System");
-                    }
-                    // Add timestamp if needed: dto.setTimestamp(msg.getTimestamp().toString());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Fetch one page of messages as projections (sender joined in the same query)
+        List<ChatMessageDto> messageDtos = beforeMessageId == null
+                ? chatMessageService.getLatestMessages(classId, limit)
+                : chatMessageService.getMessagesBefore(classId, beforeMessageId, limit);
+        logger.debug("Returning {} messages in history for class ID {}", messageDtos.size(), classId);
+        if (beforeMessageId == null) {
+            conversationSummaryService.markClassConversationRead(currentUserId, classId); // No query if already read
+        }
 
         return ResponseEntity.ok(messageDtos);
     }
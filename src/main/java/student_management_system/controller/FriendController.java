@@ -2,7 +2,12 @@ package student_management_system.controller;
 
 import student_management_system.model.FriendRequest;
 import student_management_system.model.User;
+import student_management_system.service.FriendSuggestionService;
+import student_management_system.service.PresenceService;
 import student_management_system.service.UserService;
+import student_management_system.web.dto.FriendSuggestionDto;
+import student_management_system.web.dto.UserSearchHitDto;
+import student_management_system.web.dto.UserSearchResultDto;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,9 +39,17 @@ public class FriendController {
 
     private static final Logger logger = LoggerFactory.getLogger(FriendController.class);
 
+    private static final int SUGGESTION_LIMIT = 8; // "People you may know" cards on the search page
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private FriendSuggestionService friendSuggestionService;
+
     /**
      * Displays the list of friends and pending incoming friend requests.
      */
@@ -51,6 +64,8 @@ public class FriendController {
             List<FriendRequest> pendingRequests = userService.getPendingFriendRequestsReceived(username);
 
             model.addAttribute("friends", friends);
+            model.addAttribute("onlineFriendUsernames",
+                    presenceService.filterOnline(friends.stream().map(User::getUsername).toList()));
             model.addAttribute("pendingRequests", pendingRequests);
 
             logger.debug("Found {} friends and {} pending requests for user: {}", friends.size(), pendingRequests.size(), username);
@@ -76,35 +91,39 @@ public class FriendController {
      */
     @GetMapping("/search")
     public String searchFriends(@RequestParam(value = "searchTerm", required = false) String searchTerm,
+                                @RequestParam(value = "page", defaultValue = "0") int page,
+                                @RequestParam(value = "size", defaultValue = "24") int size,
                                 Model model,
                                 @AuthenticationPrincipal UserDetails userDetails) {
         if (userDetails == null) return "redirect:/login";
         String currentUsername = userDetails.getUsername();
-        List<User> searchResults = new ArrayList<>();
+        UserSearchResultDto searchResult = null;
+        List<UserSearchHitDto> searchResults = new ArrayList<>();
+        List<FriendSuggestionDto> suggestions = new ArrayList<>();
         Map<Long, String> pendingRequestStatus = Map.of();
 
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
             logger.debug("Searching for potential friends for user '{}' with term: {}", currentUsername, searchTerm);
             try {
-                User currentUser = userService.findUserByUsername(currentUsername).orElseThrow();
-                searchResults = userService.searchPotentialFriends(currentUsername, searchTerm.trim());
+                searchResult = userService.searchPotentialFriends(currentUsername, searchTerm.trim(), page, size);
+                searchResults = searchResult.getUsers();
 
                 List<FriendRequest> sentRequests = userService.getPendingFriendRequestsSent(currentUsername);
                 List<FriendRequest> receivedRequests = userService.getPendingFriendRequestsReceived(currentUsername);
+                Set<Long> sentToIds = sentRequests.stream().map(req -> req.getReceiver().getId()).collect(Collectors.toSet());
+                Set<Long> receivedFromIds = receivedRequests.stream().map(req -> req.getSender().getId()).collect(Collectors.toSet());
 
                 pendingRequestStatus = searchResults.stream()
                     .collect(Collectors.toMap(
-                        User::getId,
+                        UserSearchHitDto::getId,
                         user -> {
-                            boolean sent = sentRequests.stream().anyMatch(req -> req.getReceiver().equals(user));
-                            boolean received = receivedRequests.stream().anyMatch(req -> req.getSender().equals(user));
-                            if (sent) return "SENT";
-                            if (received) return "RECEIVED";
+                            if (sentToIds.contains(user.getId())) return "SENT";
+                            if (receivedFromIds.contains(user.getId())) return "RECEIVED";
                             return "NONE";
                         }
                     ));
 
-                logger.debug("Found {} potential friends for term '{}'", searchResults.size(), searchTerm);
+                logger.debug("Found {} potential friends for term '{}'", searchResult.getTotalHits(), searchTerm);
 
             } catch (EntityNotFoundException e) {
                  logger.error("Current user '{}' not found during friend search.", currentUsername, e);
@@ -113,10 +132,32 @@ public class FriendController {
                  logger.error("Error searching for potential friends for user {}: {}", currentUsername, e.getMessage(), e);
                  model.addAttribute("errorMessage", "An error occurred during the search.");
             }
+        } else {
+            try {
+                User currentUser = userService.findUserByUsername(currentUsername)
+                        .orElseThrow(() -> new EntityNotFoundException("Current user not found: " + currentUsername));
+                suggestions = friendSuggestionService.getSuggestions(currentUser, SUGGESTION_LIMIT);
+                if (!suggestions.isEmpty()) {
+                    Set<Long> sentToIds = userService.getPendingFriendRequestsSent(currentUsername).stream()
+                            .map(req -> req.getReceiver().getId()).collect(Collectors.toSet());
+                    Set<Long> receivedFromIds = userService.getPendingFriendRequestsReceived(currentUsername).stream()
+                            .map(req -> req.getSender().getId()).collect(Collectors.toSet());
+                    pendingRequestStatus = suggestions.stream()
+                        .collect(Collectors.toMap(
+                            FriendSuggestionDto::getId,
+                            user -> sentToIds.contains(user.getId()) ? "SENT"
+                                    : receivedFromIds.contains(user.getId()) ? "RECEIVED" : "NONE"
+                        ));
+                }
+            } catch (Exception e) {
+                 logger.error("Error loading friend suggestions for user {}: {}", currentUsername, e.getMessage(), e);
+            }
         }
 
         model.addAttribute("searchTerm", searchTerm);
+        model.addAttribute("searchResult", searchResult);
         model.addAttribute("searchResults", searchResults);
+        model.addAttribute("suggestions", suggestions);
         model.addAttribute("pendingRequestStatus", pendingRequestStatus);
 
         return "friends/search";
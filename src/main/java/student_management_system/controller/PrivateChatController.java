@@ -3,10 +3,13 @@ package student_management_system.controller;
 import student_management_system.model.FriendRequest;
 import student_management_system.model.PrivateMessage;
 import student_management_system.model.User;
-import student_management_system.model.SchoolClass;
 import student_management_system.service.ClassService;
 import student_management_system.service.UserService;
+import student_management_system.service.PrivateAttachmentUploadService;
 import student_management_system.service.PrivateMessageService;
+import student_management_system.service.SenderProfileCache;
+import student_management_system.config.ChatWireFormatInterceptor;
+import student_management_system.web.dto.ChunkedUploadStatusDto;
 import student_management_system.web.dto.PrivateMessageDto; // Use updated DTO
 
 import org.slf4j.Logger;
@@ -31,6 +34,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -41,10 +45,8 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.HashSet;
 import java.util.stream.Stream;
 
 /**
@@ -68,6 +70,12 @@ public class PrivateChatController {
     @Autowired
     private ClassService classService;
 
+    @Autowired
+    private SenderProfileCache senderProfileCache;
+
+    @Autowired
+    private PrivateAttachmentUploadService privateAttachmentUploadService;
+
     @Value("${file.private-attachment-upload-dir}")
     private String privateAttachmentUploadDir;
 
@@ -77,7 +85,7 @@ public class PrivateChatController {
      * GET /chat/private/{friendUsername}
      */
     @GetMapping("/chat/private/{friendUsername}")
-    @Transactional(readOnly = true)
+    @Transactional // Not read-only: opening the conversation resets its unread count
     public String showPrivateChatPage(@PathVariable String friendUsername,
                                       Model model,
                                       @AuthenticationPrincipal UserDetails userDetails,
@@ -96,8 +104,7 @@ public class PrivateChatController {
             User friendUser = userService.findUserByUsername(friendUsername)
                     .orElseThrow(() -> new EntityNotFoundException("Friend user not found: " + friendUsername));
 
-            Set<User> friends = userService.getFriends(currentUsername);
-            if (!friends.contains(friendUser)) {
+            if (!userService.areFriends(currentUser, friendUser)) {
                  logger.warn("Access Denied: User {} attempted to open private chat with non-friend {}", currentUsername, friendUsername);
                  redirectAttributes.addFlashAttribute("errorMessage", "You are not friends with this user.");
                  return "redirect:/friends";
@@ -105,11 +112,7 @@ public class PrivateChatController {
 
             long commonClassesCount = 0;
             try {
-                Set<SchoolClass> currentUserClasses = classService.findClassesByStudent(currentUser);
-                Set<SchoolClass> friendUserClasses = classService.findClassesByStudent(friendUser);
-                Set<SchoolClass> commonClasses = new HashSet<>(currentUserClasses);
-                commonClasses.retainAll(friendUserClasses);
-                commonClassesCount = commonClasses.size();
+                commonClassesCount = classService.countSharedClasses(currentUser.getId(), friendUser.getId());
                 logger.debug("Found {} common classes between {} and {}", commonClassesCount, currentUsername, friendUsername);
             } catch (Exception e) {
                  logger.error("Error calculating common classes between {} and {}: {}", currentUsername, friendUsername, e.getMessage());
@@ -117,6 +120,8 @@ public class PrivateChatController {
                  commonClassesCount = -1;
             }
 
+            privateMessageService.markMessagesAsRead(currentUser, friendUser);
+
             model.addAttribute("friendUser", friendUser);
             model.addAttribute("commonClassesCount", commonClassesCount >= 0 ? commonClassesCount : null);
             model.addAttribute("currentUsername", currentUsername);
@@ -157,7 +162,7 @@ public class PrivateChatController {
             User receiver = userService.findUserByUsername(receiverUsername)
                     .orElseThrow(() -> new EntityNotFoundException("Receiver not found: " + receiverUsername));
 
-            if (!userService.getFriends(senderUsername).contains(receiver)) {
+            if (!userService.areFriendsInDatabase(sender, receiver)) {
                 throw new AccessDeniedException("Cannot send message: Users are not friends.");
             }
 
@@ -166,8 +171,8 @@ public class PrivateChatController {
             );
             logger.debug("Saved private text message with ID: {}", savedMessage.getId());
 
-            // *** UPDATED: Use constructor that populates sender details ***
-            PrivateMessageDto dtoToSend = new PrivateMessageDto(
+            // Compact DTO: sender details are added per session by ChatWireFormatInterceptor
+            PrivateMessageDto dtoToSend = PrivateMessageDto.compact(
                 savedMessage.getId(),
                 savedMessage.getContent(),
                 sender, // Pass sender User object
@@ -176,10 +181,8 @@ public class PrivateChatController {
                 null, // No attachment URL for text messages
                 null
             );
-            // *** END UPDATED ***
 
-            messagingTemplate.convertAndSendToUser(receiverUsername, "/queue/private", dtoToSend);
-            messagingTemplate.convertAndSendToUser(senderUsername, "/queue/private", dtoToSend);
+            sendToBoth(dtoToSend, sender, receiverUsername);
             logger.debug("Sent text message ID {} notification to receiver {} and sender {}", savedMessage.getId(), receiverUsername, senderUsername);
 
         } catch (EntityNotFoundException | AccessDeniedException e) {
@@ -190,6 +193,42 @@ public class PrivateChatController {
     }
 
 
+    /**
+     * Sends a compact private message to the receiver's and the sender's private queues.
+     * The sender-id header tells ChatWireFormatInterceptor whose details to add.
+     */
+    private void sendToBoth(PrivateMessageDto dto, User sender, String receiverUsername) {
+        senderProfileCache.put(sender);
+        Map<String, Object> headers = Map.of(ChatWireFormatInterceptor.SENDER_ID_HEADER, sender.getId());
+        messagingTemplate.convertAndSendToUser(receiverUsername, "/queue/private", dto, headers);
+        messagingTemplate.convertAndSendToUser(sender.getUsername(), "/queue/private", dto, headers);
+    }
+
+
+    /**
+     * Marks a conversation as read while its chat page is open (a new message from the friend
+     * arrived and was displayed). Sent over STOMP so no polling or CSRF-protected POST is needed.
+     * Destination: /app/private.read, payload: {"receiverUsername": friend}
+     */
+    @MessageMapping("/private.read")
+    public void markPrivateConversationRead(@Payload PrivateMessageDto readDto, Principal principal) {
+        if (principal == null || readDto == null || !StringUtils.hasText(readDto.getReceiverUsername())) {
+            return;
+        }
+        String readerUsername = principal.getName();
+        String friendUsername = readDto.getReceiverUsername();
+        try {
+            User reader = userService.findUserByUsername(readerUsername)
+                    .orElseThrow(() -> new EntityNotFoundException("User not found: " + readerUsername));
+            User friend = userService.findUserByUsername(friendUsername)
+                    .orElseThrow(() -> new EntityNotFoundException("Friend not found: " + friendUsername));
+            privateMessageService.markMessagesAsRead(reader, friend);
+        } catch (EntityNotFoundException e) {
+            logger.warn("Could not mark conversation read for {} with {}: {}", readerUsername, friendUsername, e.getMessage());
+        }
+    }
+
+
     /**
      * REST endpoint to handle file uploads for private chat.
      * POST /chat/private/upload/{receiverUsername}
@@ -219,7 +258,7 @@ public class PrivateChatController {
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found: " + senderUsername));
             User receiver = userService.findUserByUsername(receiverUsername)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver not found: " + receiverUsername));
-            if (!userService.getFriends(senderUsername).contains(receiver)) {
+            if (!userService.areFriendsInDatabase(sender, receiver)) {
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot send file: Users are not friends.");
             }
 
@@ -243,8 +282,8 @@ public class PrivateChatController {
 
             String attachmentUrl = "/download/private-attachment/" + savedMessage.getAttachmentPath();
 
-            // *** UPDATED: Use constructor that populates sender details ***
-            PrivateMessageDto dtoToSend = new PrivateMessageDto(
+            // Compact DTO: sender details are added per session by ChatWireFormatInterceptor
+            PrivateMessageDto dtoToSend = PrivateMessageDto.compact(
                 savedMessage.getId(),
                 savedMessage.getContent(),
                 sender, // Pass sender User object
@@ -253,10 +292,8 @@ public class PrivateChatController {
                 attachmentUrl,
                 savedMessage.getAttachmentOriginalFilename()
             );
-            // *** END UPDATED ***
 
-            messagingTemplate.convertAndSendToUser(receiverUsername, "/queue/private", dtoToSend);
-            messagingTemplate.convertAndSendToUser(senderUsername, "/queue/private", dtoToSend);
+            sendToBoth(dtoToSend, sender, receiverUsername);
             logger.debug("Sent WebSocket notification for file message ID {} to {} and {}", savedMessage.getId(), receiverUsername, senderUsername);
 
             return ResponseEntity.ok().body(Map.of(
@@ -281,15 +318,187 @@ public class PrivateChatController {
     }
 
 
+    /**
+     * Starts a resumable upload of a private attachment (for files too large or connections too
+     * flaky for a single POST). Returns the upload ID and chunk size.
+     * POST /chat/private/upload/{receiverUsername}/init?filename=...&size=...
+     */
+    @PostMapping("/chat/private/upload/{receiverUsername}/init")
+    @ResponseBody
+    public ResponseEntity<?> startChunkedUpload(
+            @PathVariable String receiverUsername,
+            @RequestParam("filename") String filename,
+            @RequestParam("size") long size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        String senderUsername = userDetails.getUsername();
+        try {
+            if (senderUsername.equals(receiverUsername)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot send a file to yourself.");
+            }
+            User sender = userService.findUserByUsername(senderUsername)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found: " + senderUsername));
+            User receiver = userService.findUserByUsername(receiverUsername)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver not found: " + receiverUsername));
+            if (!userService.areFriendsInDatabase(sender, receiver)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot send file: Users are not friends.");
+            }
+            return ResponseEntity.ok(privateAttachmentUploadService.startUpload(sender, receiver, filename, size));
+        } catch (Exception e) {
+            return uploadError(senderUsername, e);
+        }
+    }
+
+    /**
+     * Writes one chunk of a resumable upload; the request body is the raw chunk.
+     * PUT /chat/private/upload/chunks/{uploadId}?offset=...
+     */
+    @PutMapping("/chat/private/upload/chunks/{uploadId}")
+    @ResponseBody
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        String senderUsername = userDetails.getUsername();
+        try {
+            ChunkedUploadStatusDto status = privateAttachmentUploadService.writeChunk(
+                    uploadId, senderUsername, offset, request.getContentLengthLong(), request.getInputStream());
+            return ResponseEntity.ok(status);
+        } catch (Exception e) {
+            return uploadError(senderUsername, e);
+        }
+    }
+
+    /**
+     * Reports which part of a resumable upload has arrived, so the client can resume.
+     * GET /chat/private/upload/chunks/{uploadId}
+     */
+    @GetMapping("/chat/private/upload/chunks/{uploadId}")
+    @ResponseBody
+    public ResponseEntity<?> getChunkedUploadStatus(@PathVariable String uploadId,
+                                                    @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            return ResponseEntity.ok(privateAttachmentUploadService.getStatus(uploadId, userDetails.getUsername()));
+        } catch (Exception e) {
+            return uploadError(userDetails.getUsername(), e);
+        }
+    }
+
+    /**
+     * Cancels a resumable upload.
+     * DELETE /chat/private/upload/chunks/{uploadId}
+     */
+    @DeleteMapping("/chat/private/upload/chunks/{uploadId}")
+    @ResponseBody
+    public ResponseEntity<?> cancelChunkedUpload(@PathVariable String uploadId,
+                                                 @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            privateAttachmentUploadService.abort(uploadId, userDetails.getUsername());
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return uploadError(userDetails.getUsername(), e);
+        }
+    }
+
+    /**
+     * Completes a resumable upload: verifies the SHA-256 of the whole file, then saves the
+     * message and notifies both users exactly like a single-request upload.
+     * Not transactional: the file (up to the upload size limit) is read and hashed before any
+     * transaction starts, and only saveMessage runs in one. Once the message is committed, a later
+     * failure keeps the file its row points to.
+     * POST /chat/private/upload/chunks/{uploadId}/complete?sha256=...
+     */
+    @PostMapping("/chat/private/upload/chunks/{uploadId}/complete")
+    @ResponseBody
+    public ResponseEntity<?> completeChunkedUpload(
+            @PathVariable String uploadId,
+            @RequestParam("sha256") String sha256,
+            @RequestParam(value = "messageContent", required = false) String messageContent,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        String senderUsername = userDetails.getUsername();
+        PrivateAttachmentUploadService.CompletedUpload completed = null;
+        PrivateMessage savedMessage = null;
+        try {
+            completed = privateAttachmentUploadService.complete(uploadId, senderUsername, sha256);
+            String receiverUsername = completed.receiverUsername();
+            User sender = userService.findUserByUsername(senderUsername)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found: " + senderUsername));
+            User receiver = userService.findUserByUsername(receiverUsername)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver not found: " + receiverUsername));
+            if (!userService.areFriendsInDatabase(sender, receiver)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot send file: Users are not friends.");
+            }
+
+            savedMessage = privateMessageService.saveMessage( // Its own transaction
+                sender, receiver, messageContent, completed.storedFilename(), completed.originalFilename()
+            );
+            logger.debug("Saved private message record ID {} for chunked upload {}", savedMessage.getId(), uploadId);
+
+            String attachmentUrl = "/download/private-attachment/" + savedMessage.getAttachmentPath();
+            PrivateMessageDto dtoToSend = PrivateMessageDto.compact(
+                savedMessage.getId(),
+                savedMessage.getContent(),
+                sender,
+                receiver,
+                savedMessage.getTimestamp(),
+                attachmentUrl,
+                savedMessage.getAttachmentOriginalFilename()
+            );
+            sendToBoth(dtoToSend, sender, receiverUsername);
+
+            return ResponseEntity.ok().body(Map.of(
+                "message", "File uploaded successfully.",
+                "messageId", savedMessage.getId(),
+                "attachmentUrl", attachmentUrl,
+                "originalFilename", savedMessage.getAttachmentOriginalFilename()
+            ));
+        } catch (Exception e) {
+            if (completed != null && savedMessage == null) {
+                privateAttachmentUploadService.discard(completed); // Verified, but no message refers to it
+            }
+            return uploadError(senderUsername, e);
+        }
+    }
+
+    /**
+     * Maps failures of the resumable upload endpoints to a status code and a JSON error.
+     */
+    private ResponseEntity<?> uploadError(String username, Exception e) {
+        HttpStatus status;
+        String reason;
+        if (e instanceof ResponseStatusException rse) {
+            status = HttpStatus.valueOf(rse.getStatusCode().value());
+            reason = rse.getReason();
+        } else if (e instanceof EntityNotFoundException) {
+            status = HttpStatus.NOT_FOUND;
+            reason = "Upload not found or expired.";
+        } else if (e instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+            reason = e.getMessage();
+        } else if (e instanceof IllegalStateException) {
+            status = HttpStatus.CONFLICT;
+            reason = e.getMessage();
+        } else {
+            logger.error("Unexpected error during chunked upload from {}: {}", username, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected error occurred during file upload."));
+        }
+        logger.warn("Chunked upload request from {} failed: Status {}, Reason: {}", username, status, reason);
+        return ResponseEntity.status(status).body(Map.of("error", reason));
+    }
+
+
     /**
      * REST endpoint to fetch private chat history between the logged-in user and another user.
-     * GET /chat/private/history/{otherUsername}
+     * GET /chat/private/history/{otherUsername}?before={messageId}&limit={n}
+     * Returns the newest page by default; "before" pages backwards. Messages are ordered oldest first.
      * Ensures users are friends before returning history.
      */
     @GetMapping("/chat/private/history/{otherUsername}")
     @Transactional(readOnly = true)
     public ResponseEntity<List<PrivateMessageDto>> getPrivateChatHistory(
             @PathVariable String otherUsername,
+            @RequestParam(value = "before", required = false) Long beforeMessageId,
+            @RequestParam(value = "limit", defaultValue = "" + PrivateMessageService.DEFAULT_PAGE_SIZE) int limit,
             @AuthenticationPrincipal UserDetails userDetails) {
 
         if (userDetails == null) { /* ... auth check ... */ }
@@ -302,12 +511,12 @@ public class PrivateChatController {
             User otherUser = userService.findUserByUsername(otherUsername)
                     .orElseThrow(() -> new EntityNotFoundException("Other user not found: " + otherUsername));
 
-            if (!userService.getFriends(currentUsername).contains(otherUser)) {
+            if (!userService.areFriends(currentUser, otherUser)) {
                 logger.warn("Attempt to fetch chat history between non-friends: {} and {}", currentUsername, otherUsername);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            List<PrivateMessage> messages = privateMessageService.getConversation(currentUser, otherUser);
+            List<PrivateMessage> messages = privateMessageService.getConversation(currentUser, otherUser, beforeMessageId, limit);
 
             // *** UPDATED: Use constructor that populates sender details ***
             List<PrivateMessageDto> messageDtos = messages.stream()
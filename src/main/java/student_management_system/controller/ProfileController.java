@@ -1,7 +1,6 @@
 package student_management_system.controller;
 
 import student_management_system.model.FriendRequest;
-import student_management_system.model.SchoolClass; // Import SchoolClass
 import student_management_system.model.User;
 import student_management_system.service.ClassService; // Import ClassService
 import student_management_system.service.UserService;
@@ -20,10 +19,8 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
 import jakarta.persistence.EntityNotFoundException;
-import java.util.HashSet; // Import HashSet
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Controller for displaying user profile pages.
@@ -61,8 +58,7 @@ public class ProfileController {
             if (currentUser.getId().equals(profileUser.getId())) {
                 relationshipStatus = "SELF";
             } else {
-                Set<User> friends = userService.getFriends(currentUsername);
-                if (friends.contains(profileUser)) {
+                if (userService.areFriends(currentUser, profileUser)) {
                     relationshipStatus = "FRIEND";
                 } else {
                     List<FriendRequest> sentRequests = userService.getPendingFriendRequestsSent(currentUsername);
@@ -84,16 +80,10 @@ public class ProfileController {
             boolean profileIsStudent = profileUser.getRoles().stream().anyMatch(r -> "ROLE_STUDENT".equals(r.getName()));
             boolean currentIsStudent = currentUser.getRoles().stream().anyMatch(r -> "ROLE_STUDENT".equals(r.getName()));
 
-            // Fetch classes only if needed to avoid unnecessary queries
+            // One COUNT query over classes_students, only when both are students
             if (!relationshipStatus.equals("SELF") && profileIsStudent && currentIsStudent) {
                  try {
-                    // Ensure classes are fetched (might need service method adjustments if lazy loading issues persist)
-                    Set<SchoolClass> profileClasses = classService.findClassesByStudent(profileUser);
-                    Set<SchoolClass> currentUserClasses = classService.findClassesByStudent(currentUser);
-
-                    Set<SchoolClass> commonClasses = new HashSet<>(currentUserClasses);
-                    commonClasses.retainAll(profileClasses); // Keep only elements present in both sets
-                    commonClassesCount = commonClasses.size();
+                    commonClassesCount = classService.countSharedClasses(currentUser.getId(), profileUser.getId());
                     logger.debug("Found {} common classes between {} and {}", commonClassesCount, currentUsername, username);
                  } catch (Exception e) {
                       logger.error("Error fetching or comparing classes for {} and {}: {}", currentUsername, username, e.getMessage());
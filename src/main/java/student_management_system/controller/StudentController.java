@@ -62,6 +62,9 @@ public class StudentController {
     @Autowired private MakeupRequestService makeupRequestService;
     @Autowired private QuizService quizService;
     @Autowired private QuizAttemptService quizAttemptService;
+    @Autowired private PresenceService presenceService;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+    @Autowired private StudentGradesCache studentGradesCache;
 
     /**
      * Helper method to get a map containing submission and makeup status for each assignment.
@@ -135,8 +138,7 @@ public class StudentController {
     public String listAssignmentsForClass(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails) {
          User student = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
         SchoolClass schoolClass = classService.findClassById(classId).orElseThrow(() -> new EntityNotFoundException("Class not found: " + classId));
-         Set<SchoolClass> enrolledClasses = classService.findClassesByStudent(student);
-         if (!enrolledClasses.contains(schoolClass)) {
+         if (!classService.isStudentEnrolled(student.getId(), schoolClass.getId())) {
              logger.warn("Access Denied: Student {} attempted to view assignments for non-enrolled class {}", student.getUsername(), classId);
              throw new AccessDeniedException("Not enrolled in this class.");
          }
@@ -176,9 +178,9 @@ public class StudentController {
     public String showClassDetailsForStudent(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails) {
         SchoolClass schoolClass = classService.findClassById(classId).orElseThrow(() -> new RuntimeException("Class not found: " + classId));
         User student = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
-        Set<SchoolClass> enrolledClasses = classService.findClassesByStudent(student);
-         if (!enrolledClasses.contains(schoolClass)) { throw new AccessDeniedException("Not enrolled in this class."); }
+         if (!classService.isStudentEnrolled(student.getId(), schoolClass.getId())) { throw new AccessDeniedException("Not enrolled in this class."); }
         model.addAttribute("schoolClass", schoolClass);
+        model.addAttribute("onlineCount", presenceService.getClassOnlineCount(classId));
         return "student/class-details"; // Chat view
     }
 
@@ -201,8 +203,7 @@ public class StudentController {
             if (assignmentClass == null) {
                 throw new IllegalStateException("Assignment " + assignmentId + " is not linked to a class.");
             }
-            Set<SchoolClass> enrolledClasses = classService.findClassesByStudent(student);
-            if (enrolledClasses == null || enrolledClasses.stream().noneMatch(c -> c.getId().equals(assignmentClass.getId()))) {
+            if (!classService.isStudentEnrolled(student.getId(), assignmentClass.getId())) {
                 logger.warn("Access Denied: Student {} is not enrolled in class ID {} for assignment {}", username, assignmentClass.getId(), assignmentId);
                 throw new AccessDeniedException("You are not enrolled in the class for this assignment.");
             }
@@ -473,7 +474,7 @@ public class StudentController {
     public String listQuizzesForClass(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails) {
         User student = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
         SchoolClass schoolClass = classService.findClassById(classId).orElseThrow(() -> new EntityNotFoundException("Class not found"));
-        if (!classService.findClassesByStudent(student).contains(schoolClass)) { throw new AccessDeniedException("Not enrolled in this class."); }
+        if (!classService.isStudentEnrolled(student.getId(), schoolClass.getId())) { throw new AccessDeniedException("Not enrolled in this class."); }
         List<Quiz> quizzes = quizService.findQuizzesByClassId(classId);
         Map<Long, QuizAttempt> attemptMap = quizAttemptService.findAttemptsByStudent(student).stream()
                 .filter(att -> att.getQuiz() != null && att.getQuiz().getSchoolClass().getId().equals(classId))
@@ -610,8 +611,7 @@ public class StudentController {
             SchoolClass schoolClass = classService.findClassById(classId)
                     .orElseThrow(() -> new EntityNotFoundException("Class not found: " + classId));
 
-            Set<SchoolClass> enrolledClasses = classService.findClassesByStudent(student);
-            if (!enrolledClasses.contains(schoolClass)) {
+            if (!classService.isStudentEnrolled(student.getId(), schoolClass.getId())) {
                 logger.warn("Access Denied: Student {} attempted to view grades for non-enrolled class {}", username, classId);
                 throw new AccessDeniedException("Not enrolled in this class.");
             }
@@ -623,19 +623,16 @@ public class StudentController {
                                             .stream().sorted(Comparator.comparing(Quiz::getDueDate, Comparator.nullsLast(Comparator.naturalOrder())))
                                             .collect(Collectors.toList());
 
-            Map<Long, Submission> submissionMap = submissionService.findSubmissionsByStudent(student).stream()
-                    .filter(s -> s.getAssignment() != null && s.getAssignment().getSchoolClass().getId().equals(classId))
-                    .collect(Collectors.toMap(s -> s.getAssignment().getId(), Function.identity()));
-
-            Map<Long, QuizAttempt> attemptMap = quizAttemptService.findAttemptsByStudent(student).stream()
-                    .filter(a -> a.getQuiz() != null && a.getQuiz().getSchoolClass().getId().equals(classId))
-                    .collect(Collectors.toMap(a -> a.getQuiz().getId(), Function.identity()));
+            // Only this class's submissions and attempts, cached briefly and dropped when they change
+            StudentGradesCache.Grades grades = studentGradesCache.get(student.getId(), classId);
 
             model.addAttribute("schoolClass", schoolClass);
             model.addAttribute("assignments", assignments);
             model.addAttribute("quizzes", quizzes);
-            model.addAttribute("submissionMap", submissionMap);
-            model.addAttribute("attemptMap", attemptMap);
+            model.addAttribute("submissionMap", grades.submissions());
+            model.addAttribute("attemptMap", grades.attempts());
+            model.addAttribute("gradeSummary", classGradeSummaryService.findSummary(classId, student.getId()).orElse(null));
+            model.addAttribute("classAverage", classGradeSummaryService.findClassAverage(classId));
 
             return "student/class-grades";
 
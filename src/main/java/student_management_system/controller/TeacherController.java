@@ -15,6 +15,10 @@ import student_management_system.web.dto.*;
 
 // --- Spring Framework Imports ---
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,21 +26,22 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 // --- Java Util Imports ---
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Collections;
 import java.util.stream.Collectors;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.Comparator; // Import Comparator
 
 
 @Controller
@@ -53,6 +58,10 @@ public class TeacherController {
     @Autowired private MakeupRequestService makeupRequestService;
     @Autowired private QuizService quizService;
     @Autowired private QuizAttemptService quizAttemptService;
+    @Autowired private PresenceService presenceService;
+    @Autowired private GradebookService gradebookService;
+    @Autowired private GradebookSnapshots gradebookSnapshots;
+    @Autowired private ScoreAnalyticsService scoreAnalyticsService;
     @Autowired private QuizRepository quizRepository;
     @Autowired private QuizAttemptRepository quizAttemptRepository;
 
@@ -167,6 +176,7 @@ public class TeacherController {
             throw new AccessDeniedException("Not authorized.");
         }
         model.addAttribute("schoolClass", schoolClass);
+        model.addAttribute("onlineCount", presenceService.getClassOnlineCount(classId));
         return "teacher/class-details"; // Chat view
     }
 
@@ -762,7 +772,8 @@ public class TeacherController {
     // Gradebook Endpoint (Added Previously)
     // ========================================================================
     @GetMapping("/classes/{classId}/gradebook")
-    public String showClassGradebook(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails, RedirectAttributes redirectAttributes) {
+    public String showClassGradebook(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails, RedirectAttributes redirectAttributes,
+                                     WebRequest webRequest, HttpServletResponse response) {
         logger.debug("Teacher {} viewing gradebook for class ID {}", userDetails.getUsername(), classId);
         try {
             User teacher = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
@@ -774,44 +785,18 @@ public class TeacherController {
                 throw new AccessDeniedException("You are not authorized to view the gradebook for this class.");
             }
 
-            // Fetch required data
-            List<User> students = schoolClass.getStudents().stream()
-                                            .sorted(Comparator.comparing(User::getLastName, String.CASE_INSENSITIVE_ORDER)
-                                                              .thenComparing(User::getFirstName, String.CASE_INSENSITIVE_ORDER))
-                                            .collect(Collectors.toList());
-            List<Assignment> assignments = assignmentService.findAssignmentsByClassId(classId)
-                                            .stream().sorted(Comparator.comparing(Assignment::getDueDate))
-                                            .collect(Collectors.toList());
-            List<Quiz> quizzes = quizService.findQuizzesByClassId(classId)
-                                            .stream().sorted(Comparator.comparing(Quiz::getDueDate, Comparator.nullsLast(Comparator.naturalOrder())))
-                                            .collect(Collectors.toList());
-
-            // Fetch all submissions and attempts for the class efficiently
-            List<Submission> allSubmissions = assignments.stream()
-                                                .flatMap(a -> submissionService.findSubmissionsByAssignment(a).stream())
-                                                .collect(Collectors.toList());
-            List<QuizAttempt> allAttempts = quizzes.stream()
-                                                .flatMap(q -> quizAttemptService.findAttemptsByQuizForTeacher(q.getId(), teacher).stream())
-                                                .collect(Collectors.toList());
-
-            // Group data by student ID for easier access in the template
-            Map<Long, Map<Long, Submission>> submissionsByStudent = allSubmissions.stream()
-                    .filter(s -> s.getStudent() != null && s.getAssignment() != null)
-                    .collect(Collectors.groupingBy(s -> s.getStudent().getId(),
-                             Collectors.toMap(s -> s.getAssignment().getId(), Function.identity())));
-
-            Map<Long, Map<Long, QuizAttempt>> attemptsByStudent = allAttempts.stream()
-                    .filter(a -> a.getStudent() != null && a.getQuiz() != null)
-                    .collect(Collectors.groupingBy(a -> a.getStudent().getId(),
-                             Collectors.toMap(a -> a.getQuiz().getId(), Function.identity())));
-
-
+            // Last complete snapshot, rebuilt in the background after changes; never waits for a rebuild
+            GradebookSnapshots.Snapshot snapshot = gradebookSnapshots.get(classId);
+            // Browsers revalidate on every load; an unchanged gradebook is answered with 304 Not Modified
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.COOKIE);
+            if (webRequest.checkNotModified(snapshot.etag(), snapshot.lastModified().toEpochMilli())) {
+                return null;
+            }
             model.addAttribute("schoolClass", schoolClass);
-            model.addAttribute("students", students);
-            model.addAttribute("assignments", assignments);
-            model.addAttribute("quizzes", quizzes);
-            model.addAttribute("submissionsByStudent", submissionsByStudent);
-            model.addAttribute("attemptsByStudent", attemptsByStudent);
+            model.addAttribute("gradebook", snapshot.gradebook());
+            model.addAttribute("gradeSummaries", snapshot.gradeSummaries());
+            model.addAttribute("classAverage", snapshot.classAverage());
 
             return "teacher/class-gradebook"; // Path to the new template
 
@@ -826,5 +811,74 @@ public class TeacherController {
         }
     }
 
+    /**
+     * Shows the score distribution of every assignment and quiz of the class, served from memory.
+     */
+    @GetMapping("/classes/{classId}/analytics")
+    public String showClassAnalytics(@PathVariable Long classId, Model model, @AuthenticationPrincipal UserDetails userDetails, RedirectAttributes redirectAttributes) {
+        logger.debug("Teacher {} viewing score analytics for class ID {}", userDetails.getUsername(), classId);
+        try {
+            User teacher = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
+            SchoolClass schoolClass = classService.findClassById(classId)
+                    .orElseThrow(() -> new EntityNotFoundException("Class not found with ID: " + classId));
+            if (!schoolClass.getTeacher().getId().equals(teacher.getId())) {
+                throw new AccessDeniedException("You are not authorized to view the analytics for this class.");
+            }
+
+            model.addAttribute("schoolClass", schoolClass);
+            model.addAttribute("analytics", scoreAnalyticsService.getClassAnalytics(classId));
+            return "teacher/class-analytics";
+
+        } catch (EntityNotFoundException | AccessDeniedException e) {
+            logger.warn("Error accessing analytics for class {}: {}", classId, e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/teacher/classes";
+        } catch (Exception e) {
+            logger.error("Unexpected error loading analytics for class {}: {}", classId, e.getMessage(), e);
+            redirectAttributes.addFlashAttribute("errorMessage", "An unexpected error occurred while loading the analytics.");
+            return "redirect:/teacher/classes";
+        }
+    }
+
+    /**
+     * Downloads the class gradebook as CSV, streamed from the database row by row.
+     */
+    @GetMapping("/classes/{classId}/gradebook.csv")
+    public ResponseEntity<StreamingResponseBody> exportClassGradebookCsv(@PathVariable Long classId, @AuthenticationPrincipal UserDetails userDetails) {
+        return gradebookDownload(classId, userDetails, "csv", new MediaType("text", "csv", StandardCharsets.UTF_8),
+                out -> gradebookService.exportCsv(classId, out));
+    }
+
+    /**
+     * Downloads the class gradebook as an XLSX workbook, streamed from the database row by row.
+     */
+    @GetMapping("/classes/{classId}/gradebook.xlsx")
+    public ResponseEntity<StreamingResponseBody> exportClassGradebookXlsx(@PathVariable Long classId, @AuthenticationPrincipal UserDetails userDetails) {
+        return gradebookDownload(classId, userDetails, "xlsx",
+                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+                out -> gradebookService.exportXlsx(classId, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> gradebookDownload(Long classId, UserDetails userDetails, String extension,
+                                                                    MediaType contentType, StreamingResponseBody body) {
+        User teacher = userService.findUserByUsername(userDetails.getUsername()).orElseThrow();
+        Optional<SchoolClass> schoolClass = classService.findClassById(classId);
+        if (schoolClass.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!schoolClass.get().getTeacher().getId().equals(teacher.getId())) {
+            logger.warn("Teacher {} attempted to export the gradebook of class ID {} they do not teach.", teacher.getUsername(), classId);
+            return ResponseEntity.status(403).build();
+        }
+        logger.debug("Teacher {} exporting gradebook for class ID {} as {}", teacher.getUsername(), classId, extension);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(schoolClass.get().getName() + " gradebook." + extension, StandardCharsets.UTF_8)
+                .build();
+        // Rows are written as the cursors are read, after this method returns
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
 
 }
\ No newline at end of file
@@ -10,9 +10,12 @@ import java.time.LocalDateTime;
 /**
  * Represents a single chat message sent within a specific SchoolClass.
  * Maps to the "chat_messages" table in the database.
+ * The (class_id, timestamp, id) index backs keyset pagination of a class's history.
  */
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "idx_chat_messages_class_ts_id", columnList = "class_id, timestamp, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,66 @@
+package student_management_system.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running grade totals of one student in one class, so grade pages and class averages read one
+ * row instead of every submission and quiz attempt.
+ * Maps to the "class_grade_summary" table. Rows are adjusted in the same transaction that
+ * grades (or resets) a submission or quiz attempt, and rebuilt from the raw rows by
+ * ClassGradeSummaryService (see there for the point rules).
+ * <p>
+ * Class and student are plain IDs rather than associations, so deleting a class or a user is
+ * not blocked by summary rows; rows left behind are removed by the next rebuild.
+ */
+@Entity
+@Table(name = "class_grade_summary",
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"class_id", "student_id"}, name = "uk_class_grade_summary_class_student")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class ClassGradeSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "class_id", nullable = false)
+    private Long classId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(nullable = false)
+    private double pointsEarned = 0;
+
+    @Column(nullable = false)
+    private double pointsPossible = 0;
+
+    /**
+     * Number of graded assignments and quizzes counted in the points.
+     */
+    @Column(nullable = false)
+    private int gradedCount = 0;
+
+    /**
+     * Points earned as a percentage of points possible (so items weigh by their points);
+     * null while nothing is graded.
+     */
+    @Column(nullable = true)
+    private Double weightedAverage;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ClassGradeSummary(Long classId, Long studentId) {
+        this.classId = classId;
+        this.studentId = studentId;
+    }
+}
@@ -0,0 +1,100 @@
+package student_management_system.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialized per-participant summary of one conversation (a private chat or a class chat),
+ * used to render the /messages inbox from a single indexed query.
+ * Maps to the "conversation_summaries" table. Rows are maintained in the same transaction
+ * that saves a message (see ConversationSummaryService).
+ */
+@Entity
+@DynamicUpdate // Unread counts are changed by bulk UPDATEs; entity saves must not overwrite them
+@Table(name = "conversation_summaries",
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"owner_id", "conversation_ref"}, name = "uk_conversation_summary_owner_ref")
+    },
+    indexes = {
+        @Index(name = "idx_conversation_summaries_owner_last", columnList = "owner_id, last_message_at"),
+        @Index(name = "idx_conversation_summaries_ref", columnList = "conversation_ref")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class ConversationSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The participant this summary row belongs to (whose inbox it appears in).
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ConversationType type;
+
+    /**
+     * Stable reference to the conversation, shared by all participants' rows:
+     * "P:" + the private conversation key, or "C:" + the class ID.
+     */
+    @Column(name = "conversation_ref", nullable = false, length = 50)
+    private String conversationRef;
+
+    /**
+     * The other participant (private conversations only).
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "target_user_id", nullable = true)
+    private User targetUser;
+
+    /**
+     * The class (class conversations only).
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "class_id", nullable = true)
+    private SchoolClass schoolClass;
+
+    // --- Latest Message Details (null until the first message) ---
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_sender_id", nullable = true)
+    private User lastSender;
+
+    @Column(name = "last_message_snippet", length = 255, nullable = true)
+    private String lastMessageSnippet;
+
+    @Column(name = "last_message_at", nullable = true)
+    private LocalDateTime lastMessageAt;
+
+    @Column(nullable = false)
+    private boolean lastMessageIsAttachment = false;
+
+    /**
+     * Number of messages the owner has not seen in this conversation.
+     */
+    @Column(nullable = false)
+    private int unreadCount = 0;
+
+    public enum ConversationType {
+        PRIVATE,
+        CLASS
+    }
+
+    public static String privateRef(Long userId1, Long userId2) {
+        return "P:" + PrivateMessage.conversationKeyFor(userId1, userId2);
+    }
+
+    public static String classRef(Long classId) {
+        return "C:" + classId;
+    }
+}
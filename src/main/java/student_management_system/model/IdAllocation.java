@@ -0,0 +1,38 @@
+package student_management_system.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Tracks the next free ID of a table whose IDs are assigned by the application instead of
+ * the database (see ChatMessageIdAllocator). Each node reserves a block of IDs at a time by
+ * advancing nextValue under a row lock, so blocks never overlap across nodes.
+ * Maps to the "id_allocations" table in the database.
+ */
+@Entity
+@Table(name = "id_allocations")
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdAllocation {
+
+    /**
+     * The name of the ID sequence, normally the table the IDs are used for.
+     */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * The first ID that has not yet been handed out to any node.
+     */
+    @Column(nullable = false)
+    private Long nextValue;
+
+    public IdAllocation(String name, Long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+}
@@ -9,9 +9,13 @@ import java.time.LocalDateTime;
 
 /**
  * Represents a private message sent between two users.
+ * Each row stores a canonical conversation key (the ordered pair of user IDs) so a whole
+ * conversation is served from one (conversation_key, timestamp, id) index range.
  */
 @Entity
-@Table(name = "private_messages")
+@Table(name = "private_messages", indexes = {
+    @Index(name = "idx_private_messages_conv_ts_id", columnList = "conversation_key, timestamp, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -68,6 +72,14 @@ public class PrivateMessage {
     private String attachmentOriginalFilename;
     // --- End File Attachment Fields ---
 
+    /**
+     * Canonical key of the conversation this message belongs to, "smallerUserId:largerUserId".
+     * Identical for both directions of a conversation. Populated on insert and backfilled for
+     * rows created before the column existed (see PrivateMessageConversationKeyBackfill).
+     */
+    @Column(name = "conversation_key", length = 41)
+    private String conversationKey;
+
 
     // Constructor for text messages
     public PrivateMessage(User sender, User receiver, String content) {
@@ -85,5 +97,26 @@ public class PrivateMessage {
         this.attachmentOriginalFilename = attachmentOriginalFilename;
     }
 
+    /**
+     * Builds the canonical conversation key for two user IDs (order independent).
+     *
+     * @param userId1 One participant's ID.
+     * @param userId2 The other participant's ID.
+     * @return The key in the form "smallerId:largerId".
+     */
+    public static String conversationKeyFor(Long userId1, Long userId2) {
+        if (userId1 == null || userId2 == null) {
+            throw new IllegalArgumentException("User IDs are required to build a conversation key.");
+        }
+        return userId1 <= userId2 ? userId1 + ":" + userId2 : userId2 + ":" + userId1;
+    }
+
+    @PrePersist
+    private void assignConversationKey() {
+        if (conversationKey == null && sender != null && receiver != null) {
+            conversationKey = conversationKeyFor(sender.getId(), receiver.getId());
+        }
+    }
+
     // Lombok generates getters/setters
 }
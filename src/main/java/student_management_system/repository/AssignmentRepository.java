@@ -3,6 +3,8 @@ package student_management_system.repository;
 import student_management_system.model.Assignment;
 import student_management_system.model.SchoolClass; // Needed for parameters
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -35,4 +37,12 @@ public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
      */
     List<Assignment> findBySchoolClassIn(Set<SchoolClass> classes);
 
+    /**
+     * Lists a class's assignments as gradebook columns, by due date.
+     * @param classId The ID of the SchoolClass.
+     * @return A list of arrays: [id, title].
+     */
+    @Query("SELECT a.id, a.title FROM Assignment a WHERE a.schoolClass.id = :classId ORDER BY a.dueDate, a.id")
+    List<Object[]> findGradebookColumnsByClassId(@Param("classId") Long classId);
+
 }
@@ -3,9 +3,16 @@ package student_management_system.repository;
 
 import student_management_system.model.ChatMessage;
 import student_management_system.model.SchoolClass;
+import student_management_system.web.dto.ChatMessageDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional; // Import Optional
 
@@ -35,4 +42,122 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      */
     Optional<ChatMessage> findTopBySchoolClassOrderByTimestampDesc(SchoolClass schoolClass);
 
+    /**
+     * Fetches the newest messages of a class as DTO projections, newest first.
+     * The sender is joined in the same statement, so no User entities are loaded.
+     * Served by the (class_id, timestamp, id) index.
+     *
+     * @param classId The ID of the class.
+     * @param pageable Limits the number of rows (use Pageable.ofSize(n)).
+     * @return Up to n ChatMessageDto projections ordered by timestamp and id descending.
+     */
+    @Query("SELECT new student_management_system.web.dto.ChatMessageDto(" +
+           "m.id, m.content, m.timestamp, c.id, c.teacher.id, s.id, s.username, s.firstName, s.lastName, s.profilePicturePath, s.studentId) " +
+           "FROM ChatMessage m JOIN m.schoolClass c JOIN m.sender s " +
+           "WHERE c.id = :classId " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageDto> findLatestDtosByClassId(@Param("classId") Long classId, Pageable pageable);
+
+    /**
+     * Fetches the messages of a class that come strictly before the given (timestamp, id) cursor,
+     * newest first. Used to page backwards through history without OFFSET scans.
+     *
+     * @param classId The ID of the class.
+     * @param beforeTimestamp Timestamp of the cursor message.
+     * @param beforeId ID of the cursor message (tie-breaker for equal timestamps).
+     * @param pageable Limits the number of rows (use Pageable.ofSize(n)).
+     * @return Up to n ChatMessageDto projections older than the cursor, ordered descending.
+     */
+    @Query("SELECT new student_management_system.web.dto.ChatMessageDto(" +
+           "m.id, m.content, m.timestamp, c.id, c.teacher.id, s.id, s.username, s.firstName, s.lastName, s.profilePicturePath, s.studentId) " +
+           "FROM ChatMessage m JOIN m.schoolClass c JOIN m.sender s " +
+           "WHERE c.id = :classId " +
+           "AND (m.timestamp < :beforeTimestamp OR (m.timestamp = :beforeTimestamp AND m.id < :beforeId)) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageDto> findDtosByClassIdBefore(@Param("classId") Long classId,
+                                                 @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                 @Param("beforeId") Long beforeId,
+                                                 Pageable pageable);
+
+    /**
+     * Looks up the timestamp of a message, scoped to its class, to resolve a pagination cursor.
+     *
+     * @param id The message ID.
+     * @param classId The class the message must belong to.
+     * @return The message timestamp, or empty if the message does not exist in that class.
+     */
+    @Query("SELECT m.timestamp FROM ChatMessage m WHERE m.id = :id AND m.schoolClass.id = :classId")
+    Optional<LocalDateTime> findTimestampByIdAndClassId(@Param("id") Long id, @Param("classId") Long classId);
+
+    /**
+     * Reads one batch of messages for the search index, in ID order, as plain columns
+     * (no entities), so a rebuild can stream the whole table in keyset batches.
+     *
+     * @param afterId Only messages with a larger ID are returned (0 to start).
+     * @param pageable Limits the batch size (use Pageable.ofSize(n)).
+     * @return Rows of [id, content, timestamp, classId, senderId].
+     */
+    @Query("SELECT m.id, m.content, m.timestamp, m.schoolClass.id, m.sender.id FROM ChatMessage m " +
+           "WHERE m.id > :afterId ORDER BY m.id")
+    List<Object[]> findSearchIndexBatch(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Finds the classes that have messages older than the archive cutoff.
+     *
+     * @param cutoff Messages with an older timestamp are due for archival.
+     * @return The IDs of those classes.
+     */
+    @Query("SELECT DISTINCT m.schoolClass.id FROM ChatMessage m WHERE m.timestamp < :cutoff")
+    List<Long> findClassIdsWithMessagesBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Reads one batch of a class's messages for the archive, in (timestamp, id) order, starting
+     * after the given position and stopping at the cutoff.
+     *
+     * @param classId The ID of the class.
+     * @param cutoff Only messages older than this are returned.
+     * @param afterTimestamp Timestamp of the last message already read.
+     * @param afterId ID of the last message already read (0 to start).
+     * @param pageable Limits the batch size (use Pageable.ofSize(n)).
+     * @return Rows of [id, timestamp, senderId, content].
+     */
+    @Query("SELECT m.id, m.timestamp, m.sender.id, m.content FROM ChatMessage m " +
+           "WHERE m.schoolClass.id = :classId AND m.timestamp < :cutoff " +
+           "AND (m.timestamp > :afterTimestamp OR (m.timestamp = :afterTimestamp AND m.id > :afterId)) " +
+           "ORDER BY m.timestamp, m.id")
+    List<Object[]> findArchiveBatch(@Param("classId") Long classId,
+                                    @Param("cutoff") LocalDateTime cutoff,
+                                    @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    /**
+     * Deletes messages by ID once they are safely in the archive.
+     *
+     * @return The number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the messages of a class up to and including a (timestamp, id) position. Used to
+     * finish an archival run that wrote its segment but stopped before deleting every row.
+     *
+     * @return The number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.schoolClass.id = :classId " +
+           "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id <= :id))")
+    int deleteByClassIdUpTo(@Param("classId") Long classId,
+                            @Param("timestamp") LocalDateTime timestamp,
+                            @Param("id") Long id);
+
+    /**
+     * Finds the highest chat message ID currently stored (a primary key lookup).
+     *
+     * @return The highest ID, or null if the table is empty.
+     */
+    @Query("SELECT MAX(m.id) FROM ChatMessage m")
+    Long findMaxId();
 }
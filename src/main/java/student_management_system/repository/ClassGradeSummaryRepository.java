@@ -0,0 +1,82 @@
+package student_management_system.repository;
+
+import student_management_system.model.ClassGradeSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for ClassGradeSummary entities (running grade totals per class and student).
+ */
+@Repository
+public interface ClassGradeSummaryRepository extends JpaRepository<ClassGradeSummary, Long> {
+
+    Optional<ClassGradeSummary> findByClassIdAndStudentId(Long classId, Long studentId);
+
+    List<ClassGradeSummary> findByClassId(Long classId);
+
+    /**
+     * Adds a change to one student's totals as a single atomic UPDATE, so concurrent grading of
+     * different items never loses an update. The average is assigned first because MySQL
+     * evaluates single-table assignments left to right.
+     *
+     * @return The number of rows updated (0 if the student has no row yet).
+     */
+    @Modifying
+    @Query("UPDATE ClassGradeSummary s SET " +
+           "s.weightedAverage = CASE WHEN s.pointsPossible + :possible > 0 " +
+           "THEN (s.pointsEarned + :earned) * 100 / (s.pointsPossible + :possible) ELSE NULL END, " +
+           "s.pointsEarned = s.pointsEarned + :earned, s.pointsPossible = s.pointsPossible + :possible, " +
+           "s.gradedCount = s.gradedCount + :graded, s.updatedAt = :now " +
+           "WHERE s.classId = :classId AND s.studentId = :studentId")
+    int addPoints(@Param("classId") Long classId, @Param("studentId") Long studentId,
+                  @Param("earned") double earned, @Param("possible") double possible,
+                  @Param("graded") int graded, @Param("now") LocalDateTime now);
+
+    /**
+     * Creates a student's row with the given totals or, if another transaction created it first
+     * (the unique key on class and student), adds the change to that row instead. The totals
+     * counted by the other transaction cannot include this transaction's uncommitted grade, so
+     * adding the change is exact. Same left-to-right assignment order as {@link #addPoints}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO class_grade_summary " +
+           "(class_id, student_id, points_earned, points_possible, graded_count, weighted_average, updated_at) " +
+           "VALUES (:classId, :studentId, :totalEarned, :totalPossible, :totalGraded, :totalAverage, :now) " +
+           "ON DUPLICATE KEY UPDATE " +
+           "weighted_average = CASE WHEN points_possible + :possible > 0 " +
+           "THEN (points_earned + :earned) * 100 / (points_possible + :possible) ELSE NULL END, " +
+           "points_earned = points_earned + :earned, points_possible = points_possible + :possible, " +
+           "graded_count = graded_count + :graded, updated_at = :now",
+           nativeQuery = true)
+    int insertOrAddPoints(@Param("classId") Long classId, @Param("studentId") Long studentId,
+                          @Param("totalEarned") double totalEarned, @Param("totalPossible") double totalPossible,
+                          @Param("totalGraded") int totalGraded, @Param("totalAverage") Double totalAverage,
+                          @Param("earned") double earned, @Param("possible") double possible,
+                          @Param("graded") int graded, @Param("now") LocalDateTime now);
+
+    /**
+     * Averages the students' weighted averages in a class, ignoring students with nothing graded.
+     *
+     * @return The class average, or null if nobody has a grade.
+     */
+    @Query("SELECT AVG(s.weightedAverage) FROM ClassGradeSummary s WHERE s.classId = :classId AND s.weightedAverage IS NOT NULL")
+    Double findClassAverage(@Param("classId") Long classId);
+
+    @Modifying
+    @Query("DELETE FROM ClassGradeSummary s WHERE s.classId = :classId")
+    int deleteByClassId(@Param("classId") Long classId);
+
+    /**
+     * Removes rows of classes that no longer exist.
+     */
+    @Modifying
+    @Query("DELETE FROM ClassGradeSummary s WHERE s.classId NOT IN (SELECT c.id FROM SchoolClass c)")
+    int deleteOrphans();
+}
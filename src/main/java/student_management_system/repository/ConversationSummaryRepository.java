@@ -0,0 +1,128 @@
+package student_management_system.repository;
+
+import student_management_system.model.ConversationSummary;
+import student_management_system.model.User;
+import student_management_system.web.dto.ConversationPreviewDto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for ConversationSummary entities (the materialized /messages inbox).
+ */
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    /**
+     * Loads a user's whole inbox as preview DTOs, most recent activity first.
+     * Conversations without messages (null timestamp) sort last under MySQL's DESC ordering.
+     * Served by the (owner_id, last_message_at) index; all display columns are joined in the same query.
+     *
+     * @param ownerId The ID of the user whose inbox is rendered.
+     * @return A List of ConversationPreviewDto for private and class conversations.
+     */
+    @Query("SELECT new student_management_system.web.dto.ConversationPreviewDto(" +
+           "cs.type, cs.owner.id, tu.id, tu.username, tu.firstName, tu.lastName, tu.profilePicturePath, " +
+           "sc.id, sc.name, sc.classImagePath, ls.id, ls.firstName, " +
+           "cs.lastMessageSnippet, cs.lastMessageAt, cs.lastMessageIsAttachment, cs.unreadCount) " +
+           "FROM ConversationSummary cs LEFT JOIN cs.targetUser tu LEFT JOIN cs.schoolClass sc LEFT JOIN cs.lastSender ls " +
+           "WHERE cs.owner.id = :ownerId " +
+           "ORDER BY cs.lastMessageAt DESC, cs.id DESC")
+    List<ConversationPreviewDto> findInboxPreviews(@Param("ownerId") Long ownerId);
+
+    Optional<ConversationSummary> findByOwner_IdAndConversationRef(Long ownerId, String conversationRef);
+
+    boolean existsByOwner_IdAndConversationRef(Long ownerId, String conversationRef);
+
+    /**
+     * Lists (ownerId, conversationRef) pairs of all existing rows. Used by the startup backfill.
+     */
+    @Query("SELECT cs.owner.id, cs.conversationRef FROM ConversationSummary cs")
+    List<Object[]> findAllOwnerRefPairs();
+
+    /**
+     * Applies the newest of {@code count} new class chat messages to every participant's row of
+     * that class in one statement, adding {@code count} to each unread count except for the
+     * newest message's sender, who gets {@code count - senderCount} (their own messages are not
+     * unread). Other senders in the same batch are corrected with subtractUnreadCount.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ConversationSummary cs SET cs.lastSender = :sender, cs.lastMessageSnippet = :snippet, " +
+           "cs.lastMessageAt = :sentAt, cs.lastMessageIsAttachment = false, " +
+           "cs.unreadCount = cs.unreadCount + :count - CASE WHEN cs.owner.id = :senderId THEN :senderCount ELSE 0 END " +
+           "WHERE cs.conversationRef = :conversationRef")
+    int applyClassMessages(@Param("conversationRef") String conversationRef,
+                           @Param("sender") User sender,
+                           @Param("senderId") Long senderId,
+                           @Param("snippet") String snippet,
+                           @Param("sentAt") LocalDateTime sentAt,
+                           @Param("count") int count,
+                           @Param("senderCount") int senderCount);
+
+    /**
+     * Takes {@code count} off the owner's unread count for one conversation (their own messages
+     * that a batched applyClassMessages counted as unread).
+     */
+    @Modifying
+    @Query("UPDATE ConversationSummary cs SET cs.unreadCount = cs.unreadCount - :count " +
+           "WHERE cs.owner.id = :ownerId AND cs.conversationRef = :conversationRef")
+    int subtractUnreadCount(@Param("ownerId") Long ownerId, @Param("conversationRef") String conversationRef,
+                            @Param("count") int count);
+
+    /**
+     * Resets the owner's unread count for one conversation.
+     *
+     * @return The number of rows updated (0 if already read).
+     */
+    @Modifying
+    @Query("UPDATE ConversationSummary cs SET cs.unreadCount = 0 " +
+           "WHERE cs.owner.id = :ownerId AND cs.conversationRef = :conversationRef AND cs.unreadCount > 0")
+    int resetUnreadCount(@Param("ownerId") Long ownerId, @Param("conversationRef") String conversationRef);
+
+    /**
+     * Adds one to the owner's unread count for one conversation as a single atomic UPDATE,
+     * so concurrent messages never lose an increment.
+     */
+    @Modifying
+    @Query("UPDATE ConversationSummary cs SET cs.unreadCount = cs.unreadCount + 1 " +
+           "WHERE cs.owner.id = :ownerId AND cs.conversationRef = :conversationRef")
+    int incrementUnreadCount(@Param("ownerId") Long ownerId, @Param("conversationRef") String conversationRef);
+
+    @Query("SELECT cs.unreadCount FROM ConversationSummary cs WHERE cs.owner.id = :ownerId AND cs.conversationRef = :conversationRef")
+    Optional<Integer> findUnreadCount(@Param("ownerId") Long ownerId, @Param("conversationRef") String conversationRef);
+
+    /**
+     * Sums the owner's unread counts over all conversations of one type.
+     */
+    @Query("SELECT COALESCE(SUM(cs.unreadCount), 0) FROM ConversationSummary cs WHERE cs.owner.id = :ownerId AND cs.type = :type")
+    long sumUnreadCount(@Param("ownerId") Long ownerId, @Param("type") ConversationSummary.ConversationType type);
+
+    @Modifying
+    @Query("DELETE FROM ConversationSummary cs WHERE cs.conversationRef = :conversationRef")
+    int deleteByConversationRef(@Param("conversationRef") String conversationRef);
+
+    @Modifying
+    @Query("DELETE FROM ConversationSummary cs WHERE cs.owner.id = :ownerId AND cs.conversationRef = :conversationRef")
+    int deleteByOwnerAndConversationRef(@Param("ownerId") Long ownerId, @Param("conversationRef") String conversationRef);
+
+    /**
+     * Removes every row owned by or targeting a user, and every row of the classes that user teaches.
+     * Used before deleting the user.
+     */
+    @Modifying
+    @Query("DELETE FROM ConversationSummary cs WHERE cs.owner.id = :userId OR cs.targetUser.id = :userId " +
+           "OR cs.schoolClass.id IN (SELECT c.id FROM SchoolClass c WHERE c.teacher.id = :userId)")
+    int deleteAllReferencingUser(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary cs SET cs.lastSender = null WHERE cs.lastSender.id = :userId")
+    int clearLastSender(@Param("userId") Long userId);
+}
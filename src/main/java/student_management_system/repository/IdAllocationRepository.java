@@ -0,0 +1,29 @@
+package student_management_system.repository;
+
+import jakarta.persistence.LockModeType;
+import student_management_system.model.IdAllocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for IdAllocation entities (application-assigned ID blocks).
+ */
+@Repository
+public interface IdAllocationRepository extends JpaRepository<IdAllocation, String> {
+
+    /**
+     * Loads an allocation row with a write lock so that only one node at a time can reserve
+     * the next block. Must be called inside a transaction.
+     *
+     * @param name The sequence name.
+     * @return An Optional containing the locked row, or empty if the sequence has not been created yet.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM IdAllocation a WHERE a.name = :name")
+    Optional<IdAllocation> findByNameForUpdate(@Param("name") String name);
+}
@@ -5,52 +5,89 @@ import student_management_system.model.PrivateMessage;
 import student_management_system.model.User;
 import org.springframework.data.domain.Pageable; // Import Pageable for limit
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository interface for PrivateMessage entities.
  * Includes methods for fetching conversation history and the latest message.
+ * Conversations are addressed by their canonical conversation key rather than an
+ * (a,b) OR (b,a) predicate, so each lookup is a single index range scan.
  */
 @Repository
 public interface PrivateMessageRepository extends JpaRepository<PrivateMessage, Long> {
 
     /**
-     * Finds all private messages exchanged between two specific users, ordered by timestamp ascending.
+     * Finds all private messages of a conversation, ordered by timestamp ascending.
+     * Served by the (conversation_key, timestamp, id) index.
      *
-     * @param user1 One user in the conversation.
-     * @param user2 The other user in the conversation.
+     * @param conversationKey The canonical key built by PrivateMessage.conversationKeyFor.
      * @return A list of PrivateMessage entities representing the conversation history.
      */
-    @Query("SELECT pm FROM PrivateMessage pm WHERE " +
-           "(pm.sender = :user1 AND pm.receiver = :user2) OR " +
-           "(pm.sender = :user2 AND pm.receiver = :user1) " +
-           "ORDER BY pm.timestamp ASC")
-    List<PrivateMessage> findConversationBetweenUsers(@Param("user1") User user1, @Param("user2") User user2);
+    @Query("SELECT pm FROM PrivateMessage pm JOIN FETCH pm.sender JOIN FETCH pm.receiver " +
+           "WHERE pm.conversationKey = :conversationKey " +
+           "ORDER BY pm.timestamp ASC, pm.id ASC")
+    List<PrivateMessage> findByConversationKeyOrderByTimestampAsc(@Param("conversationKey") String conversationKey);
 
     /**
-     * Finds the single most recent private message exchanged between two users using an explicit JPQL query.
-     * This replaces the problematic derived query method name.
+     * Finds the newest messages of a conversation, newest first, with both participants fetched.
      *
-     * @param user1 One user in the conversation.
-     * @param user2 The other user in the conversation.
-     * @param pageable A Pageable object configured to limit the result to 1 and sort by timestamp descending.
-     * @return A List containing the latest PrivateMessage, or an empty list if no messages exist.
-     * (Note: Using List<PrivateMessage> with Pageable is standard, get the Optional from the result).
+     * @param conversationKey The canonical conversation key.
+     * @param pageable Limits the number of rows (use Pageable.ofSize(n)).
+     * @return Up to n messages ordered by timestamp and id descending.
+     */
+    @Query("SELECT pm FROM PrivateMessage pm JOIN FETCH pm.sender JOIN FETCH pm.receiver " +
+           "WHERE pm.conversationKey = :conversationKey " +
+           "ORDER BY pm.timestamp DESC, pm.id DESC")
+    List<PrivateMessage> findLatestByConversationKey(@Param("conversationKey") String conversationKey, Pageable pageable);
+
+    /**
+     * Finds messages of a conversation strictly older than the (timestamp, id) cursor, newest first.
+     *
+     * @param conversationKey The canonical conversation key.
+     * @param beforeTimestamp Timestamp of the cursor message.
+     * @param beforeId ID of the cursor message (tie-breaker for equal timestamps).
+     * @param pageable Limits the number of rows (use Pageable.ofSize(n)).
+     * @return Up to n messages older than the cursor, ordered descending.
+     */
+    @Query("SELECT pm FROM PrivateMessage pm JOIN FETCH pm.sender JOIN FETCH pm.receiver " +
+           "WHERE pm.conversationKey = :conversationKey " +
+           "AND (pm.timestamp < :beforeTimestamp OR (pm.timestamp = :beforeTimestamp AND pm.id < :beforeId)) " +
+           "ORDER BY pm.timestamp DESC, pm.id DESC")
+    List<PrivateMessage> findByConversationKeyBefore(@Param("conversationKey") String conversationKey,
+                                                     @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                     @Param("beforeId") Long beforeId,
+                                                     Pageable pageable);
+
+    /**
+     * Looks up the timestamp of a message, scoped to its conversation, to resolve a pagination cursor.
+     *
+     * @param id The message ID.
+     * @param conversationKey The conversation the message must belong to.
+     * @return The message timestamp, or empty if the message is not part of that conversation.
      */
-    @Query("SELECT pm FROM PrivateMessage pm WHERE " +
-           "(pm.sender = :user1 AND pm.receiver = :user2) OR " +
-           "(pm.sender = :user2 AND pm.receiver = :user1) " +
-           "ORDER BY pm.timestamp DESC")
-    List<PrivateMessage> findLatestConversationMessageBetweenUsers(@Param("user1") User user1, @Param("user2") User user2, Pageable pageable);
+    @Query("SELECT pm.timestamp FROM PrivateMessage pm WHERE pm.id = :id AND pm.conversationKey = :conversationKey")
+    Optional<LocalDateTime> findTimestampByIdAndConversationKey(@Param("id") Long id, @Param("conversationKey") String conversationKey);
 
     /**
-     * Convenience method to get the single latest message as an Optional.
-     * Uses the findLatestConversationMessageBetweenUsers method with a Pageable limit of 1.
+     * Reads one batch of messages for the search index, in ID order, as plain columns.
+     *
+     * @param afterId Only messages with a larger ID are returned (0 to start).
+     * @param pageable Limits the batch size (use Pageable.ofSize(n)).
+     * @return Rows of [id, content, attachmentOriginalFilename, timestamp, conversationKey, senderId, receiverId].
+     */
+    @Query("SELECT pm.id, pm.content, pm.attachmentOriginalFilename, pm.timestamp, pm.conversationKey, pm.sender.id, pm.receiver.id " +
+           "FROM PrivateMessage pm WHERE pm.id > :afterId ORDER BY pm.id")
+    List<Object[]> findSearchIndexBatch(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Convenience method to get the single latest message between two users as an Optional.
      *
      * @param user1 One user in the conversation.
      * @param user2 The other user in the conversation.
@@ -58,10 +95,37 @@ public interface PrivateMessageRepository extends JpaRepository<PrivateMessage,
      */
     default Optional<PrivateMessage> findTopPrivateMessageBetweenUsers(User user1, User user2) {
         Pageable limitOne = Pageable.ofSize(1); // Request only the top 1 result
-        List<PrivateMessage> latest = findLatestConversationMessageBetweenUsers(user1, user2, limitOne);
+        List<PrivateMessage> latest = findLatestByConversationKey(
+                PrivateMessage.conversationKeyFor(user1.getId(), user2.getId()), limitOne);
         return latest.isEmpty() ? Optional.empty() : Optional.of(latest.get(0));
     }
 
+    /**
+     * Marks every unread message the receiver got in one conversation as read, in a single UPDATE.
+     *
+     * @param conversationKey The conversation key of the two users.
+     * @param receiverId The ID of the user who read the conversation.
+     * @return The number of messages that were marked read.
+     */
+    @Modifying
+    @Query("UPDATE PrivateMessage pm SET pm.isRead = true " +
+           "WHERE pm.conversationKey = :conversationKey AND pm.receiver.id = :receiverId AND pm.isRead = false")
+    int markConversationRead(@Param("conversationKey") String conversationKey, @Param("receiverId") Long receiverId);
+
+    /**
+     * Populates the conversation key for rows written before the column existed.
+     * Safe to run repeatedly: only rows with a null key are touched.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE PrivateMessage pm SET pm.conversationKey = " +
+           "CASE WHEN pm.sender.id <= pm.receiver.id " +
+           "THEN CONCAT(CAST(pm.sender.id AS String), ':', CAST(pm.receiver.id AS String)) " +
+           "ELSE CONCAT(CAST(pm.receiver.id AS String), ':', CAST(pm.sender.id AS String)) END " +
+           "WHERE pm.conversationKey IS NULL")
+    int backfillConversationKeys();
+
 
     // Optional: Method to find unread messages for a user
     // List<PrivateMessage> findByReceiverAndIsReadFalse(User receiver);
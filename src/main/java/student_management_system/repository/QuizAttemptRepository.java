@@ -6,9 +6,16 @@ import student_management_system.model.QuizAttempt;
 import student_management_system.model.User;
 import org.springframework.data.domain.Pageable; // Import Pageable
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long> {
@@ -32,4 +39,64 @@ public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long>
      */
     List<QuizAttempt> findByQuizInAndStatus(List<Quiz> quizzes, QuizAttempt.AttemptStatus status, Pageable pageable);
 
+    /**
+     * Finds a student's attempts at one class's quizzes, oldest first, with the quiz fetched in
+     * the same statement.
+     *
+     * @param studentId The ID of the student.
+     * @param classId The ID of the class.
+     * @return The student's attempts in the class.
+     */
+    @Query("SELECT qa FROM QuizAttempt qa JOIN FETCH qa.quiz q WHERE qa.student.id = :studentId AND q.schoolClass.id = :classId ORDER BY qa.startTime, qa.id")
+    List<QuizAttempt> findByStudentIdAndClassIdWithQuiz(@Param("studentId") Long studentId, @Param("classId") Long classId);
+
+    /**
+     * Lists the gradebook cells of every attempt at a class's quizzes, oldest first,
+     * without loading QuizAttempt entities.
+     *
+     * @param classId The class ID.
+     * @return A list of arrays: [studentId, quizId, status, score, maxScore].
+     */
+    @Query("SELECT a.student.id, q.id, a.status, a.score, a.maxScore " +
+           "FROM QuizAttempt a JOIN a.quiz q WHERE q.schoolClass.id = :classId ORDER BY a.startTime, a.id")
+    List<Object[]> findGradebookCellsByClassId(@Param("classId") Long classId);
+
+    /**
+     * Lists the gradebook cells of one student's attempts at a class's quizzes, oldest first.
+     *
+     * @return A list of arrays: [studentId, quizId, status, score, maxScore].
+     */
+    @Query("SELECT a.student.id, q.id, a.status, a.score, a.maxScore " +
+           "FROM QuizAttempt a JOIN a.quiz q WHERE q.schoolClass.id = :classId AND a.student.id = :studentId " +
+           "ORDER BY a.startTime, a.id")
+    List<Object[]> findGradebookCellsByClassIdAndStudentId(@Param("classId") Long classId, @Param("studentId") Long studentId);
+
+    /**
+     * Lists one student's attempts at one quiz as grade columns, oldest first.
+     *
+     * @return A list of arrays: [status, score, maxScore].
+     */
+    @Query("SELECT a.status, a.score, a.maxScore FROM QuizAttempt a " +
+           "WHERE a.student.id = :studentId AND a.quiz.id = :quizId ORDER BY a.startTime, a.id")
+    List<Object[]> findGradeCellsByStudentIdAndQuizId(@Param("studentId") Long studentId, @Param("quizId") Long quizId);
+
+    /**
+     * Streams one row per (enrolled student, quiz of the class, attempt) from a forward-only
+     * cursor, for gradebook exports; students without an attempt still get a row, with null
+     * attempt columns. Grouped by student in the same order as
+     * SubmissionRepository.streamGradebookRowsByClassId, oldest attempt first. The stream must
+     * be consumed and closed inside a read-only transaction.
+     *
+     * @param classId The class ID.
+     * @return A stream of arrays: [studentId, quizId, status, score, maxScore, attemptId].
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT st.id, q.id, a.status, a.score, a.maxScore, a.id " +
+           "FROM SchoolClass c JOIN c.students st " +
+           "LEFT JOIN Quiz q ON q.schoolClass.id = c.id " +
+           "LEFT JOIN QuizAttempt a ON a.quiz.id = q.id AND a.student.id = st.id " +
+           "WHERE c.id = :classId " +
+           "ORDER BY LOWER(st.lastName), LOWER(st.firstName), st.id, a.startTime, a.id")
+    Stream<Object[]> streamGradebookRowsByClassId(@Param("classId") Long classId);
+
 }
@@ -5,6 +5,8 @@ import student_management_system.model.Quiz;
 import student_management_system.model.SchoolClass;
 import student_management_system.model.User; // Import User
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -21,4 +23,12 @@ public interface QuizRepository extends JpaRepository<Quiz, Long> {
      * @return A list of quizzes taught by the teacher.
      */
     List<Quiz> findBySchoolClass_Teacher(User teacher);
+
+    /**
+     * Lists a class's quizzes as gradebook columns, by due date (quizzes without one last).
+     * @param classId The class ID.
+     * @return A list of arrays: [id, title].
+     */
+    @Query("SELECT q.id, q.title FROM Quiz q WHERE q.schoolClass.id = :classId ORDER BY q.dueDate NULLS LAST, q.id")
+    List<Object[]> findGradebookColumnsByClassId(@Param("classId") Long classId);
 }
@@ -2,9 +2,13 @@ package student_management_system.repository;
 
 import student_management_system.model.SchoolClass;
 import student_management_system.model.User; // Needed for teacher and student parameters
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -36,4 +40,99 @@ public interface SchoolClassRepository extends JpaRepository<SchoolClass, Long>
      */
     Optional<SchoolClass> findByClassCode(String classCode);
 
+    /**
+     * Lists every enrollment as a (classId, studentId) pair, read straight from classes_students.
+     *
+     * @return A list of two-element arrays: [classId, studentId].
+     */
+    @Query("SELECT c.id, s.id FROM SchoolClass c JOIN c.students s")
+    List<Object[]> findAllEnrollmentIdPairs();
+
+    /**
+     * Reads enrollments as (classId, studentId) pairs, one batch ordered by both IDs after the
+     * given pair, so all of them can be read without holding the whole table at once.
+     *
+     * @return A list of two-element arrays: [classId, studentId].
+     */
+    @Query("SELECT c.id, s.id FROM SchoolClass c JOIN c.students s " +
+           "WHERE c.id > :afterClassId OR (c.id = :afterClassId AND s.id > :afterStudentId) ORDER BY c.id, s.id")
+    List<Object[]> findEnrollmentIdPairsAfter(@Param("afterClassId") Long afterClassId,
+                                              @Param("afterStudentId") Long afterStudentId, Pageable pageable);
+
+    /**
+     * Lists every class with its teacher as a (classId, teacherId) pair.
+     *
+     * @return A list of two-element arrays: [classId, teacherId].
+     */
+    @Query("SELECT c.id, c.teacher.id FROM SchoolClass c")
+    List<Object[]> findAllTeacherIdPairs();
+
+    @Query("SELECT c.id FROM SchoolClass c ORDER BY c.id")
+    List<Long> findAllIds();
+
+    /**
+     * Lists a class's students as gradebook rows, by last name then first name.
+     *
+     * @param classId The class ID.
+     * @return A list of arrays: [id, username, firstName, lastName, studentId].
+     */
+    @Query("SELECT s.id, s.username, s.firstName, s.lastName, s.studentId FROM SchoolClass c JOIN c.students s " +
+           "WHERE c.id = :classId ORDER BY LOWER(s.lastName), LOWER(s.firstName), s.id")
+    List<Object[]> findGradebookStudentsByClassId(@Param("classId") Long classId);
+
+
+    /**
+     * Finds the teacher's ID for a class without loading the class.
+     *
+     * @param classId The class ID.
+     * @return The teacher's user ID, or empty if the class does not exist.
+     */
+    @Query("SELECT c.teacher.id FROM SchoolClass c WHERE c.id = :classId")
+    Optional<Long> findTeacherIdByClassId(@Param("classId") Long classId);
+
+    /**
+     * Lists the IDs of the classes a user teaches or is enrolled in, without loading the classes.
+     *
+     * @param userId The user's ID.
+     * @return The class IDs.
+     */
+    @Query("SELECT DISTINCT c.id FROM SchoolClass c LEFT JOIN c.students s WHERE c.teacher.id = :userId OR s.id = :userId")
+    List<Long> findClassIdsByMemberId(@Param("userId") Long userId);
+
+    /**
+     * Looks up the names of several classes at once.
+     *
+     * @param classIds The class IDs.
+     * @return Rows of [classId, name].
+     */
+    @Query("SELECT c.id, c.name FROM SchoolClass c WHERE c.id IN :classIds")
+    List<Object[]> findNamesByIdIn(@Param("classIds") Collection<Long> classIds);
+
+    /**
+     * Lists the IDs of all students enrolled in a class, read straight from classes_students.
+     *
+     * @param classId The class ID.
+     * @return The enrolled students' user IDs.
+     */
+    @Query("SELECT s.id FROM SchoolClass c JOIN c.students s WHERE c.id = :classId")
+    List<Long> findStudentIdsByClassId(@Param("classId") Long classId);
+
+    /**
+     * Lists the classes two students are both enrolled in: classes_students joined with itself
+     * on the class, without loading any class.
+     *
+     * @param studentId      One student's user ID.
+     * @param otherStudentId The other student's user ID.
+     * @return The shared class IDs, ascending.
+     */
+    @Query("SELECT c.id FROM SchoolClass c JOIN c.students a JOIN c.students b " +
+           "WHERE a.id = :studentId AND b.id = :otherStudentId ORDER BY c.id")
+    List<Long> findSharedClassIds(@Param("studentId") Long studentId, @Param("otherStudentId") Long otherStudentId);
+
+    /**
+     * Counts the classes two students are both enrolled in (see findSharedClassIds).
+     */
+    @Query("SELECT COUNT(c) FROM SchoolClass c JOIN c.students a JOIN c.students b " +
+           "WHERE a.id = :studentId AND b.id = :otherStudentId")
+    long countSharedClasses(@Param("studentId") Long studentId, @Param("otherStudentId") Long otherStudentId);
 }
@@ -5,12 +5,18 @@ import student_management_system.model.Assignment;
 import student_management_system.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Import Query
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param; // Import Param
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Pageable; // Import Pageable
 
+import jakarta.persistence.QueryHint;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * Repository interface for Submission entities.
@@ -49,4 +55,66 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     @Query("SELECT s FROM Submission s JOIN FETCH s.assignment a WHERE s.student = :student AND s.grade IS NOT NULL ORDER BY s.gradedDate DESC")
     List<Submission> findLatestGradedSubmissionsByStudent(@Param("student") User student, Pageable pageable);
 
+    /**
+     * Finds a student's submissions to one class's assignments, oldest first, with the
+     * assignment fetched in the same statement.
+     *
+     * @param studentId The ID of the student.
+     * @param classId The ID of the class.
+     * @return The student's submissions in the class, including superseded ones.
+     */
+    @Query("SELECT s FROM Submission s JOIN FETCH s.assignment a WHERE s.student.id = :studentId AND a.schoolClass.id = :classId ORDER BY s.submissionDate, s.id")
+    List<Submission> findByStudentIdAndClassIdWithAssignment(@Param("studentId") Long studentId, @Param("classId") Long classId);
+
+    /**
+     * Lists the gradebook cells of every submission to a class's assignments, oldest first,
+     * without loading Submission entities.
+     *
+     * @param classId The class ID.
+     * @return A list of arrays: [studentId, assignmentId, grade, numericalGrade, isMakeupSubmission, isSuperseded].
+     */
+    @Query("SELECT s.student.id, a.id, s.grade, s.numericalGrade, s.isMakeupSubmission, s.isSuperseded " +
+           "FROM Submission s JOIN s.assignment a WHERE a.schoolClass.id = :classId ORDER BY s.submissionDate, s.id")
+    List<Object[]> findGradebookCellsByClassId(@Param("classId") Long classId);
+
+    /**
+     * Lists the gradebook cells of one student's submissions to a class's assignments, oldest first.
+     *
+     * @return A list of arrays: [studentId, assignmentId, grade, numericalGrade, isMakeupSubmission, isSuperseded].
+     */
+    @Query("SELECT s.student.id, a.id, s.grade, s.numericalGrade, s.isMakeupSubmission, s.isSuperseded " +
+           "FROM Submission s JOIN s.assignment a WHERE a.schoolClass.id = :classId AND s.student.id = :studentId " +
+           "ORDER BY s.submissionDate, s.id")
+    List<Object[]> findGradebookCellsByClassIdAndStudentId(@Param("classId") Long classId, @Param("studentId") Long studentId);
+
+    /**
+     * Lists one student's submissions to one assignment as grade columns, oldest first.
+     *
+     * @return A list of arrays: [grade, numericalGrade, isMakeupSubmission, isSuperseded].
+     */
+    @Query("SELECT s.grade, s.numericalGrade, s.isMakeupSubmission, s.isSuperseded FROM Submission s " +
+           "WHERE s.student.id = :studentId AND s.assignment.id = :assignmentId ORDER BY s.submissionDate, s.id")
+    List<Object[]> findGradeCellsByStudentIdAndAssignmentId(@Param("studentId") Long studentId, @Param("assignmentId") Long assignmentId);
+
+    /**
+     * Streams one row per (enrolled student, assignment of the class, submission) from a
+     * forward-only cursor, for gradebook exports. Students without a submission to an assignment
+     * (or a class without assignments) still get a row, with null submission columns.
+     * Rows are grouped by student, in gradebook order, oldest submission first. The stream must
+     * be consumed and closed inside a read-only transaction.
+     *
+     * @param classId The class ID.
+     * @return A stream of arrays: [studentId, username, firstName, lastName, studentId (school ID),
+     *         assignmentId, grade, numericalGrade, isMakeupSubmission, isSuperseded, submissionId].
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT st.id, st.username, st.firstName, st.lastName, st.studentId, " +
+           "a.id, s.grade, s.numericalGrade, s.isMakeupSubmission, s.isSuperseded, s.id " +
+           "FROM SchoolClass c JOIN c.students st " +
+           "LEFT JOIN Assignment a ON a.schoolClass.id = c.id " +
+           "LEFT JOIN Submission s ON s.assignment.id = a.id AND s.student.id = st.id " +
+           "WHERE c.id = :classId " +
+           "ORDER BY LOWER(st.lastName), LOWER(st.firstName), st.id, s.submissionDate, s.id")
+    Stream<Object[]> streamGradebookRowsByClassId(@Param("classId") Long classId);
+
 }
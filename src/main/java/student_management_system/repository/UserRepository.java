@@ -2,11 +2,13 @@ package student_management_system.repository;
 
 import student_management_system.model.Role;
 import student_management_system.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Import Query
 import org.springframework.data.repository.query.Param; // Import Param
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,76 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByRoles_Name(String roleName);
 
+    /**
+     * Lists every friendship as a (userId, friendId) pair without loading User entities.
+     * Each friendship appears in both directions.
+     *
+     * @return A list of two-element arrays: [userId, friendId].
+     */
+    @Query("SELECT u.id, f.id FROM User u JOIN u.friends f")
+    List<Object[]> findAllFriendIdPairs();
+
+    /**
+     * Reads friendships as (userId, friendId) pairs, one batch ordered by both IDs after the
+     * given pair, so all of them can be read without holding the whole table at once.
+     *
+     * @return A list of two-element arrays: [userId, friendId].
+     */
+    @Query("SELECT u.id, f.id FROM User u JOIN u.friends f " +
+           "WHERE u.id > :afterUserId OR (u.id = :afterUserId AND f.id > :afterFriendId) ORDER BY u.id, f.id")
+    List<Object[]> findFriendIdPairsAfter(@Param("afterUserId") Long afterUserId,
+                                          @Param("afterFriendId") Long afterFriendId, Pageable pageable);
+
+    /**
+     * Lists the IDs of a user's friends without loading any User entities.
+     *
+     * @param userId The user's ID.
+     * @return The friends' IDs.
+     */
+    @Query("SELECT f.id FROM User u JOIN u.friends f WHERE u.id = :userId")
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    /**
+     * Counts the friendship rows from one user to another (0 or 1) without loading any User entities.
+     */
+    @Query("SELECT COUNT(f) FROM User u JOIN u.friends f WHERE u.id = :userId AND f.id = :friendId")
+    long countFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    /**
+     * Looks up the username and name of several users at once (no roles or friends loaded).
+     *
+     * @param userIds The user IDs.
+     * @return Rows of [id, username, firstName, lastName].
+     */
+    @Query("SELECT u.id, u.username, u.firstName, u.lastName FROM User u WHERE u.id IN :userIds")
+    List<Object[]> findNamesByIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Looks up the columns a chat message shows for its sender, for several users at once.
+     *
+     * @return Rows of [id, username, firstName, lastName, profilePicturePath, studentId].
+     */
+    @Query("SELECT u.id, u.username, u.firstName, u.lastName, u.profilePicturePath, u.studentId FROM User u WHERE u.id IN :userIds")
+    List<Object[]> findChatSenderColumnsByIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Reads the columns the user search index stores, one ID-ordered batch after the given ID,
+     * so the index can be loaded without User entities.
+     *
+     * @return Rows of [id, username, firstName, lastName, profilePicturePath].
+     */
+    @Query("SELECT u.id, u.username, u.firstName, u.lastName, u.profilePicturePath FROM User u " +
+           "WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchColumnsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Looks up the role names of several users at once.
+     *
+     * @return Rows of [userId, roleName].
+     */
+    @Query("SELECT u.id, r.name FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<Object[]> findRoleNamesByIdIn(@Param("userIds") Collection<Long> userIds);
+
     /**
      * Finds users whose username, first name, or last name contains the given search term, ignoring case.
      *
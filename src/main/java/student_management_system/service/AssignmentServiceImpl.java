@@ -59,6 +59,15 @@ public class AssignmentServiceImpl implements AssignmentService {
     @Autowired
     private SubmissionRepository submissionRepository;
 
+    @Autowired
+    private ClassGradeSummaryService classGradeSummaryService;
+
+    @Autowired
+    private ScoreAnalyticsService scoreAnalyticsService;
+
+    @Autowired
+    private GradebookSnapshots gradebookSnapshots;
+
     @Value("${file.assignment-upload-dir}")
     private String uploadDir;
 
@@ -110,7 +119,9 @@ public class AssignmentServiceImpl implements AssignmentService {
             assignment.setAttachmentOriginalFilename(originalFilename);
         }
         logger.info("Creating assignment '{}' for class ID {}", assignment.getTitle(), classId);
-        return assignmentRepository.save(assignment);
+        Assignment savedAssignment = assignmentRepository.save(assignment);
+        gradebookSnapshots.markChanged(classId);
+        return savedAssignment;
     }
 
     @Override
@@ -207,7 +218,9 @@ public class AssignmentServiceImpl implements AssignmentService {
             }
         }
         logger.info("Updating assignment ID {} by teacher '{}'", assignmentId, teacher.getUsername());
-        return assignmentRepository.save(existingAssignment);
+        Assignment updatedAssignment = assignmentRepository.save(existingAssignment);
+        gradebookSnapshots.markChanged(existingAssignment.getSchoolClass().getId());
+        return updatedAssignment;
     }
 
     @Override
@@ -223,7 +236,12 @@ public class AssignmentServiceImpl implements AssignmentService {
              deleteAttachmentFile(filePath);
         }
         logger.warn("Deleting assignment ID: {}. WARNING: Associated submissions will also be deleted due to cascade settings.", assignmentId);
+        Long classId = assignmentToDelete.getSchoolClass().getId();
         assignmentRepository.deleteById(assignmentId);
+        // The deleted grades no longer count; recount the class (deletes are rare)
+        classGradeSummaryService.rebuildClass(classId);
+        scoreAnalyticsService.evictClass(classId);
+        gradebookSnapshots.markChanged(classId);
     }
 
     private void deleteAttachmentFile(String filename) {
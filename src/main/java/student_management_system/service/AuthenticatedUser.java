@@ -0,0 +1,26 @@
+package student_management_system.service;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * The Spring Security principal of a logged-in user, carrying the user's database ID so that
+ * request paths that only need the ID (like opening a class chat) do not load the User entity.
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String username, String password, boolean enabled,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
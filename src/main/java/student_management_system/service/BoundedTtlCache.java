@@ -0,0 +1,125 @@
+package student_management_system.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The map behind the node-local caches (FriendGraph, StudentGradesCache, score analytics,
+ * gradebook snapshots, ...): a ConcurrentHashMap whose entries expire after a TTL, so a node
+ * that did not see a change made on another node catches up, and which holds at most a maximum
+ * number of entries (an arbitrary half is dropped when it is full; there is no LRU order to keep).
+ * <p>
+ * Loads follow one pattern: read {@link #generation()}, load from the database, then
+ * {@link #putIfUnchanged}. Every update and removal bumps the generation, so a load that
+ * overlapped a change is returned to its caller but not cached.
+ * <p>
+ * TTL and size are read through suppliers on every call, so they can come from injected fields.
+ */
+final class BoundedTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongSupplier ttlSeconds;
+    private final IntSupplier maxEntries;
+
+    /**
+     * @param ttlSeconds entries older than this are not returned (0 caches nothing); null for no expiry.
+     * @param maxEntries size at which half the entries are dropped before adding one.
+     */
+    BoundedTtlCache(LongSupplier ttlSeconds, IntSupplier maxEntries) {
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the cached value, or null if there is none or it expired.
+     */
+    V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || (ttlSeconds != null
+                && System.nanoTime() - entry.loadedAtNanos >= TimeUnit.SECONDS.toNanos(ttlSeconds.getAsLong()))) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @return the current generation; read it before loading a value for {@link #putIfUnchanged}.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a loaded value unless the cache changed since {@code loadGeneration} was read.
+     */
+    void putIfUnchanged(K key, V value, long loadGeneration) {
+        if (generation.get() == loadGeneration) {
+            put(key, value);
+        }
+    }
+
+    void put(K key, V value) {
+        makeRoom();
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Returns the value for the key, creating it if absent. Never expires the existing value.
+     */
+    V computeIfAbsent(K key, Function<K, V> create) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            makeRoom();
+            entry = entries.computeIfAbsent(key, k -> new Entry<>(create.apply(k), System.nanoTime()));
+        }
+        return entry.value;
+    }
+
+    /**
+     * Replaces a cached value (keeping its load time), or removes it if {@code update} returns null.
+     */
+    void update(K key, UnaryOperator<V> update) {
+        generation.incrementAndGet();
+        entries.computeIfPresent(key, (k, entry) -> {
+            V updated = update.apply(entry.value);
+            return updated == null ? null : updated == entry.value ? entry : new Entry<>(updated, entry.loadedAtNanos);
+        });
+    }
+
+    void remove(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void makeRoom() {
+        if (entries.size() < maxEntries.getAsInt()) {
+            return;
+        }
+        int toDrop = entries.size() / 2;
+        for (K key : entries.keySet()) {
+            if (toDrop-- <= 0) {
+                break;
+            }
+            entries.remove(key);
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAtNanos) {
+    }
+}
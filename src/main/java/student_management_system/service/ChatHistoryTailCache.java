@@ -0,0 +1,292 @@
+package student_management_system.service;
+
+import student_management_system.web.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * The newest class chat messages per class ({@code app.chat.tail-cache.capacity}, default 200)
+ * as ready-to-serve ChatMessageDtos, so opening a chat does not query the message table.
+ * <p>
+ * A class is loaded from the database on its first request and kept up to date by
+ * {@link #append} when ChatController sends a message on this node. Messages sent while the
+ * load is running are merged into it, so none are lost. At most
+ * {@code app.chat.tail-cache.max-classes} classes are resident, least recently used first out.
+ * With several nodes, set {@code app.chat.tail-cache.ttl-seconds} so messages sent on other
+ * nodes show up after at most that long. With {@code app.websocket.broker.mode=relay} (several
+ * nodes), a ttl of 0 (no expiry) is not honored: {@code app.chat.tail-cache.relay-ttl-seconds}
+ * is used instead.
+ * <p>
+ * Metrics: {@code chat.tail_cache.hits}, {@code chat.tail_cache.misses} and
+ * {@code chat.tail_cache.classes}.
+ */
+@Component
+public class ChatHistoryTailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryTailCache.class);
+
+    @Value("${app.chat.tail-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.tail-cache.capacity:200}")
+    private int capacity;
+
+    @Value("${app.chat.tail-cache.max-classes:1000}")
+    private int maxClasses;
+
+    @Value("${app.chat.tail-cache.ttl-seconds:0}")
+    private long ttlSeconds;
+
+    @Value("${app.chat.tail-cache.relay-ttl-seconds:10}")
+    private long relayTtlSeconds;
+
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Access-ordered, so the eldest entry is the least recently used class; guarded by itself
+    private final LinkedHashMap<Long, Tail> tailByClassId = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Tail> eldest) {
+            return size() > maxClasses;
+        }
+    };
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        if (enabled && ttlSeconds <= 0 && "relay".equalsIgnoreCase(brokerMode)) {
+            // Messages sent through other nodes never reach this node's tails; only expiry picks them up
+            ttlSeconds = Math.max(1, relayTtlSeconds);
+            logger.warn("app.chat.tail-cache.ttl-seconds=0 keeps tails forever, which hides messages sent on other nodes "
+                    + "in relay mode; using {} seconds", ttlSeconds);
+        }
+        hitCounter = Counter.builder("chat.tail_cache.hits")
+                .description("Latest-history requests served from memory")
+                .register(meterRegistry);
+        missCounter = Counter.builder("chat.tail_cache.misses")
+                .description("Latest-history requests that read the database")
+                .register(meterRegistry);
+        Gauge.builder("chat.tail_cache.classes", tailByClassId, map -> {
+                    synchronized (map) {
+                        return map.size();
+                    }
+                })
+                .description("Classes whose recent messages are held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the newest messages of a class, oldest first, from memory when possible.
+     *
+     * @param limit Number of messages wanted.
+     * @param loader Reads the newest n messages from storage, newest first.
+     */
+    public List<ChatMessageDto> getLatest(Long classId, int limit, IntFunction<List<ChatMessageDto>> loader) {
+        if (!enabled || limit > capacity) {
+            missCounter.increment();
+            return oldestFirst(loader.apply(limit), limit);
+        }
+        Tail tail;
+        synchronized (tailByClassId) {
+            tail = tailByClassId.computeIfAbsent(classId, id -> new Tail(capacity));
+        }
+        boolean loadIntoTail;
+        synchronized (tail) {
+            if (tail.loaded && !isExpired(tail) && (tail.size >= limit || tail.complete)) {
+                hitCounter.increment();
+                return tail.newest(limit);
+            }
+            // One request loads the tail; concurrent misses read storage without caching
+            loadIntoTail = tail.pendingAppends == null;
+            if (loadIntoTail) {
+                tail.pendingAppends = new ArrayList<>();
+            }
+        }
+        missCounter.increment();
+        List<ChatMessageDto> newestFirst;
+        try {
+            newestFirst = loader.apply(capacity);
+        } catch (RuntimeException e) {
+            if (loadIntoTail) {
+                synchronized (tail) {
+                    tail.pendingAppends = null;
+                }
+            }
+            throw e;
+        }
+        if (loadIntoTail) {
+            synchronized (tail) {
+                tail.fill(newestFirst);
+            }
+            logger.debug("Loaded {} recent messages of class ID {} into the tail cache", newestFirst.size(), classId);
+        }
+        return oldestFirst(newestFirst, limit);
+    }
+
+    /**
+     * Adds a message that was just sent to its class's tail, if the class is resident.
+     * Call after the message is committed (or queued for write-behind).
+     */
+    public void append(Long classId, ChatMessageDto message) {
+        if (!enabled) {
+            return;
+        }
+        Tail tail;
+        synchronized (tailByClassId) {
+            tail = tailByClassId.get(classId);
+        }
+        if (tail != null) {
+            synchronized (tail) {
+                tail.add(message);
+                if (tail.pendingAppends != null) {
+                    tail.pendingAppends.add(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a class's tail now and, if a transaction is active, again after it commits.
+     */
+    public void evict(Long classId) {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            synchronized (tailByClassId) {
+                tailByClassId.remove(classId);
+            }
+        });
+    }
+
+    /**
+     * Drops every tail that shows a message from the user (their name or picture changed).
+     */
+    public void evictSender(Long userId) {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            synchronized (tailByClassId) {
+                tailByClassId.values().removeIf(tail -> {
+                    synchronized (tail) {
+                        return tail.hasSender(userId);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops every tail (e.g. after deleting a teacher and, by cascade, their classes).
+     */
+    public void evictAll() {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            synchronized (tailByClassId) {
+                tailByClassId.clear();
+            }
+        });
+    }
+
+    // --- Helper Methods ---
+
+    private boolean isExpired(Tail tail) {
+        return ttlSeconds > 0 && System.nanoTime() - tail.loadedAtNanos >= TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    private static List<ChatMessageDto> oldestFirst(List<ChatMessageDto> newestFirst, int limit) {
+        int count = Math.min(limit, newestFirst.size());
+        List<ChatMessageDto> result = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            result.add(newestFirst.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Ring buffer of one class's newest messages, oldest at {@code start}. Guarded by itself.
+     */
+    private static final class Tail {
+
+        private final ChatMessageDto[] slots;
+        private int start;
+        private int size;
+        private boolean loaded;
+        private boolean complete; // The class has no messages beyond those held here
+        private long loadedAtNanos;
+        private List<ChatMessageDto> pendingAppends; // Non-null while a load is running
+
+        Tail(int capacity) {
+            this.slots = new ChatMessageDto[capacity];
+        }
+
+        void add(ChatMessageDto message) {
+            if (size < slots.length) {
+                slots[(start + size) % slots.length] = message;
+                size++;
+            } else {
+                slots[start] = message;
+                start = (start + 1) % slots.length;
+                complete = false;
+            }
+        }
+
+        /**
+         * Replaces the contents with freshly loaded messages plus any sent during the load.
+         */
+        void fill(List<ChatMessageDto> newestFirst) {
+            List<ChatMessageDto> sentDuringLoad = pendingAppends;
+            pendingAppends = null;
+            start = 0;
+            size = 0;
+            Set<Long> loadedIds = new HashSet<>();
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                add(newestFirst.get(i));
+                loadedIds.add(newestFirst.get(i).getId());
+            }
+            complete = newestFirst.size() < slots.length;
+            for (ChatMessageDto message : sentDuringLoad) {
+                if (!loadedIds.contains(message.getId())) {
+                    add(message);
+                }
+            }
+            loaded = true;
+            loadedAtNanos = System.nanoTime();
+        }
+
+        List<ChatMessageDto> newest(int limit) {
+            int count = Math.min(limit, size);
+            List<ChatMessageDto> result = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                result.add(slots[(start + i) % slots.length]);
+            }
+            return result;
+        }
+
+        boolean hasSender(Long userId) {
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(slots[(start + i) % slots.length].getSenderId(), userId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
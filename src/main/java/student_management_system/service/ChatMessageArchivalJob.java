@@ -0,0 +1,145 @@
+package student_management_system.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import student_management_system.repository.ChatMessageRepository;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves class chat messages older than {@code app.chat.archive.max-age-days} out of MySQL into
+ * ChatMessageArchive ({@code app.chat.archive.enabled=true}; enable it on one node only).
+ * <p>
+ * Per class, one run streams the due messages in (timestamp, id) batches into a new segment,
+ * commits the segment and only then deletes the archived rows, one batch per transaction.
+ * If a run stops between the two steps, the next run first deletes whatever the archive
+ * already covers, so a message is never in both tiers for longer than that.
+ * <p>
+ * Metrics: {@code chat.archive.messages} (messages moved) and {@code chat.archive.failures}.
+ */
+@Component
+public class ChatMessageArchivalJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageArchivalJob.class);
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Value("${app.chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.archive.max-age-days:180}")
+    private int maxAgeDays;
+
+    @Value("${app.chat.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired private ChatMessageArchive chatMessageArchive;
+    @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private MeterRegistry meterRegistry;
+
+    private TransactionTemplate deleteTransaction;
+    private Counter archivedCounter;
+    private Counter failureCounter;
+
+    @PostConstruct
+    void init() {
+        deleteTransaction = new TransactionTemplate(transactionManager);
+        archivedCounter = Counter.builder("chat.archive.messages")
+                .description("Class chat messages moved to the archive")
+                .register(meterRegistry);
+        failureCounter = Counter.builder("chat.archive.failures")
+                .description("Classes whose archival run failed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.chat.archive.cron:0 30 3 * * *}")
+    public void archiveOldMessages() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        List<Long> classIds = chatMessageRepository.findClassIdsWithMessagesBefore(cutoff);
+        long total = 0;
+        for (Long classId : classIds) {
+            try {
+                total += archiveClass(classId, cutoff);
+            } catch (Exception e) {
+                failureCounter.increment();
+                logger.error("Archiving chat messages of class ID {} failed: {}", classId, e.getMessage(), e);
+            }
+        }
+        logger.info("Chat archival moved {} messages of {} classes older than {} in {} ms",
+                total, classIds.size(), cutoff, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Archives the due messages of one class.
+     * @return the number of messages moved.
+     */
+    long archiveClass(Long classId, LocalDateTime cutoff) throws IOException {
+        // Finish a previous run that committed its segment but did not delete every row
+        Optional<ChatMessageArchive.ArchivedMessage> newest = chatMessageArchive.findNewest(classId);
+        LocalDateTime afterTimestamp = BEGINNING;
+        long afterId = 0;
+        if (newest.isPresent()) {
+            afterTimestamp = newest.get().timestamp();
+            afterId = newest.get().id();
+            LocalDateTime upToTimestamp = afterTimestamp;
+            long upToId = afterId;
+            Integer leftover = deleteTransaction.execute(status ->
+                    chatMessageRepository.deleteByClassIdUpTo(classId, upToTimestamp, upToId));
+            if (leftover != null && leftover > 0) {
+                logger.warn("Deleted {} already archived chat messages of class ID {}", leftover, classId);
+            }
+        }
+
+        List<List<Long>> archivedIdBatches = new ArrayList<>();
+        long count;
+        try (ChatMessageArchive.SegmentWriter writer = chatMessageArchive.openSegment(classId)) {
+            List<Object[]> rows;
+            do {
+                rows = chatMessageRepository.findArchiveBatch(classId, cutoff, afterTimestamp, afterId, Pageable.ofSize(batchSize));
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ChatMessageArchive.ArchivedMessage message = new ChatMessageArchive.ArchivedMessage(
+                            (Long) row[0], (LocalDateTime) row[1], (Long) row[2], (String) row[3]);
+                    writer.append(message);
+                    ids.add(message.id());
+                    afterTimestamp = message.timestamp();
+                    afterId = message.id();
+                }
+                if (!ids.isEmpty()) {
+                    archivedIdBatches.add(ids);
+                }
+            } while (rows.size() == batchSize);
+
+            count = writer.getMessageCount();
+            if (count == 0) {
+                return 0;
+            }
+            writer.commit();
+        }
+
+        for (List<Long> ids : archivedIdBatches) {
+            deleteTransaction.executeWithoutResult(status -> chatMessageRepository.deleteByIdIn(ids));
+        }
+        archivedCounter.increment(count);
+        return count;
+    }
+}
@@ -0,0 +1,512 @@
+package student_management_system.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier for class chat history: append-only, compressed segment files per class under
+ * {@code app.chat.archive.dir}/class-{id}/, written by ChatMessageArchivalJob and read through
+ * memory-mapped I/O when a client pages past the messages still in MySQL.
+ * <p>
+ * A segment holds messages in (timestamp, id) order, each segment strictly older than the next.
+ * Messages are stored in Deflate-compressed blocks of {@code app.chat.archive.block-size}; the
+ * footer is a sparse index with one entry per block (first timestamp and ID, ID range, offset),
+ * so a page is served by a binary search over the index and inflating one or two blocks.
+ * Segments are written to a temporary file and moved into place, and never change afterwards.
+ * <p>
+ * With several nodes the directory must be shared storage. Nodes notice new segments through
+ * the class directory's modification time.
+ */
+@Component
+public class ChatMessageArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageArchive.class);
+
+    private static final int MAGIC = 0x43484152; // "CHAR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES * 3;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Value("${app.chat.archive.dir:./archive/chat}")
+    private String archiveDir;
+
+    @Value("${app.chat.archive.block-size:256}")
+    private int blockSize;
+
+    // classId -> segments currently known for the class, oldest first
+    private final Map<Long, ClassSegments> segmentsByClass = new ConcurrentHashMap<>();
+
+    /**
+     * An archived message. The timestamp and ID order messages exactly as the database did.
+     */
+    public record ArchivedMessage(long id, LocalDateTime timestamp, long senderId, String content) {
+    }
+
+    /**
+     * The newest archived message of a class, if any: the position below which everything of
+     * that class is archived.
+     */
+    public Optional<ArchivedMessage> findNewest(Long classId) {
+        List<Segment> segments = segments(classId);
+        return segments.isEmpty() ? Optional.empty() : Optional.ofNullable(segments.get(segments.size() - 1).last);
+    }
+
+    /**
+     * Finds the timestamp of an archived message, to resolve a history cursor that is no longer
+     * in the database.
+     */
+    public Optional<LocalDateTime> findTimestamp(Long classId, long messageId) {
+        for (Segment segment : segments(classId)) {
+            for (int block = 0; block < segment.blockCount(); block++) {
+                if (segment.minId(block) <= messageId && messageId <= segment.maxId(block)) {
+                    for (ArchivedMessage message : segment.readBlock(block)) {
+                        if (message.id() == messageId) {
+                            return Optional.of(message.timestamp());
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reads the archived messages of a class that come strictly before a (timestamp, id)
+     * position, newest first.
+     *
+     * @param beforeTimestamp Position timestamp; null for "after everything".
+     * @param beforeId Position ID (tie-breaker for equal timestamps).
+     * @param limit Maximum number of messages.
+     */
+    public List<ArchivedMessage> readBefore(Long classId, LocalDateTime beforeTimestamp, long beforeId, int limit) {
+        List<ArchivedMessage> newestFirst = new ArrayList<>(limit);
+        List<Segment> segments = segments(classId);
+        for (int s = segments.size() - 1; s >= 0 && newestFirst.size() < limit; s--) {
+            Segment segment = segments.get(s);
+            int block = beforeTimestamp == null ? segment.blockCount() - 1 : segment.lastBlockStartingBefore(beforeTimestamp, beforeId);
+            for (; block >= 0 && newestFirst.size() < limit; block--) {
+                List<ArchivedMessage> messages = segment.readBlock(block);
+                for (int i = messages.size() - 1; i >= 0 && newestFirst.size() < limit; i--) {
+                    ArchivedMessage message = messages.get(i);
+                    if (beforeTimestamp == null || isBefore(message, beforeTimestamp, beforeId)) {
+                        newestFirst.add(message);
+                    }
+                }
+            }
+        }
+        return newestFirst;
+    }
+
+    /**
+     * Calls the consumer for every archived message of a class, oldest first, one block in
+     * memory at a time.
+     */
+    public void forEach(Long classId, Consumer<ArchivedMessage> consumer) {
+        for (Segment segment : segments(classId)) {
+            for (int block = 0; block < segment.blockCount(); block++) {
+                segment.readBlock(block).forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * @return the IDs of all classes that have an archive directory.
+     */
+    public List<Long> findArchivedClassIds() {
+        Path root = Path.of(archiveDir);
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        List<Long> classIds = new ArrayList<>();
+        try (DirectoryStream<Path> classDirs = Files.newDirectoryStream(root, "class-*")) {
+            for (Path classDir : classDirs) {
+                classIds.add(Long.valueOf(classDir.getFileName().toString().substring("class-".length())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return classIds;
+    }
+
+    /**
+     * Starts a new segment for a class. Messages must be appended in (timestamp, id) order and
+     * be newer than everything already archived for the class.
+     */
+    public SegmentWriter openSegment(Long classId) throws IOException {
+        Path classDir = classDir(classId);
+        Files.createDirectories(classDir);
+        long sequence = listSegmentFiles(classDir).stream()
+                .mapToLong(ChatMessageArchive::sequenceOf)
+                .max().orElse(0) + 1;
+        return new SegmentWriter(classId, classDir.resolve(String.format("segment-%012d%s", sequence, SEGMENT_SUFFIX)));
+    }
+
+    /**
+     * Removes a class's archive (called after the class is deleted).
+     */
+    public void deleteClass(Long classId) {
+        segmentsByClass.remove(classId);
+        Path classDir = classDir(classId);
+        if (!Files.isDirectory(classDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(classDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(classDir);
+            logger.info("Deleted chat archive of class ID {}", classId);
+        } catch (IOException e) {
+            logger.warn("Could not delete chat archive of class ID {}: {}", classId, e.getMessage());
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private Path classDir(Long classId) {
+        return Path.of(archiveDir, "class-" + classId);
+    }
+
+    /**
+     * The class's segments, reloaded when the directory changed (a new segment was added here
+     * or by another node).
+     */
+    private List<Segment> segments(Long classId) {
+        Path classDir = classDir(classId);
+        FileTime modified;
+        try {
+            if (!Files.isDirectory(classDir)) {
+                return List.of();
+            }
+            modified = Files.getLastModifiedTime(classDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ClassSegments cached = segmentsByClass.get(classId);
+        if (cached != null && cached.modified.equals(modified)) {
+            return cached.segments;
+        }
+        synchronized (this) {
+            cached = segmentsByClass.get(classId);
+            if (cached != null && cached.modified.equals(modified)) {
+                return cached.segments;
+            }
+            Map<Path, Segment> open = new HashMap<>();
+            if (cached != null) {
+                cached.segments.forEach(segment -> open.put(segment.path, segment));
+            }
+            List<Segment> segments = new ArrayList<>();
+            try {
+                for (Path file : listSegmentFiles(classDir)) {
+                    Segment segment = open.get(file);
+                    segments.add(segment != null ? segment : Segment.open(file));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segmentsByClass.put(classId, new ClassSegments(modified, List.copyOf(segments)));
+            return segments;
+        }
+    }
+
+    private static List<Path> listSegmentFiles(Path classDir) throws IOException {
+        try (Stream<Path> files = Files.list(classDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(ChatMessageArchive::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static boolean isBefore(ArchivedMessage message, LocalDateTime timestamp, long id) {
+        int byTime = message.timestamp().compareTo(timestamp);
+        return byTime < 0 || (byTime == 0 && message.id() < id);
+    }
+
+    private record ClassSegments(FileTime modified, List<Segment> segments) {
+    }
+
+    /**
+     * Writes one segment: blocks are compressed and appended as they fill, the sparse index is
+     * written as the footer on {@link #commit()}.
+     */
+    public final class SegmentWriter implements AutoCloseable {
+
+        private final Long classId;
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final List<ArchivedMessage> block = new ArrayList<>();
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private int blockCount;
+        private long messageCount;
+        private boolean committed;
+
+        private SegmentWriter(Long classId, Path target) throws IOException {
+            this.classId = classId;
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        public void append(ArchivedMessage message) throws IOException {
+            block.add(message);
+            messageCount++;
+            if (block.size() == blockSize) {
+                flushBlock();
+            }
+        }
+
+        public long getMessageCount() {
+            return messageCount;
+        }
+
+        /**
+         * Writes the footer, forces the file to disk and moves it into place. Only after this
+         * returns may the archived rows be deleted from the database.
+         */
+        public void commit() throws IOException {
+            flushBlock();
+            long indexOffset = channel.position();
+            indexOut.flush();
+            writeFully(ByteBuffer.wrap(index.toByteArray()));
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES)
+                    .putLong(indexOffset).putInt(blockCount).putInt(FORMAT_VERSION).putInt(MAGIC);
+            writeFully(footer.flip());
+            channel.force(true);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            // Directory timestamps can be coarser than two writes; this node reloads either way
+            segmentsByClass.remove(classId);
+            logger.info("Archived {} chat messages of class ID {} to {}", messageCount, classId, target.getFileName());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (block.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(raw);
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            for (ArchivedMessage message : block) {
+                out.writeLong(message.id());
+                out.writeLong(message.timestamp().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(message.timestamp().getNano());
+                out.writeLong(message.senderId());
+                byte[] content = message.content().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(content.length);
+                out.write(content);
+                minId = Math.min(minId, message.id());
+                maxId = Math.max(maxId, message.id());
+            }
+            out.flush();
+            byte[] uncompressed = raw.toByteArray();
+            byte[] compressed = deflate(uncompressed);
+
+            ArchivedMessage first = block.get(0);
+            indexOut.writeLong(first.timestamp().toEpochSecond(ZoneOffset.UTC));
+            indexOut.writeInt(first.timestamp().getNano());
+            indexOut.writeLong(first.id());
+            indexOut.writeLong(minId);
+            indexOut.writeLong(maxId);
+            indexOut.writeLong(channel.position());
+            indexOut.writeInt(compressed.length);
+            indexOut.writeInt(uncompressed.length);
+            indexOut.writeInt(block.size());
+            writeFully(ByteBuffer.wrap(compressed));
+            blockCount++;
+            block.clear();
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private static byte[] deflate(byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * A committed segment, memory-mapped read-only. The index is read into arrays once.
+     */
+    private static final class Segment {
+
+        private static final int INDEX_ENTRY_BYTES = Long.BYTES * 5 + Integer.BYTES * 4;
+
+        private final Path path;
+        private final MappedByteBuffer data;
+        private final long[] firstEpochSeconds;
+        private final int[] firstNanos;
+        private final long[] firstIds;
+        private final long[] minIds;
+        private final long[] maxIds;
+        private final long[] offsets;
+        private final int[] compressedLengths;
+        private final int[] uncompressedLengths;
+        private final ArchivedMessage last;
+
+        private Segment(Path path, MappedByteBuffer data, int blockCount) {
+            this.path = path;
+            this.data = data;
+            firstEpochSeconds = new long[blockCount];
+            firstNanos = new int[blockCount];
+            firstIds = new long[blockCount];
+            minIds = new long[blockCount];
+            maxIds = new long[blockCount];
+            offsets = new long[blockCount];
+            compressedLengths = new int[blockCount];
+            uncompressedLengths = new int[blockCount];
+            long indexOffset = data.getLong(data.capacity() - FOOTER_BYTES);
+            for (int i = 0; i < blockCount; i++) {
+                int entry = (int) indexOffset + i * INDEX_ENTRY_BYTES;
+                firstEpochSeconds[i] = data.getLong(entry);
+                firstNanos[i] = data.getInt(entry + 8);
+                firstIds[i] = data.getLong(entry + 12);
+                minIds[i] = data.getLong(entry + 20);
+                maxIds[i] = data.getLong(entry + 28);
+                offsets[i] = data.getLong(entry + 36);
+                compressedLengths[i] = data.getInt(entry + 44);
+                uncompressedLengths[i] = data.getInt(entry + 48);
+                // entry + 52: message count, implied by the block contents
+            }
+            List<ArchivedMessage> lastBlock = blockCount == 0 ? List.of() : readBlock(blockCount - 1);
+            this.last = lastBlock.isEmpty() ? null : lastBlock.get(lastBlock.size() - 1);
+        }
+
+        static Segment open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int footer = data.capacity() - FOOTER_BYTES;
+                if (footer < 0 || data.getInt(footer + 16) != MAGIC || data.getInt(footer + 12) != FORMAT_VERSION) {
+                    throw new IOException("Not a chat archive segment: " + path);
+                }
+                return new Segment(path, data, data.getInt(footer + 8));
+            }
+        }
+
+        int blockCount() {
+            return offsets.length;
+        }
+
+        long minId(int block) {
+            return minIds[block];
+        }
+
+        long maxId(int block) {
+            return maxIds[block];
+        }
+
+        /**
+         * Binary search over the sparse index.
+         * @return the last block whose first message is before the position, -1 if none.
+         */
+        int lastBlockStartingBefore(LocalDateTime timestamp, long id) {
+            long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+            int nanos = timestamp.getNano();
+            int low = 0;
+            int high = blockCount() - 1;
+            int result = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int byTime = firstEpochSeconds[mid] != seconds ? Long.compare(firstEpochSeconds[mid], seconds) : Integer.compare(firstNanos[mid], nanos);
+                if (byTime < 0 || (byTime == 0 && firstIds[mid] < id)) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        List<ArchivedMessage> readBlock(int block) {
+            byte[] compressed = new byte[compressedLengths[block]];
+            data.get((int) offsets[block], compressed);
+            byte[] raw = new byte[uncompressedLengths[block]];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int read = 0;
+                while (read < raw.length && !inflater.finished()) {
+                    read += inflater.inflate(raw, read, raw.length - read);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer in = ByteBuffer.wrap(raw);
+            List<ArchivedMessage> messages = new ArrayList<>();
+            while (in.hasRemaining()) {
+                long id = in.getLong();
+                LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+                long senderId = in.getLong();
+                byte[] content = new byte[in.getInt()];
+                in.get(content);
+                messages.add(new ArchivedMessage(id, timestamp, senderId, new String(content, StandardCharsets.UTF_8)));
+            }
+            return messages;
+        }
+    }
+}
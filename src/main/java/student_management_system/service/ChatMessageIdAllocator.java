@@ -0,0 +1,77 @@
+package student_management_system.service;
+
+import student_management_system.model.IdAllocation;
+import student_management_system.repository.ChatMessageRepository;
+import student_management_system.repository.IdAllocationRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out chat message IDs before the row is inserted, so a message can be broadcast with its
+ * final ID while the insert is still queued in the ChatMessageWriteBehindBuffer.
+ * <p>
+ * IDs are reserved from the "id_allocations" table in blocks of
+ * {@code app.chat.write-behind.id-block-size}, so the database is only touched once per block and
+ * nodes never receive overlapping IDs. Each block also starts above the current MAX(id) of
+ * chat_messages, which keeps it clear of rows inserted through the regular IDENTITY column.
+ * All nodes must run with the same write-behind setting: an IDENTITY insert could otherwise take
+ * an ID from a block that another node has reserved but not yet flushed.
+ */
+@Component
+public class ChatMessageIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageIdAllocator.class);
+
+    static final String SEQUENCE_NAME = "chat_messages";
+
+    @Value("${app.chat.write-behind.id-block-size:100}")
+    private int blockSize;
+
+    @Autowired private IdAllocationRepository idAllocationRepository;
+    @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    // Current block, guarded by "this"
+    private long nextId;
+    private long blockEnd;
+
+    /**
+     * Returns the next unused chat message ID, reserving a new block when the current one is used up.
+     */
+    public synchronized long nextId() {
+        if (nextId >= blockEnd) {
+            nextId = reserveBlock();
+            blockEnd = nextId + blockSize;
+            logger.debug("Reserved chat message IDs [{}, {})", nextId, blockEnd);
+        }
+        return nextId++;
+    }
+
+    private long reserveBlock() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return tx.execute(status -> reserveBlockLocked());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the sequence row at the same time; it exists now, so lock it.
+            return tx.execute(status -> reserveBlockLocked());
+        }
+    }
+
+    private long reserveBlockLocked() {
+        IdAllocation allocation = idAllocationRepository.findByNameForUpdate(SEQUENCE_NAME)
+                .orElseGet(() -> idAllocationRepository.saveAndFlush(new IdAllocation(SEQUENCE_NAME, 1L)));
+        Long maxId = chatMessageRepository.findMaxId();
+        long start = Math.max(allocation.getNextValue(), maxId == null ? 1L : maxId + 1);
+        allocation.setNextValue(start + blockSize);
+        return start;
+    }
+}
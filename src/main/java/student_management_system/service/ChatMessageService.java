@@ -0,0 +1,49 @@
+package student_management_system.service;
+
+import student_management_system.web.dto.ChatMessageDto;
+
+import java.util.List;
+
+/**
+ * Interface defining read operations for class chat history.
+ * History is served in pages using a keyset cursor (the ID of the oldest message the client already has).
+ */
+public interface ChatMessageService {
+
+    /**
+     * Default number of messages returned when the client does not specify a limit.
+     */
+    int DEFAULT_HISTORY_LIMIT = 50;
+
+    /**
+     * Upper bound on the number of messages returned in one page.
+     */
+    int MAX_HISTORY_LIMIT = 200;
+
+    /**
+     * Retrieves the most recent messages of a class.
+     *
+     * @param classId The ID of the class.
+     * @param limit Maximum number of messages to return (clamped to MAX_HISTORY_LIMIT).
+     * @return A List of ChatMessageDto, ordered oldest first.
+     */
+    List<ChatMessageDto> getLatestMessages(Long classId, int limit);
+
+    /**
+     * Retrieves the messages of a class sent before the given message.
+     *
+     * @param classId The ID of the class.
+     * @param beforeMessageId The ID of the oldest message the client already has.
+     * @param limit Maximum number of messages to return (clamped to MAX_HISTORY_LIMIT).
+     * @return A List of ChatMessageDto, ordered oldest first. Empty if the cursor is unknown.
+     */
+    List<ChatMessageDto> getMessagesBefore(Long classId, Long beforeMessageId, int limit);
+
+    /**
+     * Adds a message that was just sent on this node to the in-memory latest page of its class,
+     * once the current transaction commits.
+     *
+     * @param message The message with full sender details, as history returns it.
+     */
+    void cacheSentMessage(ChatMessageDto message);
+}
@@ -0,0 +1,168 @@
+package student_management_system.service;
+
+import student_management_system.repository.ChatMessageRepository;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.UserRepository;
+import student_management_system.web.dto.ChatMessageDto;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Implementation of the ChatMessageService interface.
+ * Uses constructor-expression projections so a page of history is a single indexed query.
+ * When the database has fewer messages than requested, or the cursor has already been archived,
+ * the page is continued from ChatMessageArchive, starting before the oldest database row on the
+ * page: an archived segment's rows stay in the database until its delete finishes, and must not
+ * appear twice. The latest page is served by ChatHistoryTailCache.
+ */
+@Service
+public class ChatMessageServiceImpl implements ChatMessageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageServiceImpl.class);
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatMessageArchive chatMessageArchive;
+
+    @Autowired
+    private ChatHistoryTailCache chatHistoryTailCache;
+
+    @Autowired
+    private SchoolClassRepository schoolClassRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public List<ChatMessageDto> getLatestMessages(Long classId, int limit) {
+        int pageSize = clampLimit(limit);
+        // A transaction only when the tail cache has to load, so a cache hit touches no connection
+        return chatHistoryTailCache.getLatest(classId, pageSize,
+                count -> readOnlyTransaction.execute(status -> loadLatest(classId, count)));
+    }
+
+    @Override
+    public void cacheSentMessage(ChatMessageDto message) {
+        AfterCommit.run(() -> chatHistoryTailCache.append(message.getClassId(), message));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ChatMessageDto> getMessagesBefore(Long classId, Long beforeMessageId, int limit) {
+        int pageSize = clampLimit(limit);
+        Optional<LocalDateTime> cursorTimestamp = chatMessageRepository.findTimestampByIdAndClassId(beforeMessageId, classId);
+        if (cursorTimestamp.isEmpty()) {
+            // Everything before an archived cursor is archived as well
+            Optional<LocalDateTime> archivedTimestamp = chatMessageArchive.findTimestamp(classId, beforeMessageId);
+            if (archivedTimestamp.isEmpty()) {
+                logger.debug("Cursor message ID {} not found in class ID {}", beforeMessageId, classId);
+                return Collections.emptyList();
+            }
+            List<ChatMessageDto> archived = readArchive(classId, archivedTimestamp.get(), beforeMessageId, pageSize);
+            logger.debug("Loaded {} archived messages before ID {} for class ID {}", archived.size(), beforeMessageId, classId);
+            return toOldestFirst(archived);
+        }
+        List<ChatMessageDto> newestFirst = new ArrayList<>(chatMessageRepository.findDtosByClassIdBefore(
+                classId, cursorTimestamp.get(), beforeMessageId, Pageable.ofSize(pageSize)));
+        if (newestFirst.size() < pageSize) {
+            newestFirst.addAll(newestFirst.isEmpty()
+                    ? readArchive(classId, cursorTimestamp.get(), beforeMessageId, pageSize)
+                    : readArchiveBefore(classId, newestFirst, pageSize - newestFirst.size()));
+        }
+        logger.debug("Loaded {} messages before ID {} for class ID {}", newestFirst.size(), beforeMessageId, classId);
+        return toOldestFirst(newestFirst);
+    }
+
+    /**
+     * Reads the newest messages of a class, newest first, continuing into the archive if the
+     * database has fewer than requested.
+     */
+    private List<ChatMessageDto> loadLatest(Long classId, int count) {
+        List<ChatMessageDto> newestFirst = new ArrayList<>(chatMessageRepository.findLatestDtosByClassId(classId, Pageable.ofSize(count)));
+        if (newestFirst.size() < count) {
+            newestFirst.addAll(newestFirst.isEmpty()
+                    ? readArchive(classId, null, 0, count)
+                    : readArchiveBefore(classId, newestFirst, count - newestFirst.size()));
+        }
+        logger.debug("Loaded {} latest messages for class ID {}", newestFirst.size(), classId);
+        return newestFirst;
+    }
+
+    /**
+     * Reads archived messages older than the last (oldest) database row of a newest-first page.
+     */
+    private List<ChatMessageDto> readArchiveBefore(Long classId, List<ChatMessageDto> newestFirst, int limit) {
+        ChatMessageDto oldest = newestFirst.get(newestFirst.size() - 1);
+        return readArchive(classId, LocalDateTime.parse(oldest.getTimestamp()), oldest.getId(), limit);
+    }
+
+    /**
+     * Reads archived messages before a position (newest first) and adds the sender columns the
+     * database projection would have selected, with one query for all senders on the page.
+     */
+    private List<ChatMessageDto> readArchive(Long classId, LocalDateTime beforeTimestamp, long beforeId, int limit) {
+        List<ChatMessageArchive.ArchivedMessage> archived = chatMessageArchive.readBefore(classId, beforeTimestamp, beforeId, limit);
+        if (archived.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Long teacherId = schoolClassRepository.findTeacherIdByClassId(classId).orElse(null);
+        Set<Long> senderIds = new HashSet<>();
+        archived.forEach(message -> senderIds.add(message.senderId()));
+        Map<Long, Object[]> senderById = new HashMap<>();
+        for (Object[] row : userRepository.findChatSenderColumnsByIdIn(senderIds)) {
+            senderById.put((Long) row[0], row);
+        }
+        List<ChatMessageDto> result = new ArrayList<>(archived.size());
+        for (ChatMessageArchive.ArchivedMessage message : archived) {
+            Object[] sender = senderById.getOrDefault(message.senderId(), new Object[6]);
+            result.add(new ChatMessageDto(message.id(), message.content(), message.timestamp(), classId, teacherId,
+                    message.senderId(), (String) sender[1], (String) sender[2], (String) sender[3],
+                    (String) sender[4], (String) sender[5]));
+        }
+        return result;
+    }
+
+    private int clampLimit(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_HISTORY_LIMIT;
+        }
+        return Math.min(limit, MAX_HISTORY_LIMIT);
+    }
+
+    private List<ChatMessageDto> toOldestFirst(List<ChatMessageDto> newestFirst) {
+        List<ChatMessageDto> result = new ArrayList<>(newestFirst);
+        Collections.reverse(result);
+        return result;
+    }
+}
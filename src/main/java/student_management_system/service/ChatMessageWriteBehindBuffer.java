@@ -0,0 +1,240 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for class chat messages ({@code app.chat.write-behind.enabled=true}).
+ * <p>
+ * The controller assigns the message ID up front (ChatMessageIdAllocator), broadcasts straight
+ * away and hands the message to {@link #submit(ChatMessage)}. A single flusher thread drains the
+ * bounded queue and writes messages with one JDBC batch insert per flush, either when
+ * {@code batch-size} messages are waiting or {@code flush-interval-ms} after the first one
+ * arrived (sent as multi-row INSERTs only with {@code rewriteBatchedStatements=true} on the
+ * datasource URL). The class conversation summaries are updated in the same transaction as the
+ * batch, once per class for its newest message.
+ * <p>
+ * Backpressure: when the queue stays full for {@code offer-timeout-ms}, the sending thread writes
+ * its own message synchronously, which slows that sender down to the database's pace instead of
+ * dropping anything. Remaining messages are flushed on graceful shutdown. The messages have
+ * already been broadcast, so a batch that still fails after {@code max-flush-attempts} is
+ * written again one message per transaction; only the messages that fail on their own are
+ * logged and counted as dropped.
+ * <p>
+ * Metrics: {@code chat.write_behind.queue.depth}, {@code chat.write_behind.flush} (latency and
+ * count), {@code chat.write_behind.caller_runs} and {@code chat.write_behind.dropped}.
+ */
+@Component
+public class ChatMessageWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriteBehindBuffer.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO chat_messages (id, content, timestamp, sender_id, class_id) VALUES (?, ?, ?, ?, ?)";
+
+    @Value("${app.chat.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.chat.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.chat.write-behind.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.chat.write-behind.max-flush-attempts:3}")
+    private int maxFlushAttempts;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ConversationSummaryService conversationSummaryService;
+    @Autowired private MeterRegistry meterRegistry;
+
+    private BlockingQueue<ChatMessage> queue;
+    private TransactionTemplate flushTransaction;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter callerRunsCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        flushTransaction = new TransactionTemplate(transactionManager);
+        Gauge.builder("chat.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Class chat messages waiting to be written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("chat.write_behind.flush")
+                .description("Time to write one batch of class chat messages")
+                .register(meterRegistry);
+        callerRunsCounter = Counter.builder("chat.write_behind.caller_runs")
+                .description("Messages written synchronously because the queue was full")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("chat.write_behind.dropped")
+                .description("Messages that could not be written after all flush attempts")
+                .register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "chat-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Chat write-behind enabled (capacity={}, batchSize={}, flushIntervalMs={})", capacity, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * @return true if messages should be submitted here instead of being saved synchronously.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a message for a batched insert. The message must already have its ID and timestamp,
+     * and its sender and class must be set. If the queue is full for longer than the offer
+     * timeout, the message is written synchronously by the calling thread.
+     */
+    public void submit(ChatMessage message) {
+        try {
+            if (running && queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        callerRunsCounter.increment();
+        logger.warn("Chat write-behind queue full; writing message ID {} synchronously", message.getId());
+        writeBatch(List.of(message));
+    }
+
+    private void runFlusher() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                queue.drainTo(batch, batchSize - batch.size());
+                while (batch.size() < batchSize && running) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flushWithRetry(batch);
+            } catch (InterruptedException e) {
+                // Not yet written: hand the batch back so stop() flushes it
+                queue.addAll(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushWithRetry(List<ChatMessage> batch) {
+        for (int attempt = 1; attempt <= maxFlushAttempts; attempt++) {
+            try {
+                writeBatch(batch);
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Chat write-behind flush of {} messages failed (attempt {}/{}): {}",
+                        batch.size(), attempt, maxFlushAttempts, e.getMessage(), e);
+            }
+        }
+        if (batch.size() == 1) {
+            drop(batch.get(0));
+            return;
+        }
+        // One bad row must not lose the whole batch: isolate it
+        logger.warn("Writing {} chat messages one by one after {} failed flush attempts (first ID {})",
+                batch.size(), maxFlushAttempts, batch.get(0).getId());
+        for (ChatMessage message : batch) {
+            try {
+                writeBatch(List.of(message));
+            } catch (RuntimeException e) {
+                logger.error("Chat write-behind write of message ID {} failed: {}", message.getId(), e.getMessage());
+                drop(message);
+            }
+        }
+    }
+
+    private void drop(ChatMessage message) {
+        droppedCounter.increment();
+        logger.error("Dropping chat message ID {} of class ID {} after failed writes",
+                message.getId(), message.getSchoolClass().getId());
+    }
+
+    private void writeBatch(List<ChatMessage> batch) {
+        flushTimer.record(() -> flushTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, message) -> {
+                ps.setLong(1, message.getId());
+                ps.setString(2, message.getContent());
+                ps.setTimestamp(3, Timestamp.valueOf(message.getTimestamp()));
+                ps.setLong(4, message.getSender().getId());
+                ps.setLong(5, message.getSchoolClass().getId());
+            });
+            conversationSummaryService.recordClassMessages(batch);
+        }));
+        logger.debug("Flushed {} chat messages", batch.size());
+    }
+
+    /**
+     * Stops the flusher and writes everything still queued. Runs before the DataSource is closed.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        // No interrupt: the flusher notices within one poll interval and finishes its current batch
+        running = false;
+        flusher.join(flushIntervalMs + TimeUnit.SECONDS.toMillis(10));
+        List<ChatMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flushWithRetry(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+        logger.info("Chat write-behind stopped; flushed {} queued messages on shutdown", remaining.size());
+    }
+}
@@ -0,0 +1,67 @@
+package student_management_system.service;
+
+import student_management_system.model.ClassGradeSummary;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maintains class_grade_summary: each student's running points, graded item count and
+ * weighted average per class.
+ * <p>
+ * Code that changes what a cell counts (grading, or a makeup submission resetting a grade)
+ * reads the item's points before and after the change and passes both to applyChange, in the
+ * same transaction.
+ */
+public interface ClassGradeSummaryService {
+
+    /**
+     * @return the points one assignment currently counts for a student (see Gradebook.Points).
+     */
+    Gradebook.Points assignmentPoints(Long studentId, Long assignmentId);
+
+    /**
+     * @return the points one quiz currently counts for a student.
+     */
+    Gradebook.Points quizPoints(Long studentId, Long quizId);
+
+    /**
+     * Adds the difference between an item's points after and before a change to the student's
+     * summary row, creating the row from all of the student's grades in the class if needed.
+     */
+    void applyChange(Long classId, Long studentId, Gradebook.Points before, Gradebook.Points after);
+
+    Optional<ClassGradeSummary> findSummary(Long classId, Long studentId);
+
+    /**
+     * @return the summaries of a class by student ID.
+     */
+    Map<Long, ClassGradeSummary> findSummariesByClassId(Long classId);
+
+    /**
+     * @return the average of the students' weighted averages, or null if nothing is graded.
+     */
+    Double findClassAverage(Long classId);
+
+    /**
+     * Recomputes every summary row of a class from its submissions and quiz attempts.
+     */
+    void rebuildClass(Long classId);
+
+    /**
+     * Removes the summary rows of a class (when the class is deleted).
+     */
+    void deleteClass(Long classId);
+
+    /**
+     * Rebuilds every class, one transaction per class, and removes rows of deleted classes.
+     * Also runs on {@code app.grade-summary.rebuild-cron}.
+     */
+    void rebuildAll();
+
+    /**
+     * Runs rebuildAll in the background.
+     * @return false if a rebuild is already running.
+     */
+    boolean startRebuild();
+}
@@ -0,0 +1,205 @@
+package student_management_system.service;
+
+import student_management_system.model.ClassGradeSummary;
+import student_management_system.repository.AssignmentRepository;
+import student_management_system.repository.ClassGradeSummaryRepository;
+import student_management_system.repository.QuizAttemptRepository;
+import student_management_system.repository.QuizRepository;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.SubmissionRepository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation of the ClassGradeSummaryService interface.
+ * <p>
+ * A change is applied as one atomic UPDATE adding the item's point difference, so grading
+ * different items of the same student concurrently is safe. A student's first row is created
+ * with an upsert: if two gradings both find no row, the second adds its change to the row the
+ * first created instead of failing on the unique key. Points follow Gradebook's cell
+ * rules (which submission or attempt counts), so summaries agree with the gradebook.
+ * Rounding drift from repeated regrading, and any change made outside the grading paths, is
+ * corrected by the rebuild on {@code app.grade-summary.rebuild-cron}.
+ */
+@Service
+public class ClassGradeSummaryServiceImpl implements ClassGradeSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassGradeSummaryServiceImpl.class);
+
+    @Value("${app.grade-summary.rebuild-enabled:true}")
+    private boolean rebuildEnabled;
+
+    @Autowired private ClassGradeSummaryRepository classGradeSummaryRepository;
+    @Autowired private SubmissionRepository submissionRepository;
+    @Autowired private QuizAttemptRepository quizAttemptRepository;
+    @Autowired private AssignmentRepository assignmentRepository;
+    @Autowired private QuizRepository quizRepository;
+    @Autowired private SchoolClassRepository schoolClassRepository;
+    @Autowired private GradebookService gradebookService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate rebuildTransaction;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        rebuildTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Gradebook.Points assignmentPoints(Long studentId, Long assignmentId) {
+        return Gradebook.assignmentPoints(submissionRepository.findGradeCellsByStudentIdAndAssignmentId(studentId, assignmentId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Gradebook.Points quizPoints(Long studentId, Long quizId) {
+        return Gradebook.quizPoints(quizAttemptRepository.findGradeCellsByStudentIdAndQuizId(studentId, quizId));
+    }
+
+    @Override
+    @Transactional
+    public void applyChange(Long classId, Long studentId, Gradebook.Points before, Gradebook.Points after) {
+        Gradebook.Points change = after.minus(before);
+        if (change.isNone()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int updated = classGradeSummaryRepository.addPoints(classId, studentId,
+                change.earned(), change.possible(), change.graded(), now);
+        if (updated == 0) {
+            // First grade of the student in this class, or not rebuilt yet: count every item
+            Gradebook.Points total = studentPoints(classId, studentId);
+            classGradeSummaryRepository.insertOrAddPoints(classId, studentId,
+                    total.earned(), total.possible(), total.graded(), total.percent(),
+                    change.earned(), change.possible(), change.graded(), now);
+            logger.debug("Created grade summary of student ID {} in class ID {}: {}", studentId, classId, total);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ClassGradeSummary> findSummary(Long classId, Long studentId) {
+        return classGradeSummaryRepository.findByClassIdAndStudentId(classId, studentId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, ClassGradeSummary> findSummariesByClassId(Long classId) {
+        Map<Long, ClassGradeSummary> byStudentId = new HashMap<>();
+        for (ClassGradeSummary summary : classGradeSummaryRepository.findByClassId(classId)) {
+            byStudentId.put(summary.getStudentId(), summary);
+        }
+        return byStudentId;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Double findClassAverage(Long classId) {
+        return classGradeSummaryRepository.findClassAverage(classId);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildClass(Long classId) {
+        rebuildClassRows(classId);
+    }
+
+    @Override
+    @Transactional
+    public void deleteClass(Long classId) {
+        classGradeSummaryRepository.deleteByClassId(classId);
+    }
+
+    @Override
+    @Scheduled(cron = "${app.grade-summary.rebuild-cron:0 45 3 * * *}")
+    public void rebuildAll() {
+        if (!rebuildEnabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<Long> classIds = schoolClassRepository.findAllIds();
+            int failed = 0;
+            for (Long classId : classIds) {
+                try {
+                    rebuildTransaction.executeWithoutResult(status -> rebuildClassRows(classId));
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("Rebuilding grade summaries of class ID {} failed: {}", classId, e.getMessage(), e);
+                }
+            }
+            Integer orphans = rebuildTransaction.execute(status -> classGradeSummaryRepository.deleteOrphans());
+            logger.info("Rebuilt grade summaries of {} classes ({} failed, {} rows of deleted classes removed) in {} ms",
+                    classIds.size() - failed, failed, orphans, System.currentTimeMillis() - started);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public boolean startRebuild() {
+        if (!rebuildEnabled || rebuilding.get()) {
+            return false;
+        }
+        Thread worker = new Thread(this::rebuildAll, "grade-summary-rebuild");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    // --- Helper Methods ---
+
+    private void rebuildClassRows(Long classId) {
+        Gradebook gradebook = gradebookService.buildGradebook(classId);
+        classGradeSummaryRepository.deleteByClassId(classId);
+        LocalDateTime now = LocalDateTime.now();
+        List<ClassGradeSummary> summaries = new ArrayList<>(gradebook.getStudents().size());
+        for (int row = 0; row < gradebook.getStudents().size(); row++) {
+            ClassGradeSummary summary = new ClassGradeSummary(classId, gradebook.getStudents().get(row).id());
+            fill(summary, gradebook.points(row), now);
+            summaries.add(summary);
+        }
+        classGradeSummaryRepository.saveAll(summaries);
+        logger.debug("Rebuilt {} grade summaries of class ID {}", summaries.size(), classId);
+    }
+
+    /**
+     * Counts one student's points over every item of a class (a one-row gradebook).
+     */
+    private Gradebook.Points studentPoints(Long classId, Long studentId) {
+        Gradebook gradebook = Gradebook.build(classId,
+                List.<Object[]>of(new Object[] {studentId, null, null, null, null}),
+                assignmentRepository.findGradebookColumnsByClassId(classId),
+                quizRepository.findGradebookColumnsByClassId(classId),
+                submissionRepository.findGradebookCellsByClassIdAndStudentId(classId, studentId),
+                quizAttemptRepository.findGradebookCellsByClassIdAndStudentId(classId, studentId));
+        return gradebook.points(0);
+    }
+
+    private static void fill(ClassGradeSummary summary, Gradebook.Points points, LocalDateTime now) {
+        summary.setPointsEarned(points.earned());
+        summary.setPointsPossible(points.possible());
+        summary.setGradedCount(points.graded());
+        summary.setWeightedAverage(points.percent());
+        summary.setUpdatedAt(now);
+    }
+}
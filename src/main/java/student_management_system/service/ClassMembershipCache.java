@@ -0,0 +1,148 @@
+package student_management_system.service;
+
+import student_management_system.repository.SchoolClassRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Answers "is user U the teacher of, or enrolled in, class C" without loading entity graphs.
+ * <p>
+ * Each class is loaded once with two ID-only queries (teacher ID and enrolled student IDs) and
+ * kept as a primitive long hash set, so a check is a constant-time lookup. Entries are evicted
+ * by ClassServiceImpl when enrollment changes or a class is deleted (again after commit, so a
+ * concurrent reload cannot keep the pre-commit membership). Classes are cached in a
+ * BoundedTtlCache ({@code app.membership-cache.ttl-seconds}, no size limit).
+ */
+@Component
+public class ClassMembershipCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassMembershipCache.class);
+
+    @Value("${app.membership-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Autowired
+    private SchoolClassRepository schoolClassRepository;
+
+    private final BoundedTtlCache<Long, Membership> membershipByClassId =
+            new BoundedTtlCache<>(() -> ttlSeconds, () -> Integer.MAX_VALUE);
+
+    /**
+     * @return true if the user teaches the class or is enrolled in it; false if the class does not exist.
+     */
+    public boolean isMember(Long userId, Long classId) {
+        Membership membership = get(classId);
+        return membership != null && userId != null && (membership.teacherId == userId || membership.studentIds.contains(userId));
+    }
+
+    /**
+     * @return true if the user teaches the class.
+     */
+    public boolean isTeacher(Long userId, Long classId) {
+        Membership membership = get(classId);
+        return membership != null && userId != null && membership.teacherId == userId;
+    }
+
+    /**
+     * @return true if the user is enrolled in the class as a student.
+     */
+    public boolean isEnrolled(Long userId, Long classId) {
+        Membership membership = get(classId);
+        return membership != null && membership.studentIds.contains(userId);
+    }
+
+    /**
+     * Drops the cached membership of a class now and, if a transaction is active, again after it commits.
+     */
+    public void evict(Long classId) {
+        AfterCommit.runNowAndAfterCommit(() -> membershipByClassId.remove(classId));
+    }
+
+    /**
+     * Drops every cached membership (e.g. after deleting a teacher and, by cascade, their classes).
+     */
+    public void evictAll() {
+        AfterCommit.runNowAndAfterCommit(membershipByClassId::clear);
+    }
+
+    private Membership get(Long classId) {
+        if (classId == null) {
+            return null;
+        }
+        Membership cached = membershipByClassId.get(classId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = membershipByClassId.generation();
+        Long teacherId = schoolClassRepository.findTeacherIdByClassId(classId).orElse(null);
+        if (teacherId == null) {
+            membershipByClassId.remove(classId);
+            return null; // Class does not exist; not cached
+        }
+        List<Long> studentIds = schoolClassRepository.findStudentIdsByClassId(classId);
+        Membership loaded = new Membership(teacherId, LongHashSet.of(studentIds));
+        membershipByClassId.putIfUnchanged(classId, loaded, loadGeneration);
+        logger.debug("Loaded membership of class ID {} ({} students)", classId, studentIds.size());
+        return loaded;
+    }
+
+    private record Membership(long teacherId, LongHashSet studentIds) {
+    }
+
+    /**
+     * Immutable open-addressing set of long values (no boxing on lookup).
+     * Zero marks an empty slot; entity IDs start at 1.
+     */
+    static final class LongHashSet {
+
+        private final long[] slots;
+        private final int mask;
+
+        private LongHashSet(long[] slots) {
+            this.slots = slots;
+            this.mask = slots.length - 1;
+        }
+
+        static LongHashSet of(List<Long> values) {
+            // Power-of-two capacity at most half full keeps probe sequences short
+            int capacity = Integer.highestOneBit(Math.max(2, values.size() * 2) - 1) << 1;
+            long[] slots = new long[capacity];
+            for (Long value : values) {
+                if (value == null || value == 0) {
+                    continue;
+                }
+                int i = index(value, capacity - 1);
+                while (slots[i] != 0 && slots[i] != value) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                slots[i] = value;
+            }
+            return new LongHashSet(slots);
+        }
+
+        boolean contains(Long value) {
+            if (value == null || value == 0) {
+                return false;
+            }
+            int i = index(value, mask);
+            while (slots[i] != 0) {
+                if (slots[i] == value) {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        private static int index(long value, int mask) {
+            long h = value * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential IDs
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -25,6 +25,38 @@ public interface ClassService {
 
     Set<SchoolClass> findClassesByStudent(User student);
 
+    /**
+     * Checks whether a user teaches or is enrolled in a class, using the membership cache.
+     * @param userId The user's ID.
+     * @param classId The class ID.
+     * @return true if the user is the class teacher or an enrolled student; false if not, or if the class does not exist.
+     */
+    boolean isClassMember(Long userId, Long classId);
+
+    /**
+     * Checks whether a student is enrolled in a class, using the membership cache.
+     * @param studentId The student's user ID.
+     * @param classId The class ID.
+     * @return true if the student is enrolled in the class.
+     */
+    boolean isStudentEnrolled(Long studentId, Long classId);
+
+    /**
+     * Counts the classes two students are both enrolled in with one query, without loading classes.
+     * @param studentId One student's user ID.
+     * @param otherStudentId The other student's user ID.
+     * @return The number of shared classes (0 for the same user).
+     */
+    long countSharedClasses(Long studentId, Long otherStudentId);
+
+    /**
+     * Lists the IDs of the classes two students are both enrolled in, without loading classes.
+     * @param studentId One student's user ID.
+     * @param otherStudentId The other student's user ID.
+     * @return The shared class IDs, ascending (empty for the same user).
+     */
+    List<Long> findSharedClassIds(Long studentId, Long otherStudentId);
+
     /**
      * Updates an existing class.
      * Ensures the user performing the update is the teacher who owns the class.
@@ -45,6 +45,27 @@ public class ClassServiceImpl implements ClassService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private ClassMembershipCache classMembershipCache;
+
+    @Autowired
+    private ChatMessageArchive chatMessageArchive;
+
+    @Autowired
+    private ChatHistoryTailCache chatHistoryTailCache;
+
+    @Autowired
+    private ClassGradeSummaryService classGradeSummaryService;
+
+    @Autowired
+    private ScoreAnalyticsService scoreAnalyticsService;
+
+    @Autowired
+    private GradebookSnapshots gradebookSnapshots;
+
     // Optional: Inject PasswordEncoder if hashing join password
     // @Autowired
     // private PasswordEncoder passwordEncoder;
@@ -75,7 +96,9 @@ public class ClassServiceImpl implements ClassService {
         }
 
         logger.info("Creating new class '{}' by teacher '{}'", classDto.getName(), teacher.getUsername());
-        return schoolClassRepository.save(schoolClass);
+        SchoolClass savedClass = schoolClassRepository.save(schoolClass);
+        conversationSummaryService.ensureClassConversation(teacher, savedClass);
+        return savedClass;
     }
 
     @Override
@@ -109,7 +132,9 @@ public class ClassServiceImpl implements ClassService {
         }
 
         logger.info("Updating class ID {} by teacher '{}'", classId, teacher.getUsername());
-        return schoolClassRepository.save(existingClass);
+        SchoolClass savedClass = schoolClassRepository.save(existingClass);
+        gradebookSnapshots.markChanged(classId); // The gradebook page shows the class's name
+        return savedClass;
     }
 
 
@@ -123,7 +148,15 @@ public class ClassServiceImpl implements ClassService {
         }
         deleteClassImageFile(classToDelete.getClassImagePath());
         logger.warn("Deleting class ID: {}. Associated assignments/submissions may cascade delete.", classId);
+        conversationSummaryService.removeClassConversation(classId);
+        classGradeSummaryService.deleteClass(classId);
+        scoreAnalyticsService.evictClass(classId);
+        gradebookSnapshots.evict(classId);
         schoolClassRepository.deleteById(classId);
+        classMembershipCache.evict(classId);
+        chatHistoryTailCache.evict(classId);
+        // Archived chat files are only removed once the class is really gone
+        AfterCommit.run(() -> chatMessageArchive.deleteClass(classId));
     }
 
     private String storeClassImage(MultipartFile file) {
@@ -193,7 +226,11 @@ public class ClassServiceImpl implements ClassService {
 
         schoolClass.addStudent(student);
         logger.info("Student {} enrolled in class '{}' (ID: {})", student.getUsername(), schoolClass.getName(), schoolClass.getId());
-        return schoolClassRepository.save(schoolClass);
+        SchoolClass savedClass = schoolClassRepository.save(schoolClass);
+        conversationSummaryService.ensureClassConversation(student, savedClass);
+        classMembershipCache.evict(savedClass.getId());
+        gradebookSnapshots.markChanged(savedClass.getId());
+        return savedClass;
     }
 
      @Override
@@ -202,6 +239,34 @@ public class ClassServiceImpl implements ClassService {
         return managedStudent.getEnrolledClasses();
      }
 
+    @Override
+    public boolean isClassMember(Long userId, Long classId) {
+        return classMembershipCache.isMember(userId, classId);
+    }
+
+    @Override
+    public boolean isStudentEnrolled(Long studentId, Long classId) {
+        return classMembershipCache.isEnrolled(studentId, classId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countSharedClasses(Long studentId, Long otherStudentId) {
+        if (studentId == null || otherStudentId == null || studentId.equals(otherStudentId)) {
+            return 0;
+        }
+        return schoolClassRepository.countSharedClasses(studentId, otherStudentId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findSharedClassIds(Long studentId, Long otherStudentId) {
+        if (studentId == null || otherStudentId == null || studentId.equals(otherStudentId)) {
+            return List.of();
+        }
+        return schoolClassRepository.findSharedClassIds(studentId, otherStudentId);
+    }
+
     private String generateUniqueClassCode() {
         String code;
         do { code = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 6).toUpperCase(); }
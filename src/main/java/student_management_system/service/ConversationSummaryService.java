@@ -0,0 +1,87 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.PrivateMessage;
+import student_management_system.model.SchoolClass;
+import student_management_system.model.User;
+import student_management_system.web.dto.ConversationPreviewDto;
+
+import java.util.List;
+
+/**
+ * Interface defining operations on the materialized conversation summaries behind the /messages inbox.
+ * Write methods are expected to run inside the caller's transaction, so a summary never
+ * diverges from the message or membership change that caused it.
+ */
+public interface ConversationSummaryService {
+
+    /**
+     * Applies a newly saved private message to both participants' summaries
+     * and bumps the receiver's unread count.
+     *
+     * @param message The saved PrivateMessage.
+     */
+    void recordPrivateMessage(PrivateMessage message);
+
+    /**
+     * Applies a newly saved class chat message to every member's summary of that class
+     * and bumps the unread count of everyone except the sender.
+     *
+     * @param message The saved ChatMessage.
+     */
+    void recordClassMessage(ChatMessage message);
+
+    /**
+     * Applies a batch of newly saved class chat messages: one update per class for its newest
+     * message, with every member's unread count raised by the messages others sent.
+     *
+     * @param messages The saved ChatMessages, of any classes.
+     */
+    void recordClassMessages(List<ChatMessage> messages);
+
+    /**
+     * Ensures both users have a summary row for their private conversation (called when they become friends).
+     */
+    void ensurePrivateConversation(User user1, User user2);
+
+    /**
+     * Removes both users' summary rows for their private conversation (called when a friendship ends).
+     */
+    void removePrivateConversation(User user1, User user2);
+
+    /**
+     * Ensures a class member (teacher or enrolled student) has a summary row for the class chat.
+     */
+    void ensureClassConversation(User member, SchoolClass schoolClass);
+
+    /**
+     * Removes every summary row of a class chat (called before a class is deleted).
+     */
+    void removeClassConversation(Long classId);
+
+    /**
+     * Removes every summary row that references a user (called before a user is deleted).
+     */
+    void removeAllForUser(Long userId);
+
+    /**
+     * Resets the owner's unread count for a private conversation and, if it changed,
+     * pushes the new count to the owner's "/user/queue/unread" after commit.
+     */
+    void markPrivateConversationRead(User owner, User otherUser);
+
+    /**
+     * Resets the owner's unread count for a class chat. Skipped without a query when the chat is
+     * already known to be read (no class message since the last reset on this node, within
+     * {@code app.chat.read-marks.ttl-seconds}).
+     */
+    void markClassConversationRead(Long ownerId, Long classId);
+
+    /**
+     * Loads a user's inbox previews, most recent activity first, from one indexed query.
+     *
+     * @param owner The user viewing the inbox.
+     * @return Private and class conversation previews, sorted by last activity.
+     */
+    List<ConversationPreviewDto> getInbox(User owner);
+}
@@ -0,0 +1,338 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.ConversationSummary;
+import student_management_system.model.PrivateMessage;
+import student_management_system.model.SchoolClass;
+import student_management_system.model.User;
+import student_management_system.repository.ChatMessageRepository;
+import student_management_system.repository.ConversationSummaryRepository;
+import student_management_system.repository.PrivateMessageRepository;
+import student_management_system.web.dto.ConversationPreviewDto;
+import student_management_system.web.dto.UnreadCountDto;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the ConversationSummaryService interface.
+ * Keeps one ConversationSummary row per (participant, conversation).
+ * <p>
+ * Class chats reset to read are remembered per class on this node (read marks), so reopening a
+ * chat with nothing new skips the UPDATE. Recording a message of the class clears its marks;
+ * messages recorded on other nodes are picked up when a mark expires after
+ * {@code app.chat.read-marks.ttl-seconds}.
+ */
+@Service
+public class ConversationSummaryServiceImpl implements ConversationSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummaryServiceImpl.class);
+
+    static final int SNIPPET_MAX_LENGTH = 255;
+
+    @Value("${app.chat.read-marks.ttl-seconds:60}")
+    private long readMarkTtlSeconds;
+
+    @Value("${app.chat.read-marks.max-owners-per-class:1000}")
+    private int readMarkMaxOwnersPerClass;
+
+    @Autowired
+    private ConversationSummaryRepository conversationSummaryRepository;
+
+    @Autowired
+    private PrivateMessageRepository privateMessageRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    // Class chats known to be read, by class ID; cleared whenever a message of the class is recorded
+    private final Map<Long, ReadMarks> readMarksByClassId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void recordPrivateMessage(PrivateMessage message) {
+        User sender = message.getSender();
+        User receiver = message.getReceiver();
+        String ref = ConversationSummary.privateRef(sender.getId(), receiver.getId());
+
+        ConversationSummary senderRow = findOrCreatePrivateRow(sender, receiver, ref);
+        applyPrivateMessage(senderRow, message);
+
+        ConversationSummary receiverRow = findOrCreatePrivateRow(receiver, sender, ref);
+        applyPrivateMessage(receiverRow, message);
+
+        conversationSummaryRepository.save(senderRow);
+        conversationSummaryRepository.save(receiverRow);
+        conversationSummaryRepository.incrementUnreadCount(receiver.getId(), ref);
+        int unreadCount = conversationSummaryRepository.findUnreadCount(receiver.getId(), ref).orElse(0);
+        pushUnreadCountAfterCommit(receiver, sender, unreadCount);
+        logger.debug("Updated private conversation summary {} for message ID {}", ref, message.getId());
+    }
+
+    @Override
+    @Transactional
+    public void recordClassMessage(ChatMessage message) {
+        recordClassMessages(List.of(message));
+    }
+
+    @Override
+    @Transactional
+    public void recordClassMessages(List<ChatMessage> messages) {
+        Map<Long, List<ChatMessage>> messagesByClassId = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            messagesByClassId.computeIfAbsent(message.getSchoolClass().getId(), id -> new ArrayList<>()).add(message);
+        }
+        for (List<ChatMessage> classMessages : messagesByClassId.values()) {
+            applyClassMessages(classMessages);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void ensurePrivateConversation(User user1, User user2) {
+        String ref = ConversationSummary.privateRef(user1.getId(), user2.getId());
+        PrivateMessage latest = privateMessageRepository.findTopPrivateMessageBetweenUsers(user1, user2).orElse(null);
+        for (User[] pair : new User[][]{{user1, user2}, {user2, user1}}) {
+            if (!conversationSummaryRepository.existsByOwner_IdAndConversationRef(pair[0].getId(), ref)) {
+                ConversationSummary row = findOrCreatePrivateRow(pair[0], pair[1], ref);
+                if (latest != null) {
+                    applyPrivateMessage(row, latest);
+                }
+                conversationSummaryRepository.save(row);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void removePrivateConversation(User user1, User user2) {
+        String ref = ConversationSummary.privateRef(user1.getId(), user2.getId());
+        int removed = conversationSummaryRepository.deleteByConversationRef(ref);
+        logger.debug("Removed {} summary rows for private conversation {}", removed, ref);
+    }
+
+    @Override
+    @Transactional
+    public void ensureClassConversation(User member, SchoolClass schoolClass) {
+        String ref = ConversationSummary.classRef(schoolClass.getId());
+        if (!conversationSummaryRepository.existsByOwner_IdAndConversationRef(member.getId(), ref)) {
+            ConversationSummary row = newClassRow(member, schoolClass, ref);
+            // Start from the class's current last message so new members see recent activity
+            chatMessageRepository.findTopBySchoolClassOrderByTimestampDesc(schoolClass).ifPresent(latest -> {
+                row.setLastSender(latest.getSender());
+                row.setLastMessageSnippet(snippet(latest.getContent()));
+                row.setLastMessageAt(latest.getTimestamp());
+            });
+            conversationSummaryRepository.save(row);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void removeClassConversation(Long classId) {
+        int removed = conversationSummaryRepository.deleteByConversationRef(ConversationSummary.classRef(classId));
+        AfterCommit.run(() -> readMarksByClassId.remove(classId));
+        logger.debug("Removed {} summary rows for class ID {}", removed, classId);
+    }
+
+    @Override
+    @Transactional
+    public void removeAllForUser(Long userId) {
+        conversationSummaryRepository.clearLastSender(userId);
+        int removed = conversationSummaryRepository.deleteAllReferencingUser(userId);
+        logger.debug("Removed {} summary rows referencing user ID {}", removed, userId);
+    }
+
+    @Override
+    @Transactional
+    public void markPrivateConversationRead(User owner, User otherUser) {
+        int reset = conversationSummaryRepository.resetUnreadCount(owner.getId(), ConversationSummary.privateRef(owner.getId(), otherUser.getId()));
+        if (reset > 0) {
+            pushUnreadCountAfterCommit(owner, otherUser, 0); // Clears the badge in the owner's other tabs
+        }
+    }
+
+    @Override
+    public void markClassConversationRead(Long ownerId, Long classId) {
+        ReadMarks marks = readMarksByClassId.computeIfAbsent(classId, id -> new ReadMarks());
+        long generation;
+        synchronized (marks) {
+            Long markedAt = marks.markedAtNanosByOwnerId.get(ownerId);
+            if (markedAt != null && System.nanoTime() - markedAt < TimeUnit.SECONDS.toNanos(readMarkTtlSeconds)) {
+                return;
+            }
+            generation = marks.generation;
+        }
+        // Not @Transactional itself, so the known-read case does not begin a transaction
+        transactionTemplate.executeWithoutResult(status ->
+                conversationSummaryRepository.resetUnreadCount(ownerId, ConversationSummary.classRef(classId)));
+        AfterCommit.run(() -> {
+            synchronized (marks) {
+                // A class message committed meanwhile may already be unread again
+                if (marks.generation == generation) {
+                    if (marks.markedAtNanosByOwnerId.size() >= readMarkMaxOwnersPerClass) {
+                        marks.markedAtNanosByOwnerId.clear();
+                    }
+                    marks.markedAtNanosByOwnerId.put(ownerId, System.nanoTime());
+                }
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ConversationPreviewDto> getInbox(User owner) {
+        return conversationSummaryRepository.findInboxPreviews(owner.getId());
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Sends the owner's new unread count for one private conversation to "/user/queue/unread"
+     * once the surrounding transaction has committed, so clients never see uncommitted counts.
+     */
+    private void pushUnreadCountAfterCommit(User owner, User friend, int unreadCount) {
+        String ownerUsername = owner.getUsername();
+        Long ownerId = owner.getId();
+        String friendUsername = friend.getUsername();
+        Runnable push = () -> {
+            long totalUnread = conversationSummaryRepository.sumUnreadCount(ownerId, ConversationSummary.ConversationType.PRIVATE);
+            messagingTemplate.convertAndSendToUser(ownerUsername, "/queue/unread",
+                    new UnreadCountDto(friendUsername, unreadCount, totalUnread));
+        };
+        AfterCommit.run(push);
+    }
+
+    private ConversationSummary findOrCreatePrivateRow(User owner, User other, String ref) {
+        return conversationSummaryRepository.findByOwner_IdAndConversationRef(owner.getId(), ref)
+                .orElseGet(() -> {
+                    ConversationSummary row = new ConversationSummary();
+                    row.setOwner(owner);
+                    row.setType(ConversationSummary.ConversationType.PRIVATE);
+                    row.setConversationRef(ref);
+                    row.setTargetUser(other);
+                    return row;
+                });
+    }
+
+    /**
+     * Applies one class's messages from a batch: a single bulk update for the newest message,
+     * then one correction per other sender so nobody's own messages count as unread.
+     */
+    private void applyClassMessages(List<ChatMessage> classMessages) {
+        ChatMessage newest = classMessages.get(0);
+        Map<Long, Integer> countsBySenderId = new LinkedHashMap<>();
+        Map<Long, User> sendersById = new HashMap<>();
+        for (ChatMessage message : classMessages) {
+            if (message.getTimestamp().isAfter(newest.getTimestamp())
+                    || (message.getTimestamp().isEqual(newest.getTimestamp()) && message.getId() > newest.getId())) {
+                newest = message;
+            }
+            countsBySenderId.merge(message.getSender().getId(), 1, Integer::sum);
+            sendersById.putIfAbsent(message.getSender().getId(), message.getSender());
+        }
+        User sender = newest.getSender();
+        String ref = ConversationSummary.classRef(newest.getSchoolClass().getId());
+        int count = classMessages.size();
+        int updated = conversationSummaryRepository.applyClassMessages(ref, sender, sender.getId(),
+                snippet(newest.getContent()), newest.getTimestamp(), count, countsBySenderId.get(sender.getId()));
+        for (Map.Entry<Long, Integer> senderCount : countsBySenderId.entrySet()) {
+            if (!senderCount.getKey().equals(sender.getId())) {
+                conversationSummaryRepository.subtractUnreadCount(senderCount.getKey(), ref, senderCount.getValue());
+            }
+        }
+        for (Map.Entry<Long, Integer> senderCount : countsBySenderId.entrySet()) {
+            if (!conversationSummaryRepository.existsByOwner_IdAndConversationRef(senderCount.getKey(), ref)) {
+                // The sender is authorized for the class but predates the summary rows; repair it.
+                ConversationSummary senderRow = newClassRow(sendersById.get(senderCount.getKey()), newest.getSchoolClass(), ref);
+                senderRow.setLastSender(sender);
+                senderRow.setLastMessageSnippet(snippet(newest.getContent()));
+                senderRow.setLastMessageAt(newest.getTimestamp());
+                senderRow.setUnreadCount(count - senderCount.getValue());
+                conversationSummaryRepository.save(senderRow);
+                updated++;
+            }
+        }
+        forgetReadMarksAfterCommit(newest.getSchoolClass().getId());
+        logger.debug("Applied {} messages to {} class conversation summaries for {}", count, updated, ref);
+    }
+
+    /**
+     * Every member but the sender has unread messages again once the batch commits. Clears the
+     * class's read marks now, so a reset that overlaps the batch is not remembered, and again after
+     * the commit.
+     */
+    private void forgetReadMarksAfterCommit(Long classId) {
+        Runnable forget = () -> {
+            ReadMarks marks = readMarksByClassId.get(classId);
+            if (marks != null) {
+                synchronized (marks) {
+                    marks.generation++;
+                    marks.markedAtNanosByOwnerId.clear();
+                }
+            }
+        };
+        AfterCommit.runNowAndAfterCommit(forget);
+    }
+
+    private ConversationSummary newClassRow(User member, SchoolClass schoolClass, String ref) {
+        ConversationSummary row = new ConversationSummary();
+        row.setOwner(member);
+        row.setType(ConversationSummary.ConversationType.CLASS);
+        row.setConversationRef(ref);
+        row.setSchoolClass(schoolClass);
+        return row;
+    }
+
+    private void applyPrivateMessage(ConversationSummary row, PrivateMessage message) {
+        boolean hasText = message.getContent() != null && !message.getContent().isBlank();
+        row.setLastSender(message.getSender());
+        row.setLastMessageSnippet(hasText
+                ? snippet(message.getContent())
+                : (message.getAttachmentOriginalFilename() != null ? snippet("Attachment: " + message.getAttachmentOriginalFilename()) : "[Empty Message]"));
+        row.setLastMessageAt(message.getTimestamp());
+        row.setLastMessageIsAttachment(message.getAttachmentPath() != null && !hasText);
+    }
+
+    static String snippet(String content) {
+        if (content == null) {
+            return null;
+        }
+        return content.length() <= SNIPPET_MAX_LENGTH ? content : content.substring(0, SNIPPET_MAX_LENGTH - 3) + "...";
+    }
+
+    private static final class ReadMarks {
+
+        // Bumped whenever a message of the class is recorded; a reset that overlapped one is not remembered
+        private long generation;
+        private final Map<Long, Long> markedAtNanosByOwnerId = new HashMap<>();
+    }
+}
@@ -0,0 +1,138 @@
+package student_management_system.service;
+
+import student_management_system.repository.UserRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers "are users A and B friends" and "who are A's friends" without loading User entities
+ * or their friends collections.
+ * <p>
+ * Each user's friend IDs are loaded once with an ID-only query and kept as a sorted
+ * {@code long[]}, so a check is a binary search. UserServiceImpl.addFriend and removeFriend
+ * update the cached arrays of both users once the transaction commits (copy on write, so
+ * readers never lock). Users are cached in a BoundedTtlCache ({@code app.friend-graph.ttl-seconds},
+ * {@code app.friend-graph.max-users}). Since another node's entry can lag a change,
+ * paths that let one user send something to another check the database instead
+ * (UserService.areFriendsInDatabase).
+ */
+@Component
+public class FriendGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(FriendGraph.class);
+
+    private static final long[] NONE = new long[0];
+
+    @Value("${app.friend-graph.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.friend-graph.max-users:100000}")
+    private int maxUsers;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final BoundedTtlCache<Long, Adjacency> adjacencyByUserId = new BoundedTtlCache<>(() -> ttlSeconds, () -> maxUsers);
+
+    /**
+     * @return true if the two users are friends (false for the same user or a null ID).
+     */
+    public boolean areFriends(Long userId, Long otherUserId) {
+        if (userId == null || otherUserId == null || userId.equals(otherUserId)) {
+            return false;
+        }
+        return Arrays.binarySearch(get(userId), otherUserId) >= 0;
+    }
+
+    /**
+     * @return the user's friend IDs in ascending order (a copy).
+     */
+    public long[] getFriendIds(Long userId) {
+        return userId == null ? NONE : get(userId).clone();
+    }
+
+    public int countFriends(Long userId) {
+        return userId == null ? 0 : get(userId).length;
+    }
+
+    /**
+     * Records a new friendship in both users' cached arrays once the transaction commits.
+     */
+    public void addFriendship(Long userId, Long friendId) {
+        AfterCommit.run(() -> {
+            adjacencyByUserId.update(userId, adjacency -> adjacency.with(friendId));
+            adjacencyByUserId.update(friendId, adjacency -> adjacency.with(userId));
+        });
+    }
+
+    /**
+     * Removes a friendship from both users' cached arrays once the transaction commits.
+     */
+    public void removeFriendship(Long userId, Long friendId) {
+        AfterCommit.run(() -> {
+            adjacencyByUserId.update(userId, adjacency -> adjacency.without(friendId));
+            adjacencyByUserId.update(friendId, adjacency -> adjacency.without(userId));
+        });
+    }
+
+    /**
+     * Drops every cached entry (e.g. after deleting a user, whose ID is in their friends' arrays).
+     */
+    public void evictAll() {
+        AfterCommit.run(adjacencyByUserId::clear);
+    }
+
+    private long[] get(Long userId) {
+        Adjacency cached = adjacencyByUserId.get(userId);
+        if (cached != null) {
+            return cached.friendIds;
+        }
+        long loadGeneration = adjacencyByUserId.generation();
+        List<Long> ids = userRepository.findFriendIds(userId);
+        long[] friendIds = new long[ids.size()];
+        for (int i = 0; i < friendIds.length; i++) {
+            friendIds[i] = ids.get(i);
+        }
+        Arrays.sort(friendIds);
+        adjacencyByUserId.putIfUnchanged(userId, new Adjacency(friendIds), loadGeneration);
+        logger.debug("Loaded {} friend IDs of user ID {}", friendIds.length, userId);
+        return friendIds;
+    }
+
+    /**
+     * Sorted friend IDs of one user; never modified, changes build a new instance.
+     */
+    private record Adjacency(long[] friendIds) {
+
+        Adjacency with(long friendId) {
+            int at = Arrays.binarySearch(friendIds, friendId);
+            if (at >= 0) {
+                return this;
+            }
+            at = -at - 1;
+            long[] ids = new long[friendIds.length + 1];
+            System.arraycopy(friendIds, 0, ids, 0, at);
+            ids[at] = friendId;
+            System.arraycopy(friendIds, at, ids, at + 1, friendIds.length - at);
+            return new Adjacency(ids);
+        }
+
+        Adjacency without(long friendId) {
+            int at = Arrays.binarySearch(friendIds, friendId);
+            if (at < 0) {
+                return this;
+            }
+            long[] ids = new long[friendIds.length - 1];
+            System.arraycopy(friendIds, 0, ids, 0, at);
+            System.arraycopy(friendIds, at + 1, ids, at, ids.length - at);
+            return new Adjacency(ids);
+        }
+    }
+}
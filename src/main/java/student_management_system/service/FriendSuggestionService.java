@@ -0,0 +1,24 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.web.dto.FriendSuggestionDto;
+
+import java.util.List;
+
+/**
+ * "People you may know": users ranked by mutual friends and shared classes, computed in the
+ * background and served from memory.
+ */
+public interface FriendSuggestionService {
+
+    /**
+     * @return up to {@code limit} suggestions for the user, best first; empty until the first
+     *         computation has finished. Users who became friends since are left out.
+     */
+    List<FriendSuggestionDto> getSuggestions(User user, int limit);
+
+    /**
+     * Recomputes the suggestions of every user from the friendship and enrollment tables.
+     */
+    void recompute();
+}
@@ -0,0 +1,346 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.UserRepository;
+import student_management_system.web.dto.FriendSuggestionDto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes "people you may know" for every user in a periodic background job
+ * ({@code app.friend-suggestions.refresh-interval-ms}) and serves them from an in-memory
+ * snapshot, so a request is a map lookup.
+ * <p>
+ * A run reads three ID-only tables (users, {@code user_friends} pairs and
+ * {@code classes_students} pairs) in keyset batches of {@code app.friend-suggestions.load-batch-size},
+ * keeping the pairs in primitive arrays, maps user IDs to dense indexes and builds adjacency arrays.
+ * For each user, the user and their friends are marked in a bitset; friends of friends and
+ * classmates outside it are counted as mutual friends and shared classes, and the best
+ * {@code app.friend-suggestions.top-n} by weighted score are kept. The work is proportional to
+ * the number of two-step paths, not to the number of user pairs.
+ * <p>
+ * The snapshot is replaced as a whole when a run finishes. Friendships made since are filtered
+ * out when serving, using FriendGraph.
+ */
+@Service
+public class FriendSuggestionServiceImpl implements FriendSuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FriendSuggestionServiceImpl.class);
+
+    @Value("${app.friend-suggestions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.friend-suggestions.top-n:20}")
+    private int topN;
+
+    @Value("${app.friend-suggestions.mutual-friend-weight:2}")
+    private int mutualFriendWeight;
+
+    @Value("${app.friend-suggestions.shared-class-weight:1}")
+    private int sharedClassWeight;
+
+    @Value("${app.friend-suggestions.load-batch-size:1000}")
+    private int batchSize;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private SchoolClassRepository schoolClassRepository;
+    @Autowired private FriendGraph friendGraph;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Override
+    public List<FriendSuggestionDto> getSuggestions(User user, int limit) {
+        Snapshot current = snapshot;
+        long[] ranked = current.suggestionsByUserId.get(user.getId());
+        if (ranked == null || limit <= 0) {
+            return List.of();
+        }
+        List<FriendSuggestionDto> suggestions = new ArrayList<>();
+        for (int i = 0; i < ranked.length && suggestions.size() < limit; i += 2) {
+            long candidateId = ranked[i];
+            Profile profile = current.profileById.get(candidateId);
+            if (profile == null || friendGraph.areFriends(user.getId(), candidateId)) {
+                continue;
+            }
+            suggestions.add(new FriendSuggestionDto(candidateId, profile.username, profile.firstName, profile.lastName,
+                    profile.profilePicturePath, mutualFriends(ranked[i + 1]), sharedClasses(ranked[i + 1])));
+        }
+        return suggestions;
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.friend-suggestions.initial-delay-ms:60000}",
+               fixedDelayString = "${app.friend-suggestions.refresh-interval-ms:3600000}")
+    public void recompute() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Map<Long, Profile> profileById = new HashMap<>();
+            List<Long> ids = new ArrayList<>();
+            Pageable batch = Pageable.ofSize(batchSize);
+            long afterId = 0;
+            List<Object[]> rows;
+            while (!(rows = userRepository.findSearchColumnsAfterId(afterId, batch)).isEmpty()) {
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    ids.add(id);
+                    profileById.put(id, new Profile((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+                afterId = ids.get(ids.size() - 1);
+            }
+            long[] userIds = ids.stream().mapToLong(Long::longValue).toArray();
+            IdPairs friendPairs = loadPairs(userRepository::findFriendIdPairsAfter, batch);
+            IdPairs enrollmentPairs = loadPairs(schoolClassRepository::findEnrollmentIdPairsAfter, batch);
+            Map<Long, long[]> suggestions = rank(userIds, friendPairs, enrollmentPairs,
+                    topN, mutualFriendWeight, sharedClassWeight);
+            snapshot = new Snapshot(suggestions, profileById);
+            logger.info("Computed friend suggestions for {} of {} users in {} ms",
+                    suggestions.size(), userIds.length, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Computing friend suggestions failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Ranks suggestions for every user.
+     *
+     * @param userIds         all user IDs, ascending.
+     * @param friendPairs     (userId, friendId) pairs, each friendship in both directions.
+     * @param enrollmentPairs (classId, studentId) pairs.
+     * @return per user with any suggestion: [candidateId, counts, candidateId, counts, ...] best
+     *         first, where counts packs the mutual friends (high half) and shared classes (low half).
+     */
+    static Map<Long, long[]> rank(long[] userIds, IdPairs friendPairs, IdPairs enrollmentPairs,
+                                  int topN, int mutualFriendWeight, int sharedClassWeight) {
+        int n = userIds.length;
+        int[][] friendsOf = group(n, friendPairs, userIds, null);
+        Map<Long, Integer> classIndex = new HashMap<>();
+        for (int i = 0; i < enrollmentPairs.size(); i++) {
+            classIndex.putIfAbsent(enrollmentPairs.key(i), classIndex.size());
+        }
+        int[][] membersOf = group(classIndex.size(), enrollmentPairs, userIds, classIndex);
+        int[][] classesOf = invert(n, membersOf);
+
+        Map<Long, long[]> suggestions = new HashMap<>();
+        int[] mutual = new int[n];
+        int[] shared = new int[n];
+        int[] touched = new int[n];
+        BitSet excluded = new BitSet(n);
+        for (int user = 0; user < n; user++) {
+            excluded.set(user);
+            for (int friend : friendsOf[user]) {
+                excluded.set(friend);
+            }
+            int touchedCount = 0;
+            for (int friend : friendsOf[user]) {
+                for (int candidate : friendsOf[friend]) {
+                    if (!excluded.get(candidate)) {
+                        if (mutual[candidate] == 0 && shared[candidate] == 0) {
+                            touched[touchedCount++] = candidate;
+                        }
+                        mutual[candidate]++;
+                    }
+                }
+            }
+            for (int schoolClass : classesOf[user]) {
+                for (int candidate : membersOf[schoolClass]) {
+                    if (!excluded.get(candidate)) {
+                        if (mutual[candidate] == 0 && shared[candidate] == 0) {
+                            touched[touchedCount++] = candidate;
+                        }
+                        shared[candidate]++;
+                    }
+                }
+            }
+
+            if (touchedCount > 0 && topN > 0) {
+                // Worst kept candidate at the head: lower score, then fewer mutual friends, then higher ID
+                Comparator<Integer> worstFirst = (a, b) -> {
+                    int byScore = Long.compare(score(mutual[a], shared[a], mutualFriendWeight, sharedClassWeight),
+                            score(mutual[b], shared[b], mutualFriendWeight, sharedClassWeight));
+                    if (byScore != 0) {
+                        return byScore;
+                    }
+                    return mutual[a] != mutual[b] ? Integer.compare(mutual[a], mutual[b]) : Integer.compare(b, a);
+                };
+                PriorityQueue<Integer> best = new PriorityQueue<>(topN + 1, worstFirst);
+                for (int i = 0; i < touchedCount; i++) {
+                    if (best.size() < topN) {
+                        best.add(touched[i]);
+                    } else if (worstFirst.compare(touched[i], best.peek()) > 0) {
+                        best.poll();
+                        best.add(touched[i]);
+                    }
+                }
+                long[] ranked = new long[best.size() * 2];
+                for (int i = ranked.length - 2; i >= 0; i -= 2) {
+                    int candidate = best.poll();
+                    ranked[i] = userIds[candidate];
+                    ranked[i + 1] = ((long) mutual[candidate] << 32) | shared[candidate];
+                }
+                suggestions.put(userIds[user], ranked);
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                mutual[touched[i]] = 0;
+                shared[touched[i]] = 0;
+            }
+            excluded.clear(user);
+            for (int friend : friendsOf[user]) {
+                excluded.clear(friend);
+            }
+        }
+        return suggestions;
+    }
+
+    static int mutualFriends(long counts) {
+        return (int) (counts >>> 32);
+    }
+
+    static int sharedClasses(long counts) {
+        return (int) counts;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Reads all pairs in batches, each continuing after the last pair of the previous one.
+     */
+    private static IdPairs loadPairs(PairBatchQuery query, Pageable batch) {
+        IdPairs pairs = new IdPairs();
+        long afterKey = 0;
+        long afterValue = 0;
+        List<Object[]> rows;
+        while (!(rows = query.after(afterKey, afterValue, batch)).isEmpty()) {
+            for (Object[] row : rows) {
+                pairs.add((Long) row[0], (Long) row[1]);
+            }
+            afterKey = pairs.key(pairs.size() - 1);
+            afterValue = pairs.value(pairs.size() - 1);
+        }
+        return pairs;
+    }
+
+    private static long score(int mutual, int shared, int mutualFriendWeight, int sharedClassWeight) {
+        return (long) mutual * mutualFriendWeight + (long) shared * sharedClassWeight;
+    }
+
+    /**
+     * Groups (key, userId) pairs into per-key arrays of dense user indexes. Keys are user IDs
+     * when {@code keyIndex} is null, otherwise looked up in it. Pairs naming unknown users
+     * (deleted since the user list was read) are skipped.
+     */
+    private static int[][] group(int groups, IdPairs pairs, long[] userIds, Map<Long, Integer> keyIndex) {
+        int[] keys = new int[pairs.size()];
+        int[] values = new int[pairs.size()];
+        int[] sizes = new int[groups];
+        int count = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            int key = keyIndex == null ? Arrays.binarySearch(userIds, pairs.key(i)) : keyIndex.get(pairs.key(i));
+            int value = Arrays.binarySearch(userIds, pairs.value(i));
+            if (key < 0 || value < 0) {
+                continue;
+            }
+            keys[count] = key;
+            values[count] = value;
+            sizes[key]++;
+            count++;
+        }
+        int[][] grouped = new int[groups][];
+        for (int i = 0; i < groups; i++) {
+            grouped[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            grouped[keys[i]][sizes[keys[i]]++] = values[i];
+        }
+        return grouped;
+    }
+
+    private static int[][] invert(int n, int[][] membersOf) {
+        int[] sizes = new int[n];
+        for (int[] members : membersOf) {
+            for (int member : members) {
+                sizes[member]++;
+            }
+        }
+        int[][] inverted = new int[n][];
+        for (int i = 0; i < n; i++) {
+            inverted[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int group = 0; group < membersOf.length; group++) {
+            for (int member : membersOf[group]) {
+                inverted[member][sizes[member]++] = group;
+            }
+        }
+        return inverted;
+    }
+
+    /**
+     * One batch of ID pairs ordered by key then value, after the given pair.
+     */
+    @FunctionalInterface
+    private interface PairBatchQuery {
+        List<Object[]> after(Long afterKey, Long afterValue, Pageable batch);
+    }
+
+    /**
+     * (key, value) ID pairs in two growable primitive arrays.
+     */
+    static final class IdPairs {
+
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long key, long value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long key(int index) {
+            return keys[index];
+        }
+
+        long value(int index) {
+            return values[index];
+        }
+    }
+
+    private record Snapshot(Map<Long, long[]> suggestionsByUserId, Map<Long, Profile> profileById) {
+    }
+
+    private record Profile(String username, String firstName, String lastName, String profilePicturePath) {
+    }
+}
@@ -0,0 +1,457 @@
+package student_management_system.service;
+
+import student_management_system.model.QuizAttempt;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A class's grades as a dense matrix: one row per student, one column per item (the
+ * assignments by due date, then the quizzes by due date). Cell (row, column) is at
+ * {@code row * itemCount + column} in primitive arrays, so the gradebook page and exports read
+ * cells by index instead of looking up maps of Submission and QuizAttempt entities.
+ * <p>
+ * Built by GradebookService from a few projection queries; never modified afterwards. Exports
+ * use {@link #stream} instead, which keeps a single row in memory.
+ */
+public final class Gradebook {
+
+    /** No submission or attempt. */
+    public static final int MISSING = 0;
+    /** A quiz attempt that has been started but not submitted. */
+    public static final int IN_PROGRESS = 1;
+    /** Submitted and waiting for a grade. */
+    public static final int SUBMITTED = 2;
+    public static final int GRADED = 3;
+
+    /** Percentage at or above which a graded cell counts as a pass. */
+    public static final double PASS_PERCENT = 60;
+
+    /** Points an assignment is out of (assignment grades are 0-100). */
+    public static final double ASSIGNMENT_POINTS = 100;
+
+    /** Leading export columns, before one column per item. */
+    static final List<String> STUDENT_HEADERS = List.of("Last Name", "First Name", "Username", "Student ID");
+
+    public record Student(long id, String username, String firstName, String lastName, String studentId) {
+    }
+
+    public record Item(long id, boolean quiz, String title) {
+    }
+
+    /**
+     * Points counted towards a student's total: a graded assignment counts its numerical grade
+     * out of ASSIGNMENT_POINTS, a graded quiz its score out of its max score. Cells without a
+     * score (or quizzes without a max score) count nothing.
+     */
+    public record Points(double earned, double possible, int graded) {
+
+        public static final Points NONE = new Points(0, 0, 0);
+
+        public Points plus(Points other) {
+            return new Points(earned + other.earned, possible + other.possible, graded + other.graded);
+        }
+
+        public Points minus(Points other) {
+            return new Points(earned - other.earned, possible - other.possible, graded - other.graded);
+        }
+
+        public boolean isNone() {
+            return earned == 0 && possible == 0 && graded == 0;
+        }
+
+        /**
+         * @return earned as a percentage of possible, or null if nothing is possible.
+         */
+        public Double percent() {
+            return possible > 0 ? earned * 100 / possible : null;
+        }
+    }
+
+    /**
+     * Receives exported rows. The array is reused for the next row.
+     */
+    interface RowSink {
+        void row(String[] values) throws IOException;
+    }
+
+    private final long classId;
+    private final List<Student> students;
+    private final Columns columns;
+    private final Cells cells;
+
+    private Gradebook(long classId, List<Student> students, Columns columns, Cells cells) {
+        this.classId = classId;
+        this.students = students;
+        this.columns = columns;
+        this.cells = cells;
+    }
+
+    /**
+     * Builds the matrix from projection rows.
+     *
+     * @param studentRows     [id, username, firstName, lastName, studentId], in display order.
+     * @param assignmentRows  [id, title], in display order.
+     * @param quizRows        [id, title], in display order.
+     * @param submissionCells [studentId, assignmentId, grade, numericalGrade, isMakeupSubmission,
+     *                        isSuperseded], oldest first. Of several submissions by a student the
+     *                        active makeup submission wins, then any active one, then the latest.
+     * @param attemptCells    [studentId, quizId, status, score, maxScore], oldest first. Of several
+     *                        attempts the most advanced status wins, then the latest.
+     */
+    static Gradebook build(long classId, List<Object[]> studentRows, List<Object[]> assignmentRows,
+                           List<Object[]> quizRows, List<Object[]> submissionCells, List<Object[]> attemptCells) {
+        Map<Long, Integer> rowByStudentId = new HashMap<>();
+        Student[] students = new Student[studentRows.size()];
+        for (Object[] row : studentRows) {
+            int index = rowByStudentId.size();
+            students[index] = new Student((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+            rowByStudentId.put(students[index].id(), index);
+        }
+        Columns columns = new Columns(assignmentRows, quizRows);
+        int itemCount = columns.items.size();
+        Cells cells = new Cells(students.length * itemCount);
+
+        for (Object[] row : submissionCells) {
+            Integer studentRow = rowByStudentId.get((Long) row[0]);
+            int column = columns.assignmentColumn((Long) row[1]);
+            // Former students and items created since the columns were read are left out
+            if (studentRow != null && column >= 0) {
+                cells.putSubmission(studentRow * itemCount + column, row, 2);
+            }
+        }
+        for (Object[] row : attemptCells) {
+            Integer studentRow = rowByStudentId.get((Long) row[0]);
+            int column = columns.quizColumn((Long) row[1]);
+            if (studentRow != null && column >= 0) {
+                cells.putAttempt(studentRow * itemCount + column, row, 2);
+            }
+        }
+        return new Gradebook(classId, List.of(students), columns, cells);
+    }
+
+    /**
+     * @param submissionRows one student's submissions to one assignment: [grade, numericalGrade,
+     *                       isMakeupSubmission, isSuperseded], oldest first.
+     * @return the points the assignment counts for the student.
+     */
+    static Points assignmentPoints(List<Object[]> submissionRows) {
+        Cells cells = new Cells(1);
+        for (Object[] row : submissionRows) {
+            cells.putSubmission(0, row, 0);
+        }
+        return cells.points(0, false);
+    }
+
+    /**
+     * @param attemptRows one student's attempts at one quiz: [status, score, maxScore], oldest first.
+     * @return the points the quiz counts for the student.
+     */
+    static Points quizPoints(List<Object[]> attemptRows) {
+        Cells cells = new Cells(1);
+        for (Object[] row : attemptRows) {
+            cells.putAttempt(0, row, 0);
+        }
+        return cells.points(0, true);
+    }
+
+    /**
+     * Streams the gradebook as text rows (a header, then one row per student) while reading two
+     * cursors in step, so only the current student's cells are held in memory.
+     *
+     * @param columns        the item columns.
+     * @param submissionRows [studentId, username, firstName, lastName, studentId (school ID),
+     *                       assignmentId, grade, numericalGrade, isMakeupSubmission, isSuperseded,
+     *                       submissionId], at least one row per enrolled student (submission
+     *                       columns null when there is none), grouped by student in display order
+     *                       and oldest submission first.
+     * @param attemptRows    [studentId, quizId, status, score, maxScore, attemptId], grouped by
+     *                       student in the same order, oldest attempt first.
+     */
+    static void stream(Columns columns, Iterator<Object[]> submissionRows, Iterator<Object[]> attemptRows,
+                       RowSink sink) throws IOException {
+        List<Item> items = columns.items;
+        int leading = STUDENT_HEADERS.size();
+        String[] values = new String[leading + items.size()];
+        for (int i = 0; i < leading; i++) {
+            values[i] = STUDENT_HEADERS.get(i);
+        }
+        for (int column = 0; column < items.size(); column++) {
+            values[leading + column] = items.get(column).title();
+        }
+        sink.row(values);
+
+        Cells cells = new Cells(items.size());
+        Object[] submission = submissionRows.hasNext() ? submissionRows.next() : null;
+        Object[] attempt = attemptRows.hasNext() ? attemptRows.next() : null;
+        while (submission != null) {
+            Long studentId = (Long) submission[0];
+            values[0] = (String) submission[3];
+            values[1] = (String) submission[2];
+            values[2] = (String) submission[1];
+            values[3] = (String) submission[4];
+            cells.clear();
+            do {
+                int column = submission[10] == null ? -1 : columns.assignmentColumn((Long) submission[5]);
+                if (column >= 0) {
+                    cells.putSubmission(column, submission, 6);
+                }
+                submission = submissionRows.hasNext() ? submissionRows.next() : null;
+            } while (submission != null && studentId.equals(submission[0]));
+            // Both cursors list the same students in the same order (one read-only transaction)
+            while (attempt != null && studentId.equals(attempt[0])) {
+                int column = attempt[5] == null ? -1 : columns.quizColumn((Long) attempt[1]);
+                if (column >= 0) {
+                    cells.putAttempt(column, attempt, 2);
+                }
+                attempt = attemptRows.hasNext() ? attemptRows.next() : null;
+            }
+            for (int column = 0; column < items.size(); column++) {
+                values[leading + column] = cells.label(column, items.get(column).quiz());
+            }
+            sink.row(values);
+        }
+    }
+
+    public long getClassId() {
+        return classId;
+    }
+
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    public List<Item> getItems() {
+        return columns.items;
+    }
+
+    public boolean isEmpty() {
+        return students.isEmpty();
+    }
+
+    /**
+     * @return one of MISSING, IN_PROGRESS, SUBMITTED or GRADED.
+     */
+    public int status(int row, int column) {
+        return cells.statuses[cell(row, column)];
+    }
+
+    /**
+     * @return the numerical grade or quiz score, or NaN if there is none.
+     */
+    public double score(int row, int column) {
+        return cells.scores[cell(row, column)];
+    }
+
+    /**
+     * @return the quiz's max score as recorded on the attempt, or 0 if unknown.
+     */
+    public int maxScore(int row, int column) {
+        return cells.maxScores[cell(row, column)];
+    }
+
+    /**
+     * @return the score as a percentage, or NaN if it cannot be computed.
+     */
+    public double percent(int row, int column) {
+        return cells.percent(cell(row, column), columns.items.get(column).quiz());
+    }
+
+    /**
+     * @return true if the cell is graded and at or above PASS_PERCENT.
+     */
+    public boolean passing(int row, int column) {
+        return status(row, column) == GRADED && percent(row, column) >= PASS_PERCENT;
+    }
+
+    /**
+     * @return the text shown for the cell: the assignment's grade or the quiz's "score/max" once
+     *         graded, otherwise the status.
+     */
+    public String label(int row, int column) {
+        return cells.label(cell(row, column), columns.items.get(column).quiz());
+    }
+
+    /**
+     * @return the student's points over all items.
+     */
+    public Points points(int row) {
+        Points total = Points.NONE;
+        for (int column = 0; column < columns.items.size(); column++) {
+            total = total.plus(cells.points(cell(row, column), columns.items.get(column).quiz()));
+        }
+        return total;
+    }
+
+    /**
+     * Precedence of a submission: of a student's submissions for an assignment, the last one of
+     * the highest rank counts (an active makeup, then an active original, then a superseded one).
+     */
+    static int submissionRank(boolean makeup, boolean superseded) {
+        return superseded ? 1 : makeup ? 3 : 2;
+    }
+
+    /**
+     * Precedence of a quiz attempt, equal to its cell status: of a student's attempts at a quiz,
+     * the last one of the most advanced status counts.
+     */
+    static int attemptRank(QuizAttempt.AttemptStatus status) {
+        if (status == QuizAttempt.AttemptStatus.GRADED) {
+            return GRADED;
+        }
+        return status == QuizAttempt.AttemptStatus.SUBMITTED ? SUBMITTED : IN_PROGRESS;
+    }
+
+    /**
+     * @return true if the other gradebook shows the same students, items and cells.
+     */
+    public boolean sameContent(Gradebook other) {
+        return classId == other.classId
+                && students.equals(other.students)
+                && columns.items.equals(other.columns.items)
+                && Arrays.equals(cells.statuses, other.cells.statuses)
+                && Arrays.equals(cells.scores, other.cells.scores)
+                && Arrays.equals(cells.maxScores, other.cells.maxScores)
+                && Arrays.equals(cells.grades, other.cells.grades);
+    }
+
+    // --- Helper Methods ---
+
+    private int cell(int row, int column) {
+        return row * columns.items.size() + column;
+    }
+
+    /**
+     * The item columns: assignments, then quizzes, with lookups from item ID to column.
+     */
+    static final class Columns {
+
+        private final List<Item> items;
+        private final Map<Long, Integer> columnByAssignmentId = new HashMap<>();
+        private final Map<Long, Integer> columnByQuizId = new HashMap<>();
+
+        /**
+         * @param assignmentRows [id, title], in display order.
+         * @param quizRows       [id, title], in display order.
+         */
+        Columns(List<Object[]> assignmentRows, List<Object[]> quizRows) {
+            Item[] items = new Item[assignmentRows.size() + quizRows.size()];
+            int column = 0;
+            for (Object[] row : assignmentRows) {
+                items[column] = new Item((Long) row[0], false, (String) row[1]);
+                columnByAssignmentId.put(items[column].id(), column++);
+            }
+            for (Object[] row : quizRows) {
+                items[column] = new Item((Long) row[0], true, (String) row[1]);
+                columnByQuizId.put(items[column].id(), column++);
+            }
+            this.items = List.of(items);
+        }
+
+        int assignmentColumn(Long assignmentId) {
+            return columnByAssignmentId.getOrDefault(assignmentId, -1);
+        }
+
+        int quizColumn(Long quizId) {
+            return columnByQuizId.getOrDefault(quizId, -1);
+        }
+    }
+
+    /**
+     * Cell values in parallel primitive arrays, and the rules for which of several submissions
+     * or attempts a cell shows.
+     */
+    static final class Cells {
+
+        private final byte[] statuses;
+        // Numerical grade or quiz score; NaN when there is none
+        private final double[] scores;
+        // Quiz max score; 0 when unknown
+        private final int[] maxScores;
+        // Assignment grade text, null elsewhere
+        private final String[] grades;
+        // Precedence of the row that filled each cell; a row only replaces one of lower or equal rank
+        private final byte[] ranks;
+
+        Cells(int size) {
+            statuses = new byte[size];
+            scores = new double[size];
+            maxScores = new int[size];
+            grades = new String[size];
+            ranks = new byte[size];
+            Arrays.fill(scores, Double.NaN);
+        }
+
+        void clear() {
+            Arrays.fill(statuses, (byte) MISSING);
+            Arrays.fill(scores, Double.NaN);
+            Arrays.fill(maxScores, 0);
+            Arrays.fill(grades, null);
+            Arrays.fill(ranks, (byte) 0);
+        }
+
+        /**
+         * @param from index of [grade, numericalGrade, isMakeupSubmission, isSuperseded] in the row.
+         */
+        void putSubmission(int cell, Object[] row, int from) {
+            byte rank = (byte) submissionRank(Boolean.TRUE.equals(row[from + 2]), Boolean.TRUE.equals(row[from + 3]));
+            if (rank < ranks[cell]) {
+                return;
+            }
+            ranks[cell] = rank;
+            grades[cell] = (String) row[from];
+            statuses[cell] = (byte) (grades[cell] == null ? SUBMITTED : GRADED);
+            scores[cell] = row[from + 1] == null ? Double.NaN : ((Number) row[from + 1]).doubleValue();
+        }
+
+        /**
+         * @param from index of [status, score, maxScore] in the row.
+         */
+        void putAttempt(int cell, Object[] row, int from) {
+            byte status = (byte) attemptRank((QuizAttempt.AttemptStatus) row[from]);
+            if (status < ranks[cell]) {
+                return;
+            }
+            ranks[cell] = status;
+            statuses[cell] = status;
+            scores[cell] = row[from + 1] == null ? Double.NaN : ((Number) row[from + 1]).doubleValue();
+            maxScores[cell] = row[from + 2] == null ? 0 : ((Number) row[from + 2]).intValue();
+        }
+
+        Points points(int cell, boolean quiz) {
+            if (statuses[cell] != GRADED || Double.isNaN(scores[cell]) || (quiz && maxScores[cell] <= 0)) {
+                return Points.NONE;
+            }
+            return new Points(scores[cell], quiz ? maxScores[cell] : ASSIGNMENT_POINTS, 1);
+        }
+
+        double percent(int cell, boolean quiz) {
+            if (!quiz) {
+                return scores[cell];
+            }
+            return maxScores[cell] > 0 ? scores[cell] / maxScores[cell] * 100 : Double.NaN;
+        }
+
+        String label(int cell, boolean quiz) {
+            switch (statuses[cell]) {
+                case IN_PROGRESS:
+                    return "In Progress";
+                case SUBMITTED:
+                    return "Submitted";
+                case GRADED:
+                    if (!quiz) {
+                        return grades[cell];
+                    }
+                    return (Double.isNaN(scores[cell]) ? "N/A" : String.format(Locale.ROOT, "%.1f", scores[cell]))
+                            + "/" + (maxScores[cell] > 0 ? String.valueOf(maxScores[cell]) : "?");
+                default:
+                    return quiz ? "Not Started" : "Not Submitted";
+            }
+        }
+    }
+}
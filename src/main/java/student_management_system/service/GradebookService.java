@@ -0,0 +1,35 @@
+package student_management_system.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Builds class gradebooks: every enrolled student's status and score for every assignment and
+ * quiz of a class.
+ */
+public interface GradebookService {
+
+    /**
+     * Builds the gradebook of a class with a constant number of queries, whatever the number of
+     * students and items.
+     * @param classId The ID of the class.
+     * @return The gradebook; empty rows and columns if the class has no students or items.
+     */
+    Gradebook buildGradebook(Long classId);
+
+    /**
+     * Writes the gradebook of a class as CSV (UTF-8), one row per student, streaming rows from
+     * the database as they are written. Memory use does not depend on the number of students.
+     * @param classId The ID of the class.
+     * @param out Where to write; flushed but not closed.
+     */
+    void exportCsv(Long classId, OutputStream out) throws IOException;
+
+    /**
+     * Writes the gradebook of a class as an XLSX workbook, streaming rows from the database
+     * into a streaming workbook that keeps only a window of rows in memory.
+     * @param classId The ID of the class.
+     * @param out Where to write; not closed.
+     */
+    void exportXlsx(Long classId, OutputStream out) throws IOException;
+}
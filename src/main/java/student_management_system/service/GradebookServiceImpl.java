@@ -0,0 +1,172 @@
+package student_management_system.service;
+
+import student_management_system.repository.AssignmentRepository;
+import student_management_system.repository.QuizAttemptRepository;
+import student_management_system.repository.QuizRepository;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.SubmissionRepository;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the GradebookService interface.
+ * <p>
+ * Reads the students, the assignment and quiz columns, and then all of the class's submission
+ * and attempt cells with one projection query each (keyed by class ID), instead of one query per
+ * assignment and per quiz. Gradebook.build places each cell in the matrix in a single pass.
+ * <p>
+ * Exports do not build the matrix: they read two forward-only cursors (submissions and
+ * attempts, both grouped by student in the same order) in step and write each student's row as
+ * soon as it is complete. Both cursors are open at once, which MySQL Connector/J only allows
+ * with server-side cursors ({@code useCursorFetch=true} on the datasource URL).
+ */
+@Service
+public class GradebookServiceImpl implements GradebookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradebookServiceImpl.class);
+
+    @Value("${app.gradebook.export.xlsx-window-rows:100}")
+    private int xlsxWindowRows;
+
+    @Autowired private SchoolClassRepository schoolClassRepository;
+    @Autowired private AssignmentRepository assignmentRepository;
+    @Autowired private QuizRepository quizRepository;
+    @Autowired private SubmissionRepository submissionRepository;
+    @Autowired private QuizAttemptRepository quizAttemptRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Gradebook buildGradebook(Long classId) {
+        long started = System.nanoTime();
+        Gradebook gradebook = Gradebook.build(classId,
+                schoolClassRepository.findGradebookStudentsByClassId(classId),
+                assignmentRepository.findGradebookColumnsByClassId(classId),
+                quizRepository.findGradebookColumnsByClassId(classId),
+                submissionRepository.findGradebookCellsByClassId(classId),
+                quizAttemptRepository.findGradebookCellsByClassId(classId));
+        logger.debug("Built gradebook of class ID {} ({} students x {} items) in {} ms", classId,
+                gradebook.getStudents().size(), gradebook.getItems().size(), (System.nanoTime() - started) / 1_000_000);
+        return gradebook;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCsv(Long classId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF'); // Byte order mark, so spreadsheet apps read the file as UTF-8
+        int rows = export(classId, values -> {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvField(writer, values[i]);
+            }
+            writer.write("\r\n");
+        });
+        writer.flush();
+        logger.info("Exported gradebook of class ID {} as CSV ({} students)", classId, rows - 1);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportXlsx(Long classId, OutputStream out) throws IOException {
+        // Rows beyond the window are flushed to a compressed temporary file until the workbook is written
+        SXSSFWorkbook workbook = new SXSSFWorkbook(xlsxWindowRows);
+        workbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet sheet = workbook.createSheet("Gradebook");
+            sheet.setDefaultColumnWidth(16);
+            sheet.createFreezePane(Gradebook.STUDENT_HEADERS.size(), 1);
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+            headerStyle.setWrapText(true);
+
+            int rows = export(classId, new Gradebook.RowSink() {
+                private int rowIndex;
+
+                @Override
+                public void row(String[] values) {
+                    Row row = sheet.createRow(rowIndex);
+                    for (int i = 0; i < values.length; i++) {
+                        Cell cell = row.createCell(i);
+                        if (values[i] != null) {
+                            cell.setCellValue(values[i]);
+                        }
+                        if (rowIndex == 0) {
+                            cell.setCellStyle(headerStyle);
+                        }
+                    }
+                    rowIndex++;
+                }
+            });
+            workbook.write(out);
+            out.flush();
+            logger.info("Exported gradebook of class ID {} as XLSX ({} students)", classId, rows - 1);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Streams the header and student rows of a class's gradebook to the sink.
+     * @return the number of rows written, header included.
+     */
+    private int export(Long classId, Gradebook.RowSink sink) throws IOException {
+        Gradebook.Columns columns = new Gradebook.Columns(
+                assignmentRepository.findGradebookColumnsByClassId(classId),
+                quizRepository.findGradebookColumnsByClassId(classId));
+        int[] rows = {0};
+        try (Stream<Object[]> submissions = submissionRepository.streamGradebookRowsByClassId(classId);
+             Stream<Object[]> attempts = quizAttemptRepository.streamGradebookRowsByClassId(classId)) {
+            Gradebook.stream(columns, submissions.iterator(), attempts.iterator(), values -> {
+                sink.row(values);
+                rows[0]++;
+            });
+        }
+        return rows[0];
+    }
+
+    /**
+     * Writes one CSV field, quoted when needed. Values that a spreadsheet would run as a
+     * formula (names and titles are user input) are prefixed with an apostrophe.
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
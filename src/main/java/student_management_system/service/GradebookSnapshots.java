@@ -0,0 +1,259 @@
+package student_management_system.service;
+
+import student_management_system.model.ClassGradeSummary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versioned, ready-built gradebooks (matrix, student summaries and class average) for the
+ * teacher gradebook page, so a reload neither rebuilds the gradebook nor waits for a rebuild.
+ * <p>
+ * Each viewed class has a version, taken from one process-wide sequence. Services call
+ * markChanged after committing anything the gradebook page shows (a submission or attempt
+ * created or graded, an item added, edited or deleted, a student enrolled, the class renamed);
+ * that bumps the version and starts a rebuild on the {@code gradebook-snapshot-} threads,
+ * coalesced per class. Readers always get the last complete snapshot, stale or not; only the
+ * very first view of a class builds inline. A snapshot older than
+ * {@code app.gradebook-snapshot.max-age-seconds} is rebuilt in the background without a new
+ * version, so nodes that did not see a change catch up: it keeps its version and ETag if the
+ * content is the same, and only gets a new one if it differs. At most
+ * {@code app.gradebook-snapshot.max-classes} classes are resident (see BoundedTtlCache).
+ * <p>
+ * The snapshot's ETag is the version plus this process's start time (versions restart at 1), and
+ * its Last-Modified is the time of the change it reflects.
+ */
+@Component
+public class GradebookSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradebookSnapshots.class);
+
+    @Value("${app.gradebook-snapshot.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @Value("${app.gradebook-snapshot.max-classes:500}")
+    private int maxClasses;
+
+    @Value("${app.gradebook-snapshot.rebuild-threads:2}")
+    private int rebuildThreads;
+
+    @Autowired private GradebookService gradebookService;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+    @Autowired private MeterRegistry meterRegistry;
+
+    private final BoundedTtlCache<Long, Entry> entriesByClassId = new BoundedTtlCache<>(null, () -> maxClasses);
+    private final AtomicLong sequence = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private ThreadPoolTaskExecutor rebuildExecutor;
+    private Counter rebuildCounter;
+    private Counter staleCounter;
+
+    @PostConstruct
+    void start() {
+        rebuildExecutor = new ThreadPoolTaskExecutor();
+        rebuildExecutor.setCorePoolSize(rebuildThreads);
+        rebuildExecutor.setMaxPoolSize(rebuildThreads);
+        rebuildExecutor.setThreadNamePrefix("gradebook-snapshot-");
+        rebuildExecutor.setDaemon(true);
+        rebuildExecutor.initialize();
+
+        rebuildCounter = Counter.builder("gradebook.snapshot.rebuilds")
+                .description("Gradebook snapshots built, inline on first view or in the background")
+                .register(meterRegistry);
+        staleCounter = Counter.builder("gradebook.snapshot.stale_served")
+                .description("Gradebook views served from a snapshot while a newer one was being built")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        rebuildExecutor.shutdown();
+    }
+
+    /**
+     * @return the last complete snapshot of the class; built inline only if the class has none yet.
+     */
+    public Snapshot get(Long classId) {
+        Entry entry = entriesByClassId.computeIfAbsent(classId, id -> new Entry(sequence.incrementAndGet()));
+        Snapshot current = entry.snapshot;
+        if (current == null) {
+            // Nothing to serve yet; concurrent first viewers wait for one build
+            synchronized (entry) {
+                if (entry.snapshot == null) {
+                    build(classId, entry);
+                }
+                return entry.snapshot;
+            }
+        }
+        if (!entry.rebuilding.get() && System.nanoTime() - current.builtAtNanos() > TimeUnit.SECONDS.toNanos(maxAgeSeconds)) {
+            entry.refreshDue = true;
+            scheduleRebuild(classId, entry);
+        }
+        if (current.version() < entry.version.get()) {
+            staleCounter.increment();
+        }
+        return current;
+    }
+
+    /**
+     * Bumps the class's version and rebuilds its snapshot in the background, once the
+     * transaction commits. Classes nobody has viewed are skipped.
+     */
+    public void markChanged(Long classId) {
+        AfterCommit.run(() -> {
+            Entry entry = entriesByClassId.get(classId);
+            if (entry != null) {
+                bump(classId, entry);
+            }
+        });
+    }
+
+    /**
+     * Drops a deleted class's snapshot once the transaction commits.
+     */
+    public void evict(Long classId) {
+        AfterCommit.run(() -> entriesByClassId.remove(classId));
+    }
+
+    // --- Helper Methods ---
+
+    private void bump(Long classId, Entry entry) {
+        entry.version.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+        entry.changedAt = Instant.now();
+        scheduleRebuild(classId, entry);
+    }
+
+    /**
+     * Starts a rebuild unless one is running for the class; a running rebuild loops until its
+     * snapshot has caught up with the version (and any refresh asked for has been done).
+     */
+    private void scheduleRebuild(Long classId, Entry entry) {
+        if (!entry.rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                boolean failed = false;
+                try {
+                    while (needsBuild(entry)) {
+                        entry.refreshDue = false;
+                        build(classId, entry);
+                    }
+                } catch (Exception e) {
+                    failed = true;
+                    logger.error("Rebuilding the gradebook snapshot of class ID {} failed: {}", classId, e.getMessage(), e);
+                } finally {
+                    entry.rebuilding.set(false);
+                }
+                // A change that arrived while the flag was still set
+                if (!failed && needsBuild(entry)) {
+                    scheduleRebuild(classId, entry);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.rebuilding.set(false);
+            logger.warn("Could not schedule a gradebook snapshot rebuild for class ID {}: {}", classId, e.getMessage());
+        }
+    }
+
+    private void build(Long classId, Entry entry) {
+        long version = entry.version.get();
+        Instant changedAt = entry.changedAt;
+        long started = System.nanoTime();
+        Gradebook gradebook = gradebookService.buildGradebook(classId);
+        Map<Long, ClassGradeSummary> summaries = classGradeSummaryService.findSummariesByClassId(classId);
+        Double classAverage = classGradeSummaryService.findClassAverage(classId);
+        synchronized (entry) {
+            Snapshot current = entry.snapshot;
+            if (current == null || current.version() < version) {
+                entry.snapshot = snapshot(version, changedAt, gradebook, summaries, classAverage);
+            } else if (current.version() == version && entry.version.get() == version) {
+                // A refresh: no change was seen here, but another node may have made one
+                if (sameContent(current, gradebook, summaries, classAverage)) {
+                    entry.snapshot = new Snapshot(current.version(), current.etag(), current.lastModified(),
+                            current.gradebook(), current.gradeSummaries(), current.classAverage(), System.nanoTime());
+                } else {
+                    long changedVersion = sequence.incrementAndGet();
+                    // Fails if markChanged ran meanwhile; the rebuild loop then builds that version
+                    if (entry.version.compareAndSet(version, changedVersion)) {
+                        entry.changedAt = Instant.now();
+                        entry.snapshot = snapshot(changedVersion, entry.changedAt, gradebook, summaries, classAverage);
+                    }
+                }
+            }
+        }
+        rebuildCounter.increment();
+        logger.debug("Built gradebook snapshot version {} of class ID {} in {} ms", version, classId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private Snapshot snapshot(long version, Instant changedAt, Gradebook gradebook,
+                              Map<Long, ClassGradeSummary> summaries, Double classAverage) {
+        return new Snapshot(version, '"' + epoch + "-" + version + '"', changedAt, gradebook, summaries,
+                classAverage, System.nanoTime());
+    }
+
+    private static boolean needsBuild(Entry entry) {
+        return entry.snapshot == null || entry.snapshot.version() < entry.version.get() || entry.refreshDue;
+    }
+
+    private static boolean sameContent(Snapshot snapshot, Gradebook gradebook,
+                                       Map<Long, ClassGradeSummary> summaries, Double classAverage) {
+        if (!snapshot.gradebook().sameContent(gradebook) || !Objects.equals(snapshot.classAverage(), classAverage)
+                || snapshot.gradeSummaries().size() != summaries.size()) {
+            return false;
+        }
+        for (Map.Entry<Long, ClassGradeSummary> byStudentId : summaries.entrySet()) {
+            ClassGradeSummary before = snapshot.gradeSummaries().get(byStudentId.getKey());
+            ClassGradeSummary after = byStudentId.getValue();
+            if (before == null
+                    || before.getPointsEarned() != after.getPointsEarned()
+                    || before.getPointsPossible() != after.getPointsPossible()
+                    || before.getGradedCount() != after.getGradedCount()
+                    || !Objects.equals(before.getWeightedAverage(), after.getWeightedAverage())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final AtomicLong version;
+        private final AtomicBoolean rebuilding = new AtomicBoolean();
+        private volatile Instant changedAt = Instant.now();
+        private volatile Snapshot snapshot;
+        // Set when the snapshot is older than the max age: rebuild at the same version
+        private volatile boolean refreshDue;
+
+        private Entry(long version) {
+            this.version = new AtomicLong(version);
+        }
+    }
+
+    /**
+     * One class's gradebook as of a version. Shared between requests; do not modify.
+     *
+     * @param etag         quoted strong entity tag for the version.
+     * @param lastModified time of the change the snapshot reflects.
+     */
+    public record Snapshot(long version, String etag, Instant lastModified, Gradebook gradebook,
+                           Map<Long, ClassGradeSummary> gradeSummaries, Double classAverage, long builtAtNanos) {
+    }
+}
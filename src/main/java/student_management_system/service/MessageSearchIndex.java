@@ -0,0 +1,348 @@
+package student_management_system.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded Lucene index over class chat and private message contents, kept on local disk in
+ * {@code app.search.index-dir}.
+ * <p>
+ * Documents are keyed by message type and ID, so indexing the same message again replaces it.
+ * Writes land in the writer's buffer straight away; searches see them after the next refresh
+ * ({@code app.search.refresh-interval-ms}) and they are made durable by the periodic commit
+ * ({@code app.search.commit-interval-ms}) and on shutdown.
+ * <p>
+ * Every document carries the index generation it was written in. A rebuild starts a new
+ * generation, re-adds every message and then deletes what is left of older generations (rows
+ * that no longer exist), so searches keep working on the old documents while it runs.
+ */
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    public static final String TYPE_CLASS = "CLASS";
+    public static final String TYPE_PRIVATE = "PRIVATE";
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_CLASS_ID = "classId";
+    private static final String FIELD_CONVERSATION_KEY = "conversationKey";
+    private static final String FIELD_SENDER_ID = "senderId";
+    private static final String FIELD_RECEIVER_ID = "receiverId";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_ATTACHMENT = "attachment";
+    private static final String FIELD_GENERATION = "generation";
+
+    private static final String COMMIT_GENERATION = "generation";
+    private static final int SNIPPET_CHARS = 120;
+
+    @Value("${app.search.index-dir:./search-index/messages}")
+    private String indexDir;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile long generation;
+
+    @PostConstruct
+    void open() throws IOException {
+        open(Path.of(indexDir));
+    }
+
+    void open(Path path) throws IOException {
+        directory = FSDirectory.open(path);
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (COMMIT_GENERATION.equals(entry.getKey())) {
+                    generation = Long.parseLong(entry.getValue());
+                }
+            }
+        }
+        searcherManager = new SearcherManager(writer, null);
+        logger.info("Message search index at {} ({} documents, generation {})", path.toAbsolutePath(), writer.getDocStats().numDocs, generation);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * @return true if the index holds no documents (e.g. on first start).
+     */
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    public void indexClassMessage(Long id, String content, LocalDateTime timestamp, Long classId, Long senderId) {
+        Document document = baseDocument(TYPE_CLASS, id, content, null, timestamp, senderId);
+        document.add(new StringField(FIELD_CLASS_ID, String.valueOf(classId), Field.Store.YES));
+        update(TYPE_CLASS, id, document);
+    }
+
+    public void indexPrivateMessage(Long id, String content, String attachmentFilename, LocalDateTime timestamp,
+                                    String conversationKey, Long senderId, Long receiverId) {
+        Document document = baseDocument(TYPE_PRIVATE, id, content, attachmentFilename, timestamp, senderId);
+        document.add(new StringField(FIELD_CONVERSATION_KEY, conversationKey, Field.Store.YES));
+        document.add(new StoredField(FIELD_RECEIVER_ID, receiverId));
+        update(TYPE_PRIVATE, id, document);
+    }
+
+    /**
+     * Starts a rebuild: documents indexed from now on belong to a new generation.
+     * @return the new generation, to pass to {@link #finishRebuild(long)}.
+     */
+    public synchronized long startRebuild() {
+        return ++generation;
+    }
+
+    /**
+     * Deletes the documents of generations older than the rebuild's and commits.
+     */
+    public void finishRebuild(long rebuildGeneration) throws IOException {
+        writer.deleteDocuments(LongPoint.newRangeQuery(FIELD_GENERATION, Long.MIN_VALUE, rebuildGeneration - 1));
+        commit();
+        refresh();
+    }
+
+    /**
+     * Runs a ranked search restricted to the given classes and private conversations.
+     * Hits are ordered by relevance, then newest first.
+     *
+     * @param text The user's search text; every word must match, the last one as a prefix.
+     * @param classIds Classes whose chat may be searched.
+     * @param conversationKeys Private conversations that may be searched.
+     * @param offset Number of hits to skip.
+     * @param limit Maximum number of hits to return.
+     */
+    public SearchPage search(String text, Collection<Long> classIds, Collection<String> conversationKeys,
+                             int offset, int limit) throws IOException {
+        Query textQuery = parse(text);
+        if (textQuery == null || (classIds.isEmpty() && conversationKeys.isEmpty())) {
+            return new SearchPage(0, List.of());
+        }
+        BooleanQuery.Builder access = new BooleanQuery.Builder();
+        if (!classIds.isEmpty()) {
+            access.add(new TermInSetQuery(FIELD_CLASS_ID, classIds.stream().map(id -> new BytesRef(String.valueOf(id))).toList()), BooleanClause.Occur.SHOULD);
+        }
+        if (!conversationKeys.isEmpty()) {
+            access.add(new TermInSetQuery(FIELD_CONVERSATION_KEY, conversationKeys.stream().map(BytesRef::new).toList()), BooleanClause.Occur.SHOULD);
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(access.build(), BooleanClause.Occur.FILTER)
+                .build();
+
+        Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<mark>", "</mark>"),
+                new SimpleHTMLEncoder(), new QueryScorer(textQuery, FIELD_CONTENT));
+        highlighter.setTextFragmenter(new SimpleFragmenter(SNIPPET_CHARS));
+        Sort relevanceThenNewest = new Sort(SortField.FIELD_SCORE, new SortField(FIELD_TIMESTAMP, SortField.Type.LONG, true));
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopFieldDocs top = searcher.search(query, offset + limit, relevanceThenNewest, true);
+            List<Hit> hits = new ArrayList<>();
+            for (int i = offset; i < top.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = top.scoreDocs[i];
+                Document document = searcher.storedFields().document(scoreDoc.doc);
+                hits.add(toHit(document, scoreDoc.score, highlighter));
+            }
+            return new SearchPage(top.totalHits.value, hits);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Makes recent writes visible to searches.
+     */
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.warn("Could not refresh the message search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Makes recent writes durable.
+     */
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:30000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.setLiveCommitData(Map.of(COMMIT_GENERATION, String.valueOf(generation)).entrySet());
+                writer.commit();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not commit the message search index: {}", e.getMessage());
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private Document baseDocument(String type, Long id, String content, String attachmentFilename,
+                                  LocalDateTime timestamp, Long senderId) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_KEY, key(type, id), Field.Store.NO));
+        document.add(new StringField(FIELD_TYPE, type, Field.Store.YES));
+        document.add(new StoredField(FIELD_ID, id));
+        document.add(new StoredField(FIELD_SENDER_ID, senderId));
+        document.add(new StoredField(FIELD_TIMESTAMP, timestamp.toString()));
+        document.add(new NumericDocValuesField(FIELD_TIMESTAMP, timestamp.toEpochSecond(ZoneOffset.UTC)));
+        document.add(new LongPoint(FIELD_GENERATION, generation));
+        if (content != null) {
+            document.add(new TextField(FIELD_CONTENT, content, Field.Store.YES));
+        }
+        if (attachmentFilename != null) {
+            document.add(new TextField(FIELD_ATTACHMENT, attachmentFilename, Field.Store.YES));
+        }
+        return document;
+    }
+
+    private void update(String type, Long id, Document document) {
+        try {
+            writer.updateDocument(new Term(FIELD_KEY, key(type, id)), document);
+        } catch (IOException e) {
+            logger.warn("Could not index {} message {}: {}", type, id, e.getMessage());
+        }
+    }
+
+    private static String key(String type, Long id) {
+        return type + ":" + id;
+    }
+
+    /**
+     * Every analyzed word must appear in the content or the attachment name; the last word also
+     * matches as a prefix, so results show up while the user is still typing.
+     * @return null if the text has no searchable words.
+     */
+    private Query parse(String text) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream(FIELD_CONTENT, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(term.toString());
+            }
+            tokens.end();
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term(FIELD_CONTENT, word)), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(FIELD_ATTACHMENT, word)), BooleanClause.Occur.SHOULD);
+            if (i == words.size() - 1) {
+                anyField.add(new PrefixQuery(new Term(FIELD_CONTENT, word)), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private Hit toHit(Document document, float score, Highlighter highlighter) throws IOException {
+        String type = document.get(FIELD_TYPE);
+        String content = document.get(FIELD_CONTENT);
+        String attachment = document.get(FIELD_ATTACHMENT);
+        String snippet = null;
+        if (content != null) {
+            try {
+                snippet = highlighter.getBestFragment(analyzer, FIELD_CONTENT, content);
+            } catch (InvalidTokenOffsetsException e) {
+                logger.debug("Could not highlight {} message: {}", type, e.getMessage());
+            }
+        }
+        if (snippet == null) {
+            // Matched on the attachment name only: show the start of the message instead
+            String plain = content != null ? content : attachment;
+            snippet = plain == null ? "" : new SimpleHTMLEncoder().encodeText(
+                    plain.length() > SNIPPET_CHARS ? plain.substring(0, SNIPPET_CHARS) + "..." : plain);
+        }
+        return new Hit(
+                type,
+                document.getField(FIELD_ID).numericValue().longValue(),
+                TYPE_CLASS.equals(type) ? Long.valueOf(document.get(FIELD_CLASS_ID)) : null,
+                document.get(FIELD_CONVERSATION_KEY),
+                document.getField(FIELD_SENDER_ID).numericValue().longValue(),
+                TYPE_PRIVATE.equals(type) ? document.getField(FIELD_RECEIVER_ID).numericValue().longValue() : null,
+                LocalDateTime.parse(document.get(FIELD_TIMESTAMP)),
+                snippet,
+                attachment,
+                score);
+    }
+
+    /**
+     * One page of hits plus the total number of matches (a lower bound beyond 1000).
+     */
+    public record SearchPage(long totalHits, List<Hit> hits) {
+    }
+
+    /**
+     * A matching message. The snippet is HTML-escaped, with the matched words in mark tags.
+     */
+    public record Hit(String type, long messageId, Long classId, String conversationKey, long senderId,
+                      Long receiverId, LocalDateTime timestamp, String snippet, String attachmentFilename, float score) {
+    }
+}
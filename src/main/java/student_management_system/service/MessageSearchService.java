@@ -0,0 +1,52 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.PrivateMessage;
+import student_management_system.model.User;
+import student_management_system.web.dto.MessageSearchResultDto;
+
+/**
+ * Interface defining full-text search over class chat and private messages.
+ * Searches only cover the caller's classes and the conversations with their current friends.
+ */
+public interface MessageSearchService {
+
+    /**
+     * Largest page size a client may request.
+     */
+    int MAX_PAGE_SIZE = 50;
+
+    /**
+     * Deepest hit a client may page to (page * size + size).
+     */
+    int MAX_RESULT_WINDOW = 500;
+
+    /**
+     * Searches the caller's class chats and private conversations.
+     *
+     * @param caller The user searching.
+     * @param query The search text; every word must match, the last one as a prefix.
+     * @param page Zero-based page number.
+     * @param size Hits per page (clamped to MAX_PAGE_SIZE).
+     * @return One page of ranked hits with snippets; empty if the query has no searchable words.
+     */
+    MessageSearchResultDto search(User caller, String query, int page, int size);
+
+    /**
+     * Adds a saved class chat message to the index once the surrounding transaction commits.
+     */
+    void indexClassMessage(ChatMessage message);
+
+    /**
+     * Adds a saved private message to the index once the surrounding transaction commits.
+     */
+    void indexPrivateMessage(PrivateMessage message);
+
+    /**
+     * Rebuilds the index from the database in a background thread, streaming both message
+     * tables in keyset batches. Searches keep using the current index meanwhile.
+     *
+     * @return false if a rebuild is already running.
+     */
+    boolean startReindex();
+}
@@ -0,0 +1,226 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.PrivateMessage;
+import student_management_system.model.User;
+import student_management_system.repository.ChatMessageRepository;
+import student_management_system.repository.PrivateMessageRepository;
+import student_management_system.repository.SchoolClassRepository;
+import student_management_system.repository.UserRepository;
+import student_management_system.web.dto.MessageSearchHitDto;
+import student_management_system.web.dto.MessageSearchResultDto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation of the MessageSearchService interface, backed by MessageSearchIndex.
+ * <p>
+ * A search costs two ID-only queries to scope it (the caller's class IDs and friend IDs), the
+ * index lookup, and two small name lookups for the hits on the page.
+ */
+@Service
+public class MessageSearchServiceImpl implements MessageSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchServiceImpl.class);
+
+    @Value("${app.search.reindex-batch-size:1000}")
+    private int reindexBatchSize;
+
+    @Autowired private MessageSearchIndex messageSearchIndex;
+    @Autowired private ChatMessageArchive chatMessageArchive;
+    @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private PrivateMessageRepository privateMessageRepository;
+    @Autowired private SchoolClassRepository schoolClassRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private FriendGraph friendGraph;
+
+    private final AtomicBoolean reindexRunning = new AtomicBoolean();
+
+    @Override
+    public MessageSearchResultDto search(User caller, String query, int page, int size) {
+        int pageSize = size <= 0 ? 20 : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = Math.max(0, Math.min(page, MAX_RESULT_WINDOW / pageSize - 1));
+        if (query == null || query.isBlank()) {
+            return new MessageSearchResultDto(query, pageNumber, pageSize, 0, false, List.of());
+        }
+
+        List<Long> classIds = schoolClassRepository.findClassIdsByMemberId(caller.getId());
+        List<String> conversationKeys = new ArrayList<>();
+        for (long friendId : friendGraph.getFriendIds(caller.getId())) {
+            conversationKeys.add(PrivateMessage.conversationKeyFor(caller.getId(), friendId));
+        }
+
+        MessageSearchIndex.SearchPage result;
+        try {
+            result = messageSearchIndex.search(query, classIds, conversationKeys, pageNumber * pageSize, pageSize);
+        } catch (IOException e) {
+            logger.error("Message search for user {} failed: {}", caller.getUsername(), e.getMessage(), e);
+            throw new IllegalStateException("Search is temporarily unavailable.", e);
+        }
+
+        // Names for the hits on this page only
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> hitClassIds = new HashSet<>();
+        for (MessageSearchIndex.Hit hit : result.hits()) {
+            userIds.add(hit.senderId());
+            if (hit.receiverId() != null) {
+                userIds.add(hit.receiverId());
+            }
+            if (hit.classId() != null) {
+                hitClassIds.add(hit.classId());
+            }
+        }
+        Map<Long, Object[]> userById = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (Object[] row : userRepository.findNamesByIdIn(userIds)) {
+                userById.put((Long) row[0], row);
+            }
+        }
+        Map<Long, String> classNameById = new HashMap<>();
+        if (!hitClassIds.isEmpty()) {
+            for (Object[] row : schoolClassRepository.findNamesByIdIn(hitClassIds)) {
+                classNameById.put((Long) row[0], (String) row[1]);
+            }
+        }
+
+        boolean isTeacher = caller.getRoles().stream().anyMatch(r -> "ROLE_TEACHER".equals(r.getName()));
+        List<MessageSearchHitDto> hits = new ArrayList<>();
+        for (MessageSearchIndex.Hit hit : result.hits()) {
+            String conversationName;
+            String conversationLink;
+            if (hit.classId() != null) {
+                conversationName = classNameById.getOrDefault(hit.classId(), "Class");
+                conversationLink = (isTeacher ? "/teacher" : "/student") + "/classes/details/" + hit.classId();
+            } else {
+                Object[] friend = userById.get(hit.senderId() == caller.getId() ? hit.receiverId() : hit.senderId());
+                conversationName = friend == null ? "Private chat" : fullName(friend);
+                conversationLink = friend == null ? "/messages" : "/chat/private/" + friend[1];
+            }
+            Object[] sender = userById.get(hit.senderId());
+            hits.add(new MessageSearchHitDto(
+                    hit.type(),
+                    hit.messageId(),
+                    conversationName,
+                    conversationLink,
+                    sender == null ? "Unknown user" : fullName(sender),
+                    hit.timestamp().format(DateTimeFormatter.ISO_DATE_TIME),
+                    hit.snippet(),
+                    hit.attachmentFilename(),
+                    hit.score()));
+        }
+        boolean hasMore = (long) (pageNumber + 1) * pageSize < Math.min(result.totalHits(), MAX_RESULT_WINDOW);
+        logger.debug("Search '{}' by {} returned {} of {} hits (page {})", query, caller.getUsername(), hits.size(), result.totalHits(), pageNumber);
+        return new MessageSearchResultDto(query, pageNumber, pageSize, result.totalHits(), hasMore, hits);
+    }
+
+    @Override
+    public void indexClassMessage(ChatMessage message) {
+        Long id = message.getId();
+        String content = message.getContent();
+        LocalDateTime timestamp = message.getTimestamp();
+        Long classId = message.getSchoolClass().getId();
+        Long senderId = message.getSender().getId();
+        AfterCommit.run(() -> messageSearchIndex.indexClassMessage(id, content, timestamp, classId, senderId));
+    }
+
+    @Override
+    public void indexPrivateMessage(PrivateMessage message) {
+        Long id = message.getId();
+        String content = message.getContent();
+        String attachmentFilename = message.getAttachmentOriginalFilename();
+        LocalDateTime timestamp = message.getTimestamp();
+        String conversationKey = message.getConversationKey();
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        AfterCommit.run(() -> messageSearchIndex.indexPrivateMessage(
+                id, content, attachmentFilename, timestamp, conversationKey, senderId, receiverId));
+    }
+
+    @Override
+    public boolean startReindex() {
+        if (!reindexRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                reindex();
+            } catch (Exception e) {
+                logger.error("Message search reindex failed: {}", e.getMessage(), e);
+            } finally {
+                reindexRunning.set(false);
+            }
+        }, "message-search-reindex");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Streams both message tables in ID order, one batch per query, so memory use does not
+     * depend on the table size. Archived class messages are read from ChatMessageArchive.
+     */
+    private void reindex() throws IOException {
+        long started = System.currentTimeMillis();
+        long generation = messageSearchIndex.startRebuild();
+        Pageable batch = Pageable.ofSize(reindexBatchSize);
+
+        long classMessages = 0;
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = chatMessageRepository.findSearchIndexBatch(afterId, batch);
+            for (Object[] row : rows) {
+                messageSearchIndex.indexClassMessage((Long) row[0], (String) row[1], (LocalDateTime) row[2], (Long) row[3], (Long) row[4]);
+                afterId = (Long) row[0];
+            }
+            classMessages += rows.size();
+        } while (rows.size() == reindexBatchSize);
+
+        long[] archivedMessages = {0};
+        for (Long classId : chatMessageArchive.findArchivedClassIds()) {
+            chatMessageArchive.forEach(classId, message -> {
+                messageSearchIndex.indexClassMessage(message.id(), message.content(), message.timestamp(), classId, message.senderId());
+                archivedMessages[0]++;
+            });
+        }
+        classMessages += archivedMessages[0];
+
+        long privateMessages = 0;
+        afterId = 0;
+        do {
+            rows = privateMessageRepository.findSearchIndexBatch(afterId, batch);
+            for (Object[] row : rows) {
+                messageSearchIndex.indexPrivateMessage((Long) row[0], (String) row[1], (String) row[2], (LocalDateTime) row[3],
+                        (String) row[4], (Long) row[5], (Long) row[6]);
+                afterId = (Long) row[0];
+            }
+            privateMessages += rows.size();
+        } while (rows.size() == reindexBatchSize);
+
+        messageSearchIndex.finishRebuild(generation);
+        logger.info("Rebuilt message search index: {} class and {} private messages in {} ms",
+                classMessages, privateMessages, System.currentTimeMillis() - started);
+    }
+
+    private static String fullName(Object[] userRow) {
+        return userRow[2] + " " + userRow[3];
+    }
+}
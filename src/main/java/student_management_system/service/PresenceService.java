@@ -0,0 +1,41 @@
+package student_management_system.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Tracks which users are connected over WebSocket and which class chats they have open.
+ * State is in memory and per node; it is rebuilt from STOMP session events.
+ */
+public interface PresenceService {
+
+    /** Destination suffix for presence diffs of a class: /topic/class/{classId}/presence */
+    String PRESENCE_TOPIC_SUFFIX = "/presence";
+
+    /**
+     * @param username The username (email).
+     * @return true if the user has at least one open WebSocket session.
+     */
+    boolean isOnline(String username);
+
+    /**
+     * Filters a collection of usernames down to the ones that are online.
+     *
+     * @param usernames Usernames to check (e.g. a user's friends).
+     * @return The online subset.
+     */
+    Set<String> filterOnline(Collection<String> usernames);
+
+    /**
+     * @param classId The class ID.
+     * @return Number of distinct users with the class chat open.
+     */
+    int getClassOnlineCount(Long classId);
+
+    /**
+     * @param classId The class ID.
+     * @param username The username (email).
+     * @return Number of the user's sessions subscribed to the class chat (several tabs count separately).
+     */
+    int getClassSessionCount(Long classId, String username);
+}
@@ -0,0 +1,249 @@
+package student_management_system.service;
+
+import student_management_system.web.dto.PresenceDiffDto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory presence registry driven by STOMP session events.
+ * <p>
+ * Keeps the open sessions per user and, per class, the users subscribed to
+ * "/topic/class/{id}" (with a per-user session count so several tabs count once). Lookups and
+ * counts are map reads. Joins and leaves are coalesced per class and broadcast as one diff to
+ * "/topic/class/{id}/presence" at most once per second; a user who leaves and rejoins within
+ * that window produces no diff at all.
+ * <p>
+ * The registry only sees this node's sessions. With {@code app.websocket.broker.mode=relay} the
+ * presence topic reaches clients on every node, so diffs then carry joins only: a user leaving
+ * this node may still be online on another, and this node's count is not the class's.
+ */
+@Service
+public class PresenceServiceImpl implements PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceServiceImpl.class);
+
+    private static final Pattern CLASS_TOPIC = Pattern.compile("^/topic/class/(\\d+)$");
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // sessionId -> who owns it and which class topics it is subscribed to
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    // username -> number of open sessions
+    private final Map<String, Integer> sessionCountByUser = new ConcurrentHashMap<>();
+    // classId -> (username -> number of subscribed sessions)
+    private final Map<Long, Map<String, Integer>> onlineByClass = new ConcurrentHashMap<>();
+    // classId -> joins/leaves not yet broadcast
+    private final Map<Long, PendingDiff> pendingDiffs = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isOnline(String username) {
+        return username != null && sessionCountByUser.containsKey(username);
+    }
+
+    @Override
+    public Set<String> filterOnline(Collection<String> usernames) {
+        Set<String> online = new HashSet<>();
+        for (String username : usernames) {
+            if (isOnline(username)) {
+                online.add(username);
+            }
+        }
+        return online;
+    }
+
+    @Override
+    public int getClassOnlineCount(Long classId) {
+        Map<String, Integer> members = onlineByClass.get(classId);
+        return members == null ? 0 : members.size();
+    }
+
+    @Override
+    public int getClassSessionCount(Long classId, String username) {
+        Map<String, Integer> members = onlineByClass.get(classId);
+        return members == null ? 0 : members.getOrDefault(username, 0);
+    }
+
+    // --- STOMP session events ---
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        Principal user = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (user == null || sessionId == null) {
+            return;
+        }
+        if (sessions.putIfAbsent(sessionId, new SessionPresence(user.getName())) == null) {
+            sessionCountByUser.merge(user.getName(), 1, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionPresence session = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        Long classId = classIdOf(accessor.getDestination());
+        if (session == null || classId == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        if (session.classBySubscription.putIfAbsent(accessor.getSubscriptionId(), classId) == null) {
+            joinClass(classId, session.username);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionPresence session = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        if (session == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Long classId = session.classBySubscription.remove(accessor.getSubscriptionId());
+        if (classId != null) {
+            leaveClass(classId, session.username);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionPresence session = sessions.remove(event.getSessionId());
+        if (session == null) {
+            return;
+        }
+        for (Long classId : session.classBySubscription.values()) {
+            leaveClass(classId, session.username);
+        }
+        session.classBySubscription.clear();
+        sessionCountByUser.computeIfPresent(session.username, (username, count) -> count == 1 ? null : count - 1);
+    }
+
+    // --- Coalesced broadcasts ---
+
+    /**
+     * Sends one diff per class whose presence changed since the last run.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void broadcastPresenceDiffs() {
+        boolean relayed = "relay".equalsIgnoreCase(brokerMode);
+        for (Long classId : new ArrayList<>(pendingDiffs.keySet())) {
+            PendingDiff diff = pendingDiffs.remove(classId);
+            if (diff == null) {
+                continue;
+            }
+            PresenceDiffDto dto;
+            synchronized (diff) {
+                diff.closed = true; // Late changes go to a fresh diff for the next run
+                if (relayed) {
+                    if (diff.joined.isEmpty()) {
+                        continue;
+                    }
+                    dto = new PresenceDiffDto(classId, new ArrayList<>(diff.joined), null, null);
+                } else {
+                    if (diff.joined.isEmpty() && diff.left.isEmpty()) {
+                        continue;
+                    }
+                    dto = new PresenceDiffDto(classId, new ArrayList<>(diff.joined), new ArrayList<>(diff.left), getClassOnlineCount(classId));
+                }
+            }
+            messagingTemplate.convertAndSend("/topic/class/" + classId + PRESENCE_TOPIC_SUFFIX, dto);
+            logger.debug("Presence diff for class {}: +{} -{}", classId, dto.getJoined().size(),
+                    dto.getLeft() == null ? "?" : dto.getLeft().size());
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private void joinClass(Long classId, String username) {
+        boolean[] firstSession = {false};
+        // compute() on the outer map serializes changes per class, so an empty map is never removed under a join
+        onlineByClass.compute(classId, (id, members) -> {
+            Map<String, Integer> current = members == null ? new ConcurrentHashMap<>() : members;
+            firstSession[0] = current.merge(username, 1, Integer::sum) == 1;
+            return current;
+        });
+        if (firstSession[0]) {
+            recordChange(classId, username, true);
+        }
+    }
+
+    private void leaveClass(Long classId, String username) {
+        boolean[] lastSession = {false};
+        onlineByClass.computeIfPresent(classId, (id, members) -> {
+            Integer remaining = members.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+            lastSession[0] = remaining == null;
+            return members.isEmpty() ? null : members;
+        });
+        if (lastSession[0]) {
+            recordChange(classId, username, false);
+        }
+    }
+
+    private void recordChange(Long classId, String username, boolean joined) {
+        while (true) {
+            PendingDiff diff = pendingDiffs.computeIfAbsent(classId, id -> new PendingDiff());
+            synchronized (diff) {
+                if (diff.closed) {
+                    continue; // Taken by broadcastPresenceDiffs meanwhile; retry with a new one
+                }
+                if (joined) {
+                    // A leave followed by a join in the same window cancels out
+                    if (!diff.left.remove(username)) {
+                        diff.joined.add(username);
+                    }
+                } else if (!diff.joined.remove(username)) {
+                    diff.left.add(username);
+                }
+                return;
+            }
+        }
+    }
+
+    private static Long classIdOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = CLASS_TOPIC.matcher(destination);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private static final class SessionPresence {
+        private final String username;
+        private final Map<String, Long> classBySubscription = new ConcurrentHashMap<>();
+
+        private SessionPresence(String username) {
+            this.username = username;
+        }
+    }
+
+    private static final class PendingDiff {
+        private final Set<String> joined = new LinkedHashSet<>();
+        private final Set<String> left = new LinkedHashSet<>();
+        private boolean closed;
+    }
+}
@@ -0,0 +1,71 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.web.dto.ChunkedUploadStatusDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface defining resumable, chunked uploads of private chat attachments.
+ * <p>
+ * The client starts an upload with the file's name and size, PUTs fixed-size chunks at their
+ * offsets (in any order, retrying any that failed) and completes it with the SHA-256 of the
+ * whole file. Chunks are written straight into the attachment file; the message is only created
+ * by the caller once {@link #complete} has verified the checksum.
+ */
+public interface PrivateAttachmentUploadService {
+
+    /**
+     * Starts an upload from sender to receiver (friendship is checked by the caller).
+     *
+     * @param originalFilename The name of the file on the sender's device.
+     * @param size The total size in bytes.
+     * @return The status of the new upload, including its ID and chunk size.
+     * @throws IllegalArgumentException if the size is out of range or the sender has too many open uploads.
+     */
+    ChunkedUploadStatusDto startUpload(User sender, User receiver, String originalFilename, long size) throws IOException;
+
+    /**
+     * Writes one chunk at its offset.
+     *
+     * @param offset Byte offset of the chunk; must be a multiple of the chunk size.
+     * @param length Number of bytes in the body; the chunk size, or the remainder for the last chunk.
+     * @param body The request body.
+     * @return The status after the write.
+     * @throws jakarta.persistence.EntityNotFoundException if the upload does not exist or belongs to another user.
+     * @throws IllegalArgumentException if offset or length do not fit the upload.
+     */
+    ChunkedUploadStatusDto writeChunk(String uploadId, String username, long offset, long length, InputStream body) throws IOException;
+
+    /**
+     * @return The status of an upload, so a client can resume after a lost connection.
+     */
+    ChunkedUploadStatusDto getStatus(String uploadId, String username);
+
+    /**
+     * Verifies that every chunk arrived and that the file matches the checksum, and ends the upload.
+     * On a checksum mismatch the file is deleted.
+     *
+     * @param sha256 Hex-encoded SHA-256 of the whole file.
+     * @return The finished upload: stored filename, original filename and receiver.
+     * @throws IllegalStateException if chunks are missing or the checksum does not match.
+     */
+    CompletedUpload complete(String uploadId, String username, String sha256) throws IOException;
+
+    /**
+     * Cancels an upload and deletes what was written so far.
+     */
+    void abort(String uploadId, String username);
+
+    /**
+     * Deletes an attachment file whose message could not be saved.
+     */
+    void discard(CompletedUpload upload);
+
+    /**
+     * A verified upload, ready to be attached to a message.
+     */
+    record CompletedUpload(String storedFilename, String originalFilename, String receiverUsername, long size) {
+    }
+}
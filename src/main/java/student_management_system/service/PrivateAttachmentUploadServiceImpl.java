@@ -0,0 +1,296 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.web.dto.ChunkedUploadStatusDto;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the PrivateAttachmentUploadService interface.
+ * <p>
+ * Each upload writes into its final file in {@code file.private-attachment-upload-dir}, under a
+ * random name that clients only learn once a message links to it. Chunks go straight
+ * from the request body to their offset with {@link FileChannel#transferFrom}, so different
+ * chunks can be written concurrently and nothing is spooled or copied. Open uploads are kept in
+ * memory; uploads idle for {@code app.upload.private.expire-after-minutes} are deleted.
+ */
+@Service
+public class PrivateAttachmentUploadServiceImpl implements PrivateAttachmentUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrivateAttachmentUploadServiceImpl.class);
+
+    @Value("${file.private-attachment-upload-dir}")
+    private String privateAttachmentUploadDir;
+
+    @Value("${app.upload.private.chunk-size-bytes:4194304}")
+    private int chunkSize;
+
+    @Value("${app.upload.private.max-size-bytes:524288000}")
+    private long maxSize;
+
+    @Value("${app.upload.private.max-open-uploads-per-user:5}")
+    private int maxOpenUploadsPerUser;
+
+    @Value("${app.upload.private.expire-after-minutes:1440}")
+    private long expireAfterMinutes;
+
+    private final Map<String, Upload> uploadsById = new ConcurrentHashMap<>();
+
+    @Override
+    public ChunkedUploadStatusDto startUpload(User sender, User receiver, String originalFilename, long size) throws IOException {
+        if (size <= 0 || size > maxSize) {
+            throw new IllegalArgumentException("File size must be between 1 byte and " + (maxSize / (1024 * 1024)) + " MB.");
+        }
+        String cleanFilename = StringUtils.cleanPath(originalFilename == null ? "" : originalFilename);
+        cleanFilename = cleanFilename.substring(cleanFilename.lastIndexOf('/') + 1);
+        if (!StringUtils.hasText(cleanFilename)) {
+            throw new IllegalArgumentException("A file name is required.");
+        }
+        long openUploads = uploadsById.values().stream().filter(u -> u.senderUsername.equals(sender.getUsername())).count();
+        if (openUploads >= maxOpenUploadsPerUser) {
+            throw new IllegalArgumentException("Too many uploads in progress. Finish or cancel one first.");
+        }
+
+        String fileExtension = "";
+        int lastDot = cleanFilename.lastIndexOf('.');
+        if (lastDot >= 0) fileExtension = cleanFilename.substring(lastDot);
+        String storedFilename = sender.getUsername() + "_to_" + receiver.getUsername() + "_" + UUID.randomUUID() + fileExtension;
+        Path uploadPath = Paths.get(privateAttachmentUploadDir).toAbsolutePath().normalize();
+        Path filePath = uploadPath.resolve(storedFilename).normalize();
+        if (!filePath.startsWith(uploadPath)) {
+            throw new IllegalArgumentException("Invalid file name.");
+        }
+        Files.createDirectories(uploadPath);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Full length up front (sparse where supported): transferFrom does not write past the end of a file
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+
+        Upload upload = new Upload(UUID.randomUUID().toString(), sender.getUsername(), receiver.getUsername(),
+                cleanFilename, storedFilename, filePath, size, chunkSize);
+        uploadsById.put(upload.id, upload);
+        logger.info("Started chunked upload {} of '{}' ({} bytes) from {} to {}", upload.id, cleanFilename, size,
+                sender.getUsername(), receiver.getUsername());
+        return upload.status();
+    }
+
+    @Override
+    public ChunkedUploadStatusDto writeChunk(String uploadId, String username, long offset, long length, InputStream body) throws IOException {
+        Upload upload = find(uploadId, username);
+        if (offset < 0 || offset >= upload.size || offset % upload.chunkSize != 0) {
+            throw new IllegalArgumentException("Offset must be a multiple of " + upload.chunkSize + " within the file.");
+        }
+        long expectedLength = Math.min(upload.chunkSize, upload.size - offset);
+        if (length != expectedLength) {
+            throw new IllegalArgumentException("Chunk at offset " + offset + " must be " + expectedLength + " bytes.");
+        }
+        synchronized (upload) {
+            if (upload.completing) {
+                throw new IllegalStateException("Upload is already being completed.");
+            }
+        }
+
+        // Written outside the lock, so chunks of one upload can arrive in parallel
+        try (FileChannel channel = FileChannel.open(upload.path, StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(body)) {
+            long written = 0;
+            while (written < length) {
+                long transferred = channel.transferFrom(in, offset + written, length - written);
+                if (transferred == 0) {
+                    throw new IllegalArgumentException("Chunk at offset " + offset + " ended after " + written + " bytes.");
+                }
+                written += transferred;
+            }
+        }
+
+        synchronized (upload) {
+            upload.receivedChunks.set((int) (offset / upload.chunkSize));
+            upload.lastActivityNanos = System.nanoTime();
+            return upload.status();
+        }
+    }
+
+    @Override
+    public ChunkedUploadStatusDto getStatus(String uploadId, String username) {
+        Upload upload = find(uploadId, username);
+        synchronized (upload) {
+            return upload.status();
+        }
+    }
+
+    @Override
+    public CompletedUpload complete(String uploadId, String username, String sha256) throws IOException {
+        Upload upload = find(uploadId, username);
+        byte[] expectedDigest;
+        try {
+            expectedDigest = HexFormat.of().parseHex(sha256 == null ? "" : sha256.trim().toLowerCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The SHA-256 checksum must be 64 hex characters.");
+        }
+        if (expectedDigest.length != 32) {
+            throw new IllegalArgumentException("The SHA-256 checksum must be 64 hex characters.");
+        }
+        synchronized (upload) {
+            if (upload.completing) {
+                throw new IllegalStateException("Upload is already being completed.");
+            }
+            if (upload.receivedChunks.cardinality() != upload.chunkCount) {
+                throw new IllegalStateException("Upload is missing " + (upload.chunkCount - upload.receivedChunks.cardinality()) + " chunk(s).");
+            }
+            upload.completing = true;
+        }
+
+        uploadsById.remove(upload.id);
+        byte[] actualDigest;
+        try {
+            actualDigest = digest(upload.path);
+        } catch (IOException e) {
+            deleteQuietly(upload.path);
+            throw e;
+        }
+        if (!MessageDigest.isEqual(expectedDigest, actualDigest)) {
+            Files.deleteIfExists(upload.path);
+            logger.warn("Chunked upload {} from {} failed checksum verification; file deleted", upload.id, username);
+            throw new IllegalStateException("The uploaded file does not match its checksum. Please upload it again.");
+        }
+        logger.info("Completed chunked upload {} as '{}'", upload.id, upload.storedFilename);
+        return new CompletedUpload(upload.storedFilename, upload.originalFilename, upload.receiverUsername, upload.size);
+    }
+
+    @Override
+    public void abort(String uploadId, String username) {
+        Upload upload = find(uploadId, username);
+        uploadsById.remove(upload.id);
+        deleteQuietly(upload.path);
+        logger.info("Cancelled chunked upload {} from {}", upload.id, username);
+    }
+
+    @Override
+    public void discard(CompletedUpload completed) {
+        deleteQuietly(Paths.get(privateAttachmentUploadDir).toAbsolutePath().normalize().resolve(completed.storedFilename()));
+    }
+
+    /**
+     * Deletes uploads that have been idle for longer than the expiry.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.private.cleanup-interval-ms:600000}")
+    public void deleteExpiredUploads() {
+        long expireNanos = TimeUnit.MINUTES.toNanos(expireAfterMinutes);
+        long now = System.nanoTime();
+        uploadsById.values().removeIf(upload -> {
+            synchronized (upload) {
+                if (upload.completing || now - upload.lastActivityNanos < expireNanos) {
+                    return false;
+                }
+            }
+            deleteQuietly(upload.path);
+            logger.info("Deleted expired chunked upload {} from {}", upload.id, upload.senderUsername);
+            return true;
+        });
+    }
+
+    // --- Helper Methods ---
+
+    private Upload find(String uploadId, String username) {
+        Upload upload = uploadId == null ? null : uploadsById.get(uploadId);
+        if (upload == null || !upload.senderUsername.equals(username)) {
+            throw new EntityNotFoundException("Upload not found: " + uploadId);
+        }
+        return upload;
+    }
+
+    private static byte[] digest(Path path) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.force(true); // The chunks were written without syncing
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                sha256.update(buffer);
+                buffer.clear();
+            }
+        }
+        return sha256.digest();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload file {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * An upload in progress. Mutable fields are guarded by the object itself.
+     */
+    private static final class Upload {
+
+        private final String id;
+        private final String senderUsername;
+        private final String receiverUsername;
+        private final String originalFilename;
+        private final String storedFilename;
+        private final Path path;
+        private final long size;
+        private final int chunkSize;
+        private final int chunkCount;
+        private final BitSet receivedChunks;
+        private long lastActivityNanos = System.nanoTime();
+        private boolean completing;
+
+        Upload(String id, String senderUsername, String receiverUsername, String originalFilename,
+               String storedFilename, Path path, long size, int chunkSize) {
+            this.id = id;
+            this.senderUsername = senderUsername;
+            this.receiverUsername = receiverUsername;
+            this.originalFilename = originalFilename;
+            this.storedFilename = storedFilename;
+            this.path = path;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.receivedChunks = new BitSet(chunkCount);
+        }
+
+        ChunkedUploadStatusDto status() {
+            int firstMissing = receivedChunks.nextClearBit(0);
+            long nextOffset = Math.min(size, (long) firstMissing * chunkSize);
+            long receivedBytes = (long) receivedChunks.cardinality() * chunkSize;
+            if (receivedChunks.get(chunkCount - 1)) {
+                receivedBytes -= (long) chunkCount * chunkSize - size; // The last chunk is shorter
+            }
+            return new ChunkedUploadStatusDto(id, originalFilename, size, chunkSize, receivedBytes, nextOffset);
+        }
+    }
+}
@@ -10,6 +10,16 @@ import java.util.List;
  */
 public interface PrivateMessageService {
 
+    /**
+     * Default number of messages in one page of conversation history.
+     */
+    int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * Upper bound on the number of messages returned in one page.
+     */
+    int MAX_PAGE_SIZE = 200;
+
     /**
      * Saves a new private message sent from one user to another.
      * Handles text content and potentially file attachment details.
@@ -45,6 +55,26 @@ public interface PrivateMessageService {
      */
     List<PrivateMessage> getConversation(User user1, User user2);
 
-    // Optional: Add methods for marking messages as read later
-    // void markMessagesAsRead(User receiver, User sender);
+    /**
+     * Retrieves one page of the conversation between two users using keyset pagination.
+     * Without a cursor the newest page is returned ("last 50"); with a cursor the page of
+     * messages sent before that message is returned ("then older").
+     *
+     * @param user1 One user in the conversation.
+     * @param user2 The other user in the conversation.
+     * @param beforeMessageId ID of the oldest message the caller already has, or null for the newest page.
+     * @param limit Maximum number of messages (clamped to MAX_PAGE_SIZE; non-positive means DEFAULT_PAGE_SIZE).
+     * @return A List of PrivateMessage entities ordered oldest first, with sender and receiver initialized.
+     */
+    List<PrivateMessage> getConversation(User user1, User user2, Long beforeMessageId, int limit);
+
+    /**
+     * Marks all messages the receiver got from the sender as read with one bulk UPDATE,
+     * and resets the receiver's unread counter for that conversation.
+     *
+     * @param receiver The user who opened the conversation.
+     * @param sender The other user in the conversation.
+     * @return The number of messages that were marked read.
+     */
+    int markMessagesAsRead(User receiver, User sender);
 }
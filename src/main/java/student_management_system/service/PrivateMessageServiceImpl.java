@@ -7,10 +7,15 @@ import student_management_system.repository.PrivateMessageRepository; // Import
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Use transactions
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Implementation of the PrivateMessageService interface.
@@ -26,6 +31,12 @@ public class PrivateMessageServiceImpl implements PrivateMessageService {
     @Autowired
     private UserService userService; // Might need user service for validation if not done in controller
 
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private MessageSearchService messageSearchService;
+
     /**
      * Saves a new private message to the database.
      */
@@ -51,7 +62,11 @@ public class PrivateMessageServiceImpl implements PrivateMessageService {
         // Timestamp is set automatically in the entity
 
         logger.debug("Saving private message from {} to {}", sender.getUsername(), receiver.getUsername());
-        return privateMessageRepository.save(message);
+        PrivateMessage savedMessage = privateMessageRepository.save(message);
+        // Keep the inbox summaries in step with the message, in the same transaction
+        conversationSummaryService.recordPrivateMessage(savedMessage);
+        messageSearchService.indexPrivateMessage(savedMessage); // After commit
+        return savedMessage;
     }
 
     /**
@@ -64,7 +79,54 @@ public class PrivateMessageServiceImpl implements PrivateMessageService {
             throw new IllegalArgumentException("Users cannot be null for fetching conversation.");
         }
         logger.debug("Fetching conversation between {} and {}", user1.getUsername(), user2.getUsername());
-        // Use the custom query method defined in the repository
-        return privateMessageRepository.findConversationBetweenUsers(user1, user2);
+        // Use the canonical conversation key so the lookup is a single index range
+        return privateMessageRepository.findByConversationKeyOrderByTimestampAsc(
+                PrivateMessage.conversationKeyFor(user1.getId(), user2.getId()));
+    }
+
+    /**
+     * Marks the receiver's unread messages from the sender as read with one bulk UPDATE and
+     * resets the receiver's unread counter for the conversation.
+     */
+    @Override
+    @Transactional
+    public int markMessagesAsRead(User receiver, User sender) {
+        String conversationKey = PrivateMessage.conversationKeyFor(receiver.getId(), sender.getId());
+        int marked = privateMessageRepository.markConversationRead(conversationKey, receiver.getId());
+        conversationSummaryService.markPrivateConversationRead(receiver, sender);
+        logger.debug("Marked {} messages from {} to {} as read", marked, sender.getUsername(), receiver.getUsername());
+        return marked;
+    }
+
+    /**
+     * Retrieves one page of a conversation, newest page first, using a (timestamp, id) cursor.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<PrivateMessage> getConversation(User user1, User user2, Long beforeMessageId, int limit) {
+        if (user1 == null || user2 == null) {
+            throw new IllegalArgumentException("Users cannot be null for fetching conversation.");
+        }
+        String conversationKey = PrivateMessage.conversationKeyFor(user1.getId(), user2.getId());
+        Pageable page = Pageable.ofSize(limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE));
+
+        List<PrivateMessage> newestFirst;
+        if (beforeMessageId == null) {
+            newestFirst = privateMessageRepository.findLatestByConversationKey(conversationKey, page);
+        } else {
+            Optional<LocalDateTime> cursorTimestamp =
+                    privateMessageRepository.findTimestampByIdAndConversationKey(beforeMessageId, conversationKey);
+            if (cursorTimestamp.isEmpty()) {
+                logger.debug("Cursor message ID {} is not part of conversation {}", beforeMessageId, conversationKey);
+                return Collections.emptyList();
+            }
+            newestFirst = privateMessageRepository.findByConversationKeyBefore(
+                    conversationKey, cursorTimestamp.get(), beforeMessageId, page);
+        }
+        logger.debug("Fetched {} messages of conversation {} (before={})", newestFirst.size(), conversationKey, beforeMessageId);
+
+        List<PrivateMessage> oldestFirst = new ArrayList<>(newestFirst);
+        Collections.reverse(oldestFirst);
+        return oldestFirst;
     }
 }
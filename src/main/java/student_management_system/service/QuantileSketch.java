@@ -0,0 +1,181 @@
+package student_management_system.service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A KLL quantile sketch: answers "which value is at rank q" within about 1.7/k of n using
+ * O(k) memory, and two sketches merge into a sketch of the combined values.
+ * <p>
+ * Values are kept in levels; an item in level h stands for 2^h values. When the sketch holds
+ * more items than its levels' capacities allow, the lowest full level is sorted and every
+ * other item (starting at a random offset) is promoted to the next level, the rest dropped.
+ * Capacities shrink by 2/3 per level below the top, so most items sit in the top levels.
+ * Up to k values are kept exactly.
+ * <p>
+ * Not thread-safe; ScoreDistribution guards its sketch.
+ */
+final class QuantileSketch {
+
+    static final int DEFAULT_K = 200;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 2;
+
+    private final int k;
+    // Fixed seed: the same grades always give the same answers
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private double[][] levels = {new double[8]};
+    private int[] sizes = new int[1];
+    private long count;
+
+    QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    QuantileSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+    }
+
+    void add(double value) {
+        append(0, value);
+        count++;
+        compressIfFull();
+    }
+
+    /**
+     * Adds every value of the other sketch to this one (the other is not changed).
+     */
+    void merge(QuantileSketch other) {
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+        compressIfFull();
+    }
+
+    QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(k);
+        copy.levels = new double[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            copy.levels[level] = levels[level].clone();
+        }
+        copy.sizes = sizes.clone();
+        copy.count = count;
+        return copy;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * @param fraction the rank as a fraction of the count, 0 to 1.
+     * @return the smallest retained value whose estimated rank reaches the fraction, or NaN if
+     *         the sketch is empty.
+     */
+    double quantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        int retained = retained();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int n = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[n] = levels[level][i];
+                weights[n] = 1L << level;
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double target = Math.max(fraction, 0) * count;
+        long cumulative = 0;
+        for (Integer index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return values[order[retained - 1]];
+    }
+
+    int retained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    // --- Helper Methods ---
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            for (int i = 0; i <= level; i++) {
+                if (levels[i] == null) {
+                    levels[i] = new double[8];
+                }
+            }
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void compressIfFull() {
+        while (retained() > totalCapacity()) {
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Promotes every other sorted item of a level to the next one. With an odd size the last
+     * item stays, so no weight is lost.
+     */
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int pairs = size / 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        double leftover = items[size - 1];
+        for (int i = 0; i < pairs; i++) {
+            append(level + 1, items[2 * i + offset]);
+        }
+        // append may have replaced the levels array, not this level's buffer
+        sizes[level] = 0;
+        if (size % 2 == 1) {
+            levels[level][sizes[level]++] = leftover;
+        }
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int level = 0; level < levels.length; level++) {
+            total += capacity(level);
+        }
+        return total;
+    }
+}
@@ -37,6 +37,10 @@ public class QuizAttemptServiceImpl implements QuizAttemptService {
     @Autowired private QuizQuestionRepository quizQuestionRepository;
     @Autowired private QuizOptionRepository quizOptionRepository;
     @Autowired private QuizAnswerRepository quizAnswerRepository;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+    @Autowired private ScoreAnalyticsService scoreAnalyticsService;
+    @Autowired private StudentGradesCache studentGradesCache;
+    @Autowired private GradebookSnapshots gradebookSnapshots;
 
     @Override
     @Transactional
@@ -76,6 +80,8 @@ public class QuizAttemptServiceImpl implements QuizAttemptService {
         attempt.setStatus(QuizAttempt.AttemptStatus.IN_PROGRESS);
         attempt.setStartTime(LocalDateTime.now());
         QuizAttempt savedAttempt = quizAttemptRepository.save(attempt);
+        studentGradesCache.evict(student.getId(), quiz.getSchoolClass().getId());
+        gradebookSnapshots.markChanged(quiz.getSchoolClass().getId());
         logger.info("Created new quiz attempt ID {} for student {} on quiz ID {}", savedAttempt.getId(), student.getUsername(), quiz.getId());
         return savedAttempt;
     }
@@ -173,6 +179,8 @@ public class QuizAttemptServiceImpl implements QuizAttemptService {
         attempt.setStatus(QuizAttempt.AttemptStatus.SUBMITTED); // Always SUBMITTED initially
 
         QuizAttempt completedAttempt = quizAttemptRepository.save(attempt); // Save attempt and cascaded answers
+        studentGradesCache.evict(student.getId(), attempt.getQuiz().getSchoolClass().getId());
+        gradebookSnapshots.markChanged(attempt.getQuiz().getSchoolClass().getId());
         logger.info("Quiz attempt ID {} submitted successfully by student {}. Max Score: {}. Status: {}. Time Expired: {}",
                 completedAttempt.getId(), student.getUsername(), completedAttempt.getMaxScore(), completedAttempt.getStatus(), timeExpired);
 
@@ -311,6 +319,9 @@ public class QuizAttemptServiceImpl implements QuizAttemptService {
             logger.warn("Grading failed: Quiz attempt ID {} is not in SUBMITTED status (Status: {}).", attemptId, attempt.getStatus());
             throw new IllegalStateException("This quiz attempt is not awaiting grading or has already been graded.");
         }
+        Long studentId = attempt.getStudent().getId();
+        Long quizId = attempt.getQuiz().getId();
+        Gradebook.Points pointsBefore = classGradeSummaryService.quizPoints(studentId, quizId);
 
         double totalScore = 0.0;
         // Fetch answers associated with the attempt
@@ -363,6 +374,12 @@ public class QuizAttemptServiceImpl implements QuizAttemptService {
         attempt.setStatus(QuizAttempt.AttemptStatus.GRADED); // Set status to GRADED
 
         QuizAttempt gradedAttempt = quizAttemptRepository.save(attempt);
+        studentGradesCache.evict(studentId, attempt.getQuiz().getSchoolClass().getId());
+        gradebookSnapshots.markChanged(attempt.getQuiz().getSchoolClass().getId());
+        // Same transaction: the class summary changes with the score or not at all
+        Gradebook.Points pointsAfter = classGradeSummaryService.quizPoints(studentId, quizId);
+        classGradeSummaryService.applyChange(attempt.getQuiz().getSchoolClass().getId(), studentId, pointsBefore, pointsAfter);
+        scoreAnalyticsService.recordGrade(attempt.getQuiz().getSchoolClass().getId(), quizId, true, pointsBefore, pointsAfter);
         logger.info("Quiz attempt ID {} graded successfully by teacher {}. Final Score: {}/{}. Status set to GRADED.",
                 gradedAttempt.getId(), teacher.getUsername(), gradedAttempt.getScore(), gradedAttempt.getMaxScore());
 
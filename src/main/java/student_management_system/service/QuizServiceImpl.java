@@ -31,10 +31,13 @@ public class QuizServiceImpl implements QuizService {
 
     @Autowired private QuizRepository quizRepository;
     @Autowired private SchoolClassRepository schoolClassRepository;
-    @Autowired private UserRepository userRepository;
     @Autowired private QuizQuestionRepository quizQuestionRepository;
     @Autowired private QuizOptionRepository quizOptionRepository; // Keep for potential cleanup if needed
     @Autowired private QuizAttemptRepository quizAttemptRepository;
+    @Autowired private ClassMembershipCache classMembershipCache;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+    @Autowired private ScoreAnalyticsService scoreAnalyticsService;
+    @Autowired private GradebookSnapshots gradebookSnapshots;
 
     @Override
     @Transactional
@@ -87,6 +90,7 @@ public class QuizServiceImpl implements QuizService {
         }
 
         Quiz savedQuiz = quizRepository.save(quiz);
+        gradebookSnapshots.markChanged(classId);
         logger.info("Successfully created quiz ID {} with {} questions for class ID {}", savedQuiz.getId(), savedQuiz.getQuestions().size(), classId);
         return savedQuiz;
     }
@@ -110,12 +114,7 @@ public class QuizServiceImpl implements QuizService {
              return Optional.empty();
         }
 
-        boolean isTeacher = schoolClass.getTeacher().getId().equals(accessingUser.getId());
-        User userWithClasses = userRepository.findById(accessingUser.getId()).orElse(accessingUser);
-        boolean isStudentEnrolled = userWithClasses.getEnrolledClasses().stream()
-                                        .anyMatch(enrolledClass -> enrolledClass.getId().equals(schoolClass.getId()));
-
-        if (isTeacher || isStudentEnrolled) {
+        if (classMembershipCache.isMember(accessingUser.getId(), schoolClass.getId())) {
             logger.debug("Authorization successful for user {} to access quiz ID {}", accessingUser.getUsername(), quizId);
             return quizOpt;
         } else {
@@ -184,6 +183,7 @@ public class QuizServiceImpl implements QuizService {
         }
 
         Quiz updatedQuiz = quizRepository.save(existingQuiz);
+        gradebookSnapshots.markChanged(existingQuiz.getSchoolClass().getId());
         logger.info("Successfully updated quiz ID {}", quizId);
         return updatedQuiz;
     }
@@ -203,7 +203,12 @@ public class QuizServiceImpl implements QuizService {
             throw new AccessDeniedException("You are not authorized to delete this quiz.");
         }
 
+        Long classId = quiz.getSchoolClass().getId();
         quizRepository.delete(quiz);
+        // The deleted attempts no longer count; recount the class (deletes are rare)
+        classGradeSummaryService.rebuildClass(classId);
+        scoreAnalyticsService.evictClass(classId);
+        gradebookSnapshots.markChanged(classId);
         logger.warn("Successfully deleted quiz ID {} and potentially related data due to cascade.", quizId);
     }
 
@@ -219,8 +224,7 @@ public class QuizServiceImpl implements QuizService {
          if (schoolClass == null) {
              throw new EntityNotFoundException("Quiz " + quizId + " is not associated with any class.");
          }
-         User studentWithClasses = userRepository.findById(student.getId()).orElseThrow();
-         if (!studentWithClasses.getEnrolledClasses().contains(schoolClass)) {
+         if (!classMembershipCache.isEnrolled(student.getId(), schoolClass.getId())) {
              logger.warn("Authorization failed: Student {} is not enrolled in class ID {} required for quiz ID {}",
                      student.getUsername(), schoolClass.getId(), quizId);
              throw new AccessDeniedException("You are not enrolled in the class for this quiz.");
@@ -0,0 +1,35 @@
+package student_management_system.service;
+
+import java.util.List;
+
+/**
+ * Score distributions (mean, median, percentiles, histogram) of every assignment and quiz of a
+ * class, kept in memory and updated as grades are written.
+ */
+public interface ScoreAnalyticsService {
+
+    /**
+     * @return the distribution of each item's graded scores as percentages, and the merged
+     *         distributions of the class's assignments, quizzes and all items.
+     */
+    ClassAnalytics getClassAnalytics(Long classId);
+
+    /**
+     * Records a change of one student's points on an item, once the transaction commits. Call
+     * with the student's points on the item before and after the change (see
+     * ClassGradeSummaryService.assignmentPoints and quizPoints).
+     */
+    void recordGrade(Long classId, Long itemId, boolean quiz, Gradebook.Points before, Gradebook.Points after);
+
+    /**
+     * Drops a class's distributions once the transaction commits (e.g. after deleting an item).
+     */
+    void evictClass(Long classId);
+
+    record ItemAnalytics(Gradebook.Item item, ScoreDistribution.Summary summary) {
+    }
+
+    record ClassAnalytics(Long classId, List<ItemAnalytics> items, ScoreDistribution.Summary assignments,
+                          ScoreDistribution.Summary quizzes, ScoreDistribution.Summary overall) {
+    }
+}
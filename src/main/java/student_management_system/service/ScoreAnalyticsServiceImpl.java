@@ -0,0 +1,137 @@
+package student_management_system.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the ScoreAnalyticsService interface.
+ * <p>
+ * A class's distributions are built from one gradebook read the first time they are asked
+ * for, then kept. A first grade on an item is added to its distribution after commit; a
+ * regrade drops the class instead (a sketch cannot take a value back), so the next view reads
+ * it again. Class-level views merge the item distributions per request, which costs O(items * k)
+ * and no queries. Classes are cached in a BoundedTtlCache ({@code app.score-analytics.ttl-seconds},
+ * {@code app.score-analytics.max-classes}); expiry also picks up items created since.
+ */
+@Service
+public class ScoreAnalyticsServiceImpl implements ScoreAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScoreAnalyticsServiceImpl.class);
+
+    @Value("${app.score-analytics.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${app.score-analytics.max-classes:1000}")
+    private int maxClasses;
+
+    @Autowired
+    private GradebookService gradebookService;
+
+    private final BoundedTtlCache<Long, ClassScores> scoresByClassId = new BoundedTtlCache<>(() -> ttlSeconds, () -> maxClasses);
+
+    @Override
+    public ClassAnalytics getClassAnalytics(Long classId) {
+        ClassScores scores = scoresByClassId.get(classId);
+        if (scores == null) {
+            scores = load(classId);
+        }
+        return scores.analytics(classId);
+    }
+
+    @Override
+    public void recordGrade(Long classId, Long itemId, boolean quiz, Gradebook.Points before, Gradebook.Points after) {
+        if (before.equals(after)) {
+            return;
+        }
+        // A regrade, or a value the sketch cannot take, drops the class
+        AfterCommit.run(() -> scoresByClassId.update(classId,
+                scores -> before.isNone() && scores.add(itemId, quiz, after.percent()) ? scores : null));
+    }
+
+    @Override
+    public void evictClass(Long classId) {
+        AfterCommit.run(() -> scoresByClassId.remove(classId));
+    }
+
+    // --- Helper Methods ---
+
+    private ClassScores load(Long classId) {
+        long loadGeneration = scoresByClassId.generation();
+        ClassScores scores = ClassScores.of(gradebookService.buildGradebook(classId));
+        scoresByClassId.putIfUnchanged(classId, scores, loadGeneration);
+        logger.debug("Loaded score distributions of {} items of class ID {}", scores.items.size(), classId);
+        return scores;
+    }
+
+    /**
+     * One class's item distributions, in gradebook column order.
+     */
+    static final class ClassScores {
+
+        private final List<Gradebook.Item> items;
+        private final ScoreDistribution[] distributions;
+        private final Map<Long, Integer> assignmentColumns = new HashMap<>();
+        private final Map<Long, Integer> quizColumns = new HashMap<>();
+
+        private ClassScores(List<Gradebook.Item> items) {
+            this.items = items;
+            this.distributions = new ScoreDistribution[items.size()];
+            for (int column = 0; column < items.size(); column++) {
+                Gradebook.Item item = items.get(column);
+                (item.quiz() ? quizColumns : assignmentColumns).put(item.id(), column);
+                distributions[column] = new ScoreDistribution();
+            }
+        }
+
+        /**
+         * Adds every graded cell that counts points (see Gradebook.points) to its item.
+         */
+        static ClassScores of(Gradebook gradebook) {
+            ClassScores scores = new ClassScores(gradebook.getItems());
+            for (int row = 0; row < gradebook.getStudents().size(); row++) {
+                for (int column = 0; column < scores.items.size(); column++) {
+                    if (gradebook.status(row, column) == Gradebook.GRADED) {
+                        scores.distributions[column].add(gradebook.percent(row, column));
+                    }
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * @return false if the item is not known (created since the class was loaded).
+         */
+        boolean add(Long itemId, boolean quiz, Double percent) {
+            Integer column = (quiz ? quizColumns : assignmentColumns).get(itemId);
+            if (column == null) {
+                return false;
+            }
+            if (percent != null) {
+                distributions[column].add(percent);
+            }
+            return true;
+        }
+
+        ClassAnalytics analytics(Long classId) {
+            List<ItemAnalytics> itemAnalytics = new ArrayList<>(items.size());
+            ScoreDistribution assignments = new ScoreDistribution();
+            ScoreDistribution quizzes = new ScoreDistribution();
+            ScoreDistribution overall = new ScoreDistribution();
+            for (int column = 0; column < items.size(); column++) {
+                Gradebook.Item item = items.get(column);
+                itemAnalytics.add(new ItemAnalytics(item, distributions[column].summary()));
+                (item.quiz() ? quizzes : assignments).merge(distributions[column]);
+                overall.merge(distributions[column]);
+            }
+            return new ClassAnalytics(classId, itemAnalytics, assignments.summary(), quizzes.summary(), overall.summary());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package student_management_system.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The distribution of one item's (or several merged items') scores as percentages: exact
+ * count, mean, min and max, a fixed ten-bucket histogram over 0-100%, and a QuantileSketch for
+ * the median and percentiles. Scores are added one at a time as they are graded, and
+ * distributions merge, so a class view is the merge of its items.
+ * <p>
+ * Scores outside 0-100% (extra credit) count in the first or last bucket but keep their value
+ * in the sketch, mean, min and max. Thread-safe.
+ */
+public final class ScoreDistribution {
+
+    public static final int BUCKETS = 10;
+    public static final int BUCKET_WIDTH = 100 / BUCKETS;
+
+    private final QuantileSketch sketch;
+    private final long[] histogram = new long[BUCKETS];
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public ScoreDistribution() {
+        this(new QuantileSketch());
+    }
+
+    private ScoreDistribution(QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    public synchronized void add(double percent) {
+        if (Double.isNaN(percent)) {
+            return;
+        }
+        sketch.add(percent);
+        histogram[bucket(percent)]++;
+        sum += percent;
+        min = Math.min(min, percent);
+        max = Math.max(max, percent);
+    }
+
+    /**
+     * Adds every score of the other distribution to this one (the other is not changed).
+     */
+    public void merge(ScoreDistribution other) {
+        ScoreDistribution source = other.copy();
+        synchronized (this) {
+            sketch.merge(source.sketch);
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] += source.histogram[i];
+            }
+            sum += source.sum;
+            min = Math.min(min, source.min);
+            max = Math.max(max, source.max);
+        }
+    }
+
+    public synchronized Summary summary() {
+        long count = sketch.count();
+        List<Long> buckets = new ArrayList<>(BUCKETS);
+        for (long bucket : histogram) {
+            buckets.add(bucket);
+        }
+        if (count == 0) {
+            return new Summary(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                    Collections.unmodifiableList(buckets));
+        }
+        return new Summary(count, sum / count, min, sketch.quantile(0.25), sketch.quantile(0.5),
+                sketch.quantile(0.75), sketch.quantile(0.9), max, Collections.unmodifiableList(buckets));
+    }
+
+    static int bucket(double percent) {
+        return Math.max(0, Math.min(BUCKETS - 1, (int) Math.floor(percent / BUCKET_WIDTH)));
+    }
+
+    private synchronized ScoreDistribution copy() {
+        ScoreDistribution copy = new ScoreDistribution(sketch.copy());
+        System.arraycopy(histogram, 0, copy.histogram, 0, BUCKETS);
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    /**
+     * A point-in-time view of a distribution. The statistics are NaN when count is 0; the
+     * histogram has BUCKETS counts, bucket i covering [i * BUCKET_WIDTH, (i + 1) * BUCKET_WIDTH)
+     * and the last one including 100%.
+     */
+    public record Summary(long count, double mean, double min, double p25, double median, double p75, double p90,
+                          double max, List<Long> histogram) {
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @return the bucket's share of the largest bucket, 0-100, for drawing bars.
+         */
+        public int barPercent(int bucket) {
+            long largest = 0;
+            for (long value : histogram) {
+                largest = Math.max(largest, value);
+            }
+            return largest == 0 ? 0 : (int) Math.round(histogram.get(bucket) * 100.0 / largest);
+        }
+
+        public String bucketLabel(int bucket) {
+            int from = bucket * BUCKET_WIDTH;
+            return from + "-" + (from + BUCKET_WIDTH) + "%";
+        }
+    }
+}
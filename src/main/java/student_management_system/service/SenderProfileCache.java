@@ -0,0 +1,127 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.repository.UserRepository;
+import student_management_system.web.dto.SenderProfileDto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sender details of chat senders, pre-serialized as a JSON fragment (the object's fields without
+ * the surrounding braces) that ChatWireFormatInterceptor splices into compact chat frames.
+ * <p>
+ * Controllers {@link #put} the sender they already loaded before broadcasting; a frame relayed
+ * from another node falls back to one lookup by ID. Entries expire after
+ * {@code app.websocket.sender-profile-cache.ttl-seconds} and are evicted when a user changes
+ * their name or profile picture.
+ * <p>
+ * Every fragment has a version, so sessions that already hold a sender's details can tell when
+ * they changed. A reload after expiry keeps the version if the fragment is byte for byte the same.
+ */
+@Component
+public class SenderProfileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SenderProfileCache.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${app.websocket.sender-profile-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.websocket.sender-profile-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Long, Entry> fragmentByUserId = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * Caches the profile of a sender that is about to be broadcast.
+     */
+    public void put(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        Entry cached = fragmentByUserId.get(user.getId());
+        if (cached != null && !isExpired(cached)) {
+            return;
+        }
+        store(user.getId(), toFragment(SenderProfileDto.from(user)));
+    }
+
+    /**
+     * @return the sender's profile as a versioned JSON fragment, or null if there is no such user.
+     */
+    public Profile getProfile(Long userId) {
+        Entry cached = fragmentByUserId.get(userId);
+        if (cached != null && !isExpired(cached)) {
+            return cached.profile;
+        }
+        User user = userRepository.findById(userId).orElse(null); // Roles are fetched eagerly
+        if (user == null) {
+            logger.warn("Sender profile requested for unknown user ID {}", userId);
+            return null;
+        }
+        return store(userId, toFragment(SenderProfileDto.from(user)));
+    }
+
+    /**
+     * Drops a cached profile now and, if a transaction is active, again after it commits.
+     */
+    public void evict(Long userId) {
+        AfterCommit.runNowAndAfterCommit(() -> fragmentByUserId.remove(userId));
+    }
+
+    private Profile store(Long userId, byte[] fragment) {
+        Entry previous = fragmentByUserId.get(userId);
+        Profile profile = previous != null && Arrays.equals(previous.profile.fragment(), fragment)
+                ? previous.profile
+                : new Profile(fragment, versions.incrementAndGet());
+        if (fragmentByUserId.size() >= maxEntries) {
+            fragmentByUserId.clear(); // Rebuilt from the next broadcasts
+        }
+        fragmentByUserId.put(userId, new Entry(profile, System.nanoTime()));
+        return profile;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.nanoTime() - entry.loadedAtNanos >= TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Serializes the profile and strips the outer braces ({"a":1} becomes "a":1).
+     */
+    public static byte[] toFragment(SenderProfileDto profile) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(profile);
+            return Arrays.copyOfRange(json, 1, json.length - 1);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize sender profile", e);
+        }
+    }
+
+    /**
+     * A sender's details as a JSON fragment. Shared between frames; do not modify.
+     *
+     * @param version changes whenever the fragment does (process-wide sequence).
+     */
+    public record Profile(byte[] fragment, long version) {
+    }
+
+    private record Entry(Profile profile, long loadedAtNanos) {
+    }
+}
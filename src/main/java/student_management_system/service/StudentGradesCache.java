@@ -0,0 +1,125 @@
+package student_management_system.service;
+
+import student_management_system.model.QuizAttempt;
+import student_management_system.model.Submission;
+import student_management_system.repository.QuizAttemptRepository;
+import student_management_system.repository.SubmissionRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The grades one student sees for one class (the student grades page): per assignment the
+ * submission that counts and per quiz the attempt that counts, by Gradebook's rules.
+ * <p>
+ * An entry is loaded with two class-scoped queries that fetch the assignment or quiz in the
+ * same statement, and kept as small immutable records (no entities leave the session).
+ * SubmissionServiceImpl and QuizAttemptServiceImpl evict the student's entry whenever one of
+ * their submissions or attempts is saved or graded (again after commit, so a concurrent reload
+ * cannot keep the pre-commit rows). Entries are held in a BoundedTtlCache
+ * ({@code app.student-grades-cache.ttl-seconds}, {@code app.student-grades-cache.max-entries}).
+ */
+@Component
+public class StudentGradesCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentGradesCache.class);
+
+    @Value("${app.student-grades-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.student-grades-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private QuizAttemptRepository quizAttemptRepository;
+
+    private final BoundedTtlCache<Key, Grades> gradesByKey = new BoundedTtlCache<>(() -> ttlSeconds, () -> maxEntries);
+
+    /**
+     * @return the student's counted submissions by assignment ID and attempts by quiz ID in the class.
+     */
+    public Grades get(Long studentId, Long classId) {
+        Key key = new Key(studentId, classId);
+        Grades cached = gradesByKey.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = gradesByKey.generation();
+        Grades loaded = Grades.of(submissionRepository.findByStudentIdAndClassIdWithAssignment(studentId, classId),
+                quizAttemptRepository.findByStudentIdAndClassIdWithQuiz(studentId, classId));
+        gradesByKey.putIfUnchanged(key, loaded, loadGeneration);
+        logger.debug("Loaded grades of student ID {} in class ID {} ({} submissions, {} attempts)",
+                studentId, classId, loaded.submissions().size(), loaded.attempts().size());
+        return loaded;
+    }
+
+    /**
+     * Drops a student's grades in a class now and, if a transaction is active, again after it commits.
+     */
+    public void evict(Long studentId, Long classId) {
+        Key key = new Key(studentId, classId);
+        AfterCommit.runNowAndAfterCommit(() -> gradesByKey.remove(key));
+    }
+
+    private record Key(Long studentId, Long classId) {
+    }
+
+    public record SubmissionGrade(Long id, String grade, Double numericalGrade) {
+
+        public boolean isPassing() {
+            return numericalGrade != null && numericalGrade >= Gradebook.PASS_PERCENT;
+        }
+    }
+
+    public record AttemptGrade(Long id, QuizAttempt.AttemptStatus status, Double score, Integer maxScore) {
+
+        public boolean isPassing() {
+            return score != null && maxScore != null && maxScore > 0 && score / maxScore * 100 >= Gradebook.PASS_PERCENT;
+        }
+    }
+
+    public record Grades(Map<Long, SubmissionGrade> submissions, Map<Long, AttemptGrade> attempts) {
+
+        /**
+         * Keeps, per item, the last row of the highest rank (see Gradebook.submissionRank and
+         * attemptRank). Rows must be oldest first.
+         */
+        static Grades of(List<Submission> submissions, List<QuizAttempt> attempts) {
+            Map<Long, SubmissionGrade> submissionByAssignmentId = new HashMap<>();
+            Map<Long, Integer> ranks = new HashMap<>();
+            for (Submission submission : submissions) {
+                Long assignmentId = submission.getAssignment().getId();
+                int rank = Gradebook.submissionRank(submission.isMakeupSubmission(), submission.isSuperseded());
+                if (rank >= ranks.getOrDefault(assignmentId, 0)) {
+                    ranks.put(assignmentId, rank);
+                    submissionByAssignmentId.put(assignmentId,
+                            new SubmissionGrade(submission.getId(), submission.getGrade(), submission.getNumericalGrade()));
+                }
+            }
+            Map<Long, AttemptGrade> attemptByQuizId = new HashMap<>();
+            ranks.clear();
+            for (QuizAttempt attempt : attempts) {
+                Long quizId = attempt.getQuiz().getId();
+                int rank = Gradebook.attemptRank(attempt.getStatus());
+                if (rank >= ranks.getOrDefault(quizId, 0)) {
+                    ranks.put(quizId, rank);
+                    attemptByQuizId.put(quizId,
+                            new AttemptGrade(attempt.getId(), attempt.getStatus(), attempt.getScore(), attempt.getMaxScore()));
+                }
+            }
+            return new Grades(Collections.unmodifiableMap(submissionByAssignmentId),
+                    Collections.unmodifiableMap(attemptByQuizId));
+        }
+    }
+}
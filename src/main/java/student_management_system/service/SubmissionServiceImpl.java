@@ -11,7 +11,6 @@ import student_management_system.model.User;
 import student_management_system.repository.AssignmentRepository;
 import student_management_system.repository.MakeupRequestRepository; // Import MakeupRequestRepository
 import student_management_system.repository.SubmissionRepository;
-import student_management_system.repository.UserRepository; // Import UserRepository
 
 // DTO Imports
 import student_management_system.web.dto.GradeDto;
@@ -62,7 +61,11 @@ public class SubmissionServiceImpl implements SubmissionService {
     @Autowired private SubmissionRepository submissionRepository;
     @Autowired private AssignmentRepository assignmentRepository;
     @Autowired private MakeupRequestRepository makeupRequestRepository;
-    @Autowired private UserRepository userRepository; // Added UserRepository
+    @Autowired private ClassMembershipCache classMembershipCache;
+    @Autowired private ClassGradeSummaryService classGradeSummaryService;
+    @Autowired private ScoreAnalyticsService scoreAnalyticsService;
+    @Autowired private StudentGradesCache studentGradesCache;
+    @Autowired private GradebookSnapshots gradebookSnapshots;
 
     @Value("${file.submission-upload-dir}")
     private String uploadDir;
@@ -77,16 +80,8 @@ public class SubmissionServiceImpl implements SubmissionService {
         Assignment assignment = assignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new EntityNotFoundException("Assignment not found with ID: " + assignmentId));
 
-        // Fetch student with enrolled classes eagerly to avoid lazy loading issues
-        User studentWithClasses = userRepository.findById(student.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Student not found: " + student.getUsername()));
-
-        // Check enrollment
-         boolean isEnrolled = studentWithClasses.getEnrolledClasses() != null &&
-                             studentWithClasses.getEnrolledClasses().stream()
-                                .anyMatch(c -> c.getId().equals(assignment.getSchoolClass().getId()));
-
-        if (!isEnrolled) {
+        // Check enrollment (membership cache, no entity graph load)
+        if (!classMembershipCache.isEnrolled(student.getId(), assignment.getSchoolClass().getId())) {
              logger.warn("Submission blocked: Student {} is not enrolled in class ID {}", student.getUsername(), assignment.getSchoolClass().getId());
              throw new AccessDeniedException("Student not enrolled in the class for this assignment.");
          }
@@ -94,6 +89,7 @@ public class SubmissionServiceImpl implements SubmissionService {
         Optional<Submission> existingSubmissionOpt = submissionRepository.findByStudentAndAssignment(student, assignment);
         Submission submissionToSave;
         String action; // For logging
+        Gradebook.Points pointsBefore = null; // Set when a makeup resets a grade
 
         // --- START REVISED LOGIC ---
         if (submissionDto.isMakeup()) {
@@ -117,6 +113,7 @@ public class SubmissionServiceImpl implements SubmissionService {
                              student.getUsername(), assignmentId);
                  throw new AccessDeniedException("No approved makeup request found for this submission.");
              }
+             pointsBefore = classGradeSummaryService.assignmentPoints(student.getId(), assignmentId);
 
              // Reset grading fields, update submission date, mark as makeup
              submissionToSave.setGrade(null);
@@ -186,7 +183,16 @@ public class SubmissionServiceImpl implements SubmissionService {
 
 
         logger.info("{} submission for student {} on assignment ID {}", action, student.getUsername(), assignmentId);
-        return submissionRepository.save(submissionToSave);
+        Submission savedSubmission = submissionRepository.save(submissionToSave);
+        studentGradesCache.evict(student.getId(), assignment.getSchoolClass().getId());
+        gradebookSnapshots.markChanged(assignment.getSchoolClass().getId());
+        if (pointsBefore != null) {
+            // The old grade no longer counts towards the class summary
+            Gradebook.Points pointsAfter = classGradeSummaryService.assignmentPoints(student.getId(), assignmentId);
+            classGradeSummaryService.applyChange(assignment.getSchoolClass().getId(), student.getId(), pointsBefore, pointsAfter);
+            scoreAnalyticsService.recordGrade(assignment.getSchoolClass().getId(), assignmentId, false, pointsBefore, pointsAfter);
+        }
+        return savedSubmission;
     }
 
 
@@ -210,6 +216,8 @@ public class SubmissionServiceImpl implements SubmissionService {
                     teacher.getUsername(), submissionId);
             throw new AccessDeniedException("You are not authorized to grade submissions for this assignment.");
         }
+        Long studentId = submission.getStudent().getId();
+        Gradebook.Points pointsBefore = classGradeSummaryService.assignmentPoints(studentId, assignment.getId());
 
         // Set the numerical grade directly from the DTO (which is Double)
         submission.setNumericalGrade(gradeDto.getGrade());
@@ -224,7 +232,14 @@ public class SubmissionServiceImpl implements SubmissionService {
 
         logger.info("Grading submission ID {} by teacher {}. Grade: {}, NumericalGrade: {}",
                     submissionId, teacher.getUsername(), submission.getGrade(), submission.getNumericalGrade());
-        return submissionRepository.save(submission);
+        Submission gradedSubmission = submissionRepository.save(submission);
+        studentGradesCache.evict(studentId, assignment.getSchoolClass().getId());
+        gradebookSnapshots.markChanged(assignment.getSchoolClass().getId());
+        // Same transaction: the class summary changes with the grade or not at all
+        Gradebook.Points pointsAfter = classGradeSummaryService.assignmentPoints(studentId, assignment.getId());
+        classGradeSummaryService.applyChange(assignment.getSchoolClass().getId(), studentId, pointsBefore, pointsAfter);
+        scoreAnalyticsService.recordGrade(assignment.getSchoolClass().getId(), assignment.getId(), false, pointsBefore, pointsAfter);
+        return gradedSubmission;
     }
 
     // --- Find Methods ---
@@ -50,14 +50,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .collect(Collectors.toSet());
 
         // 3. Create and return a Spring Security UserDetails object
-        // This object contains the information Spring Security needs for authentication and authorization.
-        return new org.springframework.security.core.userdetails.User(
+        // This object contains the information Spring Security needs for authentication and authorization,
+        // plus the user's ID so controllers can skip reloading the User when the ID is enough.
+        return new AuthenticatedUser(
+                user.getId(),              // The user's database ID
                 user.getUsername(),        // The username
                 user.getPassword(),        // The ENCRYPTED password from the database
-                user.isEnabled(),          // Is the user account enabled?
-                true,                      // accountNonExpired - Hardcoded to true for now
-                true,                      // credentialsNonExpired - Hardcoded to true for now
-                true,                      // accountNonLocked - Hardcoded to true for now
+                user.isEnabled(),          // Is the user account enabled? (never expired or locked for now)
                 authorities                // The user's roles/permissions
         );
     }
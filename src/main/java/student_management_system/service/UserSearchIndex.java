@@ -0,0 +1,500 @@
+package student_management_system.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory n-gram index over user names and emails (usernames), used by the friend search
+ * instead of three leading-wildcard LIKE scans of the users table.
+ * <p>
+ * Every user is held once as an {@link IndexedUser} (the columns the search page shows) in a
+ * dense slot. The lower-cased, accent-free fields are split into trigrams, each with a sorted
+ * postings list of slots, plus the one- and two-letter prefixes of every word so short terms
+ * work too. A query term matches users containing every word of it (in any field, like the LIKE
+ * query did for a single word); candidates are the intersection of the words' postings, checked
+ * against the fields and ranked: exact field, field prefix, word prefix, then anywhere.
+ * <p>
+ * UserSearchIndexLoader fills the index after startup; until then {@link #isLoaded()} is false
+ * and callers fall back to the database. Users created or changed meanwhile are not overwritten
+ * by the (older) rows the load reads. With several nodes, each keeps its own copy, updated by
+ * its own writes only; a restart or {@code app.user-search.reload-interval-ms} catches up.
+ * <p>
+ * Metrics: {@code user_search.users}.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Prefix keys cannot collide with trigrams, which never contain control characters
+    private static final char PREFIX_MARK = '\u0000';
+
+    /**
+     * The stored columns of one user.
+     */
+    public record IndexedUser(long id, String username, String firstName, String lastName,
+                              String profilePicturePath, List<String> roleNames) {
+    }
+
+    /**
+     * One page of matches, best first, the number of matching users, and whether a next page
+     * can be served.
+     */
+    public record Hits(List<IndexedUser> users, int totalHits, boolean hasMore) {
+    }
+
+    @Value("${app.user-search.max-results:500}")
+    private int maxResults;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final List<Slot> slots = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Map<String, Postings> postingsByGram = new HashMap<>();
+    private boolean loaded;
+    // IDs written by put/remove while a load runs, which the load must not overwrite
+    private Set<Long> changedDuringLoad;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("user_search.users", this, UserSearchIndex::size)
+                .description("Users in the in-memory user search index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true once the index holds every user and can answer searches.
+     */
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a (re)load: the current entries keep serving searches while
+     * {@link #loadBatch} adds or refreshes users, and {@link #finishLoad} drops the ones the
+     * load did not see.
+     */
+    public void startLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds one batch of a running load, skipping users put or removed since it started.
+     */
+    public void loadBatch(List<IndexedUser> users, Set<Long> seen) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedUser user : users) {
+                seen.add(user.id());
+                if (changedDuringLoad == null || !changedDuringLoad.contains(user.id())) {
+                    putLocked(user);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ends a load: removes users the load did not see (deleted before it started) unless they
+     * were put since, and marks the index usable.
+     */
+    public void finishLoad(Set<Long> seen) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> changed = changedDuringLoad != null ? changedDuringLoad : Set.of();
+            for (Long id : new ArrayList<>(slotById.keySet())) {
+                if (!seen.contains(id) && !changed.contains(id)) {
+                    removeLocked(id);
+                }
+            }
+            changedDuringLoad = null;
+            loaded = true;
+            logger.info("User search index loaded: {} users, {} distinct grams", slotById.size(), postingsByGram.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives up a failed load; the entries it already refreshed stay.
+     */
+    public void abortLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a user, after the current transaction commits if there is one.
+     */
+    public void put(IndexedUser user) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringLoad != null) {
+                    changedDuringLoad.add(user.id());
+                }
+                putLocked(user);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Removes a user, after the current transaction commits if there is one.
+     */
+    public void remove(long userId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringLoad != null) {
+                    changedDuringLoad.add(userId);
+                }
+                removeLocked(userId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Finds users matching every word of the term, best first.
+     *
+     * @param exclude users to leave out (e.g. the searching user and their friends); they are
+     *                not counted either.
+     * @return at most {@code size} users starting at {@code page * size}, and the total number
+     *         of matches. Pages end at {@code app.user-search.max-results}.
+     */
+    public Hits search(String term, LongPredicate exclude, int page, int size) {
+        List<String> words = queryWords(term);
+        if (words.isEmpty() || size <= 0 || page < 0) {
+            return new Hits(List.of(), 0, false);
+        }
+        int wanted = (int) Math.min((page + 1L) * size, maxResults);
+        // Worst kept match at the head, so a candidate only enters the heap if it beats that one
+        PriorityQueue<Ranked> top = new PriorityQueue<>(Math.max(1, wanted) + 1, BEST_FIRST.reversed());
+        int totalHits = 0;
+
+        lock.readLock().lock();
+        try {
+            for (int slotIndex : candidates(words)) {
+                Slot slot = slots.get(slotIndex);
+                if (slot == null || exclude.test(slot.user.id())) {
+                    continue;
+                }
+                int score = score(slot, words);
+                if (score <= 0) {
+                    continue;
+                }
+                totalHits++;
+                if (top.size() < wanted) {
+                    top.add(new Ranked(slot, score));
+                } else if (wanted > 0 && score >= top.peek().score) {
+                    Ranked candidate = new Ranked(slot, score);
+                    if (BEST_FIRST.compare(candidate, top.peek()) < 0) {
+                        top.poll();
+                        top.add(candidate);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(BEST_FIRST);
+        List<IndexedUser> users = new ArrayList<>();
+        for (long i = (long) page * size; i < ranked.size(); i++) {
+            users.add(ranked.get((int) i).slot.user);
+        }
+        boolean hasMore = (page + 1L) * size < Math.min(totalHits, maxResults);
+        return new Hits(users, totalHits, hasMore);
+    }
+
+    /**
+     * Lower case without accents, so "José" is found by "jose".
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).replace(PREFIX_MARK, ' ');
+    }
+
+    // --- Helper Methods ---
+
+    private static List<String> queryWords(String term) {
+        String normalized = normalize(term).trim();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        // Repeated words count once
+        Set<String> words = new LinkedHashSet<>(Arrays.asList(WHITESPACE.split(normalized)));
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * The keys a query word is looked up by: its trigrams, or for one or two letters the
+     * word-prefix key.
+     */
+    private static Set<String> gramsOfQueryWord(String word) {
+        if (word.length() < 3) {
+            return Set.of(PREFIX_MARK + word);
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            grams.add(word.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static Set<String> gramsOf(Slot slot) {
+        Set<String> grams = new HashSet<>();
+        for (String field : slot.fields) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                grams.add(field.substring(i, i + 3));
+            }
+            for (String word : NON_WORD.split(field)) {
+                if (!word.isEmpty()) {
+                    grams.add(PREFIX_MARK + word.substring(0, 1));
+                }
+                if (word.length() >= 2) {
+                    grams.add(PREFIX_MARK + word.substring(0, 2));
+                }
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Intersects the postings of all query grams, shortest list first. The result is a
+     * superset of the matches: grams may come from different fields or positions.
+     */
+    private int[] candidates(List<String> words) {
+        List<Postings> lists = new ArrayList<>();
+        for (String word : words) {
+            for (String gram : gramsOfQueryWord(word)) {
+                Postings postings = postingsByGram.get(gram);
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings);
+            }
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        Postings shortest = lists.get(0);
+        int[] result = new int[shortest.size];
+        int count = 0;
+        outer:
+        for (int i = 0; i < shortest.size; i++) {
+            int slot = shortest.slots[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(slot)) {
+                    continue outer;
+                }
+            }
+            result[count++] = slot;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Sums, over the query words, how well each matches its best field; 0 if a word does not
+     * match at all.
+     */
+    private static int score(Slot slot, List<String> words) {
+        int total = 0;
+        for (String word : words) {
+            int best = 0;
+            for (String field : slot.fields) {
+                best = Math.max(best, scoreWord(field, word));
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static int scoreWord(String field, String word) {
+        if (field.equals(word)) {
+            return 8;
+        }
+        if (field.startsWith(word)) {
+            return 4;
+        }
+        int at = field.indexOf(word);
+        if (at < 0) {
+            return 0;
+        }
+        // Word prefix: anywhere after a separator ("smith" in "anna-smith", "gmail" in an email)
+        do {
+            if (!Character.isLetterOrDigit(field.charAt(at - 1))) {
+                return 2;
+            }
+            at = field.indexOf(word, at + 1);
+        } while (at > 0);
+        // Short words only match at word starts; trigrams already guarantee nothing more
+        return word.length() < 3 ? 0 : 1;
+    }
+
+    private void putLocked(IndexedUser user) {
+        removeLocked(user.id());
+        Integer free = freeSlots.poll();
+        int slotIndex = free != null ? free : slots.size();
+        Slot slot = new Slot(user);
+        if (free != null) {
+            slots.set(slotIndex, slot);
+        } else {
+            slots.add(slot);
+        }
+        slotById.put(user.id(), slotIndex);
+        for (String gram : gramsOf(slot)) {
+            postingsByGram.computeIfAbsent(gram, key -> new Postings()).add(slotIndex);
+        }
+    }
+
+    private void removeLocked(long userId) {
+        Integer slotIndex = slotById.remove(userId);
+        if (slotIndex == null) {
+            return;
+        }
+        Slot slot = slots.get(slotIndex);
+        for (String gram : gramsOf(slot)) {
+            Postings postings = postingsByGram.get(gram);
+            if (postings != null && postings.remove(slotIndex) && postings.size == 0) {
+                postingsByGram.remove(gram);
+            }
+        }
+        slots.set(slotIndex, null);
+        freeSlots.push(slotIndex);
+    }
+
+    private record Ranked(Slot slot, int score) {
+    }
+
+    // Highest score first, then by last name, first name and ID
+    private static final Comparator<Ranked> BEST_FIRST = (a, b) -> {
+        if (a.score != b.score) {
+            return Integer.compare(b.score, a.score);
+        }
+        int byName = a.slot.lastName.compareTo(b.slot.lastName);
+        if (byName == 0) {
+            byName = a.slot.firstName.compareTo(b.slot.firstName);
+        }
+        return byName != 0 ? byName : Long.compare(a.slot.user.id(), b.slot.user.id());
+    };
+
+    /**
+     * A user and their normalized searchable fields.
+     */
+    private static final class Slot {
+
+        private final IndexedUser user;
+        private final String[] fields;
+        private final String firstName;
+        private final String lastName;
+
+        Slot(IndexedUser user) {
+            this.user = user;
+            this.firstName = normalize(user.firstName());
+            this.lastName = normalize(user.lastName());
+            this.fields = new String[] {normalize(user.username()), firstName, lastName};
+        }
+    }
+
+    /**
+     * Sorted, growable list of slots. Slots are mostly added in increasing order during a load,
+     * which appends.
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import student_management_system.model.FriendRequest; // Import FriendRequest
 import student_management_system.model.User;
 import student_management_system.web.dto.ChangePasswordDto;
 import student_management_system.web.dto.UserRegistrationDto;
+import student_management_system.web.dto.UserSearchResultDto;
 import student_management_system.web.dto.UserSettingsDto;
 
 import java.util.List;
@@ -33,7 +34,19 @@ public interface UserService {
     void addFriend(String currentUsername, String friendUsername); // Keep for internal use
     void removeFriend(String currentUsername, String friendUsername);
     Set<User> getFriends(String username);
-    List<User> searchPotentialFriends(String currentUsername, String searchTerm);
+    /**
+     * Checks a friendship from the cached friend graph, without loading friends collections.
+     */
+    boolean areFriends(User user, User otherUser);
+    /**
+     * Checks a friendship in the database. For paths that let one user send something to the
+     * other: the cached friend graph of another node can still show a friendship removed here.
+     */
+    boolean areFriendsInDatabase(User user, User otherUser);
+    /**
+     * Finds users the current user is not friends with whose name or email matches the term.
+     */
+    UserSearchResultDto searchPotentialFriends(String currentUsername, String searchTerm, int page, int size);
 
     // --- NEW Friend Request Methods ---
 
@@ -8,6 +8,8 @@ import student_management_system.repository.RoleRepository;
 import student_management_system.repository.UserRepository;
 import student_management_system.web.dto.ChangePasswordDto;
 import student_management_system.web.dto.UserRegistrationDto;
+import student_management_system.web.dto.UserSearchHitDto;
+import student_management_system.web.dto.UserSearchResultDto;
 import student_management_system.web.dto.UserSettingsDto;
 
 import org.slf4j.Logger;
@@ -28,6 +30,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -57,6 +61,27 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private ClassMembershipCache classMembershipCache;
+
+    @Autowired
+    private SenderProfileCache senderProfileCache;
+
+    @Autowired
+    private ChatHistoryTailCache chatHistoryTailCache;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Value("${app.user-search.max-page-size:50}")
+    private int maxSearchPageSize;
+
     @Value("${file.profile-picture-upload-dir}")
     private String profileUploadDir;
 
@@ -89,7 +114,9 @@ public class UserServiceImpl implements UserService {
         teacher.setPassword(passwordEncoder.encode(registrationDto.getPassword()));
         teacher.setEnabled(true);
         teacher.addRole(teacherRole);
-        return userRepository.save(teacher);
+        User savedTeacher = userRepository.save(teacher);
+        indexForSearch(savedTeacher);
+        return savedTeacher;
     }
     @Override
     public List<User> findAllTeachers() {
@@ -113,7 +140,9 @@ public class UserServiceImpl implements UserService {
         } else {
              logger.info("Password not provided for update for teacher ID: {}. Keeping existing password.", id);
         }
-        return userRepository.save(existingTeacher);
+        User savedTeacher = userRepository.save(existingTeacher);
+        indexForSearch(savedTeacher);
+        return savedTeacher;
     }
     @Override
     @Transactional
@@ -126,7 +155,12 @@ public class UserServiceImpl implements UserService {
              throw new IllegalArgumentException("User with ID " + id + " is not a teacher and cannot be deleted via this method.");
         }
         logger.warn("Deleting teacher ID: {}. WARNING: Associated data might be deleted due to cascade settings.", id);
+        conversationSummaryService.removeAllForUser(id);
         userRepository.deleteById(id);
+        userSearchIndex.remove(id);
+        friendGraph.evictAll(); // Their ID is in their friends' arrays
+        classMembershipCache.evictAll(); // Their classes are deleted by cascade
+        chatHistoryTailCache.evictAll();
     }
     @Override
     @Transactional
@@ -145,7 +179,9 @@ public class UserServiceImpl implements UserService {
         student.setEnabled(true);
         student.addRole(studentRole);
         try {
-             return userRepository.save(student);
+             User savedStudent = userRepository.save(student);
+             indexForSearch(savedStudent);
+             return savedStudent;
         } catch (DataIntegrityViolationException e) {
              if (e.getMessage() != null && e.getMessage().toLowerCase().contains("uk_user_studentid")) {
                  throw new RuntimeException("Student ID already registered: " + registrationDto.getStudentId());
@@ -166,6 +202,9 @@ public class UserServiceImpl implements UserService {
         user.setLastName(settingsDto.getLastName());
         logger.info("Attempting to save updated settings for user: {}", username);
         User savedUser = userRepository.save(user);
+        senderProfileCache.evict(savedUser.getId()); // Name is part of the chat sender details
+        chatHistoryTailCache.evictSender(savedUser.getId());
+        indexForSearch(savedUser);
         logger.info("Successfully saved updated settings for user: {}", username);
         return savedUser;
     }
@@ -198,6 +237,9 @@ public class UserServiceImpl implements UserService {
         logger.info("Attempting to save new profile picture path '{}' for user: {}", newFilename, username);
         try {
              userRepository.save(user);
+             senderProfileCache.evict(user.getId());
+             chatHistoryTailCache.evictSender(user.getId());
+             indexForSearch(user);
              logger.info("Successfully saved new profile picture path in DB for user: {}", username);
              deleteProfilePictureFile(oldFilename);
         } catch (Exception e) {
@@ -205,6 +247,17 @@ public class UserServiceImpl implements UserService {
              throw new RuntimeException("Failed to update profile picture information.", e);
         }
     }
+    /**
+     * Puts the user's searchable columns into the user search index once the transaction commits.
+     */
+    private void indexForSearch(User user) {
+        List<String> roleNames = user.getRoles().stream().map(Role::getName).toList();
+        userSearchIndex.put(new UserSearchIndex.IndexedUser(user.getId(), user.getUsername(), user.getFirstName(),
+                user.getLastName(), user.getProfilePicturePath(), roleNames));
+    }
+    private static List<String> displayRoleNames(List<String> roleNames) {
+        return roleNames.stream().map(name -> name.replace("ROLE_", "")).sorted().toList();
+    }
     private void deleteProfilePictureFile(String filename) {
         if (!StringUtils.hasText(filename)) return;
         try {
@@ -231,12 +284,14 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("Current user not found: " + currentUsername));
         User friendUser = userRepository.findByUsername(friendUsername)
                 .orElseThrow(() -> new EntityNotFoundException("User to add as friend not found: " + friendUsername));
-        if (currentUser.getFriends().contains(friendUser)) {
+        if (friendGraph.areFriends(currentUser.getId(), friendUser.getId())) {
             throw new IllegalArgumentException("You are already friends with " + friendUsername);
         }
         currentUser.addFriend(friendUser);
         userRepository.save(currentUser);
         userRepository.save(friendUser);
+        friendGraph.addFriendship(currentUser.getId(), friendUser.getId());
+        conversationSummaryService.ensurePrivateConversation(currentUser, friendUser);
         logger.info("User '{}' added user '{}' as a friend.", currentUsername, friendUsername);
     }
     @Override
@@ -246,12 +301,14 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("Current user not found: " + currentUsername));
         User friendUser = userRepository.findByUsername(friendUsername)
                 .orElseThrow(() -> new EntityNotFoundException("Friend user not found: " + friendUsername));
-        if (!currentUser.getFriends().contains(friendUser)) {
+        if (!friendGraph.areFriends(currentUser.getId(), friendUser.getId())) {
              throw new IllegalArgumentException("You are not friends with " + friendUsername);
         }
         currentUser.removeFriend(friendUser);
         userRepository.save(currentUser);
         userRepository.save(friendUser);
+        friendGraph.removeFriendship(currentUser.getId(), friendUser.getId());
+        conversationSummaryService.removePrivateConversation(currentUser, friendUser);
         logger.info("User '{}' removed user '{}' as a friend.", currentUsername, friendUsername);
     }
     @Override
@@ -262,23 +319,62 @@ public class UserServiceImpl implements UserService {
         return user.getFriends();
     }
     @Override
+    public boolean areFriends(User user, User otherUser) {
+        return user != null && otherUser != null && friendGraph.areFriends(user.getId(), otherUser.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean areFriendsInDatabase(User user, User otherUser) {
+        return user != null && otherUser != null && !user.getId().equals(otherUser.getId())
+                && userRepository.countFriendship(user.getId(), otherUser.getId()) > 0;
+    }
+    /**
+     * Searches the in-memory UserSearchIndex once it is loaded; before that (or with
+     * {@code app.user-search.enabled=false}) falls back to the LIKE query, ranked by name.
+     */
+    @Override
     @Transactional(readOnly = true)
-    public List<User> searchPotentialFriends(String currentUsername, String searchTerm) {
+    public UserSearchResultDto searchPotentialFriends(String currentUsername, String searchTerm, int page, int size) {
         User currentUser = userRepository.findByUsername(currentUsername)
                 .orElseThrow(() -> new EntityNotFoundException("Current user not found: " + currentUsername));
         String term = searchTerm.trim();
-        if (term.isEmpty()) return List.of();
+        int pageSize = Math.max(1, Math.min(size, maxSearchPageSize));
+        int pageNumber = Math.max(0, page);
+        if (term.isEmpty()) return new UserSearchResultDto(term, pageNumber, pageSize, 0, false, List.of());
         logger.debug("Searching potential friends for '{}' with term '{}'", currentUsername, term);
-        List<User> potentialMatches = userRepository.findByUsernameContainingIgnoreCaseOrFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(term, term, term);
-        logger.debug("Found {} potential matches initially.", potentialMatches.size());
-        Set<User> currentFriends = currentUser.getFriends();
-        logger.debug("Current user '{}' has {} friends.", currentUsername, currentFriends.size());
-        List<User> results = potentialMatches.stream()
-                .filter(user -> !user.getId().equals(currentUser.getId()))
-                .filter(user -> !currentFriends.contains(user))
+        Set<Long> excludedIds = new HashSet<>();
+        for (long friendId : friendGraph.getFriendIds(currentUser.getId())) {
+            excludedIds.add(friendId);
+        }
+        excludedIds.add(currentUser.getId());
+
+        if (userSearchIndex.isLoaded()) {
+            UserSearchIndex.Hits hits = userSearchIndex.search(term, excludedIds::contains, pageNumber, pageSize);
+            List<UserSearchHitDto> users = hits.users().stream()
+                    .map(user -> new UserSearchHitDto(user.id(), user.username(), user.firstName(), user.lastName(),
+                            user.profilePicturePath(), displayRoleNames(user.roleNames())))
+                    .collect(Collectors.toList());
+            logger.debug("Found {} potential friends in the search index.", hits.totalHits());
+            return new UserSearchResultDto(term, pageNumber, pageSize, hits.totalHits(), hits.hasMore(), users);
+        }
+
+        logger.debug("User search index not loaded yet; searching the database.");
+        List<User> matches = userRepository.findByUsernameContainingIgnoreCaseOrFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(term, term, term)
+                .stream()
+                .filter(user -> !excludedIds.contains(user.getId()))
+                .sorted(Comparator.comparing(User::getLastName, String.CASE_INSENSITIVE_ORDER)
+                        .thenComparing(User::getFirstName, String.CASE_INSENSITIVE_ORDER)
+                        .thenComparing(User::getId))
+                .collect(Collectors.toList());
+        List<UserSearchHitDto> users = matches.stream()
+                .skip((long) pageNumber * pageSize)
+                .limit(pageSize)
+                .map(user -> new UserSearchHitDto(user.getId(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                        user.getProfilePicturePath(), displayRoleNames(user.getRoles().stream().map(Role::getName).toList())))
                 .collect(Collectors.toList());
-        logger.debug("Filtered results count: {}", results.size());
-        return results;
+        boolean hasMore = (pageNumber + 1L) * pageSize < matches.size();
+        return new UserSearchResultDto(term, pageNumber, pageSize, matches.size(), hasMore, users);
     }
 
     // --- NEW Friend Request Method Implementations ---
@@ -296,7 +392,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("Receiver user not found: " + receiverUsername));
 
         // Check if already friends
-        if (sender.getFriends().contains(receiver)) {
+        if (friendGraph.areFriends(sender.getId(), receiver.getId())) {
             throw new IllegalArgumentException("You are already friends with " + receiverUsername);
         }
 
@@ -1,26 +1,33 @@
 package student_management_system.web.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import student_management_system.model.User; // Import User model
 
-import java.time.LocalDateTime; // Keep if you add timestamp later
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 
 /**
  * Data Transfer Object for WebSocket chat messages.
  * Used for sending messages between client and server.
  * Enhanced to include more sender details.
+ * Null fields are left out of the JSON, so a compact broadcast (see populateSenderId) only
+ * carries the sender's ID and username.
  */
 @Getter
 @Setter
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ChatMessageDto {
 
+    private Long id; // Database ID of the message (null for transient system messages)
     private String content; // The message text
     private Long classId; // ID of the class this message belongs to
 
     // --- Enhanced Sender Information ---
+    private Long senderId; // Key of the sender in the client's sender dictionary
     private String senderUsername; // Keep username (e.g., for internal use or fallback)
     private String senderFirstName;
     private String senderLastName;
@@ -28,8 +35,7 @@ public class ChatMessageDto {
     private String senderRole; // e.g., "Student", "Teacher"
     private String senderStudentId; // Only populated if sender is a student
 
-    // Optional: Add timestamp if needed on client side immediately
-    // private String timestamp;
+    private String timestamp; // ISO formatted send time (null for transient system messages)
 
     /**
      * Populates the DTO with sender details from a User object.
@@ -37,6 +43,7 @@ public class ChatMessageDto {
      */
     public void populateSenderDetails(User user) {
         if (user != null) {
+            this.senderId = user.getId();
             this.senderUsername = user.getUsername();
             this.senderFirstName = user.getFirstName();
             this.senderLastName = user.getLastName();
@@ -58,6 +65,40 @@ public class ChatMessageDto {
         }
     }
 
+    /**
+     * Compact form for broadcasts: only the sender's ID and username. The remaining sender
+     * details are added per STOMP session by ChatWireFormatInterceptor (on every frame for
+     * plain JSON clients, on the first frame from each sender for compact clients).
+     * @param user The User object representing the sender.
+     */
+    public void populateSenderId(User user) {
+        this.senderId = user.getId();
+        this.senderUsername = user.getUsername();
+    }
+
+    /**
+     * Projection constructor used by JPQL constructor expressions in ChatMessageRepository.
+     * The sender columns are selected in the same query, so no User entity (or its roles) is loaded.
+     * Inside a class chat the sender is either the class teacher or an enrolled student,
+     * which is how the role is derived here.
+     */
+    public ChatMessageDto(Long id, String content, LocalDateTime timestamp, Long classId, Long classTeacherId,
+                          Long senderId, String senderUsername, String senderFirstName, String senderLastName,
+                          String senderProfilePicPath, String senderStudentId) {
+        boolean senderIsTeacher = senderId != null && senderId.equals(classTeacherId);
+        this.id = id;
+        this.content = content;
+        this.timestamp = timestamp != null ? timestamp.format(DateTimeFormatter.ISO_DATE_TIME) : null;
+        this.classId = classId;
+        this.senderId = senderId;
+        this.senderUsername = senderUsername;
+        this.senderFirstName = senderFirstName;
+        this.senderLastName = senderLastName;
+        this.senderProfilePicPath = senderProfilePicPath;
+        this.senderRole = senderIsTeacher ? "Teacher" : "Student";
+        this.senderStudentId = senderIsTeacher ? null : senderStudentId;
+    }
+
      // Basic constructor (can be removed if populateSenderDetails is always used)
      public ChatMessageDto(String content, String senderUsername, Long classId) {
          this.content = content;
@@ -0,0 +1,25 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * State of a resumable private attachment upload, returned by every upload endpoint.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkedUploadStatusDto {
+
+    private String uploadId;
+    private String originalFilename;
+    private long size;
+    private int chunkSize;
+    // Bytes received so far (chunks may arrive in any order)
+    private long receivedBytes;
+    // Offset of the first chunk still missing; equals size when the upload can be completed
+    private long nextOffset;
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import student_management_system.model.ChatMessage;
+import student_management_system.model.ConversationSummary;
 import student_management_system.model.PrivateMessage;
 import student_management_system.model.SchoolClass;
 import student_management_system.model.User;
@@ -43,6 +44,50 @@ public class ConversationPreviewDto {
     private LocalDateTime lastMessageTimestamp;
     // Flag indicating if the last message was primarily an attachment (for private chats)
     private boolean lastMessageIsAttachment;
+    // Number of messages the viewing user has not read yet
+    private int unreadCount;
+
+    /**
+     * Projection constructor used by ConversationSummaryRepository.findInboxPreviews.
+     * Builds a preview straight from the materialized summary columns. Class links default to the
+     * student view; callers switch them with {@link #useTeacherClassLink()} for teachers.
+     */
+    public ConversationPreviewDto(ConversationSummary.ConversationType conversationType, Long ownerId,
+                                  Long targetUserId, String targetUsername, String targetFirstName, String targetLastName, String targetProfilePicturePath,
+                                  Long classId, String className, String classImagePath,
+                                  Long lastSenderId, String lastSenderFirstName,
+                                  String lastMessageSnippet, LocalDateTime lastMessageAt, boolean lastMessageIsAttachment, int unreadCount) {
+        this.type = conversationType.name();
+        if (conversationType == ConversationSummary.ConversationType.PRIVATE) {
+            this.targetId = targetUserId;
+            this.targetName = targetFirstName + " " + targetLastName;
+            this.targetImageUrl = targetProfilePicturePath != null ? "/download/profile/" + targetProfilePicturePath : null;
+            this.targetLink = "/chat/private/" + targetUsername;
+        } else {
+            this.targetId = classId;
+            this.targetName = className;
+            this.targetImageUrl = classImagePath != null ? "/download/class-image/" + classImagePath : null;
+            this.targetLink = "/student/classes/details/" + classId;
+        }
+        if (lastMessageAt != null) {
+            this.lastMessageSender = lastSenderId == null ? null : (lastSenderId.equals(ownerId) ? "You" : lastSenderFirstName);
+            this.lastMessageContent = lastMessageSnippet;
+            this.lastMessageTimestamp = lastMessageAt;
+            this.lastMessageIsAttachment = lastMessageIsAttachment;
+        } else {
+            this.lastMessageContent = "No messages yet.";
+        }
+        this.unreadCount = unreadCount;
+    }
+
+    /**
+     * Points a class preview at the teacher's class details page instead of the student one.
+     */
+    public void useTeacherClassLink() {
+        if ("CLASS".equals(type)) {
+            this.targetLink = "/teacher/classes/details/" + targetId;
+        }
+    }
 
     // --- Helper Static Factory Methods ---
 
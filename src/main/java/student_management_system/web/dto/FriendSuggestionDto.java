@@ -0,0 +1,24 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A "people you may know" suggestion: a user who is not yet a friend, with what connects them.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSuggestionDto {
+
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String profilePicturePath;
+    private int mutualFriends;
+    private int sharedClasses;
+}
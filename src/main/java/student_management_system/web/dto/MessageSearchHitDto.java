@@ -0,0 +1,32 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One message matching a search of the user's class chats and private conversations.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchHitDto {
+
+    // "CLASS" or "PRIVATE"
+    private String type;
+    private Long messageId;
+    // Class name, or the friend's full name for a private conversation
+    private String conversationName;
+    // Link to the class details page or the private chat page
+    private String conversationLink;
+    private String senderName;
+    // ISO-8601 send time
+    private String timestamp;
+    // HTML-escaped excerpt with the matched words wrapped in <mark> tags
+    private String snippet;
+    // Original filename if the message has an attachment
+    private String attachmentFilename;
+    private float score;
+}
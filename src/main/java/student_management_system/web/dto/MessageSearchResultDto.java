@@ -0,0 +1,27 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One page of message search results, best matches first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchResultDto {
+
+    private String query;
+    private int page;
+    private int size;
+    // Number of matching messages (a lower bound beyond 1000)
+    private long totalHits;
+    // True if another page can be requested
+    private boolean hasMore;
+    private List<MessageSearchHitDto> hits;
+}
@@ -0,0 +1,31 @@
+package student_management_system.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Presence changes of one class chat since the previous broadcast,
+ * sent to "/topic/class/{classId}/presence". With a broker relay, presence is only known per node,
+ * so "left" and "onlineCount" are left out (null): another node may still have the user, and
+ * its count would overwrite this one's.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDiffDto {
+
+    private Long classId;
+    // Usernames that opened the class chat
+    private List<String> joined;
+    // Usernames whose last session on the class chat closed
+    private List<String> left;
+    // Distinct users with the class chat open after applying this diff
+    private Integer onlineCount;
+}
@@ -1,5 +1,6 @@
 package student_management_system.web.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -11,14 +12,17 @@ import java.time.format.DateTimeFormatter; // For formatting
 /**
  * Data Transfer Object for private chat messages.
  * Enhanced to include sender details for display.
+ * Null fields are left out of the JSON (see {@link #compact}).
  */
 @Getter
 @Setter
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PrivateMessageDto {
 
     private Long id;
     private String content;
+    private Long senderId; // Key of the sender in the client's sender dictionary
     private String senderUsername; // Keep for internal logic/reference
     private String receiverUsername;
     private String timestamp; // String representation for client display
@@ -47,6 +51,7 @@ public class PrivateMessageDto {
      public PrivateMessageDto(Long id, String content, User sender, User receiver, LocalDateTime timestamp, String attachmentUrl, String attachmentOriginalFilename) {
         this.id = id;
         this.content = content;
+        this.senderId = sender.getId();
         this.senderUsername = sender.getUsername();
         this.receiverUsername = receiver.getUsername();
         // Format timestamp nicely for display
@@ -57,6 +62,21 @@ public class PrivateMessageDto {
         populateSenderDetails(sender);
     }
 
+    /**
+     * Compact form for broadcasts: like the constructor above but without the sender details,
+     * which ChatWireFormatInterceptor adds per STOMP session (on every frame for plain JSON
+     * clients, on the first frame from each sender for compact clients).
+     */
+    public static PrivateMessageDto compact(Long id, String content, User sender, User receiver, LocalDateTime timestamp, String attachmentUrl, String attachmentOriginalFilename) {
+        PrivateMessageDto dto = new PrivateMessageDto(content, sender.getUsername(), receiver.getUsername());
+        dto.id = id;
+        dto.senderId = sender.getId();
+        dto.timestamp = timestamp != null ? timestamp.format(DateTimeFormatter.ISO_DATE_TIME) : null;
+        dto.attachmentUrl = attachmentUrl;
+        dto.attachmentOriginalFilename = attachmentOriginalFilename;
+        return dto;
+    }
+
     /**
      * Populates sender details from a User object.
      * Similar to ChatMessageDto.
@@ -0,0 +1,46 @@
+package student_management_system.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import student_management_system.model.User;
+
+/**
+ * The sender details that ChatMessageDto and PrivateMessageDto repeat on every message.
+ * Serialized with the same field names, so its JSON (without the braces) can be spliced into a
+ * compact chat frame that only carries "senderId".
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SenderProfileDto {
+
+    private String senderFirstName;
+    private String senderLastName;
+    private String senderProfilePicPath;
+    private String senderRole; // "Student", "Teacher" or "User"
+    private String senderStudentId; // Only populated if sender is a student
+
+    /**
+     * Builds the profile with the same role rules as ChatMessageDto.populateSenderDetails.
+     */
+    public static SenderProfileDto from(User user) {
+        SenderProfileDto profile = new SenderProfileDto();
+        profile.senderFirstName = user.getFirstName();
+        profile.senderLastName = user.getLastName();
+        profile.senderProfilePicPath = user.getProfilePicturePath();
+        if (user.getRoles().stream().anyMatch(r -> "ROLE_TEACHER".equals(r.getName()))) {
+            profile.senderRole = "Teacher";
+        } else if (user.getRoles().stream().anyMatch(r -> "ROLE_STUDENT".equals(r.getName()))) {
+            profile.senderRole = "Student";
+            profile.senderStudentId = user.getStudentId();
+        } else {
+            profile.senderRole = "User";
+        }
+        return profile;
+    }
+}
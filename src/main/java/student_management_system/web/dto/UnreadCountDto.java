@@ -0,0 +1,24 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Pushed to "/user/queue/unread" whenever a private conversation's unread count changes
+ * (a new message arrives or the conversation is read), so clients can update badges without polling.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountDto {
+
+    // Username (email) of the friend the conversation is with
+    private String friendUsername;
+    // Messages from that friend the owner has not read yet
+    private int unreadCount;
+    // Unread messages across all of the owner's private conversations
+    private long totalUnread;
+}
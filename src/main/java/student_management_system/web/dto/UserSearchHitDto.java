@@ -0,0 +1,26 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One user matching a friend search: only the columns the search page shows.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchHitDto {
+
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String profilePicturePath;
+    // Role names without the "ROLE_" prefix, e.g. "STUDENT"
+    private List<String> roles;
+}
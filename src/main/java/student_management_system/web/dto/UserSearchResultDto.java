@@ -0,0 +1,27 @@
+package student_management_system.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One page of friend search results, best matches first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchResultDto {
+
+    private String query;
+    private int page;
+    private int size;
+    // Number of matching users
+    private long totalHits;
+    // True if another page can be requested
+    private boolean hasMore;
+    private List<UserSearchHitDto> users;
+}
@@ -0,0 +1,131 @@
+package student_management_system.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import student_management_system.service.SenderProfileCache;
+import student_management_system.web.dto.ChatMessageDto;
+import student_management_system.web.dto.SenderProfileDto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the class chat wire formats of ChatWireFormatInterceptor with the JSON sent before
+ * them: bytes per message and serialization CPU per message (single thread, after warm-up).
+ * Results are logged; the assertions only check that the formats carry the same data and that
+ * the compact forms are smaller. The benchmark itself is tagged "load" and left out of the default
+ * build; run it with {@code mvn test -Pload-tests}.
+ */
+class ChatWireFormatBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWireFormatBenchmarkTest.class);
+
+    private static final int WARMUP_ITERATIONS = 100_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    // What MappingJackson2MessageConverter produces (annotations honored, so nulls are omitted)
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // The JSON sent before compact payloads: every field, nulls included
+    private final ObjectMapper previousFormatMapper = JsonMapper.builder().disable(MapperFeature.USE_ANNOTATIONS).build();
+
+    private ChatMessageDto fullMessage;
+    private ChatMessageDto compactMessage;
+    private byte[] senderFragment;
+
+    @BeforeEach
+    void setUp() {
+        SenderProfileDto profile = new SenderProfileDto("Alexandra", "Montgomery-Whitfield",
+                "alexandra.m_3f2b9c1e-8d4a-4f0e-9b7c-2a1d5e6f7a8b.jpg", "Student", "ST2024-00173");
+
+        compactMessage = new ChatMessageDto();
+        compactMessage.setId(1048576L);
+        compactMessage.setContent("Did anyone get the same answer for question 4 of the homework?");
+        compactMessage.setClassId(42L);
+        compactMessage.setSenderId(173L);
+        compactMessage.setSenderUsername("amontgomery");
+        compactMessage.setTimestamp("2025-04-14T10:15:30.123456");
+
+        fullMessage = new ChatMessageDto();
+        fullMessage.setId(compactMessage.getId());
+        fullMessage.setContent(compactMessage.getContent());
+        fullMessage.setClassId(compactMessage.getClassId());
+        fullMessage.setSenderId(compactMessage.getSenderId());
+        fullMessage.setSenderUsername(compactMessage.getSenderUsername());
+        fullMessage.setTimestamp(compactMessage.getTimestamp());
+        fullMessage.setSenderFirstName(profile.getSenderFirstName());
+        fullMessage.setSenderLastName(profile.getSenderLastName());
+        fullMessage.setSenderProfilePicPath(profile.getSenderProfilePicPath());
+        fullMessage.setSenderRole(profile.getSenderRole());
+        fullMessage.setSenderStudentId(profile.getSenderStudentId());
+
+        senderFragment = SenderProfileCache.toFragment(profile);
+    }
+
+    @Test
+    void splicedCompactFrameCarriesTheSameDataAsAFullFrame() throws Exception {
+        byte[] spliced = ChatWireFormatInterceptor.splice(objectMapper.writeValueAsBytes(compactMessage), senderFragment);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(fullMessage)), objectMapper.readTree(spliced));
+    }
+
+    @Test
+    void cborFrameDecodesToTheCompactJson() throws Exception {
+        byte[] compactJson = objectMapper.writeValueAsBytes(compactMessage);
+
+        JsonNode decoded = new CBORMapper().readTree(ChatWireFormatInterceptor.toCbor(compactJson));
+
+        assertEquals(objectMapper.readTree(compactJson), decoded);
+    }
+
+    @Test
+    @Tag("load")
+    void benchmarkBytesAndSerializationCpuPerMessage() throws Exception {
+        byte[] previous = previousFormatMapper.writeValueAsBytes(fullMessage);
+        byte[] json = ChatWireFormatInterceptor.splice(objectMapper.writeValueAsBytes(compactMessage), senderFragment);
+        byte[] compact = objectMapper.writeValueAsBytes(compactMessage);
+        byte[] cbor = ChatWireFormatInterceptor.toCbor(compact);
+
+        double previousNanos = nanosPerMessage(() -> previousFormatMapper.writeValueAsBytes(fullMessage));
+        double jsonNanos = nanosPerMessage(() -> ChatWireFormatInterceptor.splice(objectMapper.writeValueAsBytes(compactMessage), senderFragment));
+        double compactNanos = nanosPerMessage(() -> objectMapper.writeValueAsBytes(compactMessage));
+        double cborNanos = nanosPerMessage(() -> ChatWireFormatInterceptor.toCbor(objectMapper.writeValueAsBytes(compactMessage)));
+
+        logger.info(String.format("%nClass chat message, bytes and serialization CPU per message:%n"
+                        + "  %-42s %5d B  %8.0f ns%n  %-42s %5d B  %8.0f ns%n  %-42s %5d B  %8.0f ns%n  %-42s %5d B  %8.0f ns",
+                "previous JSON (all fields, nulls included)", previous.length, previousNanos,
+                "json (compact + spliced sender details)", json.length, jsonNanos,
+                "compact (sender already known)", compact.length, compactNanos,
+                "cbor (sender already known)", cbor.length, cborNanos));
+
+        assertTrue(json.length <= previous.length, "plain JSON sessions get the same fields as before");
+        assertTrue(compact.length < json.length / 2, "sender details are the larger part of a typical message");
+        assertTrue(cbor.length < compact.length);
+    }
+
+    private static double nanosPerMessage(Serialization serialization) throws Exception {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += serialization.run().length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += serialization.run().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sink > 0); // Keeps the results alive
+        return (double) elapsed / MEASURED_ITERATIONS;
+    }
+
+    @FunctionalInterface
+    private interface Serialization {
+        byte[] run() throws Exception;
+    }
+}
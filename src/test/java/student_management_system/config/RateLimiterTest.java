@@ -0,0 +1,93 @@
+package student_management_system.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks burst size, per-user and per-rule isolation, refill, and that concurrent callers never
+ * get more than the burst.
+ */
+class RateLimiterTest {
+
+    private RateLimiter rateLimiter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void createLimiter() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "classChatCapacity", 5);
+        ReflectionTestUtils.setField(rateLimiter, "classChatRefillPerMinute", 1);
+        ReflectionTestUtils.setField(rateLimiter, "privateChatCapacity", 5);
+        ReflectionTestUtils.setField(rateLimiter, "privateChatRefillPerMinute", 1);
+        ReflectionTestUtils.setField(rateLimiter, "uploadCapacity", 2);
+        ReflectionTestUtils.setField(rateLimiter, "uploadRefillPerMinute", 600); // One token every 100 ms
+        ReflectionTestUtils.setField(rateLimiter, "friendRequestCapacity", 0);
+        ReflectionTestUtils.setField(rateLimiter, "friendRequestRefillPerMinute", 1);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+        rateLimiter.init();
+    }
+
+    @Test
+    void allowsTheBurstThenThrottlesPerUserAndRule() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.CLASS_CHAT, "alice"));
+        }
+        assertFalse(rateLimiter.tryAcquire(RateLimiter.Rule.CLASS_CHAT, "alice"));
+        assertTrue(rateLimiter.secondsUntilAvailable(RateLimiter.Rule.CLASS_CHAT, "alice") > 0);
+
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.CLASS_CHAT, "bob"), "other users have their own bucket");
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.PRIVATE_CHAT, "alice"), "other rules have their own bucket");
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.FRIEND_REQUEST, "alice"), "capacity 0 switches a rule off");
+        assertEquals(1.0, meterRegistry.get("rate_limit.throttled").tag("rule", "class-chat").counter().count());
+    }
+
+    @Test
+    void refillsOverTime() throws Exception {
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.UPLOAD, "alice"));
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.UPLOAD, "alice"));
+        assertFalse(rateLimiter.tryAcquire(RateLimiter.Rule.UPLOAD, "alice"));
+
+        Thread.sleep(250);
+
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.Rule.UPLOAD, "alice"));
+    }
+
+    @Test
+    void concurrentCallersShareOneBurst() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (rateLimiter.tryAcquire(RateLimiter.Rule.PRIVATE_CHAT, "alice")) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(5, allowed.get());
+        assertEquals(195.0, meterRegistry.get("rate_limit.throttled").tag("rule", "private-chat").counter().count());
+    }
+}
@@ -0,0 +1,269 @@
+package student_management_system.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One deliberately slow client and 500 fast subscribers on the same "/topic/class/{id}".
+ * The slow client completes the STOMP handshake and then stops reading from its socket, so the
+ * server's writes to it back up. For every slow-consumer policy the fast subscribers must still
+ * receive every message while the slow session is either closed or has frames dropped.
+ * Delivery time and the deepest per-session queue are logged.
+ * <p>
+ * Tagged "load" and left out of the default build; run it with {@code mvn test -Pload-tests}.
+ */
+@Tag("load")
+class SlowConsumerLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerLoadTest.class);
+
+    private static final int FAST_SUBSCRIBERS = 500;
+    private static final int MESSAGES = 400;
+    private static final int PAYLOAD_CHARS = 1024;
+    private static final String TOPIC = "/topic/class/42";
+
+    private ConfigurableApplicationContext node;
+    private WebSocketStompClient stompClient;
+    private final List<StompSession> fastSessions = new ArrayList<>();
+    // Held so the client (and with it the slow socket) is not collected during the test
+    private HttpClient slowClient;
+    private WebSocket slowSocket;
+
+    @AfterEach
+    void stop() {
+        fastSessions.forEach(StompSession::disconnect);
+        if (slowSocket != null) slowSocket.abort();
+        if (stompClient != null) stompClient.stop();
+        if (node != null) node.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(SlowConsumerProtection.Policy.class)
+    void fastSubscribersGetEveryMessageDespiteASlowOne(SlowConsumerProtection.Policy policy) throws Exception {
+        node = new SpringApplicationBuilder(LoadTestNode.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--app.websocket.slow-consumer.policy=" + policy.name(),
+                "--app.websocket.slow-consumer.writer-threads=16",
+                "--app.websocket.transport.send-buffer-size-limit=" + (64 * 1024),
+                "--app.websocket.transport.send-time-limit-ms=30000"); // Only the buffer limit is under test
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        MeterRegistry meterRegistry = node.getBean(MeterRegistry.class);
+
+        CountDownLatch allDelivered = new CountDownLatch(FAST_SUBSCRIBERS * MESSAGES);
+        connectFastSubscribers(port, allDelivered);
+        slowClient = HttpClient.newHttpClient();
+        slowSocket = connectSlowSubscriber(slowClient, port);
+        // The simple broker only sends receipts for DISCONNECT, so wait on its registry instead
+        awaitSubscribers(node.getBean(SimpleBrokerMessageHandler.class).getSubscriptionRegistry(), FAST_SUBSCRIBERS + 1);
+
+        String payload = "x".repeat(PAYLOAD_CHARS);
+        SimpMessagingTemplate template = node.getBean(SimpMessagingTemplate.class);
+        long start = System.nanoTime();
+        double maxQueueDepth = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            template.convertAndSend(TOPIC, i + ":" + payload);
+            maxQueueDepth = Math.max(maxQueueDepth, meterRegistry.get("websocket.session.queue.depth.max").gauge().value());
+            Thread.sleep(10); // About a busy lecture's pace, so only the slow client falls behind
+        }
+        boolean delivered = allDelivered.await(60, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        double dropped = meterRegistry.get("websocket.slow_consumer.dropped").counter().count();
+        double coalesced = meterRegistry.get("websocket.slow_consumer.coalesced").counter().count();
+        double disconnected = meterRegistry.get("websocket.slow_consumer.disconnected").counter().count();
+        logger.info(String.format("%n%s: %d fast subscribers x %d messages delivered in %d ms; "
+                        + "max queue depth %.0f, dropped %.0f, coalesced %.0f, disconnected %.0f",
+                policy, FAST_SUBSCRIBERS, MESSAGES, elapsedMs, maxQueueDepth, dropped, coalesced, disconnected));
+
+        assertTrue(delivered, "fast subscribers missed " + allDelivered.getCount() + " messages");
+        assertTrue(maxQueueDepth > 0, "the slow session's queue never grew");
+        if (policy == SlowConsumerProtection.Policy.DISCONNECT) {
+            assertEquals(1.0, disconnected, "only the slow session is closed");
+        } else {
+            assertEquals(0.0, disconnected);
+            assertTrue(dropped > 0, "the slow session's queue was never trimmed");
+        }
+    }
+
+    private void connectFastSubscribers(int port, CountDownLatch delivered) throws Exception {
+        // Coalesced frames arrive together in one WebSocket message
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(256 * 1024);
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+        stompClient.setMessageConverter(new StringMessageConverter());
+        stompClient.setInboundMessageSizeLimit(256 * 1024);
+
+        List<CompletableFuture<StompSession>> connecting = new ArrayList<>();
+        for (int i = 0; i < FAST_SUBSCRIBERS; i++) {
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.setLogin("student" + i + "@example.com");
+            connecting.add(stompClient.connectAsync("ws://localhost:" + port + "/ws-native", new WebSocketHttpHeaders(),
+                    connectHeaders, new StompSessionHandlerAdapter() { }));
+        }
+        for (CompletableFuture<StompSession> future : connecting) {
+            StompSession session = future.get(30, TimeUnit.SECONDS);
+            fastSessions.add(session);
+            session.subscribe(TOPIC, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return String.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    delivered.countDown();
+                }
+            });
+        }
+    }
+
+    /**
+     * Connects with the JDK WebSocket client, which only reads from the socket while there is
+     * demand: after CONNECTED nothing more is requested, so once subscribed the connection backs up.
+     */
+    private static WebSocket connectSlowSubscriber(HttpClient client, int port) throws Exception {
+        CountDownLatch connected = new CountDownLatch(1);
+        WebSocket.Listener listener = new WebSocket.Listener() {
+            private final StringBuilder received = new StringBuilder();
+
+            @Override
+            public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                received.append(data);
+                if (!last) {
+                    webSocket.request(1);
+                } else if (received.toString().startsWith("CONNECTED")) {
+                    connected.countDown(); // No further request(): stop reading
+                } else {
+                    received.setLength(0);
+                    webSocket.request(1);
+                }
+                return null;
+            }
+        };
+        WebSocket socket = client.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + port + "/ws-native"), listener)
+                .get(10, TimeUnit.SECONDS);
+        // One send at a time: the JDK client rejects a send while another is pending
+        socket.sendText("CONNECT\naccept-version:1.2\nhost:localhost\nlogin:slow@example.com\nheart-beat:0,0\n\n\u0000", true)
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(connected.await(10, TimeUnit.SECONDS), "slow client was not connected");
+        socket.sendText("SUBSCRIBE\nid:slow\ndestination:" + TOPIC + "\n\n\u0000", true).get(10, TimeUnit.SECONDS);
+        return socket;
+    }
+
+    private static void awaitSubscribers(SubscriptionRegistry registry, int expected) throws InterruptedException {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(TOPIC);
+        Message<byte[]> probe = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        int subscribed = registry.findSubscriptions(probe).size();
+        while (subscribed < expected && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            subscribed = registry.findSubscriptions(probe).size();
+        }
+        assertEquals(expected, subscribed, "sessions subscribed to " + TOPIC);
+    }
+
+    /**
+     * A web node with the WebSocket configuration and slow-consumer protection. The server's
+     * socket send buffer is kept small so that a client that stops reading backs up after a
+     * few kilobytes, as on a bad connection, instead of after several megabytes of loopback
+     * buffering. The STOMP login header stands in for the authenticated principal.
+     */
+    @EnableAutoConfiguration(exclude = {
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            SecurityFilterAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class,
+            ManagementWebSecurityAutoConfiguration.class
+    })
+    @Import({WebSocketConfig.class, SlowConsumerProtection.class})
+    static class LoadTestNode {
+
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> smallSendBuffer() {
+            return factory -> factory.addConnectorCustomizers(connector -> connector.setProperty("socket.txBufSize", "8192"));
+        }
+
+        @Bean
+        WebSocketMessageBrokerConfigurer loginAsPrincipal() {
+            return new WebSocketMessageBrokerConfigurer() {
+                @Override
+                public void configureClientInboundChannel(ChannelRegistration registration) {
+                    registration.interceptors(new ChannelInterceptor() {
+                        @Override
+                        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                            StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                            if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                                String login = accessor.getLogin();
+                                Principal user = () -> login;
+                                accessor.setUser(user);
+                            }
+                            return message;
+                        }
+                    });
+                }
+            };
+        }
+    }
+}
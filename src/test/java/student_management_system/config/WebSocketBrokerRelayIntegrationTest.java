@@ -0,0 +1,204 @@
+package student_management_system.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two application nodes with {@code app.websocket.broker.mode=relay} against an embedded
+ * Artemis broker and checks that a private message sent on one node reaches a session that is
+ * connected to the other node.
+ */
+class WebSocketBrokerRelayIntegrationTest {
+
+    @TempDir
+    Path brokerDir;
+
+    private EmbeddedActiveMQ broker;
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private WebSocketStompClient stompClient;
+
+    @BeforeEach
+    void startBrokerAndNodes() throws Exception {
+        int stompPort = freePort();
+        ConfigurationImpl brokerConfig = new ConfigurationImpl();
+        brokerConfig.setPersistenceEnabled(false);
+        brokerConfig.setSecurityEnabled(false);
+        brokerConfig.setBrokerInstance(brokerDir.toFile());
+        brokerConfig.addAcceptorConfiguration("stomp",
+                "tcp://127.0.0.1:" + stompPort + "?protocols=STOMP");
+        broker = new EmbeddedActiveMQ().setConfiguration(brokerConfig);
+        broker.start();
+
+        nodeA = startNode(stompPort);
+        nodeB = startNode(stompPort);
+        awaitBrokerAvailable(nodeA);
+        awaitBrokerAvailable(nodeB);
+
+        stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient.setTaskScheduler(receiptScheduler);
+    }
+
+    @AfterEach
+    void stopNodesAndBroker() throws Exception {
+        if (stompClient != null) stompClient.stop();
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+        if (broker != null) broker.stop();
+    }
+
+    @Test
+    void privateMessageSentOnOneNodeReachesSessionOnAnotherNode() throws Exception {
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        StompSession bobSession = connect(nodeB, "bob@example.com");
+
+        CountDownLatch subscribed = new CountDownLatch(1);
+        bobSession.setAutoReceipt(true);
+        bobSession.subscribe("/user/queue/private", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "subscription was not acknowledged by the broker");
+
+        // Same call PrivateChatController makes after saving a message, issued on the other node
+        nodeA.getBean(SimpMessagingTemplate.class)
+                .convertAndSendToUser("bob@example.com", "/queue/private", Map.of("content", "hello from node A"));
+
+        Map<?, ?> message = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(message, "message sent on node A was not delivered to the session on node B");
+        assertEquals("hello from node A", message.get("content"));
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node, String username) throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.setLogin(username);
+        return stompClient.connectAsync("ws://localhost:" + port + "/ws", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static ConfigurableApplicationContext startNode(int stompPort) {
+        // Passed as arguments so they override application.properties
+        return new SpringApplicationBuilder(RelayNode.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--app.websocket.broker.mode=relay",
+                "--app.websocket.broker.relay.host=127.0.0.1",
+                "--app.websocket.broker.relay.port=" + stompPort);
+    }
+
+    private static void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = node.getBean(StompBrokerRelayMessageHandler.class);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(relay.isBrokerAvailable(), "relay did not connect to the broker");
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * A web node with only the WebSocket configuration. The STOMP login header stands in for the
+     * authenticated principal that Spring Security provides in the full application.
+     */
+    @EnableAutoConfiguration(exclude = {
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            SecurityFilterAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class,
+            ManagementWebSecurityAutoConfiguration.class
+    })
+    @Import(WebSocketConfig.class)
+    static class RelayNode {
+
+        @Bean
+        WebSocketMessageBrokerConfigurer loginAsPrincipal() {
+            return new WebSocketMessageBrokerConfigurer() {
+                @Override
+                public void configureClientInboundChannel(ChannelRegistration registration) {
+                    registration.interceptors(new ChannelInterceptor() {
+                        @Override
+                        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                            StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                            if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                                String login = accessor.getLogin();
+                                Principal user = () -> login;
+                                accessor.setUser(user);
+                            }
+                            return message;
+                        }
+                    });
+                }
+            };
+        }
+    }
+}
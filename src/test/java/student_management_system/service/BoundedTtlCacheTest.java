@@ -0,0 +1,41 @@
+package student_management_system.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that a load overlapping a change is not cached, that entries expire, and that a full
+ * cache drops half its entries.
+ */
+class BoundedTtlCacheTest {
+
+    @Test
+    void doesNotCacheALoadThatOverlappedAChange() {
+        BoundedTtlCache<Long, String> cache = new BoundedTtlCache<>(() -> 60, () -> 10);
+
+        long loadGeneration = cache.generation();
+        cache.remove(1L); // Evicted while the load ran
+        cache.putIfUnchanged(1L, "stale", loadGeneration);
+        assertNull(cache.get(1L));
+
+        cache.putIfUnchanged(1L, "fresh", cache.generation());
+        cache.update(1L, value -> value + "!");
+        assertEquals("fresh!", cache.get(1L));
+    }
+
+    @Test
+    void expiresEntriesAndDropsHalfWhenFull() {
+        BoundedTtlCache<Long, String> expiring = new BoundedTtlCache<>(() -> 0, () -> 10);
+        expiring.put(1L, "one");
+        assertNull(expiring.get(1L));
+
+        BoundedTtlCache<Long, String> bounded = new BoundedTtlCache<>(null, () -> 4);
+        for (long key = 1; key <= 5; key++) {
+            bounded.put(key, "value");
+        }
+        assertEquals(3, bounded.size(), "four entries, half dropped, then the fifth added");
+        assertEquals("value", bounded.get(5L));
+    }
+}
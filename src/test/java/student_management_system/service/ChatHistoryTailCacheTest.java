@@ -0,0 +1,118 @@
+package student_management_system.service;
+
+import student_management_system.web.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the tail cache serves repeated and freshly sent messages without reloading, keeps
+ * messages sent during a load, evicts the least recently used class, and always expires tails
+ * when messages can arrive through other nodes.
+ */
+class ChatHistoryTailCacheTest {
+
+    private ChatHistoryTailCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void createCache() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ChatHistoryTailCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "capacity", 5);
+        ReflectionTestUtils.setField(cache, "maxClasses", 2);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+    }
+
+    @Test
+    void servesRepeatedRequestsAndSentMessagesFromMemory() {
+        assertEquals(List.of(2L, 3L), ids(cache.getLatest(1L, 2, storage(1, 3))));
+        cache.append(1L, message(4, 1L, 100L));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(cache.getLatest(1L, 5, storage(1, 3))));
+        assertEquals(1, loads.get(), "the class held its whole history, so only the first request loads");
+        assertEquals(1.0, meterRegistry.counter("chat.tail_cache.hits").count());
+        assertEquals(1.0, meterRegistry.counter("chat.tail_cache.misses").count());
+    }
+
+    @Test
+    void keepsMessagesSentWhileLoading() {
+        IntFunction<List<ChatMessageDto>> slowStorage = count -> {
+            // Sent after the query ran but before the load finished
+            cache.append(1L, message(11, 1L, 100L));
+            return storage(8, 10).apply(count);
+        };
+        cache.getLatest(1L, 3, slowStorage);
+
+        assertEquals(List.of(9L, 10L, 11L), ids(cache.getLatest(1L, 3, storage(8, 10))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedClassAndSenders() {
+        cache.getLatest(1L, 2, storage(1, 2));
+        cache.getLatest(2L, 2, storage(1, 2));
+        cache.getLatest(1L, 2, storage(1, 2)); // Class 2 is now the least recently used
+        cache.getLatest(3L, 2, storage(1, 2));
+        assertEquals(3, loads.get());
+
+        cache.getLatest(1L, 2, storage(1, 2));
+        assertEquals(3, loads.get(), "class 1 stayed resident");
+        cache.getLatest(2L, 2, storage(1, 2));
+        assertEquals(4, loads.get(), "class 2 was evicted");
+
+        cache.evictSender(100L);
+        cache.getLatest(2L, 2, storage(1, 2));
+        assertEquals(5, loads.get(), "tails showing the sender are reloaded");
+    }
+
+    @Test
+    void expiresTailsInRelayModeEvenWithoutATtl() {
+        ReflectionTestUtils.setField(cache, "brokerMode", "relay");
+        ReflectionTestUtils.setField(cache, "relayTtlSeconds", 10L);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+
+        assertEquals(10L, ReflectionTestUtils.getField(cache, "ttlSeconds"));
+    }
+
+    /**
+     * Storage holding messages with IDs from..to; answers newest first like the repository.
+     */
+    private IntFunction<List<ChatMessageDto>> storage(long from, long to) {
+        return count -> {
+            loads.incrementAndGet();
+            List<ChatMessageDto> newestFirst = new ArrayList<>();
+            for (long id = to; id >= from && newestFirst.size() < count; id--) {
+                newestFirst.add(message(id, 1L, 100L));
+            }
+            return newestFirst;
+        };
+    }
+
+    private static ChatMessageDto message(long id, Long classId, Long senderId) {
+        ChatMessageDto dto = new ChatMessageDto();
+        dto.setId(id);
+        dto.setClassId(classId);
+        dto.setSenderId(senderId);
+        dto.setContent("Message " + id);
+        return dto;
+    }
+
+    private static List<Long> ids(List<ChatMessageDto> messages) {
+        return messages.stream().map(ChatMessageDto::getId).toList();
+    }
+}
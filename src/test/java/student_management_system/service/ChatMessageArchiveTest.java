@@ -0,0 +1,96 @@
+package student_management_system.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes segments to a temporary directory and pages back through them the way chat history
+ * does, including across block and segment boundaries.
+ */
+class ChatMessageArchiveTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 9, 2, 8, 0, 0, 123_000_000);
+    private static final Long CLASS_ID = 7L;
+
+    @TempDir
+    Path archiveDir;
+
+    private ChatMessageArchive archive;
+
+    @BeforeEach
+    void createArchive() {
+        archive = new ChatMessageArchive();
+        ReflectionTestUtils.setField(archive, "archiveDir", archiveDir.toString());
+        ReflectionTestUtils.setField(archive, "blockSize", 4);
+    }
+
+    @Test
+    void pagesBackwardsAcrossBlocksAndSegments() throws Exception {
+        // IDs are not in timestamp order (write-behind), so positions compare by (timestamp, id)
+        writeSegment(message(5, 0), message(3, 1), message(4, 1), message(1, 2), message(2, 3));
+        writeSegment(message(9, 4), message(8, 5), message(6, 6), message(7, 7), message(10, 8), message(11, 8));
+
+        List<Long> ids = new ArrayList<>();
+        List<ChatMessageArchive.ArchivedMessage> page = archive.readBefore(CLASS_ID, null, 0, 3);
+        while (!page.isEmpty()) {
+            page.forEach(message -> ids.add(message.id()));
+            ChatMessageArchive.ArchivedMessage oldest = page.get(page.size() - 1);
+            page = archive.readBefore(CLASS_ID, oldest.timestamp(), oldest.id(), 3);
+        }
+
+        assertEquals(List.of(11L, 10L, 7L, 6L, 8L, 9L, 2L, 1L, 4L, 3L, 5L), ids);
+    }
+
+    @Test
+    void resolvesCursorsAndKeepsContent() throws Exception {
+        writeSegment(message(1, 0), new ChatMessageArchive.ArchivedMessage(2, START.plusSeconds(1), 42, "Grüße 👋"), message(3, 2));
+
+        assertEquals(START.plusSeconds(1), archive.findTimestamp(CLASS_ID, 2).orElseThrow());
+        assertTrue(archive.findTimestamp(CLASS_ID, 99).isEmpty());
+
+        ChatMessageArchive.ArchivedMessage found = archive.readBefore(CLASS_ID, START.plusSeconds(2), 3, 1).get(0);
+        assertEquals("Grüße 👋", found.content());
+        assertEquals(42, found.senderId());
+        assertEquals(3L, archive.findNewest(CLASS_ID).orElseThrow().id());
+    }
+
+    @Test
+    void uncommittedSegmentsAreInvisibleAndDeletedClassesAreGone() throws Exception {
+        try (ChatMessageArchive.SegmentWriter writer = archive.openSegment(CLASS_ID)) {
+            writer.append(message(1, 0));
+        }
+        assertTrue(archive.findNewest(CLASS_ID).isEmpty());
+
+        writeSegment(message(2, 1));
+        assertEquals(List.of(CLASS_ID), archive.findArchivedClassIds());
+
+        archive.deleteClass(CLASS_ID);
+        assertFalse(Files.exists(archiveDir.resolve("class-" + CLASS_ID)));
+        assertTrue(archive.readBefore(CLASS_ID, null, 0, 10).isEmpty());
+    }
+
+    private void writeSegment(ChatMessageArchive.ArchivedMessage... messages) throws Exception {
+        try (ChatMessageArchive.SegmentWriter writer = archive.openSegment(CLASS_ID)) {
+            for (ChatMessageArchive.ArchivedMessage message : messages) {
+                writer.append(message);
+            }
+            writer.commit();
+        }
+    }
+
+    private static ChatMessageArchive.ArchivedMessage message(long id, int secondsAfterStart) {
+        return new ChatMessageArchive.ArchivedMessage(id, START.plusSeconds(secondsAfterStart), 100 + id, "Message " + id);
+    }
+}
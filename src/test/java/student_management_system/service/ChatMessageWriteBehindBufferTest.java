@@ -0,0 +1,124 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.SchoolClass;
+import student_management_system.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a batch that keeps failing is written again message by message, so only the
+ * message that fails on its own is dropped, and that the conversation summaries get one call per
+ * written batch.
+ */
+class ChatMessageWriteBehindBufferTest {
+
+    private ChatMessageWriteBehindBuffer buffer;
+    private ConversationSummaryService conversationSummaryService;
+    private SimpleMeterRegistry meterRegistry;
+    // Message IDs committed, batch by batch
+    private final List<List<Long>> written = new ArrayList<>();
+
+    @BeforeEach
+    void createBuffer() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any())).thenAnswer(invocation -> {
+            Collection<ChatMessage> batch = invocation.getArgument(1);
+            List<Long> ids = batch.stream().map(ChatMessage::getId).toList();
+            if (ids.contains(13L)) {
+                throw new DataIntegrityViolationException("Data too long for column 'content'");
+            }
+            written.add(ids);
+            return new int[][]{};
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        conversationSummaryService = mock(ConversationSummaryService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        buffer = new ChatMessageWriteBehindBuffer();
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "capacity", 100);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(buffer, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(buffer, "maxFlushAttempts", 2);
+        ReflectionTestUtils.setField(buffer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(buffer, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(buffer, "conversationSummaryService", conversationSummaryService);
+        ReflectionTestUtils.setField(buffer, "meterRegistry", meterRegistry);
+        buffer.start();
+    }
+
+    @Test
+    void dropsOnlyTheMessageThatFailsOnItsOwn() throws Exception {
+        for (long id = 10; id < 15; id++) {
+            queued().add(message(id));
+        }
+
+        buffer.stop();
+
+        assertEquals(List.of(List.of(10L), List.of(11L), List.of(12L), List.of(14L)), written);
+        assertEquals(1.0, meterRegistry.counter("chat.write_behind.dropped").count());
+    }
+
+    @Test
+    void updatesTheSummariesOncePerBatch() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            queued().add(message(id));
+        }
+
+        buffer.stop();
+
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L, 5L)), written);
+        verify(conversationSummaryService, times(1)).recordClassMessages(any());
+        assertEquals(0.0, meterRegistry.counter("chat.write_behind.dropped").count());
+    }
+
+    /**
+     * Stops the flusher thread and returns its queue, so the messages added are written by stop()
+     * in one batch.
+     */
+    @SuppressWarnings("unchecked")
+    private BlockingQueue<ChatMessage> queued() throws InterruptedException {
+        ReflectionTestUtils.setField(buffer, "running", false);
+        ((Thread) ReflectionTestUtils.getField(buffer, "flusher")).join();
+        return (BlockingQueue<ChatMessage>) ReflectionTestUtils.getField(buffer, "queue");
+    }
+
+    private static ChatMessage message(long id) {
+        User sender = new User();
+        sender.setId(100L);
+        SchoolClass schoolClass = new SchoolClass();
+        schoolClass.setId(1L);
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setContent("message " + id);
+        message.setTimestamp(LocalDateTime.of(2026, 10, 16, 9, 0).plusSeconds(id));
+        message.setSender(sender);
+        message.setSchoolClass(schoolClass);
+        return message;
+    }
+}
@@ -0,0 +1,87 @@
+package student_management_system.service;
+
+import student_management_system.model.ChatMessage;
+import student_management_system.model.ConversationSummary;
+import student_management_system.model.SchoolClass;
+import student_management_system.model.User;
+import student_management_system.repository.ConversationSummaryRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that reopening a class chat that is already read skips the unread reset, and that a new
+ * message of the class makes the next open reset again.
+ */
+class ConversationSummaryReadMarksTest {
+
+    private static final String CLASS_REF = ConversationSummary.classRef(1L);
+
+    private ConversationSummaryServiceImpl service;
+    private ConversationSummaryRepository repository;
+
+    @BeforeEach
+    void createService() {
+        repository = mock(ConversationSummaryRepository.class);
+        when(repository.existsByOwner_IdAndConversationRef(anyLong(), anyString())).thenReturn(true);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        service = new ConversationSummaryServiceImpl();
+        ReflectionTestUtils.setField(service, "readMarkTtlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "readMarkMaxOwnersPerClass", 100);
+        ReflectionTestUtils.setField(service, "conversationSummaryRepository", repository);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        service.init();
+    }
+
+    @Test
+    void skipsTheResetUntilTheClassHasANewMessage() {
+        service.markClassConversationRead(10L, 1L);
+        service.markClassConversationRead(10L, 1L);
+        service.markClassConversationRead(20L, 1L);
+        verify(repository, times(1)).resetUnreadCount(10L, CLASS_REF);
+        verify(repository, times(1)).resetUnreadCount(20L, CLASS_REF);
+
+        service.recordClassMessage(message(20L));
+        service.markClassConversationRead(10L, 1L);
+
+        verify(repository, times(2)).resetUnreadCount(10L, CLASS_REF);
+    }
+
+    @Test
+    void expiredMarksResetAgain() {
+        ReflectionTestUtils.setField(service, "readMarkTtlSeconds", 0L);
+
+        service.markClassConversationRead(10L, 1L);
+        service.markClassConversationRead(10L, 1L);
+
+        verify(repository, times(2)).resetUnreadCount(10L, CLASS_REF);
+    }
+
+    private static ChatMessage message(Long senderId) {
+        User sender = new User();
+        sender.setId(senderId);
+        SchoolClass schoolClass = new SchoolClass();
+        schoolClass.setId(1L);
+        ChatMessage message = new ChatMessage();
+        message.setId(1L);
+        message.setContent("hello");
+        message.setTimestamp(LocalDateTime.of(2026, 10, 16, 9, 0));
+        message.setSender(sender);
+        message.setSchoolClass(schoolClass);
+        return message;
+    }
+}
@@ -0,0 +1,64 @@
+package student_management_system.service;
+
+import student_management_system.repository.UserRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that friend IDs are loaded once per user, kept sorted, and updated in place by
+ * added and removed friendships.
+ */
+class FriendGraphTest {
+
+    private FriendGraph friendGraph;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void createGraph() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findFriendIds(1L)).thenReturn(List.of(7L, 3L, 5L));
+        when(userRepository.findFriendIds(4L)).thenReturn(List.of());
+        friendGraph = new FriendGraph();
+        ReflectionTestUtils.setField(friendGraph, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(friendGraph, "maxUsers", 100);
+        ReflectionTestUtils.setField(friendGraph, "userRepository", userRepository);
+    }
+
+    @Test
+    void loadsEachUserOnceAndAnswersFromTheSortedIds() {
+        assertTrue(friendGraph.areFriends(1L, 5L));
+        assertFalse(friendGraph.areFriends(1L, 4L));
+        assertFalse(friendGraph.areFriends(1L, 1L));
+        assertArrayEquals(new long[] {3, 5, 7}, friendGraph.getFriendIds(1L));
+        assertEquals(3, friendGraph.countFriends(1L));
+
+        verify(userRepository, times(1)).findFriendIds(1L);
+    }
+
+    @Test
+    void appliesAddedAndRemovedFriendshipsToBothUsers() {
+        friendGraph.getFriendIds(1L);
+        friendGraph.getFriendIds(4L);
+
+        friendGraph.addFriendship(1L, 4L);
+        friendGraph.removeFriendship(3L, 1L);
+
+        assertArrayEquals(new long[] {4, 5, 7}, friendGraph.getFriendIds(1L));
+        assertTrue(friendGraph.areFriends(4L, 1L));
+        verify(userRepository, times(1)).findFriendIds(1L);
+        verify(userRepository, times(1)).findFriendIds(4L);
+    }
+}
@@ -0,0 +1,86 @@
+package student_management_system.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks the ranking on a small graph: friends of friends and classmates are suggested with
+ * their counts, best first; the user and existing friends never are.
+ */
+class FriendSuggestionServiceTest {
+
+    @Test
+    void ranksByMutualFriendsAndSharedClasses() {
+        long[] userIds = {1, 2, 3, 4, 5, 6};
+        FriendSuggestionServiceImpl.IdPairs friendships = new FriendSuggestionServiceImpl.IdPairs();
+        befriend(friendships, 1, 2);
+        befriend(friendships, 1, 3);
+        befriend(friendships, 2, 4);
+        befriend(friendships, 3, 4);
+        befriend(friendships, 3, 5);
+        befriend(friendships, 2, 99); // User deleted since the user list was read
+        FriendSuggestionServiceImpl.IdPairs enrollments = pairs(10, 1, 10, 5, 10, 6, 11, 1, 11, 6, 11, 2);
+
+        Map<Long, long[]> suggestions = FriendSuggestionServiceImpl.rank(userIds, friendships, enrollments, 10, 2, 1);
+
+        // User 1: 4 has two mutual friends (score 4), 5 one mutual friend and a class (3), 6 two classes (2)
+        long[] forUser1 = suggestions.get(1L);
+        assertArrayEquals(new long[] {4, 5, 6}, candidates(forUser1));
+        assertEquals(2, FriendSuggestionServiceImpl.mutualFriends(forUser1[1]));
+        assertEquals(1, FriendSuggestionServiceImpl.mutualFriends(forUser1[3]));
+        assertEquals(1, FriendSuggestionServiceImpl.sharedClasses(forUser1[3]));
+        assertEquals(2, FriendSuggestionServiceImpl.sharedClasses(forUser1[5]));
+
+        for (Map.Entry<Long, long[]> entry : suggestions.entrySet()) {
+            for (long candidate : candidates(entry.getValue())) {
+                assertFalse(candidate == entry.getKey(), "never suggests the user");
+                for (int i = 0; i < friendships.size(); i++) {
+                    assertFalse(friendships.key(i) == entry.getKey() && friendships.value(i) == candidate,
+                            "never suggests a friend");
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsOnlyTheTopN() {
+        long[] userIds = {1, 2, 3, 4};
+        FriendSuggestionServiceImpl.IdPairs enrollments = new FriendSuggestionServiceImpl.IdPairs();
+        for (long id : userIds) {
+            enrollments.add(10, id);
+        }
+        enrollments.add(11, 1);
+        enrollments.add(11, 3);
+
+        long[] forUser1 = FriendSuggestionServiceImpl.rank(userIds, new FriendSuggestionServiceImpl.IdPairs(),
+                enrollments, 2, 2, 1).get(1L);
+
+        assertArrayEquals(new long[] {3, 2}, candidates(forUser1), "two shared classes first, then the lower ID");
+    }
+
+    private static void befriend(FriendSuggestionServiceImpl.IdPairs friendships, long a, long b) {
+        friendships.add(a, b);
+        friendships.add(b, a);
+    }
+
+    private static FriendSuggestionServiceImpl.IdPairs pairs(long... keysAndValues) {
+        FriendSuggestionServiceImpl.IdPairs pairs = new FriendSuggestionServiceImpl.IdPairs();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            pairs.add(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return pairs;
+    }
+
+    private static long[] candidates(long[] ranked) {
+        long[] ids = new long[ranked.length / 2];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ranked[i * 2];
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,146 @@
+package student_management_system.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a class's gradebook is built once and then served from its snapshot, that a
+ * change is rebuilt in the background while readers keep getting the previous snapshot, and that
+ * a refresh after the max age only changes the ETag if the content changed.
+ */
+class GradebookSnapshotsTest {
+
+    private static final Gradebook FIRST = Gradebook.build(1L, List.of(), List.of(), List.of(), List.of(), List.of());
+    private static final Gradebook SECOND = Gradebook.build(1L, List.of(), List.of(), List.of(), List.of(), List.of());
+    private static final Gradebook ENROLLED = Gradebook.build(1L,
+            List.<Object[]>of(new Object[] {5L, "ann", "Ann", "Lee", "S5"}), List.of(), List.of(), List.of(), List.of());
+
+    private GradebookSnapshots snapshots;
+    private GradebookService gradebookService;
+
+    @BeforeEach
+    void createSnapshots() {
+        gradebookService = mock(GradebookService.class);
+        ClassGradeSummaryService classGradeSummaryService = mock(ClassGradeSummaryService.class);
+        when(classGradeSummaryService.findSummariesByClassId(1L)).thenReturn(Map.of());
+        snapshots = new GradebookSnapshots();
+        ReflectionTestUtils.setField(snapshots, "maxAgeSeconds", 300L);
+        ReflectionTestUtils.setField(snapshots, "maxClasses", 10);
+        ReflectionTestUtils.setField(snapshots, "rebuildThreads", 1);
+        ReflectionTestUtils.setField(snapshots, "gradebookService", gradebookService);
+        ReflectionTestUtils.setField(snapshots, "classGradeSummaryService", classGradeSummaryService);
+        ReflectionTestUtils.setField(snapshots, "meterRegistry", new SimpleMeterRegistry());
+        snapshots.start();
+    }
+
+    @AfterEach
+    void stopSnapshots() {
+        snapshots.stop();
+    }
+
+    @Test
+    void buildsOnFirstViewThenServesTheSnapshot() {
+        when(gradebookService.buildGradebook(1L)).thenReturn(FIRST);
+
+        GradebookSnapshots.Snapshot first = snapshots.get(1L);
+        GradebookSnapshots.Snapshot again = snapshots.get(1L);
+
+        assertSame(FIRST, first.gradebook());
+        assertSame(first, again);
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""), first.etag());
+        verify(gradebookService, times(1)).buildGradebook(1L);
+    }
+
+    @Test
+    void servesThePreviousSnapshotWhileAChangeIsRebuilt() throws Exception {
+        when(gradebookService.buildGradebook(1L)).thenReturn(FIRST);
+        GradebookSnapshots.Snapshot first = snapshots.get(1L);
+
+        CountDownLatch rebuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseRebuild = new CountDownLatch(1);
+        when(gradebookService.buildGradebook(1L)).thenAnswer(invocation -> {
+            rebuildStarted.countDown();
+            releaseRebuild.await(5, TimeUnit.SECONDS);
+            return SECOND;
+        });
+        snapshots.markChanged(1L);
+        assertTrue(rebuildStarted.await(5, TimeUnit.SECONDS), "the change starts a background rebuild");
+
+        assertSame(first, snapshots.get(1L), "readers do not wait for the rebuild");
+
+        releaseRebuild.countDown();
+        GradebookSnapshots.Snapshot rebuilt = first;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rebuilt == first && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            rebuilt = snapshots.get(1L);
+        }
+        assertSame(SECOND, rebuilt.gradebook());
+        assertTrue(rebuilt.version() > first.version());
+        assertNotEquals(first.etag(), rebuilt.etag());
+        assertEquals(rebuilt, snapshots.get(1L));
+    }
+
+    @Test
+    void refreshKeepsTheETagOfUnchangedContent() throws Exception {
+        when(gradebookService.buildGradebook(1L)).thenReturn(FIRST);
+        GradebookSnapshots.Snapshot first = snapshots.get(1L);
+        ReflectionTestUtils.setField(snapshots, "maxAgeSeconds", 0L);
+        when(gradebookService.buildGradebook(1L)).thenReturn(SECOND);
+
+        GradebookSnapshots.Snapshot refreshed = awaitSnapshotOtherThan(first);
+
+        assertTrue(refreshed.builtAtNanos() > first.builtAtNanos());
+        assertEquals(first.version(), refreshed.version());
+        assertEquals(first.etag(), refreshed.etag());
+        assertEquals(first.lastModified(), refreshed.lastModified());
+    }
+
+    @Test
+    void refreshGivesChangedContentANewETag() throws Exception {
+        when(gradebookService.buildGradebook(1L)).thenReturn(FIRST);
+        GradebookSnapshots.Snapshot first = snapshots.get(1L);
+        ReflectionTestUtils.setField(snapshots, "maxAgeSeconds", 0L);
+        when(gradebookService.buildGradebook(1L)).thenReturn(ENROLLED);
+
+        GradebookSnapshots.Snapshot refreshed = awaitSnapshotOtherThan(first);
+
+        assertSame(ENROLLED, refreshed.gradebook());
+        assertTrue(refreshed.version() > first.version());
+        assertNotEquals(first.etag(), refreshed.etag());
+    }
+
+    @Test
+    void ignoresChangesToClassesNobodyViewed() {
+        snapshots.markChanged(2L);
+
+        verify(gradebookService, times(0)).buildGradebook(2L);
+    }
+
+    private GradebookSnapshots.Snapshot awaitSnapshotOtherThan(GradebookSnapshots.Snapshot previous) throws InterruptedException {
+        GradebookSnapshots.Snapshot current = previous;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (current == previous && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            current = snapshots.get(1L);
+        }
+        return current;
+    }
+}
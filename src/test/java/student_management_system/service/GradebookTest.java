@@ -0,0 +1,140 @@
+package student_management_system.service;
+
+import student_management_system.model.QuizAttempt.AttemptStatus;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks cell placement, statuses, labels and pass marks, which of several submissions or
+ * attempts a cell shows, that rows for unknown students or items are ignored, which cells count
+ * points, and that the export stream merges the two cursors into one row per student.
+ */
+class GradebookTest {
+
+    private static final List<Object[]> STUDENTS = List.of(
+            new Object[] {10L, "ann@school.edu", "Ann", "Adams", "S1"},
+            new Object[] {20L, "bob@school.edu", "Bob", "Brown", null});
+    private static final List<Object[]> ASSIGNMENTS = List.of(
+            new Object[] {100L, "Essay"},
+            new Object[] {101L, "Lab report"});
+    private static final List<Object[]> QUIZZES = List.<Object[]>of(new Object[] {200L, "Quiz 1"});
+
+    @Test
+    void placesCellsAndDerivesStatusesAndLabels() {
+        Gradebook gradebook = Gradebook.build(1L, STUDENTS, ASSIGNMENTS, QUIZZES,
+                List.of(new Object[] {10L, 100L, "B+", 87.0, false, false},
+                        new Object[] {20L, 100L, null, null, false, false},
+                        new Object[] {20L, 101L, "F", 40.0, false, false}),
+                List.of(new Object[] {10L, 200L, AttemptStatus.GRADED, 4.5, 10},
+                        new Object[] {20L, 200L, AttemptStatus.IN_PROGRESS, null, 10}));
+
+        assertEquals(List.of("Essay", "Lab report", "Quiz 1"),
+                gradebook.getItems().stream().map(Gradebook.Item::title).toList());
+        assertEquals(Gradebook.GRADED, gradebook.status(0, 0));
+        assertEquals("B+", gradebook.label(0, 0));
+        assertTrue(gradebook.passing(0, 0));
+        assertEquals(Gradebook.MISSING, gradebook.status(0, 1));
+        assertEquals("Not Submitted", gradebook.label(0, 1));
+        assertEquals("4.5/10", gradebook.label(0, 2));
+        assertEquals(45.0, gradebook.percent(0, 2), 1e-9);
+        assertFalse(gradebook.passing(0, 2));
+
+        assertEquals(Gradebook.SUBMITTED, gradebook.status(1, 0));
+        assertEquals("Submitted", gradebook.label(1, 0));
+        assertTrue(Double.isNaN(gradebook.score(1, 0)));
+        assertFalse(gradebook.passing(1, 1));
+        assertEquals(Gradebook.IN_PROGRESS, gradebook.status(1, 2));
+        assertEquals("In Progress", gradebook.label(1, 2));
+    }
+
+    @Test
+    void prefersActiveSubmissionsAndMostAdvancedAttempts() {
+        Gradebook gradebook = Gradebook.build(1L, STUDENTS, ASSIGNMENTS, QUIZZES,
+                List.of(new Object[] {10L, 100L, "D", 50.0, false, true},
+                        new Object[] {10L, 100L, "A", 95.0, true, false},
+                        new Object[] {20L, 100L, "C", 70.0, false, false},
+                        new Object[] {20L, 100L, "E", 10.0, false, true},
+                        new Object[] {30L, 100L, "A", 99.0, false, false},
+                        new Object[] {10L, 999L, "A", 99.0, false, false}),
+                List.of(new Object[] {10L, 200L, AttemptStatus.GRADED, 9.0, 10},
+                        new Object[] {10L, 200L, AttemptStatus.IN_PROGRESS, null, 10},
+                        new Object[] {20L, 200L, AttemptStatus.SUBMITTED, null, 10},
+                        new Object[] {20L, 200L, AttemptStatus.SUBMITTED, null, 12}));
+
+        assertEquals("A", gradebook.label(0, 0), "the active makeup submission wins");
+        assertEquals("C", gradebook.label(1, 0), "a superseded submission never replaces an active one");
+        assertEquals("9.0/10", gradebook.label(0, 2), "a later attempt in progress does not hide a graded one");
+        assertEquals(12, gradebook.maxScore(1, 2), "the latest of equal attempts wins");
+        assertEquals(2, gradebook.getStudents().size());
+    }
+
+    @Test
+    void streamsOneRowPerStudentFromTwoCursors() throws Exception {
+        Gradebook.Columns columns = new Gradebook.Columns(ASSIGNMENTS, QUIZZES);
+        List<Object[]> submissionRows = List.of(
+                new Object[] {10L, "ann@school.edu", "Ann", "Adams", "S1", 100L, "B", 80.0, false, true, 1L},
+                new Object[] {10L, "ann@school.edu", "Ann", "Adams", "S1", 100L, "A", 90.0, true, false, 2L},
+                new Object[] {10L, "ann@school.edu", "Ann", "Adams", "S1", 101L, null, null, null, null, null},
+                new Object[] {20L, "bob@school.edu", "Bob", "Brown", null, 100L, null, null, false, false, 3L},
+                new Object[] {20L, "bob@school.edu", "Bob", "Brown", null, 101L, null, null, null, null, null},
+                new Object[] {30L, "cy@school.edu", "Cy", "Cole", "S3", null, null, null, null, null, null});
+        List<Object[]> attemptRows = List.of(
+                new Object[] {10L, 200L, AttemptStatus.GRADED, 7.0, 10, 5L},
+                new Object[] {20L, 200L, null, null, null, null},
+                new Object[] {30L, 200L, AttemptStatus.SUBMITTED, null, 10, 6L});
+        List<List<String>> rows = new ArrayList<>();
+
+        Gradebook.stream(columns, submissionRows.iterator(), attemptRows.iterator(),
+                values -> rows.add(Arrays.asList(values.clone())));
+
+        assertEquals(List.of(
+                List.of("Last Name", "First Name", "Username", "Student ID", "Essay", "Lab report", "Quiz 1"),
+                List.of("Adams", "Ann", "ann@school.edu", "S1", "A", "Not Submitted", "7.0/10"),
+                Arrays.asList("Brown", "Bob", "bob@school.edu", null, "Submitted", "Not Submitted", "Not Started"),
+                List.of("Cole", "Cy", "cy@school.edu", "S3", "Not Submitted", "Not Submitted", "Submitted")), rows);
+    }
+
+    @Test
+    void countsPointsOfGradedItemsOnly() {
+        Gradebook gradebook = Gradebook.build(1L, STUDENTS, ASSIGNMENTS, QUIZZES,
+                List.of(new Object[] {10L, 100L, "80", 80.0, false, false},
+                        new Object[] {10L, 101L, null, null, false, false},
+                        new Object[] {20L, 100L, "90", 90.0, false, true}),
+                List.of(new Object[] {10L, 200L, AttemptStatus.GRADED, 6.0, 8},
+                        new Object[] {20L, 200L, AttemptStatus.GRADED, 5.0, null}));
+
+        assertEquals(new Gradebook.Points(86.0, 108.0, 2), gradebook.points(0));
+        assertEquals(86.0 * 100 / 108.0, gradebook.points(0).percent(), 1e-9);
+        assertEquals(new Gradebook.Points(90.0, 100.0, 1), gradebook.points(1),
+                "a quiz without a max score counts nothing");
+        assertNull(Gradebook.Points.NONE.percent());
+
+        assertEquals(new Gradebook.Points(95.0, 100.0, 1), Gradebook.assignmentPoints(List.of(
+                new Object[] {"50", 50.0, false, true},
+                new Object[] {"95", 95.0, true, false})));
+        assertEquals(Gradebook.Points.NONE, Gradebook.assignmentPoints(List.<Object[]>of(
+                new Object[] {null, null, true, false})), "a makeup waiting for a grade counts nothing");
+        assertEquals(new Gradebook.Points(3.0, 4.0, 1), Gradebook.quizPoints(List.<Object[]>of(
+                new Object[] {AttemptStatus.GRADED, 3.0, 4})));
+    }
+
+    @Test
+    void handlesClassesWithoutStudentsOrItems() {
+        Gradebook empty = Gradebook.build(1L, List.of(), ASSIGNMENTS, QUIZZES, List.of(), List.of());
+        assertTrue(empty.isEmpty());
+
+        Gradebook noItems = Gradebook.build(1L, STUDENTS, List.of(), List.of(),
+                List.<Object[]>of(new Object[] {10L, 100L, "A", 90.0, false, false}), List.of());
+        assertFalse(noItems.isEmpty());
+        assertTrue(noItems.getItems().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package student_management_system.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks ranking, access scoping, snippets and rebuilds of the message search index on a
+ * temporary directory.
+ */
+class MessageSearchIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 4, 14, 10, 15, 30);
+
+    @TempDir
+    Path indexDir;
+
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void openIndex() throws Exception {
+        index = new MessageSearchIndex();
+        index.open(indexDir);
+        index.indexClassMessage(1L, "Did anyone solve the homework on photosynthesis?", NOW, 10L, 100L);
+        index.indexClassMessage(2L, "Photosynthesis photosynthesis photosynthesis", NOW.plusMinutes(1), 10L, 101L);
+        index.indexClassMessage(3L, "Photosynthesis notes for another class", NOW, 20L, 102L);
+        index.indexPrivateMessage(4L, "Sending you my <b>photosynthesis</b> summary", "biology-notes.pdf", NOW,
+                "100:101", 100L, 101L);
+        index.indexPrivateMessage(5L, null, "lab-report.docx", NOW, "100:103", 100L, 103L);
+        index.refresh();
+    }
+
+    @AfterEach
+    void closeIndex() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void onlySearchesTheCallersClassesAndConversations() throws Exception {
+        MessageSearchIndex.SearchPage page = index.search("photosynthesis", List.of(10L), List.of("100:101"), 0, 10);
+
+        assertEquals(3, page.totalHits());
+        assertTrue(page.hits().stream().noneMatch(hit -> hit.messageId() == 3L), "class 20 is not the caller's");
+        assertEquals(2L, page.hits().get(0).messageId(), "the message repeating the word ranks first");
+    }
+
+    @Test
+    void everyWordMustMatchAndTheLastOneMayBeAPrefix() throws Exception {
+        MessageSearchIndex.SearchPage page = index.search("homework photo", List.of(10L, 20L), List.of(), 0, 10);
+
+        assertEquals(1, page.totalHits());
+        assertEquals(1L, page.hits().get(0).messageId());
+    }
+
+    @Test
+    void snippetsAreEscapedAndHighlighted() throws Exception {
+        MessageSearchIndex.Hit hit = index.search("summary", List.of(), List.of("100:101"), 0, 10).hits().get(0);
+
+        assertTrue(hit.snippet().contains("<mark>summary</mark>"), hit.snippet());
+        assertTrue(hit.snippet().contains("&lt;b&gt;"), "message HTML must be escaped: " + hit.snippet());
+    }
+
+    @Test
+    void findsAttachmentOnlyMessagesByFilename() throws Exception {
+        MessageSearchIndex.SearchPage page = index.search("lab", List.of(), List.of("100:103"), 0, 10);
+
+        assertEquals(1, page.totalHits());
+        assertEquals("lab-report.docx", page.hits().get(0).attachmentFilename());
+    }
+
+    @Test
+    void pagesThroughHits() throws Exception {
+        MessageSearchIndex.SearchPage first = index.search("photosynthesis", List.of(10L, 20L), List.of(), 0, 2);
+        MessageSearchIndex.SearchPage second = index.search("photosynthesis", List.of(10L, 20L), List.of(), 2, 2);
+
+        assertEquals(2, first.hits().size());
+        assertEquals(1, second.hits().size());
+        assertTrue(first.hits().stream().noneMatch(hit -> hit.messageId() == second.hits().get(0).messageId()));
+    }
+
+    @Test
+    void rebuildDropsMessagesThatWereNotReindexed() throws Exception {
+        long generation = index.startRebuild();
+        index.indexClassMessage(1L, "Did anyone solve the homework on photosynthesis?", NOW, 10L, 100L);
+        index.finishRebuild(generation);
+
+        MessageSearchIndex.SearchPage page = index.search("photosynthesis", List.of(10L, 20L), List.of("100:101"), 0, 10);
+
+        assertEquals(1, page.totalHits());
+        assertEquals(1L, page.hits().get(0).messageId());
+    }
+}
@@ -0,0 +1,104 @@
+package student_management_system.service;
+
+import student_management_system.model.User;
+import student_management_system.web.dto.ChunkedUploadStatusDto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Uploads a file in chunks (out of order, with a resume in between) into a temporary
+ * directory and checks the checksum verification.
+ */
+class PrivateAttachmentUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @TempDir
+    Path uploadDir;
+
+    private PrivateAttachmentUploadServiceImpl service;
+    private final User alice = new User("alice", "secret", "Alice", "A");
+    private final User bob = new User("bob", "secret", "Bob", "B");
+    private final byte[] file = new byte[2500];
+
+    @BeforeEach
+    void createService() {
+        service = new PrivateAttachmentUploadServiceImpl();
+        ReflectionTestUtils.setField(service, "privateAttachmentUploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(service, "maxSize", 10_000L);
+        ReflectionTestUtils.setField(service, "maxOpenUploadsPerUser", 2);
+        ReflectionTestUtils.setField(service, "expireAfterMinutes", 60L);
+        new Random(42).nextBytes(file);
+    }
+
+    @Test
+    void assemblesChunksWrittenInAnyOrder() throws Exception {
+        String uploadId = service.startUpload(alice, bob, "notes.pdf", file.length).getUploadId();
+
+        writeChunk(uploadId, 2000);
+        ChunkedUploadStatusDto status = writeChunk(uploadId, 0);
+        assertEquals(1000, status.getNextOffset(), "the client resumes at the first missing chunk");
+        assertEquals(1500, status.getReceivedBytes());
+        writeChunk(uploadId, 1000);
+
+        PrivateAttachmentUploadService.CompletedUpload completed = service.complete(uploadId, "alice", sha256(file));
+
+        assertEquals("notes.pdf", completed.originalFilename());
+        assertEquals("bob", completed.receiverUsername());
+        assertArrayEquals(file, Files.readAllBytes(uploadDir.resolve(completed.storedFilename())));
+    }
+
+    @Test
+    void rejectsMisalignedOrShortChunksAndOtherUsers() throws Exception {
+        String uploadId = service.startUpload(alice, bob, "notes.pdf", file.length).getUploadId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(uploadId, "alice", 500, CHUNK_SIZE, new ByteArrayInputStream(file, 500, CHUNK_SIZE)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(uploadId, "alice", 0, CHUNK_SIZE, new ByteArrayInputStream(file, 0, 10)));
+        assertThrows(jakarta.persistence.EntityNotFoundException.class, () -> service.getStatus(uploadId, "bob"));
+        assertThrows(IllegalStateException.class, () -> service.complete(uploadId, "alice", sha256(file)),
+                "chunks are missing");
+    }
+
+    @Test
+    void deletesTheFileWhenTheChecksumDoesNotMatch() throws Exception {
+        String uploadId = service.startUpload(alice, bob, "notes.pdf", file.length).getUploadId();
+        for (long offset = 0; offset < file.length; offset += CHUNK_SIZE) {
+            writeChunk(uploadId, offset);
+        }
+        byte[] other = Arrays.copyOf(file, file.length);
+        other[0] ^= 1;
+
+        assertThrows(IllegalStateException.class, () -> service.complete(uploadId, "alice", sha256(other)));
+        try (var files = Files.list(uploadDir)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+
+    private ChunkedUploadStatusDto writeChunk(String uploadId, long offset) throws Exception {
+        int length = (int) Math.min(CHUNK_SIZE, file.length - offset);
+        return service.writeChunk(uploadId, "alice", offset, length, new ByteArrayInputStream(file, (int) offset, length));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,171 @@
+package student_management_system.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the sketch's quantiles and the distribution's statistics with the exact values
+ * computed from the sorted scores, for single sketches, merged sketches and small classes
+ * (which must be exact).
+ */
+class ScoreDistributionTest {
+
+    private static final double[] FRACTIONS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+    // KLL with k = 200 keeps the rank error around 1%; allow twice that
+    private static final double RANK_TOLERANCE = 0.02;
+
+    @Test
+    void estimatesQuantilesWithinRankTolerance() {
+        Random random = new Random(42);
+        for (String shape : List.of("uniform", "normal", "skewed", "sorted")) {
+            double[] values = new double[100_000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = switch (shape) {
+                    case "uniform" -> random.nextDouble() * 100;
+                    case "normal" -> 70 + random.nextGaussian() * 12;
+                    case "skewed" -> 100 * Math.pow(random.nextDouble(), 4);
+                    default -> i * 100.0 / values.length;
+                };
+            }
+            QuantileSketch sketch = new QuantileSketch();
+            for (double value : values) {
+                sketch.add(value);
+            }
+
+            assertEquals(values.length, sketch.count());
+            assertTrue(sketch.retained() < 3 * QuantileSketch.DEFAULT_K + 64, shape + " retained " + sketch.retained());
+            assertRanksClose(shape, values, sketch);
+        }
+    }
+
+    @Test
+    void mergedSketchesMatchTheCombinedScores() {
+        Random random = new Random(7);
+        QuantileSketch merged = new QuantileSketch();
+        double[] all = new double[0];
+        for (int part = 0; part < 40; part++) {
+            // Items of very different sizes and centres, like a class's assignments and quizzes
+            double[] values = new double[1 + random.nextInt(5_000)];
+            double centre = 40 + random.nextInt(50);
+            QuantileSketch sketch = new QuantileSketch();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = centre + random.nextGaussian() * 10;
+                sketch.add(values[i]);
+            }
+            merged.merge(sketch);
+            assertEquals(values.length, sketch.count(), "merging leaves the source unchanged");
+            double[] combined = Arrays.copyOf(all, all.length + values.length);
+            System.arraycopy(values, 0, combined, all.length, values.length);
+            all = combined;
+        }
+
+        assertEquals(all.length, merged.count());
+        assertRanksClose("merged", all, merged);
+    }
+
+    @Test
+    void smallClassesAreExact() {
+        double[] scores = {55, 90, 72.5, 100, 61, 88, 35, 79, 94, 67};
+        ScoreDistribution distribution = new ScoreDistribution();
+        for (double score : scores) {
+            distribution.add(score);
+        }
+        distribution.add(Double.NaN);
+
+        ScoreDistribution.Summary summary = distribution.summary();
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        assertEquals(10, summary.count());
+        assertEquals(Arrays.stream(scores).average().orElseThrow(), summary.mean(), 1e-9);
+        assertEquals(35, summary.min());
+        assertEquals(100, summary.max());
+        assertEquals(sorted[2], summary.p25(), "the smallest score with at least a quarter at or below it");
+        assertEquals(sorted[4], summary.median());
+        assertEquals(sorted[8], summary.p90());
+        assertEquals(List.of(0L, 0L, 0L, 1L, 0L, 1L, 2L, 2L, 1L, 3L), summary.histogram(), "100% is in the last bucket");
+        assertEquals(100, summary.barPercent(9));
+        assertEquals(67, summary.barPercent(6));
+        assertEquals("60-70%", summary.bucketLabel(6));
+    }
+
+    @Test
+    void mergesHistogramsAndExtremesExactly() {
+        ScoreDistribution essays = new ScoreDistribution();
+        ScoreDistribution quizzes = new ScoreDistribution();
+        for (int i = 0; i < 1000; i++) {
+            essays.add(i % 100);
+            quizzes.add(50 + i % 60);
+        }
+        quizzes.add(-5);
+
+        ScoreDistribution all = new ScoreDistribution();
+        all.merge(essays);
+        all.merge(quizzes);
+        all.merge(new ScoreDistribution());
+
+        ScoreDistribution.Summary summary = all.summary();
+        ScoreDistribution.Summary essaySummary = essays.summary();
+        ScoreDistribution.Summary quizSummary = quizzes.summary();
+        assertEquals(2001, summary.count());
+        assertEquals(-5, summary.min(), "out-of-range scores keep their value");
+        assertEquals(109, summary.max());
+        assertEquals((essaySummary.mean() * 1000 + quizSummary.mean() * 1001) / 2001, summary.mean(), 1e-9);
+        for (int bucket = 0; bucket < ScoreDistribution.BUCKETS; bucket++) {
+            assertEquals(essaySummary.histogram().get(bucket) + quizSummary.histogram().get(bucket),
+                    summary.histogram().get(bucket).longValue());
+        }
+        assertEquals(1L, quizSummary.histogram().get(0).longValue(), "-5 counts in the first bucket");
+        assertEquals(1000, essaySummary.count(), "merging leaves the source unchanged");
+        assertTrue(new ScoreDistribution().summary().isEmpty());
+        assertTrue(Double.isNaN(new ScoreDistribution().summary().median()));
+    }
+
+    private static void assertRanksClose(String name, double[] values, QuantileSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double fraction : FRACTIONS) {
+            double estimate = sketch.quantile(fraction);
+            // The estimate's true rank range among the exact values
+            int below = lowerBound(sorted, estimate);
+            int atOrBelow = upperBound(sorted, estimate);
+            double target = fraction * sorted.length;
+            double error = target < below ? below - target : target > atOrBelow ? target - atOrBelow : 0;
+            assertTrue(error / sorted.length <= RANK_TOLERANCE,
+                    name + " q" + fraction + ": estimate " + estimate + " is off by rank " + error / sorted.length);
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
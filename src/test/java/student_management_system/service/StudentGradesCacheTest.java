@@ -0,0 +1,119 @@
+package student_management_system.service;
+
+import student_management_system.model.Assignment;
+import student_management_system.model.Quiz;
+import student_management_system.model.QuizAttempt;
+import student_management_system.model.Submission;
+import student_management_system.repository.QuizAttemptRepository;
+import student_management_system.repository.SubmissionRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a student's grades in a class are loaded once with the class-scoped queries,
+ * that the counted submission and attempt per item follow the gradebook's rules, and that an
+ * eviction reloads only that student and class.
+ */
+class StudentGradesCacheTest {
+
+    private StudentGradesCache cache;
+    private SubmissionRepository submissionRepository;
+    private QuizAttemptRepository quizAttemptRepository;
+
+    @BeforeEach
+    void createCache() {
+        Assignment essay = assignment(100L);
+        Quiz quiz = quiz(200L);
+        submissionRepository = mock(SubmissionRepository.class);
+        quizAttemptRepository = mock(QuizAttemptRepository.class);
+        when(submissionRepository.findByStudentIdAndClassIdWithAssignment(10L, 1L)).thenReturn(List.of(
+                submission(1L, essay, "D", 50.0, false, true),
+                submission(2L, essay, "A", 95.0, true, false)));
+        when(quizAttemptRepository.findByStudentIdAndClassIdWithQuiz(10L, 1L)).thenReturn(List.of(
+                attempt(5L, quiz, QuizAttempt.AttemptStatus.GRADED, 4.0, 8),
+                attempt(6L, quiz, QuizAttempt.AttemptStatus.IN_PROGRESS, null, null)));
+        when(submissionRepository.findByStudentIdAndClassIdWithAssignment(20L, 1L)).thenReturn(List.of());
+        when(quizAttemptRepository.findByStudentIdAndClassIdWithQuiz(20L, 1L)).thenReturn(List.of());
+        cache = new StudentGradesCache();
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "submissionRepository", submissionRepository);
+        ReflectionTestUtils.setField(cache, "quizAttemptRepository", quizAttemptRepository);
+    }
+
+    @Test
+    void keepsTheCountedSubmissionAndAttemptPerItem() {
+        StudentGradesCache.Grades grades = cache.get(10L, 1L);
+
+        assertEquals(new StudentGradesCache.SubmissionGrade(2L, "A", 95.0), grades.submissions().get(100L),
+                "the active makeup submission counts, not the superseded one");
+        assertTrue(grades.submissions().get(100L).isPassing());
+        StudentGradesCache.AttemptGrade attempt = grades.attempts().get(200L);
+        assertEquals(5L, attempt.id().longValue(), "a later attempt in progress does not hide a graded one");
+        assertFalse(attempt.isPassing());
+        assertNull(grades.submissions().get(101L));
+    }
+
+    @Test
+    void loadsOncePerStudentAndClassUntilEvicted() {
+        cache.get(10L, 1L);
+        cache.get(10L, 1L);
+        cache.get(20L, 1L);
+        verify(submissionRepository, times(1)).findByStudentIdAndClassIdWithAssignment(10L, 1L);
+        verify(quizAttemptRepository, times(1)).findByStudentIdAndClassIdWithQuiz(10L, 1L);
+
+        cache.evict(10L, 1L);
+        cache.get(10L, 1L);
+        cache.get(20L, 1L);
+
+        verify(submissionRepository, times(2)).findByStudentIdAndClassIdWithAssignment(10L, 1L);
+        verify(submissionRepository, times(1)).findByStudentIdAndClassIdWithAssignment(20L, 1L);
+    }
+
+    private static Assignment assignment(Long id) {
+        Assignment assignment = new Assignment();
+        assignment.setId(id);
+        return assignment;
+    }
+
+    private static Quiz quiz(Long id) {
+        Quiz quiz = new Quiz();
+        quiz.setId(id);
+        return quiz;
+    }
+
+    private static Submission submission(Long id, Assignment assignment, String grade, Double numericalGrade,
+                                         boolean makeup, boolean superseded) {
+        Submission submission = new Submission();
+        submission.setId(id);
+        submission.setAssignment(assignment);
+        submission.setGrade(grade);
+        submission.setNumericalGrade(numericalGrade);
+        submission.setMakeupSubmission(makeup);
+        submission.setSuperseded(superseded);
+        return submission;
+    }
+
+    private static QuizAttempt attempt(Long id, Quiz quiz, QuizAttempt.AttemptStatus status, Double score, Integer maxScore) {
+        QuizAttempt attempt = new QuizAttempt();
+        attempt.setId(id);
+        attempt.setQuiz(quiz);
+        attempt.setStatus(status);
+        attempt.setScore(score);
+        attempt.setMaxScore(maxScore);
+        return attempt;
+    }
+}
@@ -0,0 +1,103 @@
+package student_management_system.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks matching (substring, word prefix, several words, accents), ranking, paging,
+ * exclusion, updates, and that a load does not overwrite users changed while it runs.
+ */
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new UserSearchIndex();
+        ReflectionTestUtils.setField(index, "maxResults", 500);
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        index.init();
+        load(List.of(
+                user(1, "anna.smith@school.edu", "Anna", "Smith"),
+                user(2, "john.smithers@school.edu", "John", "Smithers"),
+                user(3, "jose@school.edu", "José", "Álvarez"),
+                user(4, "li@school.edu", "Li", "Wei"),
+                user(5, "goldsmith@school.edu", "Mark", "Goldsmith")));
+    }
+
+    @Test
+    void matchesSubstringsAndRanksExactMatchesFirst() {
+        assertEquals(List.of(1L, 2L, 5L), ids(index.search("smith", id -> false, 0, 10)),
+                "exact last name, then prefix, then anywhere");
+        assertEquals(List.of(3L), ids(index.search("ALVAREZ", id -> false, 0, 10)), "case and accents are ignored");
+        assertEquals(List.of(4L), ids(index.search("li", id -> false, 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("john smith", id -> false, 0, 10)), "every word must match");
+        assertEquals(5, index.search("school.edu", id -> false, 0, 10).totalHits());
+        assertTrue(index.search("xyz", id -> false, 0, 10).users().isEmpty());
+    }
+
+    @Test
+    void pagesAndExcludes() {
+        UserSearchIndex.Hits first = index.search("school", id -> id == 3L, 0, 2);
+        UserSearchIndex.Hits second = index.search("school", id -> id == 3L, 1, 2);
+        UserSearchIndex.Hits third = index.search("school", id -> id == 3L, 2, 2);
+
+        assertEquals(4, first.totalHits());
+        List<Long> all = new ArrayList<>(ids(first));
+        all.addAll(ids(second));
+        all.addAll(ids(third));
+        assertEquals(4, new HashSet<>(all).size());
+        assertFalse(all.contains(3L));
+        assertFalse(third.hasMore());
+        assertTrue(ids(index.search("school", id -> false, 3, 2)).isEmpty());
+    }
+
+    @Test
+    void reflectsUpdatesAndKeepsThemAcrossAReload() {
+        index.put(user(4, "li@school.edu", "Li", "Zhang"));
+        index.remove(5);
+        assertEquals(List.of(4L), ids(index.search("zhang", id -> false, 0, 10)));
+        assertTrue(ids(index.search("wei", id -> false, 0, 10)).isEmpty(), "old grams are removed");
+        assertTrue(ids(index.search("goldsmith", id -> false, 0, 10)).isEmpty());
+
+        // A reload that reads user 4 before another rename, while user 6 is created
+        index.startLoad();
+        index.put(user(4, "li@school.edu", "Li", "Chen"));
+        index.put(user(6, "new@school.edu", "Nina", "New"));
+        Set<Long> seen = new HashSet<>();
+        index.loadBatch(List.of(user(1, "anna.smith@school.edu", "Anna", "Smith"),
+                user(4, "li@school.edu", "Li", "Wei")), seen);
+        index.finishLoad(seen);
+
+        assertEquals(List.of(4L), ids(index.search("chen", id -> false, 0, 10)), "the newer put wins");
+        assertEquals(List.of(6L), ids(index.search("nina", id -> false, 0, 10)));
+        assertTrue(ids(index.search("jose", id -> false, 0, 10)).isEmpty(), "users the load did not see are dropped");
+        assertEquals(3, index.size());
+    }
+
+    private void load(List<UserSearchIndex.IndexedUser> users) {
+        index.startLoad();
+        Set<Long> seen = new HashSet<>();
+        index.loadBatch(users, seen);
+        index.finishLoad(seen);
+    }
+
+    private static UserSearchIndex.IndexedUser user(long id, String username, String firstName, String lastName) {
+        return new UserSearchIndex.IndexedUser(id, username, firstName, lastName, null, List.of("ROLE_STUDENT"));
+    }
+
+    private static List<Long> ids(UserSearchIndex.Hits hits) {
+        return hits.users().stream().map(UserSearchIndex.IndexedUser::id).toList();
+    }
+}